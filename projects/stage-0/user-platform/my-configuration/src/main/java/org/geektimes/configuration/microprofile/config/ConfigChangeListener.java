@@ -0,0 +1,23 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.Config;
+
+import java.util.EventListener;
+import java.util.Set;
+
+/**
+ * {@link Config} 变化监听器
+ *
+ * @see ObservableConfig#addChangeListener(ConfigChangeListener)
+ */
+@FunctionalInterface
+public interface ConfigChangeListener extends EventListener {
+
+    /**
+     * 新的配置快照发布之后回调（可能在任意线程）
+     *
+     * @param config               发生变化的 {@link Config}
+     * @param changedPropertyNames 新增、修改或者删除的属性名，<code>null</code> 表示未知（可能全部变化）
+     */
+    void onChange(Config config, Set<String> changedPropertyNames);
+}
@@ -0,0 +1,260 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.inject.ConfigProperties;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.config.spi.Converter;
+import org.geektimes.configuration.microprofile.config.converter.Converters;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 配置映射绑定器（每个类型编译一次）
+ * <p>
+ * 将前缀下的属性绑定到 POJO（无参构造器，非 static、非 transient 的字段，允许 final）
+ * 或者接口（无参的抽象方法，JDK 动态代理，default 方法通过 {@link MethodHandle} 调用接口的实现）。属性名默认为字段名或者方法名，
+ * 可以通过 {@link ConfigProperty} 指定名称与默认值，{@link Optional} 类型的属性可以不存在。
+ * final 字段请在构造器中赋初值，以常量表达式初始化的字段读取时会被编译器内联。
+ * <p>
+ * 编译时解析所有属性的 {@link Converter}，绑定时仅查找属性并转换类型，结果为不可变对象。
+ * 接口映射的属性值保存在数组中，按编译时确定的方法下标读取。
+ *
+ * @param <T> 映射类型
+ * @see ConfigMappingProvider
+ */
+class ConfigMappingBinder<T> {
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final Class<T> type;
+
+    /**
+     * {@link ConfigProperties#prefix()}，未指定时为 ""
+     */
+    private final String prefix;
+
+    private final PropertyBinding[] propertyBindings;
+
+    /**
+     * POJO 的无参构造器，或者接口代理类的构造器
+     */
+    private final Constructor<?> constructor;
+
+    /**
+     * 接口的属性方法 -> {@link #propertyBindings} 下标
+     */
+    private final Map<Method, Integer> methodIndexes;
+
+    /**
+     * 接口的 default 方法 -> 接口实现的 {@link MethodHandle}（参数为代理对象与参数数组）
+     */
+    private final Map<Method, MethodHandle> defaultMethods;
+
+    private ConfigMappingBinder(Class<T> type, String prefix, PropertyBinding[] propertyBindings,
+                                Constructor<?> constructor, Map<Method, Integer> methodIndexes,
+                                Map<Method, MethodHandle> defaultMethods) {
+        this.type = type;
+        this.prefix = prefix;
+        this.propertyBindings = propertyBindings;
+        this.constructor = constructor;
+        this.methodIndexes = methodIndexes;
+        this.defaultMethods = defaultMethods;
+    }
+
+    /**
+     * 编译映射类型
+     *
+     * @throws IllegalArgumentException 类型不支持映射（包括接口存在带参数的抽象方法，或者 default 方法无法调用），
+     *                                  或者属性类型没有对应的 {@link Converter} 时
+     */
+    static <T> ConfigMappingBinder<T> compile(Class<T> type, Converters converters) {
+        ConfigProperties configProperties = type.getAnnotation(ConfigProperties.class);
+        String prefix = configProperties == null || ConfigProperties.UNCONFIGURED_PREFIX.equals(configProperties.prefix()) ?
+                "" : configProperties.prefix();
+        List<PropertyBinding> propertyBindings = new ArrayList<>();
+        Constructor<?> constructor;
+        Map<Method, Integer> methodIndexes = new HashMap<>();
+        Map<Method, MethodHandle> defaultMethods = new HashMap<>();
+        try {
+            if (type.isInterface()) {
+                for (Method method : type.getMethods()) {
+                    if (method.isDefault()) {
+                        defaultMethods.put(method, defaultMethodHandle(method));
+                    } else if (Modifier.isAbstract(method.getModifiers())) {
+                        if (method.getParameterCount() != 0) {
+                            throw new IllegalArgumentException("The method of the config mapping must not have "
+                                    + "parameters : " + method);
+                        }
+                        methodIndexes.put(method, propertyBindings.size());
+                        propertyBindings.add(new PropertyBinding(method, method.getName(),
+                                method.getGenericReturnType(), converters));
+                    }
+                }
+                constructor = Proxy.getProxyClass(type.getClassLoader(), type).getConstructor(InvocationHandler.class);
+            } else {
+                for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                            continue;
+                        }
+                        field.setAccessible(true);
+                        propertyBindings.add(new PropertyBinding(field, field.getName(), field.getGenericType(), converters));
+                    }
+                }
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("The type can't be mapped : " + type.getName(), e);
+        }
+        return new ConfigMappingBinder<>(type, prefix, propertyBindings.toArray(new PropertyBinding[0]), constructor,
+                methodIndexes, defaultMethods);
+    }
+
+    /**
+     * 接口 default 方法的实现（invokespecial），JDK 9+ 通过 <code>MethodHandles#privateLookupIn</code>
+     * 获取接口的 {@link MethodHandles.Lookup}，JDK 8 通过其私有构造器
+     *
+     * @throws IllegalArgumentException 无法获取时
+     */
+    private static MethodHandle defaultMethodHandle(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup;
+            try {
+                lookup = (MethodHandles.Lookup) MethodHandles.class
+                        .getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class)
+                        .invoke(null, declaringClass, MethodHandles.lookup());
+            } catch (NoSuchMethodException e) {
+                Constructor<MethodHandles.Lookup> lookupConstructor =
+                        MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                lookupConstructor.setAccessible(true);
+                lookup = lookupConstructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE);
+            }
+            return lookup.unreflectSpecial(method, declaringClass)
+                    .asSpreader(Object[].class, method.getParameterCount());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("The default method of the config mapping can't be invoked : "
+                    + method, e);
+        }
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 绑定属性值，创建映射对象
+     *
+     * @param prefix         属性名前缀，"" 表示没有前缀
+     * @param propertyValues 属性名 -> 属性值（不存在时为 <code>null</code>）
+     * @throws NoSuchElementException 必需的属性不存在时
+     */
+    T bind(String prefix, Function<String, String> propertyValues) {
+        String namePrefix = prefix.isEmpty() ? "" : prefix + ".";
+        Object[] values = new Object[propertyBindings.length];
+        for (int i = 0; i < propertyBindings.length; i++) {
+            values[i] = propertyBindings[i].resolve(namePrefix, propertyValues);
+        }
+        try {
+            if (type.isInterface()) {
+                return type.cast(constructor.newInstance(new MappingInvocationHandler(values)));
+            }
+            T mapping = type.cast(constructor.newInstance());
+            for (int i = 0; i < propertyBindings.length; i++) {
+                ((Field) propertyBindings[i].member).set(mapping, values[i]);
+            }
+            return mapping;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The config mapping can't be created : " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 映射的属性（字段或者方法）
+     */
+    private static class PropertyBinding {
+
+        private final Member member;
+
+        private final String name;
+
+        private final String defaultValue;
+
+        private final boolean optional;
+
+        private final Converter<?> converter;
+
+        private PropertyBinding(AccessibleObject member, String memberName, Type type, Converters converters) {
+            ConfigProperty configProperty = member.getAnnotation(ConfigProperty.class);
+            this.member = (Member) member;
+            this.name = configProperty == null || configProperty.name().isEmpty() ? memberName : configProperty.name();
+            this.defaultValue = configProperty == null || ConfigProperty.UNCONFIGURED_VALUE.equals(configProperty.defaultValue()) ?
+                    null : configProperty.defaultValue();
+            this.optional = type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Optional.class;
+            Type valueType = optional ? ((ParameterizedType) type).getActualTypeArguments()[0] : type;
+            this.converter = valueType == String.class ? value -> value : converters.getConverter(valueType);
+            if (converter == null) {
+                throw new IllegalArgumentException("No Converter for the config property : " + member);
+            }
+        }
+
+        private Object resolve(String namePrefix, Function<String, String> propertyValues) {
+            String propertyName = namePrefix + name;
+            String value = propertyValues.apply(propertyName);
+            if (value == null) {
+                value = defaultValue;
+            }
+            Object convertedValue = value == null ? null : converter.convert(value);
+            if (optional) {
+                return Optional.ofNullable(convertedValue);
+            }
+            if (convertedValue == null) {
+                throw new NoSuchElementException(String.format("The config property[%s] of %s is not configured",
+                        propertyName, member));
+            }
+            return convertedValue;
+        }
+    }
+
+    /**
+     * 接口映射代理，属性方法返回绑定时解析的值
+     */
+    private class MappingInvocationHandler implements InvocationHandler {
+
+        /**
+         * 与 {@link #propertyBindings} 下标一致
+         */
+        private final Object[] values;
+
+        private MappingInvocationHandler(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Integer index = methodIndexes.get(method);
+            if (index != null) {
+                return values[index];
+            }
+            MethodHandle defaultMethod = defaultMethods.get(method);
+            if (defaultMethod != null) {
+                return defaultMethod.invoke(proxy, args == null ? EMPTY_ARGS : args);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + Arrays.toString(values);
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperties;
+
+/**
+ * 提供配置映射的 {@link Config}
+ * <p>
+ * 将前缀下的属性绑定到不可变的 POJO 或者接口代理，映射对象随配置快照整体重建，
+ * 持有映射对象的调用方读取字段时无需查找属性与转换类型，需要最新配置时重新获取。
+ */
+public interface ConfigMappingProvider {
+
+    /**
+     * 获取配置映射，前缀为 {@link ConfigProperties#prefix()}（未标注时没有前缀）
+     *
+     * @param type 映射类型
+     * @param <T>  映射类型
+     * @return 当前配置快照的映射对象（同一快照中返回相同的对象）
+     * @throws IllegalArgumentException          类型不支持映射时
+     * @throws java.util.NoSuchElementException 必需的属性不存在时
+     */
+    <T> T getConfigMapping(Class<T> type);
+
+    /**
+     * 获取指定前缀的配置映射
+     *
+     * @param type   映射类型
+     * @param prefix 属性名前缀，如 "db.pool"，"" 表示没有前缀
+     * @param <T>    映射类型
+     * @return 当前配置快照的映射对象（同一快照中返回相同的对象）
+     * @throws IllegalArgumentException          类型不支持映射时
+     * @throws java.util.NoSuchElementException 必需的属性不存在时
+     */
+    <T> T getConfigMapping(Class<T> type, String prefix);
+}
@@ -0,0 +1,18 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.Config;
+
+/**
+ * 提供配置快照的 {@link Config}
+ * <p>
+ * 快照的读取结果不随配置源变化，适用于需要在一次处理（如一个请求）中读取一致配置的场景。
+ */
+public interface ConfigSnapshotProvider {
+
+    /**
+     * 获取当前配置的快照
+     *
+     * @return 不可变的 {@link Config}，仅持有当前快照的引用
+     */
+    Config getSnapshot();
+}
@@ -0,0 +1,246 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.ConfigValue;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 属性值解析（构建快照时使用）
+ * <ul>
+ *     <li>表达式 - "${key}"、"${key:default}"，属性名与默认值中可以嵌套表达式，"\$" 表示 "$" 本身</li>
+ *     <li>环境 Profile - 指定 {@link #PROFILE_PROPERTY_NAME} 时，"%profile.key" 优先于 "key"（不区分配置源）</li>
+ * </ul>
+ * 解析结果缓存在 memo 中，每个属性仅解析一次，同时记录属性之间的引用关系，用于增量更新时找到受影响的属性。
+ * 表达式存在循环引用，或者引用的属性不存在且没有默认值时，记录警告并使用原始值。
+ */
+class ConfigValueResolver {
+
+    /**
+     * 环境 Profile 属性名
+     */
+    static final String PROFILE_PROPERTY_NAME = "mp.config.profile";
+
+    private static final Logger logger = Logger.getLogger(ConfigValueResolver.class.getName());
+
+    /**
+     * 属性名 -> 原始值（已按配置源优先级合并）
+     */
+    private final Map<String, ConfigValue> rawValues;
+
+    private final String profilePrefix;
+
+    /**
+     * 属性名 -> 解析结果（<code>null</code> 表示不存在）
+     */
+    private final Map<String, ConfigValue> memo;
+
+    /**
+     * 被引用的属性名 -> 引用它的属性名
+     */
+    private final Map<String, Set<String>> dependents;
+
+    private final UnaryOperator<String> transformer;
+
+    /**
+     * 当前正在解析的属性，用于检测循环引用
+     */
+    private final LinkedHashSet<String> resolvingNames = new LinkedHashSet<>();
+
+    /**
+     * @param memo        已解析（且未受变化影响）的属性，解析结果同时写入
+     * @param dependents  属性引用关系，解析时更新
+     * @param transformer 解析表达式之后的转换
+     */
+    ConfigValueResolver(Map<String, ConfigValue> rawValues, String profile, Map<String, ConfigValue> memo,
+                        Map<String, Set<String>> dependents, UnaryOperator<String> transformer) {
+        this.rawValues = rawValues;
+        this.profilePrefix = profile == null || profile.trim().isEmpty() ? null : "%" + profile.trim() + ".";
+        this.memo = memo;
+        this.dependents = dependents;
+        this.transformer = transformer;
+    }
+
+    /**
+     * @return 所有可以解析的属性名（包括仅以当前 Profile 定义的属性）
+     */
+    Set<String> getPropertyNames() {
+        Set<String> propertyNames = new LinkedHashSet<>(rawValues.keySet());
+        if (profilePrefix != null) {
+            for (String propertyName : rawValues.keySet()) {
+                if (propertyName.startsWith(profilePrefix)) {
+                    propertyNames.add(propertyName.substring(profilePrefix.length()));
+                }
+            }
+        }
+        return propertyNames;
+    }
+
+    /**
+     * 解析属性
+     *
+     * @return 属性不存在时返回 <code>null</code>
+     */
+    ConfigValue resolve(String propertyName) {
+        if (memo.containsKey(propertyName)) {
+            return memo.get(propertyName);
+        }
+        boolean topLevel = resolvingNames.isEmpty();
+        if (!resolvingNames.add(propertyName)) {
+            List<String> cycle = new ArrayList<>(resolvingNames);
+            cycle = cycle.subList(cycle.indexOf(propertyName), cycle.size());
+            throw new IllegalArgumentException("The properties have circular references : "
+                    + String.join(" -> ", cycle) + " -> " + propertyName);
+        }
+        try {
+            ConfigValue rawValue = rawValues.get(propertyName);
+            if (profilePrefix != null && !propertyName.startsWith("%")) {
+                String profilePropertyName = profilePrefix + propertyName;
+                addDependent(profilePropertyName, propertyName);
+                ConfigValue profileRawValue = rawValues.get(profilePropertyName);
+                if (profileRawValue != null) {
+                    rawValue = profileRawValue;
+                }
+            }
+            ConfigValue configValue = null;
+            if (rawValue != null) {
+                String value;
+                try {
+                    value = expand(propertyName, rawValue.getRawValue());
+                } catch (RuntimeException e) {
+                    if (!topLevel) {
+                        throw e;
+                    }
+                    logger.log(Level.WARNING, String.format("配置属性[%s]表达式解析失败，使用原始值：%s",
+                            propertyName, e.getMessage()));
+                    value = rawValue.getRawValue();
+                }
+                configValue = new DefaultConfigValue(propertyName, transformer.apply(value), rawValue.getRawValue(),
+                        rawValue.getSourceName(), rawValue.getSourceOrdinal());
+            }
+            memo.put(propertyName, configValue);
+            return configValue;
+        } finally {
+            resolvingNames.remove(propertyName);
+        }
+    }
+
+    private String expand(String propertyName, String value) {
+        if (value.indexOf('$') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '\\' && value.startsWith("$", i + 1)) {
+                result.append('$');
+                i += 2;
+            } else if (c == '$' && value.startsWith("{", i + 1)) {
+                int end = indexOfClosingBrace(value, i + 2);
+                if (end < 0) {
+                    // 未闭合，按原样保留
+                    result.append(value, i, value.length());
+                    break;
+                }
+                result.append(evaluate(propertyName, value.substring(i + 2, end)));
+                i = end + 1;
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 计算表达式 "key" 或者 "key:default"
+     */
+    private String evaluate(String propertyName, String expression) {
+        int separator = indexOfDefaultSeparator(expression);
+        String referencedName = expand(propertyName, separator < 0 ? expression : expression.substring(0, separator));
+        addDependent(referencedName, propertyName);
+        ConfigValue referencedValue = resolve(referencedName);
+        if (referencedValue != null) {
+            return referencedValue.getValue();
+        }
+        if (separator >= 0) {
+            return expand(propertyName, expression.substring(separator + 1));
+        }
+        throw new NoSuchElementException(String.format("The property[%s] referenced by [%s] is not configured",
+                referencedName, propertyName));
+    }
+
+    private void addDependent(String referencedName, String propertyName) {
+        dependents.computeIfAbsent(referencedName, name -> new LinkedHashSet<>()).add(propertyName);
+    }
+
+    /**
+     * @return 与 "${" 匹配的 "}" 的位置，不存在时返回 -1
+     */
+    private static int indexOfClosingBrace(String value, int start) {
+        int depth = 1;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '$' && value.startsWith("{", i + 1)) {
+                depth++;
+                i++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 嵌套表达式之外第一个 ":" 的位置，不存在时返回 -1
+     */
+    private static int indexOfDefaultSeparator(String expression) {
+        int depth = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '$' && expression.startsWith("{", i + 1)) {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                depth--;
+            } else if (c == ':' && depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 找到受变化影响的属性（包括间接引用的属性）
+     *
+     * @param changedPropertyNames 变化的属性名
+     * @param profile              当前环境 Profile，可以为 <code>null</code>
+     * @param dependents           变化之前的属性引用关系
+     * @return 包括 <code>changedPropertyNames</code>
+     */
+    static Set<String> getAffectedPropertyNames(Set<String> changedPropertyNames, String profile,
+                                                Map<String, Set<String>> dependents) {
+        Set<String> affectedNames = new LinkedHashSet<>(changedPropertyNames);
+        if (profile != null && !profile.trim().isEmpty()) {
+            // 新增的 Profile 属性可能定义了新的属性
+            String profilePrefix = "%" + profile.trim() + ".";
+            for (String propertyName : changedPropertyNames) {
+                if (propertyName.startsWith(profilePrefix)) {
+                    affectedNames.add(propertyName.substring(profilePrefix.length()));
+                }
+            }
+        }
+        Deque<String> names = new ArrayDeque<>(affectedNames);
+        while (!names.isEmpty()) {
+            for (String dependentName : dependents.getOrDefault(names.poll(), Collections.emptySet())) {
+                if (affectedNames.add(dependentName)) {
+                    names.add(dependentName);
+                }
+            }
+        }
+        return affectedNames;
+    }
+}
@@ -3,66 +3,287 @@ package org.geektimes.configuration.microprofile.config;
 
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigValue;
+import org.eclipse.microprofile.config.inject.ConfigProperties;
 import org.eclipse.microprofile.config.spi.ConfigSource;
 import org.eclipse.microprofile.config.spi.Converter;
 import org.geektimes.configuration.microprofile.config.converter.Converters;
 import org.geektimes.configuration.microprofile.config.source.ConfigSources;
+import org.geektimes.configuration.microprofile.config.source.MapBasedConfigSource;
 
+import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import static java.util.stream.StreamSupport.stream;
+/**
+ * 默认实现 {@link Config}
+ * <p>
+ * 所有配置源合并为不可变的快照（属性名 -> {@link ConfigValue}，高优先级配置源优先），
+ * 构建快照时解析表达式与环境 Profile（{@link ConfigValueResolver}），读取为一次哈希查找，不会创建新的对象。
+ * 配置源（{@link MapBasedConfigSource}）发生变化时，基于当前快照重新解析变化的属性以及引用它们的属性
+ * （变化的属性未知时重新读取所有配置源），创建新的快照并整体替换，读取方不会看到部分更新的状态。
+ * <p>
+ * 类型转换使用 {@link Converters} 中最高优先级（或者由元素类型组合）的 {@link Converter}，
+ * 转换结果按（属性名，类型）缓存在快照中，随快照一起失效，重复读取不会再次转换。
+ * <p>
+ * {@link #getSnapshot()} 返回绑定到当前快照的视图，多次读取的结果一致。新的快照发布之后通知
+ * {@link ConfigChangeListener}。
+ * <p>
+ * 配置映射（{@link #getConfigMapping(Class, String)}）的绑定器每个类型编译一次，映射对象缓存在快照中，
+ * 前缀下的属性变化时随新的快照重建。
+ */
+class DefaultConfig implements Config, ConfigSnapshotProvider, ObservableConfig, ConfigMappingProvider {
 
-class DefaultConfig implements Config {
+    private static final Logger logger = Logger.getLogger(DefaultConfig.class.getName());
+
+    /**
+     * 转换结果为 <code>null</code> 的占位对象
+     */
+    private static final Object NULL_VALUE = new Object();
 
     private final ConfigSources configSources;
 
     private final Converters converters;
 
+    private volatile Snapshot snapshot;
+
+    private final List<ConfigChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 映射类型 -> 绑定器
+     */
+    private final ConcurrentMap<Class<?>, ConfigMappingBinder<?>> configMappingBinders = new ConcurrentHashMap<>();
+
     DefaultConfig(ConfigSources configSources, Converters converters) {
         this.configSources = configSources;
         this.converters = converters;
+        this.snapshot = newSnapshot();
+        for (ConfigSource configSource : snapshot.configSources) {
+            if (configSource instanceof MapBasedConfigSource) {
+                ((MapBasedConfigSource) configSource).addChangeListener(
+                        (source, changedPropertyNames) -> onConfigSourceChange(changedPropertyNames));
+            }
+        }
     }
 
-    @Override
-    public <T> T getValue(String propertyName, Class<T> propertyType) {
-        ConfigValue configValue = getConfigValue(propertyName);
-        if (configValue == null) {
-            return null;
+    /**
+     * 重新读取所有配置源，替换快照
+     *
+     * @throws IllegalStateException 配置源读取失败时（保留当前快照）
+     */
+    synchronized void refresh() {
+        this.snapshot = newSnapshot();
+        fireChange(null);
+    }
+
+    /**
+     * 重新解析指定的属性，其他属性的值与转换结果保留
+     *
+     * @param propertyNames 变化的属性名
+     */
+    synchronized void refresh(Set<String> propertyNames) {
+        if (propertyNames.contains(ConfigValueResolver.PROFILE_PROPERTY_NAME)) {
+            // 环境 Profile 变化可能影响所有属性
+            refresh();
+            return;
+        }
+        Snapshot current = this.snapshot;
+        Map<String, ConfigValue> rawValues = new LinkedHashMap<>(current.rawValues);
+        for (String propertyName : propertyNames) {
+            ConfigValue rawValue = resolveRawValue(current.configSources, propertyName);
+            if (rawValue == null) {
+                rawValues.remove(propertyName);
+            } else {
+                rawValues.put(propertyName, rawValue);
+            }
+        }
+        // 变化的属性，以及直接或者间接引用它们的属性
+        Set<String> affectedNames = ConfigValueResolver.getAffectedPropertyNames(propertyNames, current.profile,
+                current.dependents);
+        Map<String, ConfigValue> memo = new HashMap<>(current.configValues);
+        memo.keySet().removeAll(affectedNames);
+        Map<String, Set<String>> dependents = new HashMap<>();
+        current.dependents.forEach((propertyName, dependentNames) ->
+                dependents.put(propertyName, new LinkedHashSet<>(dependentNames)));
+        ConfigValueResolver resolver = new ConfigValueResolver(rawValues, current.profile, memo, dependents,
+                this::transformPropertyValue);
+        Map<String, ConfigValue> configValues = new LinkedHashMap<>(current.configValues);
+        for (String propertyName : affectedNames) {
+            ConfigValue configValue = resolver.resolve(propertyName);
+            if (configValue == null) {
+                configValues.remove(propertyName);
+            } else {
+                configValues.put(propertyName, configValue);
+            }
         }
-        String propertyValue = configValue.getValue();
-        // String 转换成目标类型
-        Converter<T> converter = doGetConverter(propertyType);
-        return converter == null ? null : converter.convert(propertyValue);
+        Snapshot snapshot = new Snapshot(current.configSources, Collections.unmodifiableMap(rawValues),
+                Collections.unmodifiableMap(configValues), dependents, current.profile);
+        current.convertedValues.forEach((propertyType, convertedValues) -> {
+            ConcurrentMap<String, Object> retainedValues = new ConcurrentHashMap<>(convertedValues);
+            retainedValues.keySet().removeAll(affectedNames);
+            snapshot.convertedValues.put(propertyType, retainedValues);
+        });
+        current.configMappings.forEach((mappingType, configMappings) -> {
+            ConcurrentMap<String, Object> retainedMappings = new ConcurrentHashMap<>(configMappings);
+            retainedMappings.keySet().removeIf(prefix -> isAffected(prefix, affectedNames));
+            snapshot.configMappings.put(mappingType, retainedMappings);
+        });
+        this.snapshot = snapshot;
+        fireChange(Collections.unmodifiableSet(affectedNames));
+    }
+
+    /**
+     * @return 前缀下是否存在变化的属性
+     */
+    private static boolean isAffected(String prefix, Set<String> propertyNames) {
+        if (prefix.isEmpty()) {
+            return !propertyNames.isEmpty();
+        }
+        for (String propertyName : propertyNames) {
+            if (propertyName.startsWith(prefix) &&
+                    (propertyName.length() == prefix.length() || propertyName.charAt(prefix.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public ConfigValue getConfigValue(String propertyName) {
+    public void addChangeListener(ConfigChangeListener listener) {
+        changeListeners.add(listener);
+    }
 
-        String propertyValue = null;
+    @Override
+    public void removeChangeListener(ConfigChangeListener listener) {
+        changeListeners.remove(listener);
+    }
 
-        ConfigSource configSource = null;
+    private void fireChange(Set<String> changedPropertyNames) {
+        for (ConfigChangeListener listener : changeListeners) {
+            try {
+                listener.onChange(this, changedPropertyNames);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "配置变化监听器执行失败：" + e.getMessage(), e);
+            }
+        }
+    }
 
-        Iterator<ConfigSource> iterator = configSources.iterator();
+    private void onConfigSourceChange(Set<String> changedPropertyNames) {
+        try {
+            if (changedPropertyNames == null) {
+                refresh();
+            } else {
+                refresh(changedPropertyNames);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "配置快照更新失败，继续使用当前配置：" + e.getMessage(), e);
+        }
+    }
 
-        while (iterator.hasNext()) {
-            configSource = iterator.next();
-            propertyValue = configSource.getValue(propertyName);
+    private Snapshot newSnapshot() {
+        List<ConfigSource> sources = new ArrayList<>();
+        configSources.forEach(sources::add);
+        Map<String, ConfigValue> rawValues = new LinkedHashMap<>();
+        // 配置源已按优先级（从高到低）排序
+        for (ConfigSource configSource : sources) {
+            Map<?, ?> properties = configSource.getProperties();
+            for (Map.Entry<?, ?> entry : properties.entrySet()) {
+                Object propertyName = entry.getKey();
+                Object propertyValue = entry.getValue();
+                if (!(propertyName instanceof String) || propertyValue == null
+                        || rawValues.containsKey(propertyName)) {
+                    continue;
+                }
+                rawValues.put((String) propertyName,
+                        newRawValue(configSource, (String) propertyName, String.valueOf(propertyValue)));
+            }
+        }
+        ConfigValue profileValue = rawValues.get(ConfigValueResolver.PROFILE_PROPERTY_NAME);
+        String profile = profileValue == null ? null : profileValue.getRawValue();
+        Map<String, Set<String>> dependents = new HashMap<>();
+        ConfigValueResolver resolver = new ConfigValueResolver(rawValues, profile, new HashMap<>(), dependents,
+                this::transformPropertyValue);
+        Map<String, ConfigValue> configValues = new LinkedHashMap<>();
+        for (String propertyName : resolver.getPropertyNames()) {
+            ConfigValue configValue = resolver.resolve(propertyName);
+            if (configValue != null) {
+                configValues.put(propertyName, configValue);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(sources), Collections.unmodifiableMap(rawValues),
+                Collections.unmodifiableMap(configValues), dependents, profile);
+    }
+
+    private ConfigValue resolveRawValue(List<ConfigSource> sources, String propertyName) {
+        for (ConfigSource configSource : sources) {
+            String propertyValue = configSource.getValue(propertyName);
             if (propertyValue != null) {
-                break;
+                return newRawValue(configSource, propertyName, propertyValue);
             }
         }
+        return null;
+    }
 
-        if (propertyValue == null) { // Not found
+    private static ConfigValue newRawValue(ConfigSource configSource, String propertyName, String rawValue) {
+        return new DefaultConfigValue(propertyName, rawValue, rawValue, configSource.getName(), configSource.getOrdinal());
+    }
+
+    @Override
+    public <T> T getValue(String propertyName, Class<T> propertyType) {
+        return getValue(snapshot, propertyName, propertyType);
+    }
+
+    /**
+     * 转换结果按快照缓存，数组类型每次返回副本，调用方修改数组不影响其他调用方
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getValue(Snapshot snapshot, String propertyName, Class<T> propertyType) {
+        ConfigValue configValue = snapshot.configValues.get(propertyName);
+        if (configValue == null) {
             return null;
         }
+        ConcurrentMap<String, Object> convertedValues = snapshot.convertedValues.get(propertyType);
+        if (convertedValues == null) {
+            convertedValues = new ConcurrentHashMap<>();
+            ConcurrentMap<String, Object> existed = snapshot.convertedValues.putIfAbsent(propertyType, convertedValues);
+            if (existed != null) {
+                convertedValues = existed;
+            }
+        }
+        Object value = convertedValues.get(propertyName);
+        if (value == null) {
+            // String 转换成目标类型
+            Converter<T> converter = doGetConverter(propertyType);
+            if (converter == null) {
+                return null;
+            }
+            T convertedValue = converter.convert(configValue.getValue());
+            value = convertedValue == null ? NULL_VALUE : convertedValue;
+            convertedValues.putIfAbsent(propertyName, value);
+        }
+        return value == NULL_VALUE ? null : (T) copyIfArray(value);
+    }
+
+    private static Object copyIfArray(Object value) {
+        if (!value.getClass().isArray()) {
+            return value;
+        }
+        int length = Array.getLength(value);
+        Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+        System.arraycopy(value, 0, copy, 0, length);
+        return copy;
+    }
 
-        return new DefaultConfigValue(propertyName, propertyValue, transformPropertyValue(propertyValue),
-                configSource.getName(),
-                configSource.getOrdinal());
+    @Override
+    public ConfigValue getConfigValue(String propertyName) {
+        return snapshot.configValues.get(propertyName);
     }
 
     /**
-     * 转换属性值（如果需要）
+     * 转换属性值（如果需要），构建快照时在解析表达式之后调用
      *
      * @param propertyValue
      * @return
@@ -79,14 +300,12 @@ class DefaultConfig implements Config {
 
     @Override
     public Iterable<String> getPropertyNames() {
-        return stream(configSources.spliterator(), false)
-                .map(ConfigSource::getPropertyNames)
-                .collect(LinkedHashSet::new, Set::addAll, Set::addAll);
+        return snapshot.configValues.keySet();
     }
 
     @Override
     public Iterable<ConfigSource> getConfigSources() {
-        return configSources;
+        return snapshot.configSources;
     }
 
     @Override
@@ -95,13 +314,181 @@ class DefaultConfig implements Config {
         return converter == null ? Optional.empty() : Optional.of(converter);
     }
 
+    @SuppressWarnings("unchecked")
     protected <T> Converter<T> doGetConverter(Class<T> forType) {
-        List<Converter> converters = this.converters.getConverters(forType);
-        return converters.isEmpty() ? null : converters.get(0);
+        return (Converter<T>) converters.getConverter(forType);
     }
 
+    /**
+     * @return 当前对象，或者 {@link ConfigProperties} 类型的配置映射
+     * @throws IllegalArgumentException 不支持的类型
+     */
     @Override
     public <T> T unwrap(Class<T> type) {
-        return null;
+        return unwrap(this, snapshot, type);
+    }
+
+    private <T> T unwrap(Config config, Snapshot snapshot, Class<T> type) {
+        if (type.isInstance(config)) {
+            return type.cast(config);
+        }
+        if (type.isAnnotationPresent(ConfigProperties.class)) {
+            return getConfigMapping(snapshot, type, null);
+        }
+        throw new IllegalArgumentException("The type is not supported : " + type.getName());
+    }
+
+    @Override
+    public <T> T getConfigMapping(Class<T> type) {
+        return getConfigMapping(snapshot, type, null);
+    }
+
+    @Override
+    public <T> T getConfigMapping(Class<T> type, String prefix) {
+        return getConfigMapping(snapshot, type, prefix);
+    }
+
+    /**
+     * @param prefix <code>null</code> 时使用绑定器的前缀
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getConfigMapping(Snapshot snapshot, Class<T> type, String prefix) {
+        ConfigMappingBinder<T> binder = (ConfigMappingBinder<T>) configMappingBinders.computeIfAbsent(type,
+                mappingType -> ConfigMappingBinder.compile(mappingType, converters));
+        String mappingPrefix = prefix == null ? binder.getPrefix() : prefix;
+        ConcurrentMap<String, Object> configMappings = snapshot.configMappings.get(type);
+        if (configMappings == null) {
+            configMappings = new ConcurrentHashMap<>();
+            ConcurrentMap<String, Object> existed = snapshot.configMappings.putIfAbsent(type, configMappings);
+            if (existed != null) {
+                configMappings = existed;
+            }
+        }
+        Object configMapping = configMappings.get(mappingPrefix);
+        if (configMapping == null) {
+            // 基于同一个快照绑定，映射对象内的属性值一致
+            configMapping = binder.bind(mappingPrefix, propertyName -> {
+                ConfigValue configValue = snapshot.configValues.get(propertyName);
+                return configValue == null ? null : configValue.getValue();
+            });
+            Object existed = configMappings.putIfAbsent(mappingPrefix, configMapping);
+            if (existed != null) {
+                configMapping = existed;
+            }
+        }
+        return (T) configMapping;
+    }
+
+    @Override
+    public Config getSnapshot() {
+        return new SnapshotConfig(snapshot);
+    }
+
+    /**
+     * 绑定到固定快照的只读视图，与 {@link DefaultConfig} 共享转换结果缓存
+     */
+    private class SnapshotConfig implements Config, ConfigSnapshotProvider, ConfigMappingProvider {
+
+        private final Snapshot snapshot;
+
+        private SnapshotConfig(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public <T> T getValue(String propertyName, Class<T> propertyType) {
+            return DefaultConfig.this.getValue(snapshot, propertyName, propertyType);
+        }
+
+        @Override
+        public ConfigValue getConfigValue(String propertyName) {
+            return snapshot.configValues.get(propertyName);
+        }
+
+        @Override
+        public <T> Optional<T> getOptionalValue(String propertyName, Class<T> propertyType) {
+            return Optional.ofNullable(getValue(propertyName, propertyType));
+        }
+
+        @Override
+        public Iterable<String> getPropertyNames() {
+            return snapshot.configValues.keySet();
+        }
+
+        @Override
+        public Iterable<ConfigSource> getConfigSources() {
+            return snapshot.configSources;
+        }
+
+        @Override
+        public <T> Optional<Converter<T>> getConverter(Class<T> forType) {
+            return DefaultConfig.this.getConverter(forType);
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> type) {
+            return DefaultConfig.this.unwrap(this, snapshot, type);
+        }
+
+        @Override
+        public <T> T getConfigMapping(Class<T> type) {
+            return DefaultConfig.this.getConfigMapping(snapshot, type, null);
+        }
+
+        @Override
+        public <T> T getConfigMapping(Class<T> type, String prefix) {
+            return DefaultConfig.this.getConfigMapping(snapshot, type, prefix);
+        }
+
+        @Override
+        public Config getSnapshot() {
+            return this;
+        }
+    }
+
+    /**
+     * 配置快照（不可变）
+     */
+    private static class Snapshot {
+
+        private final List<ConfigSource> configSources;
+
+        /**
+         * 属性名 -> 原始值（已按配置源优先级合并）
+         */
+        private final Map<String, ConfigValue> rawValues;
+
+        /**
+         * 属性名 -> 解析表达式与环境 Profile 之后的值
+         */
+        private final Map<String, ConfigValue> configValues;
+
+        /**
+         * 被引用的属性名 -> 引用它的属性名，构建之后不再修改
+         */
+        private final Map<String, Set<String>> dependents;
+
+        private final String profile;
+
+        /**
+         * 类型 -> 属性名 -> 转换结果
+         */
+        private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> convertedValues =
+                new ConcurrentHashMap<>();
+
+        /**
+         * 映射类型 -> 前缀 -> 映射对象
+         */
+        private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> configMappings =
+                new ConcurrentHashMap<>();
+
+        private Snapshot(List<ConfigSource> configSources, Map<String, ConfigValue> rawValues,
+                         Map<String, ConfigValue> configValues, Map<String, Set<String>> dependents, String profile) {
+            this.configSources = configSources;
+            this.rawValues = rawValues;
+            this.configValues = configValues;
+            this.dependents = dependents;
+            this.profile = profile;
+        }
     }
 }
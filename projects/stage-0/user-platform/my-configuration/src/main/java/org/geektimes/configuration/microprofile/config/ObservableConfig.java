@@ -0,0 +1,13 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.Config;
+
+/**
+ * 支持变化通知的 {@link Config}
+ */
+public interface ObservableConfig {
+
+    void addChangeListener(ConfigChangeListener listener);
+
+    void removeChangeListener(ConfigChangeListener listener);
+}
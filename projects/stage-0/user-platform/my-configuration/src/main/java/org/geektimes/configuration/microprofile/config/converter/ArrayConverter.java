@@ -0,0 +1,35 @@
+package org.geektimes.configuration.microprofile.config.converter;
+
+import org.eclipse.microprofile.config.spi.Converter;
+
+import java.lang.reflect.Array;
+import java.util.List;
+
+/**
+ * 数组 {@link Converter}，逗号分隔的元素由元素类型的 Converter 转换
+ */
+class ArrayConverter implements Converter<Object> {
+
+    private final Class<?> componentType;
+
+    private final Converter<?> elementConverter;
+
+    ArrayConverter(Class<?> componentType, Converter<?> elementConverter) {
+        this.componentType = componentType;
+        this.elementConverter = elementConverter;
+    }
+
+    @Override
+    public Object convert(String value) {
+        if (value == null) {
+            throw new NullPointerException("The value must not be null!");
+        }
+        List<String> elements = Converters.split(value);
+        Object array = Array.newInstance(componentType, elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            // 基本类型数组自动拆箱
+            Array.set(array, i, elementConverter.convert(elements.get(i)));
+        }
+        return array;
+    }
+}
@@ -0,0 +1,33 @@
+package org.geektimes.configuration.microprofile.config.converter;
+
+import org.eclipse.microprofile.config.spi.Converter;
+
+import java.util.*;
+
+/**
+ * List、Set 与 Collection {@link Converter}，逗号分隔的元素由元素类型的 Converter 转换，结果不可变
+ */
+class CollectionConverter implements Converter<Collection<?>> {
+
+    private final boolean set;
+
+    private final Converter<?> elementConverter;
+
+    CollectionConverter(boolean set, Converter<?> elementConverter) {
+        this.set = set;
+        this.elementConverter = elementConverter;
+    }
+
+    @Override
+    public Collection<?> convert(String value) {
+        if (value == null) {
+            throw new NullPointerException("The value must not be null!");
+        }
+        List<String> elements = Converters.split(value);
+        Collection<Object> values = set ? new LinkedHashSet<>() : new ArrayList<>(elements.size());
+        for (String element : elements) {
+            values.add(elementConverter.convert(element));
+        }
+        return set ? Collections.unmodifiableSet((Set<Object>) values) : Collections.unmodifiableList((List<Object>) values);
+    }
+}
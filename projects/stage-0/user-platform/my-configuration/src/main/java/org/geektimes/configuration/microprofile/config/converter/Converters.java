@@ -2,18 +2,42 @@ package org.geektimes.configuration.microprofile.config.converter;
 
 import org.eclipse.microprofile.config.spi.Converter;
 
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.util.ServiceLoader.load;
 
+/**
+ * {@link Converter} 注册表
+ * <p>
+ * 写时复制：注册时复制并按优先级（从高到低，相同优先级按注册顺序）排序，发布新的不可变注册表，
+ * 读取无锁。除了直接注册的类型，{@link #getConverter(Type)} 还支持基本类型（使用包装类型的 Converter）、
+ * 数组（如 int[]）以及 List、Set、Collection 泛型（如 List&lt;Integer&gt;），
+ * 属性值按逗号分隔（"\," 表示逗号本身）并使用元素类型的 Converter 转换。
+ */
 public class Converters implements Iterable<Converter> {
 
     public static final int DEFAULT_PRIORITY = 100;
 
-    private final Map<Class<?>, PriorityQueue<PrioritizedConverter>> typedConverters = new HashMap<>();
+    private static final Map<Class<?>, Class<?>> WRAPPER_TYPES = new HashMap<>();
+
+    static {
+        WRAPPER_TYPES.put(boolean.class, Boolean.class);
+        WRAPPER_TYPES.put(byte.class, Byte.class);
+        WRAPPER_TYPES.put(char.class, Character.class);
+        WRAPPER_TYPES.put(short.class, Short.class);
+        WRAPPER_TYPES.put(int.class, Integer.class);
+        WRAPPER_TYPES.put(long.class, Long.class);
+        WRAPPER_TYPES.put(float.class, Float.class);
+        WRAPPER_TYPES.put(double.class, Double.class);
+    }
+
+    private volatile Registry registry = new Registry(Collections.emptyMap());
 
     private ClassLoader classLoader;
 
@@ -27,7 +51,7 @@ public class Converters implements Iterable<Converter> {
         this.classLoader = classLoader;
     }
 
-    public void addDiscoveredConverters() {
+    public synchronized void addDiscoveredConverters() {
         if (addedDiscoveredConverters) {
             return;
         }
@@ -48,9 +72,19 @@ public class Converters implements Iterable<Converter> {
         addConverter(converter, priority, convertedType);
     }
 
-    public void addConverter(Converter converter, int priority, Class<?> convertedType) {
-        PriorityQueue priorityQueue = typedConverters.computeIfAbsent(convertedType, t -> new PriorityQueue<>());
-        priorityQueue.offer(new PrioritizedConverter(converter, priority));
+    public synchronized void addConverter(Converter converter, int priority, Class<?> convertedType) {
+        Map<Class<?>, List<PrioritizedConverter>> typedConverters = new HashMap<>(registry.typedConverters);
+        List<PrioritizedConverter> converters = new ArrayList<>(
+                typedConverters.getOrDefault(convertedType, Collections.emptyList()));
+        PrioritizedConverter prioritizedConverter = new PrioritizedConverter(converter, priority);
+        int index = 0;
+        // 相同优先级时保持注册顺序
+        while (index < converters.size() && converters.get(index).getPriority() >= priority) {
+            index++;
+        }
+        converters.add(index, prioritizedConverter);
+        typedConverters.put(convertedType, Collections.unmodifiableList(converters));
+        this.registry = new Registry(typedConverters);
     }
 
     public void setClassLoader(ClassLoader classLoader) {
@@ -128,26 +162,133 @@ public class Converters implements Iterable<Converter> {
         addConverters(Arrays.asList(converters));
     }
 
+    /**
+     * @return 按优先级（从高到低）排序的 Converter 列表，不可变
+     */
     public List<Converter> getConverters(Class<?> convertedType) {
-        PriorityQueue<PrioritizedConverter> prioritizedConverters = typedConverters.get(convertedType);
-        if (prioritizedConverters == null || prioritizedConverters.isEmpty()) {
-            return Collections.emptyList();
+        return registry.sortedConverters.getOrDefault(convertedType, Collections.emptyList());
+    }
+
+    /**
+     * @return 类型 -> 最高优先级的 {@link Converter}
+     */
+    public Map<Class<?>, Converter> getHighestPriorityConverters() {
+        return registry.highestPriorityConverters;
+    }
+
+    /**
+     * 获取目标类型最高优先级的 Converter，数组与集合类型由元素类型的 Converter 组合而成
+     *
+     * @param type 目标类型，如 Integer、int、int[]、List&lt;Integer&gt;
+     * @return 不支持时返回 <code>null</code>
+     */
+    public Converter<?> getConverter(Type type) {
+        Registry registry = this.registry;
+        Converter<?> converter = registry.highestPriorityConverters.get(type);
+        if (converter != null) {
+            return converter;
         }
-        List<Converter> converters = new LinkedList<>();
-        for (PrioritizedConverter prioritizedConverter : prioritizedConverters) {
-            converters.add(prioritizedConverter.getConverter());
+        converter = registry.resolvedConverters.get(type);
+        if (converter == null) {
+            converter = resolveConverter(registry, type);
+            if (converter == null) {
+                return null;
+            }
+            registry.resolvedConverters.putIfAbsent(type, converter);
         }
-        return converters;
+        return converter;
     }
 
-    @Override
-    public Iterator<Converter> iterator() {
-        List<Converter> allConverters = new LinkedList<>();
-        for (PriorityQueue<PrioritizedConverter> converters : typedConverters.values()) {
-            for (PrioritizedConverter converter : converters) {
-                allConverters.add(converter.getConverter());
+    private Converter<?> resolveConverter(Registry registry, Type type) {
+        if (type instanceof Class) {
+            Class<?> rawType = (Class<?>) type;
+            if (rawType.isPrimitive()) {
+                return registry.highestPriorityConverters.get(WRAPPER_TYPES.get(rawType));
+            }
+            if (rawType.isArray()) {
+                Converter<?> elementConverter = getConverter(rawType.getComponentType());
+                return elementConverter == null ? null : new ArrayConverter(rawType.getComponentType(), elementConverter);
+            }
+        } else if (type instanceof GenericArrayType) {
+            Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            Converter<?> elementConverter = getConverter(componentType);
+            return elementConverter == null || !(componentType instanceof ParameterizedType) ? null :
+                    new ArrayConverter((Class<?>) ((ParameterizedType) componentType).getRawType(), elementConverter);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Type rawType = parameterizedType.getRawType();
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            if (arguments.length == 1 && (rawType == List.class || rawType == Set.class || rawType == Collection.class)) {
+                Converter<?> elementConverter = getConverter(arguments[0]);
+                return elementConverter == null ? null : new CollectionConverter(rawType == Set.class, elementConverter);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按逗号分隔属性值，"\," 表示逗号本身，忽略空元素
+     */
+    static List<String> split(String value) {
+        List<String> elements = new ArrayList<>();
+        StringBuilder element = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length() && value.charAt(i + 1) == ',') {
+                element.append(',');
+                i++;
+            } else if (c == ',') {
+                addElement(elements, element);
+            } else {
+                element.append(c);
             }
         }
+        addElement(elements, element);
+        return elements;
+    }
+
+    private static void addElement(List<String> elements, StringBuilder element) {
+        if (element.length() > 0) {
+            elements.add(element.toString());
+            element.setLength(0);
+        }
+    }
+
+    @Override
+    public Iterator<Converter> iterator() {
+        List<Converter> allConverters = new ArrayList<>();
+        registry.sortedConverters.values().forEach(allConverters::addAll);
         return allConverters.iterator();
     }
+
+    /**
+     * 不可变的注册表，注册 Converter 时整体替换
+     */
+    private static class Registry {
+
+        private final Map<Class<?>, List<PrioritizedConverter>> typedConverters;
+
+        private final Map<Class<?>, List<Converter>> sortedConverters;
+
+        private final Map<Class<?>, Converter> highestPriorityConverters;
+
+        /**
+         * 组合（数组、集合）与基本类型的 Converter 缓存
+         */
+        private final ConcurrentMap<Type, Converter<?>> resolvedConverters = new ConcurrentHashMap<>();
+
+        private Registry(Map<Class<?>, List<PrioritizedConverter>> typedConverters) {
+            Map<Class<?>, List<Converter>> sortedConverters = new HashMap<>();
+            Map<Class<?>, Converter> highestPriorityConverters = new HashMap<>();
+            typedConverters.forEach((convertedType, prioritizedConverters) -> {
+                List<Converter> converters = new ArrayList<>(prioritizedConverters.size());
+                prioritizedConverters.forEach(prioritizedConverter -> converters.add(prioritizedConverter.getConverter()));
+                sortedConverters.put(convertedType, Collections.unmodifiableList(converters));
+                highestPriorityConverters.put(convertedType, converters.get(0));
+            });
+            this.typedConverters = Collections.unmodifiableMap(typedConverters);
+            this.sortedConverters = Collections.unmodifiableMap(sortedConverters);
+            this.highestPriorityConverters = Collections.unmodifiableMap(highestPriorityConverters);
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package org.geektimes.configuration.microprofile.config.converter;
+
+import java.time.Duration;
+
+/**
+ * ISO-8601 格式的 {@link Duration}，如 "PT30S"
+ */
+public class DurationConverter extends AbstractConverter<Duration> {
+
+    @Override
+    protected Duration doConvert(String value) {
+        return Duration.parse(value);
+    }
+}
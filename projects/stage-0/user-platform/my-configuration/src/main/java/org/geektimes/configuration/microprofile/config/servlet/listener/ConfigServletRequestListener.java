@@ -2,34 +2,104 @@ package org.geektimes.configuration.microprofile.config.servlet.listener;
 
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.geektimes.configuration.microprofile.config.ConfigSnapshotProvider;
 
-import javax.servlet.ServletContext;
-import javax.servlet.ServletRequest;
-import javax.servlet.ServletRequestEvent;
-import javax.servlet.ServletRequestListener;
+import javax.servlet.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class ConfigServletRequestListener implements ServletRequestListener {
+/**
+ * 发布当前 Web 应用的 {@link Config}
+ * <p>
+ * {@link Config} 在第一个请求时按 {@link ServletContext} 解析一次，保存为 {@link ServletContext} 属性，
+ * 并按 Web 应用的 ClassLoader 发布（当前类可能由多个 Web 应用共享的 ClassLoader 加载），
+ * 之后的请求不再查找 {@link ConfigProviderResolver}，也不使用 {@link ThreadLocal}，
+ * {@link #getConfig()} 按线程上下文 ClassLoader 查找。{@link ServletContext} 销毁时移除。
+ * <p>
+ * 需要在一个请求中读取一致配置时使用 {@link #getRequestConfig(ServletRequest)}，快照在首次调用时创建，
+ * 保存为请求属性。
+ */
+public class ConfigServletRequestListener implements ServletRequestListener, ServletContextListener {
 
-    private static final ThreadLocal<Config> configThreadLocal = new ThreadLocal<>();
+    public static final String CONFIG_ATTRIBUTE_NAME = Config.class.getName();
+
+    public static final String REQUEST_CONFIG_ATTRIBUTE_NAME = ConfigServletRequestListener.class.getName() + ".requestConfig";
+
+    /**
+     * Web 应用的 ClassLoader -> {@link Config}
+     */
+    private static final ConcurrentMap<ClassLoader, Config> configs = new ConcurrentHashMap<>();
 
     @Override
-    public void requestInitialized(ServletRequestEvent sre) {
-        ServletRequest request = sre.getServletRequest();
-        ServletContext servletContext = request.getServletContext();
-        ClassLoader classLoader = servletContext.getClassLoader();
-        ConfigProviderResolver configProviderResolver = ConfigProviderResolver.instance();
-        Config config = configProviderResolver.getConfig(classLoader);
-        configThreadLocal.set(config);
+    public void contextInitialized(ServletContextEvent sce) {
     }
 
-    public static Config getConfig() {
-        return configThreadLocal.get();
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        configs.remove(sce.getServletContext().getClassLoader());
+    }
+
+    @Override
+    public void requestInitialized(ServletRequestEvent sre) {
+        if (!configs.containsKey(sre.getServletContext().getClassLoader())) {
+            getConfig(sre.getServletContext());
+        }
     }
 
     @Override
     public void requestDestroyed(ServletRequestEvent sre) {
-        // 防止 OOM
-        configThreadLocal.remove();
+        // 请求快照随请求属性释放
+    }
+
+    /**
+     * @return 当前 Web 应用（线程上下文 ClassLoader 或者其父 ClassLoader）的 {@link Config}，
+     * 尚未处理请求时返回 <code>null</code>
+     */
+    public static Config getConfig() {
+        for (ClassLoader classLoader = Thread.currentThread().getContextClassLoader(); classLoader != null;
+             classLoader = classLoader.getParent()) {
+            Config config = configs.get(classLoader);
+            if (config != null) {
+                return config;
+            }
+        }
+        return null;
     }
 
+    /**
+     * 获取（必要时解析）{@link ServletContext} 关联的 {@link Config}
+     */
+    public static Config getConfig(ServletContext servletContext) {
+        Config current = (Config) servletContext.getAttribute(CONFIG_ATTRIBUTE_NAME);
+        if (current == null) {
+            synchronized (ConfigServletRequestListener.class) {
+                current = (Config) servletContext.getAttribute(CONFIG_ATTRIBUTE_NAME);
+                if (current == null) {
+                    current = ConfigProviderResolver.instance().getConfig(servletContext.getClassLoader());
+                    servletContext.setAttribute(CONFIG_ATTRIBUTE_NAME, current);
+                }
+            }
+        }
+        ClassLoader classLoader = servletContext.getClassLoader();
+        if (configs.get(classLoader) != current) {
+            configs.put(classLoader, current);
+        }
+        return current;
+    }
+
+    /**
+     * 获取请求范围的配置快照，同一请求中多次调用返回相同的对象
+     *
+     * @return {@link Config} 不支持快照时返回其本身
+     */
+    public static Config getRequestConfig(ServletRequest request) {
+        Config requestConfig = (Config) request.getAttribute(REQUEST_CONFIG_ATTRIBUTE_NAME);
+        if (requestConfig == null) {
+            Config current = getConfig(request.getServletContext());
+            requestConfig = current instanceof ConfigSnapshotProvider ?
+                    ((ConfigSnapshotProvider) current).getSnapshot() : current;
+            request.setAttribute(REQUEST_CONFIG_ATTRIBUTE_NAME, requestConfig);
+        }
+        return requestConfig;
+    }
 }
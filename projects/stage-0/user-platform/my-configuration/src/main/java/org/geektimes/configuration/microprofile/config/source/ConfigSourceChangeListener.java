@@ -0,0 +1,23 @@
+package org.geektimes.configuration.microprofile.config.source;
+
+import org.eclipse.microprofile.config.spi.ConfigSource;
+
+import java.util.EventListener;
+import java.util.Set;
+
+/**
+ * {@link ConfigSource} 配置数据变化监听器
+ *
+ * @see MapBasedConfigSource#addChangeListener(ConfigSourceChangeListener)
+ */
+@FunctionalInterface
+public interface ConfigSourceChangeListener extends EventListener {
+
+    /**
+     * 配置数据发生变化（可能在任意线程回调）
+     *
+     * @param configSource         发生变化的配置源
+     * @param changedPropertyNames 新增、修改或者删除的属性名，<code>null</code> 表示未知（可能全部变化）
+     */
+    void onChange(ConfigSource configSource, Set<String> changedPropertyNames);
+}
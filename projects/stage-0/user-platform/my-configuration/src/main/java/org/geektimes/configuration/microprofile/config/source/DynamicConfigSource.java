@@ -1,6 +1,11 @@
 package org.geektimes.configuration.microprofile.config.source;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 
 /**
  * 动态配置源
@@ -18,7 +23,26 @@ public class DynamicConfigSource extends MapBasedConfigSource {
         this.configData = configData;
     }
 
+    /**
+     * 以 Properties 格式的全量数据替换当前配置，通知变化的属性
+     *
+     * @param data Properties 格式的配置数据
+     * @throws IllegalArgumentException 数据格式错误时
+     */
     public void onUpdate(String data) {
-        // 更新（异步）
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(data));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("The config data can't be parsed", e);
+        }
+        Map<String, String> changes = new HashMap<>();
+        getPropertyNames().forEach(propertyName -> changes.put(propertyName, null));
+        properties.stringPropertyNames().forEach(propertyName ->
+                changes.put(propertyName, properties.getProperty(propertyName)));
+        Set<String> changedPropertyNames = updateConfigData(changes);
+        if (!changedPropertyNames.isEmpty()) {
+            fireChange(changedPropertyNames);
+        }
     }
 }
@@ -0,0 +1,250 @@
+package org.geektimes.configuration.microprofile.config.source;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 基于 Properties 文件（UTF-8）的配置源，通过 NIO {@link WatchService} 监听文件变化并热加载
+ * <p>
+ * 多个文件时后面的文件优先。文件变化时（去抖动，一段时间内的多次变化合并为一次加载）仅重新解析该文件，
+ * 与上次的内容比较得到变化的属性，更新后通过 {@link #fireChange(Set)} 通知监听器。
+ * 首次读取配置数据时开始监听，使用完毕需要调用 {@link #close()} 停止。
+ */
+public class FileConfigSource extends MapBasedConfigSource implements AutoCloseable {
+
+    public static final int DEFAULT_ORDINAL = 600;
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private static final Logger logger = Logger.getLogger(FileConfigSource.class.getName());
+
+    private final List<Path> files;
+
+    private final long debounceMillis;
+
+    /**
+     * 文件 -> 上次加载的属性
+     */
+    private final Map<Path, Map<String, String>> fileProperties = new ConcurrentHashMap<>();
+
+    private final Map<Path, ScheduledFuture<?>> pendingReloads = new ConcurrentHashMap<>();
+
+    private boolean loaded;
+
+    private boolean closed;
+
+    private WatchService watchService;
+
+    private Thread watcher;
+
+    private ScheduledExecutorService reloadExecutor;
+
+    public FileConfigSource(Path... files) {
+        this(DEFAULT_ORDINAL, DEFAULT_DEBOUNCE_MILLIS, files);
+    }
+
+    /**
+     * @param ordinal        优先级
+     * @param debounceMillis 文件变化后等待的时间（毫秒），期间的变化合并为一次加载
+     * @param files          Properties 文件，后面的文件优先，可以不存在（创建后加载）
+     */
+    public FileConfigSource(int ordinal, long debounceMillis, Path... files) {
+        super("Config Files " + Arrays.toString(files), ordinal);
+        List<Path> paths = new ArrayList<>(files.length);
+        for (Path file : files) {
+            paths.add(file.toAbsolutePath().normalize());
+        }
+        this.files = Collections.unmodifiableList(paths);
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 首次调用时加载所有文件并开始监听，之后的数据由文件变化增量更新
+     */
+    @Override
+    protected synchronized void prepareConfigData(Map configData) throws Throwable {
+        if (loaded || closed) {
+            return;
+        }
+        for (Path file : files) {
+            Map<String, String> properties = load(file);
+            fileProperties.put(file, properties);
+            // 后面的文件优先
+            configData.putAll(properties);
+        }
+        startWatching();
+        loaded = true;
+    }
+
+    private void startWatching() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : files) {
+            directories.add(file.getParent());
+        }
+        for (Path directory : directories) {
+            if (Files.isDirectory(directory)) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            } else {
+                logger.warning("The config directory doesn't exist : " + directory);
+            }
+        }
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FileConfigSource-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher = new Thread(this::watch, "FileConfigSource-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) watchKey.watchable();
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // 事件丢失，重新加载该目录下所有文件
+                    files.stream().filter(file -> directory.equals(file.getParent())).forEach(this::scheduleReload);
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context());
+                if (files.contains(file)) {
+                    scheduleReload(file);
+                }
+            }
+            watchKey.reset();
+        }
+    }
+
+    /**
+     * 去抖动：取消尚未执行的加载，重新计时
+     */
+    private void scheduleReload(Path file) {
+        pendingReloads.compute(file, (f, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            try {
+                return reloadExecutor.schedule(() -> reload(f), debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 已关闭
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 重新加载文件，更新变化的属性并通知监听器
+     * <p>
+     * 持有锁时仅比较与更新数据，释放锁之后再通知监听器：监听器（如 {@link org.eclipse.microprofile.config.Config}
+     * 刷新）可能持有自身的锁并调用 {@link #prepareConfigData(Map)}，在锁内通知会形成相反的加锁顺序而死锁。
+     * 加载在单线程中执行，通知的顺序与更新一致。
+     */
+    void reload(Path file) {
+        Set<String> changedPropertyNames = update(file);
+        if (!changedPropertyNames.isEmpty()) {
+            logger.info("配置文件 " + file + " 变化的属性：" + changedPropertyNames);
+            fireChange(changedPropertyNames);
+        }
+    }
+
+    /**
+     * @return 实际发生变化的属性名
+     */
+    private synchronized Set<String> update(Path file) {
+        if (closed) {
+            return Collections.emptySet();
+        }
+        Map<String, String> properties;
+        try {
+            properties = load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "配置文件加载失败，保留当前配置：" + file, e);
+            return Collections.emptySet();
+        }
+        Map<String, String> previousProperties = fileProperties.put(file, properties);
+        if (previousProperties == null) {
+            previousProperties = Collections.emptyMap();
+        }
+        Set<String> propertyNames = new HashSet<>(previousProperties.keySet());
+        propertyNames.addAll(properties.keySet());
+        Map<String, String> changes = new HashMap<>();
+        for (String propertyName : propertyNames) {
+            if (!Objects.equals(previousProperties.get(propertyName), properties.get(propertyName))) {
+                changes.put(propertyName, resolveValue(propertyName));
+            }
+        }
+        return updateConfigData(changes);
+    }
+
+    /**
+     * @return 优先级最高的文件中的属性值，不存在时返回 <code>null</code>
+     */
+    private String resolveValue(String propertyName) {
+        for (int i = files.size() - 1; i >= 0; i--) {
+            String propertyValue = fileProperties.getOrDefault(files.get(i), Collections.emptyMap()).get(propertyName);
+            if (propertyValue != null) {
+                return propertyValue;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyMap();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> data = new HashMap<>();
+        for (String propertyName : properties.stringPropertyNames()) {
+            data.put(propertyName, properties.getProperty(propertyName));
+        }
+        return data;
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * 停止监听文件变化
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "The watch service can't be closed : " + e.getMessage());
+            }
+        }
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+}
@@ -3,12 +3,18 @@ package org.geektimes.configuration.microprofile.config.source;
 import org.eclipse.microprofile.config.spi.ConfigSource;
 
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 基于 Map 数据结构 {@link ConfigSource} 实现
+ * <p>
+ * 配置数据为并发 Map，子类可以在运行期更新，并通过 {@link #fireChange(Set)} 通知监听器。
  */
 public abstract class MapBasedConfigSource implements ConfigSource {
 
@@ -18,10 +24,12 @@ public abstract class MapBasedConfigSource implements ConfigSource {
 
     private final Map<String, String> configData;
 
+    private final List<ConfigSourceChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
     protected MapBasedConfigSource(String name, int ordinal) {
         this.name = name;
         this.ordinal = ordinal;
-        this.configData = new HashMap<>();
+        this.configData = new ConcurrentHashMap<>();
     }
 
     /**
@@ -46,6 +54,52 @@ public abstract class MapBasedConfigSource implements ConfigSource {
      */
     protected abstract void prepareConfigData(Map configData) throws Throwable;
 
+    /**
+     * 更新配置数据
+     *
+     * @param changes 属性名 -> 属性值，属性值为 <code>null</code> 时删除
+     * @return 实际发生变化的属性名
+     */
+    protected Set<String> updateConfigData(Map<String, String> changes) {
+        Set<String> changedPropertyNames = new LinkedHashSet<>();
+        changes.forEach((propertyName, propertyValue) -> {
+            String previousValue = propertyValue == null ? configData.remove(propertyName) :
+                    configData.put(propertyName, propertyValue);
+            if (!Objects.equals(previousValue, propertyValue)) {
+                changedPropertyNames.add(propertyName);
+            }
+        });
+        return changedPropertyNames;
+    }
+
+    public void addChangeListener(ConfigSourceChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ConfigSourceChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * 配置数据变化（变化的属性未知）后由子类调用，通知监听器
+     */
+    protected void fireChange() {
+        fireChange(null);
+    }
+
+    /**
+     * 配置数据变化后由子类调用，通知监听器
+     *
+     * @param changedPropertyNames 新增、修改或者删除的属性名，<code>null</code> 表示未知
+     */
+    protected void fireChange(Set<String> changedPropertyNames) {
+        Set<String> propertyNames = changedPropertyNames == null ? null :
+                Collections.unmodifiableSet(changedPropertyNames);
+        for (ConfigSourceChangeListener listener : changeListeners) {
+            listener.onChange(this, propertyNames);
+        }
+    }
+
     @Override
     public final String getName() {
         return name;
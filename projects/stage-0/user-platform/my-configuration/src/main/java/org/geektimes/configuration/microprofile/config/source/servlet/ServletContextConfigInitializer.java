@@ -3,18 +3,30 @@ package org.geektimes.configuration.microprofile.config.source.servlet;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.spi.ConfigBuilder;
 import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.geektimes.configuration.microprofile.config.servlet.listener.ConfigServletRequestListener;
+import org.geektimes.configuration.microprofile.config.source.FileConfigSource;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.util.stream.Stream.of;
 
 /**
  * 如何注册当前 ServletContextListener 实现
+ * <p>
+ * 配置了 {@link #CONFIG_FILES_PARAM_NAME} 初始化参数（逗号分隔的 Properties 文件路径）时，
+ * 增加热加载的 {@link FileConfigSource}，应用停止时关闭。
  *
  * @see ServletConfigInitializer
  */
 public class ServletContextConfigInitializer implements ServletContextListener {
 
+    public static final String CONFIG_FILES_PARAM_NAME = "microprofile.config.files";
+
+    private static final String FILE_CONFIG_SOURCE_ATTRIBUTE_NAME = FileConfigSource.class.getName();
 
     @Override
     public void contextInitialized(ServletContextEvent servletContextEvent) {
@@ -32,14 +44,32 @@ public class ServletContextConfigInitializer implements ServletContextListener {
         configBuilder.addDiscoveredConverters();
         // 增加扩展配置源（基于 Servlet 引擎）
         configBuilder.withSources(servletContextConfigSource);
+        // 增加热加载的配置文件
+        String configFiles = servletContext.getInitParameter(CONFIG_FILES_PARAM_NAME);
+        if (configFiles != null && !configFiles.trim().isEmpty()) {
+            Path[] files = of(configFiles.split(","))
+                    .map(String::trim)
+                    .filter(file -> !file.isEmpty())
+                    .map(Paths::get)
+                    .toArray(Path[]::new);
+            FileConfigSource fileConfigSource = new FileConfigSource(files);
+            servletContext.setAttribute(FILE_CONFIG_SOURCE_ATTRIBUTE_NAME, fileConfigSource);
+            configBuilder.withSources(fileConfigSource);
+        }
         // 获取 Config
         Config config = configBuilder.build();
         // 注册 Config 关联到当前 ClassLoader
         configProviderResolver.registerConfig(config, classLoader);
+        // 每个 ServletContext 解析一次，请求中直接读取
+        servletContext.setAttribute(ConfigServletRequestListener.CONFIG_ATTRIBUTE_NAME, config);
     }
 
     @Override
     public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        Object fileConfigSource = servletContextEvent.getServletContext().getAttribute(FILE_CONFIG_SOURCE_ATTRIBUTE_NAME);
+        if (fileConfigSource instanceof FileConfigSource) {
+            ((FileConfigSource) fileConfigSource).close();
+        }
 //        ServletContext servletContext = servletContextEvent.getServletContext();
 //        ClassLoader classLoader = servletContext.getClassLoader();
 //        ConfigProviderResolver configProviderResolver = ConfigProviderResolver.instance();
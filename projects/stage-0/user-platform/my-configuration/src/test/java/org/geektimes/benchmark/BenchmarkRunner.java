@@ -0,0 +1,90 @@
+package org.geektimes.benchmark;
+
+/**
+ * 基准测试执行器：预热若干轮之后多轮计时，并输出每轮的结果
+ * <p>
+ * 由于父 POM 使用 "-proc:none" 编译参数，JMH 注解处理器无法生成基准代码，各模块的基准测试均通过它实现，
+ * 运行基准测试类的 main 方法即可：
+ * <pre>
+ * -Xms512m -Xmx512m -XX:+UseParallelGC
+ * </pre>
+ * 其他模块通过 my-configuration 的 test-jar 引用。
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * 防止操作结果被 JIT 消除
+     */
+    private static volatile Object blackhole;
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * 单轮基准测试
+     */
+    @FunctionalInterface
+    public interface Iteration {
+
+        /**
+         * @return 本轮结果的描述
+         */
+        String run() throws Throwable;
+    }
+
+    /**
+     * 被计时的操作
+     */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * @return 操作结果，可能为 <code>null</code>
+         */
+        Object run() throws Throwable;
+    }
+
+    /**
+     * 执行 <code>warmupIterations</code> 轮预热，再执行 <code>measurementIterations</code> 轮并输出结果
+     *
+     * @param name                  基准测试名称，作为每行输出的前缀
+     * @param warmupIterations      预热轮数
+     * @param measurementIterations 计时轮数
+     * @param iteration             单轮基准测试
+     * @throws Throwable 基准测试失败时
+     */
+    public static void run(String name, int warmupIterations, int measurementIterations, Iteration iteration)
+            throws Throwable {
+        for (int i = 0; i < warmupIterations + measurementIterations; i++) {
+            String result = iteration.run();
+            if (i >= warmupIterations) {
+                System.out.printf("%s iteration %d : %s%n", name, i - warmupIterations + 1, result);
+            }
+        }
+    }
+
+    /**
+     * @return 执行一次操作的耗时（纳秒）
+     */
+    public static long time(Operation operation) throws Throwable {
+        return time(1, operation);
+    }
+
+    /**
+     * @return 连续执行 <code>operations</code> 次操作的耗时（纳秒）
+     */
+    public static long time(int operations, Operation operation) throws Throwable {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            blackhole = operation.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 消费操作结果，防止被 JIT 消除
+     */
+    public static void consume(Object value) {
+        blackhole = value;
+    }
+}
@@ -0,0 +1,344 @@
+package org.geektimes.configuration.microprofile.config;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperties;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.config.spi.Converter;
+import org.geektimes.configuration.microprofile.config.converter.Converters;
+import org.geektimes.configuration.microprofile.config.converter.DurationConverter;
+import org.geektimes.configuration.microprofile.config.converter.IntegerConverter;
+import org.geektimes.configuration.microprofile.config.converter.StringConverter;
+import org.geektimes.configuration.microprofile.config.source.ConfigSources;
+import org.geektimes.configuration.microprofile.config.source.MapBasedConfigSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DefaultConfig} Test
+ */
+public class DefaultConfigTest {
+
+    private TestConfigSource highSource;
+
+    private TestConfigSource lowSource;
+
+    private final AtomicInteger conversions = new AtomicInteger();
+
+    private Config config;
+
+    @Before
+    public void init() {
+        highSource = new TestConfigSource("high", 200);
+        lowSource = new TestConfigSource("low", 100);
+        highSource.data.put("a", "1");
+        lowSource.data.put("a", "2");
+        lowSource.data.put("b", "3");
+        lowSource.data.put("timeout", "PT30S");
+
+        ClassLoader classLoader = getClass().getClassLoader();
+        ConfigSources configSources = new ConfigSources(classLoader);
+        configSources.addConfigSources(lowSource, highSource);
+        Converters converters = new Converters(classLoader);
+        converters.addConverters(new IntegerConverter(), new DurationConverter(), new StringConverter());
+        // 优先级高于 IntegerConverter，统计转换次数
+        converters.addConverter((Converter<Integer>) value -> {
+            conversions.incrementAndGet();
+            return Integer.valueOf(value);
+        }, 200, Integer.class);
+        config = new DefaultConfig(configSources, converters);
+    }
+
+    @Test
+    public void testGetValue() {
+        assertEquals(Integer.valueOf(1), config.getValue("a", Integer.class));
+        assertEquals("high", config.getConfigValue("a").getSourceName());
+        assertEquals(Integer.valueOf(3), config.getValue("b", Integer.class));
+        assertNull(config.getValue("c", Integer.class));
+        // 快照中的 ConfigValue 不会重复创建
+        assertSame(config.getConfigValue("a"), config.getConfigValue("a"));
+    }
+
+    @Test
+    public void testConversionCache() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Integer.valueOf(1), config.getValue("a", Integer.class));
+            assertEquals(Integer.valueOf(1), config.getValue("a", int.class));
+            assertEquals(Duration.ofSeconds(30), config.getValue("timeout", Duration.class));
+        }
+        assertEquals(2, conversions.get());
+
+        // 快照变化后重新转换
+        highSource.data.put("a", "5");
+        highSource.fireChange();
+        assertEquals(Integer.valueOf(5), config.getValue("a", Integer.class));
+        assertEquals(3, conversions.get());
+        assertTrue(config.getConverter(Integer.class).isPresent());
+        assertFalse(config.getConverter(Thread.class).isPresent());
+    }
+
+    @Test
+    public void testArrayValue() {
+        lowSource.data.put("ports", "80,443");
+        lowSource.fireChange();
+        int[] ports = config.getValue("ports", int[].class);
+        assertArrayEquals(new int[]{80, 443}, ports);
+        // 缓存的数组不会被调用方修改
+        ports[0] = 8080;
+        assertArrayEquals(new int[]{80, 443}, config.getValue("ports", int[].class));
+        String[] names = config.getValue("ports", String[].class);
+        names[0] = "changed";
+        assertArrayEquals(new String[]{"80", "443"}, config.getValue("ports", String[].class));
+    }
+
+    @Test
+    public void testChange() {
+        highSource.data.put("c", "4");
+        assertNull(config.getConfigValue("c"));
+
+        highSource.fireChange();
+        assertEquals(Integer.valueOf(4), config.getValue("c", Integer.class));
+        assertEquals(Integer.valueOf(1), config.getValue("a", Integer.class));
+    }
+
+    @Test
+    public void testIncrementalChange() {
+        assertEquals(Integer.valueOf(1), config.getValue("a", Integer.class));
+        assertEquals(Integer.valueOf(3), config.getValue("b", Integer.class));
+        assertEquals(2, conversions.get());
+
+        highSource.data.put("b", "6");
+        highSource.data.remove("a");
+        highSource.fireChange(new HashSet<>(Arrays.asList("a", "b")));
+        assertEquals(Integer.valueOf(2), config.getValue("a", Integer.class));
+        assertEquals("low", config.getConfigValue("a").getSourceName());
+        assertEquals(Integer.valueOf(6), config.getValue("b", Integer.class));
+        assertEquals(4, conversions.get());
+        // 未变化的属性保留转换结果
+        assertEquals(Duration.ofSeconds(30), config.getValue("timeout", Duration.class));
+        assertEquals(Duration.ofSeconds(30), config.getValue("timeout", Duration.class));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Config snapshot = ((ConfigSnapshotProvider) config).getSnapshot();
+        assertEquals(Integer.valueOf(1), snapshot.getValue("a", Integer.class));
+
+        highSource.data.put("a", "5");
+        highSource.fireChange();
+        // 快照不随配置源变化
+        assertEquals(Integer.valueOf(1), snapshot.getValue("a", Integer.class));
+        assertEquals(Integer.valueOf(5), config.getValue("a", Integer.class));
+        assertEquals(Integer.valueOf(5), ((ConfigSnapshotProvider) config).getSnapshot().getValue("a", Integer.class));
+        assertSame(snapshot, ((ConfigSnapshotProvider) snapshot).getSnapshot());
+    }
+
+    @Test
+    public void testChangeListener() {
+        List<Set<String>> changes = new ArrayList<>();
+        ((ObservableConfig) config).addChangeListener((source, changedPropertyNames) -> {
+            // 回调时新的快照已经发布
+            assertEquals(Integer.valueOf(6), source.getValue("b", Integer.class));
+            changes.add(changedPropertyNames);
+        });
+
+        highSource.data.put("b", "6");
+        highSource.fireChange(Collections.singleton("b"));
+        highSource.fireChange();
+        assertEquals(Arrays.asList(Collections.singleton("b"), null), changes);
+    }
+
+    @Test
+    public void testConfigMapping() {
+        lowSource.data.put("db.pool.maxSize", "10");
+        lowSource.data.put("db.pool.timeout", "PT5S");
+        lowSource.data.put("db.pool.schemas", "a,b");
+        lowSource.fireChange();
+
+        PoolSettings settings = ((ConfigMappingProvider) config).getConfigMapping(PoolSettings.class);
+        assertEquals(10, settings.maxSize);
+        assertEquals(2, settings.minSize);
+        assertEquals(Duration.ofSeconds(5), settings.timeout);
+        assertEquals(Arrays.asList("a", "b"), settings.schemas);
+        assertFalse(settings.validationQuery.isPresent());
+        assertSame(settings, config.unwrap(PoolSettings.class));
+
+        PoolConfig poolConfig = ((ConfigMappingProvider) config).getConfigMapping(PoolConfig.class, "db.pool");
+        assertEquals(10, poolConfig.maxSize());
+        assertEquals(Duration.ofSeconds(5), poolConfig.timeout());
+        // default 方法调用接口的实现
+        assertEquals(5000, poolConfig.timeoutMillis());
+        assertEquals("10 connections", poolConfig.describe(" connections"));
+        try {
+            ((ConfigMappingProvider) config).getConfigMapping(InvalidConfig.class, "db.pool");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 带参数的抽象方法无法映射
+        }
+
+        // 前缀外的属性变化不重建映射对象
+        highSource.data.put("b", "6");
+        highSource.fireChange(Collections.singleton("b"));
+        assertSame(settings, ((ConfigMappingProvider) config).getConfigMapping(PoolSettings.class));
+
+        highSource.data.put("db.pool.maxSize", "20");
+        highSource.fireChange(Collections.singleton("db.pool.maxSize"));
+        assertEquals(10, settings.maxSize);
+        assertEquals(20, ((ConfigMappingProvider) config).getConfigMapping(PoolSettings.class).maxSize);
+        assertEquals(20, ((ConfigMappingProvider) config).getConfigMapping(PoolConfig.class, "db.pool").maxSize());
+
+        assertSame(config, config.unwrap(Config.class));
+        try {
+            config.unwrap(Thread.class);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 不支持的类型
+        }
+    }
+
+    @Test
+    public void testExpressions() {
+        lowSource.data.put("host", "localhost");
+        lowSource.data.put("port", "8080");
+        lowSource.data.put("url", "http://${host}:${port}/${path:index}");
+        lowSource.data.put("env", "port");
+        lowSource.data.put("nested", "${${env}}");
+        lowSource.data.put("fallback", "${missing:${host}}");
+        lowSource.data.put("escaped", "\\${host}");
+        lowSource.data.put("cycle.a", "${cycle.b}");
+        lowSource.data.put("cycle.b", "${cycle.a}");
+        lowSource.fireChange();
+
+        assertEquals("http://localhost:8080/index", config.getValue("url", String.class));
+        assertEquals("http://${host}:${port}/${path:index}", config.getConfigValue("url").getRawValue());
+        assertEquals(Integer.valueOf(8080), config.getValue("nested", Integer.class));
+        assertEquals("localhost", config.getValue("fallback", String.class));
+        assertEquals("${host}", config.getValue("escaped", String.class));
+        // 循环引用时使用原始值
+        assertEquals("${cycle.b}", config.getValue("cycle.a", String.class));
+
+        // 引用变化的属性随之更新
+        Set<String> changes = new HashSet<>();
+        ((ObservableConfig) config).addChangeListener((source, changedPropertyNames) -> changes.addAll(changedPropertyNames));
+        highSource.data.put("port", "9090");
+        highSource.fireChange(Collections.singleton("port"));
+        assertEquals("http://localhost:9090/index", config.getValue("url", String.class));
+        assertEquals(Integer.valueOf(9090), config.getValue("nested", Integer.class));
+        assertEquals(new HashSet<>(Arrays.asList("port", "url", "nested")), changes);
+
+        highSource.data.put("path", "home");
+        highSource.fireChange(Collections.singleton("path"));
+        assertEquals("http://localhost:9090/home", config.getValue("url", String.class));
+    }
+
+    @Test
+    public void testProfile() {
+        lowSource.data.put("mp.config.profile", "prod");
+        lowSource.data.put("%prod.a", "7");
+        lowSource.data.put("%prod.d", "8");
+        lowSource.data.put("%dev.b", "9");
+        lowSource.fireChange();
+
+        // Profile 属性优先于高优先级配置源中的属性
+        assertEquals(Integer.valueOf(7), config.getValue("a", Integer.class));
+        assertEquals(Integer.valueOf(8), config.getValue("d", Integer.class));
+        assertEquals(Integer.valueOf(3), config.getValue("b", Integer.class));
+
+        highSource.data.put("%prod.b", "10");
+        highSource.fireChange(Collections.singleton("%prod.b"));
+        assertEquals(Integer.valueOf(10), config.getValue("b", Integer.class));
+
+        highSource.data.put("mp.config.profile", "dev");
+        highSource.fireChange(Collections.singleton("mp.config.profile"));
+        assertEquals(Integer.valueOf(1), config.getValue("a", Integer.class));
+        assertEquals(Integer.valueOf(9), config.getValue("b", Integer.class));
+        assertNull(config.getConfigValue("d"));
+    }
+
+    @ConfigProperties(prefix = "db.pool")
+    private static class PoolSettings {
+
+        private final int maxSize;
+
+        @ConfigProperty(defaultValue = "2")
+        private final int minSize;
+
+        private final Duration timeout;
+
+        private final List<String> schemas;
+
+        private final Optional<String> validationQuery;
+
+        private PoolSettings() {
+            // 绑定器赋值，构造器中的赋值不会被编译器内联
+            this.maxSize = 0;
+            this.minSize = 0;
+            this.timeout = null;
+            this.schemas = null;
+            this.validationQuery = null;
+        }
+    }
+
+    public interface PoolConfig {
+
+        int maxSize();
+
+        Duration timeout();
+
+        default long timeoutMillis() {
+            return timeout().toMillis();
+        }
+
+        default String describe(String suffix) {
+            return maxSize() + suffix;
+        }
+    }
+
+    public interface InvalidConfig {
+
+        int maxSize(String name);
+    }
+
+    private static class TestConfigSource extends MapBasedConfigSource {
+
+        private final Map<String, String> data = new HashMap<>();
+
+        private TestConfigSource(String name, int ordinal) {
+            super(name, ordinal);
+        }
+
+        @Override
+        protected void prepareConfigData(Map configData) {
+            configData.putAll(data);
+        }
+
+        @Override
+        protected void fireChange() {
+            super.fireChange();
+        }
+
+        @Override
+        protected void fireChange(Set<String> changedPropertyNames) {
+            if (changedPropertyNames != null) {
+                // 模拟增量更新
+                Map<String, String> changes = new HashMap<>();
+                changedPropertyNames.forEach(propertyName -> changes.put(propertyName, data.get(propertyName)));
+                updateConfigData(changes);
+            }
+            super.fireChange(changedPropertyNames);
+        }
+    }
+}
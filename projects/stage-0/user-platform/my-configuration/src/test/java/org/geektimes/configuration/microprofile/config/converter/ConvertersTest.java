@@ -1,11 +1,17 @@
 package org.geektimes.configuration.microprofile.config.converter;
 
 
+import org.eclipse.microprofile.config.spi.Converter;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
 
 /**
  * {@link Converters} Test
@@ -34,4 +40,39 @@ public class ConvertersTest {
         assertEquals(Double.class, converters.resolveConvertedType(new DoubleConverter()));
         assertEquals(String.class, converters.resolveConvertedType(new StringConverter()));
     }
+
+    @Test
+    public void testPriority() {
+        Converter<Integer> low = value -> 1;
+        Converter<Integer> high = value -> 2;
+        Converter<Integer> other = value -> 3;
+        converters.addConverter(low, 10, Integer.class);
+        converters.addConverter(high, 200, Integer.class);
+        converters.addConverter(other, 10, Integer.class);
+        assertEquals(Arrays.asList(high, low, other), converters.getConverters(Integer.class));
+        assertSame(high, converters.getConverter(Integer.class));
+        assertSame(high, converters.getConverter(int.class));
+        assertTrue(converters.getConverters(Long.class).isEmpty());
+    }
+
+    @Test
+    public void testComposedConverters() throws NoSuchFieldException {
+        converters.addConverters(new IntegerConverter(), new StringConverter());
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) converters.getConverter(int[].class).convert("1,2,3"));
+        assertArrayEquals(new String[]{"a,b", "c"},
+                (String[]) converters.getConverter(String[].class).convert("a\\,b,,c"));
+        assertEquals(Arrays.asList(1, 2, 2),
+                converters.getConverter(ConvertersTest.class.getDeclaredField("integerList").getGenericType())
+                        .convert("1,2,2"));
+        assertEquals(Collections.singleton("a"),
+                converters.getConverter(ConvertersTest.class.getDeclaredField("stringSet").getGenericType())
+                        .convert("a,a"));
+        // 组合的 Converter 被缓存
+        assertSame(converters.getConverter(int[].class), converters.getConverter(int[].class));
+        assertNull(converters.getConverter(long[].class));
+    }
+
+    private List<Integer> integerList;
+
+    private Set<String> stringSet;
 }
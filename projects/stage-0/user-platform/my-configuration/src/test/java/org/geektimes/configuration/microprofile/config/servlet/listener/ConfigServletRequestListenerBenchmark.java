@@ -0,0 +1,99 @@
+package org.geektimes.configuration.microprofile.config.servlet.listener;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.geektimes.benchmark.BenchmarkRunner;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ConfigServletRequestListener} 每个请求的开销，对比每次请求查找 {@link ConfigProviderResolver}
+ * 并绑定 {@link ThreadLocal} 的实现
+ * <p>
+ * 请求处理线程池参照 Tomcat 默认配置（最小 10 个、最大 200 个工作线程），每个请求模拟监听器回调与
+ * 一次配置读取。
+ *
+ * @see BenchmarkRunner
+ */
+public class ConfigServletRequestListenerBenchmark {
+
+    private static final int[] WORKER_THREADS = {10, 50, 200};
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final int REQUESTS = 4_000_000;
+
+    private static final ThreadLocal<Config> legacyConfigThreadLocal = new ThreadLocal<>();
+
+    public static void main(String[] args) throws Throwable {
+        ServletContext servletContext = ConfigServletRequestListenerTest.newServletContext(
+                ConfigServletRequestListenerBenchmark.class.getClassLoader());
+        ServletRequest request = ConfigServletRequestListenerTest.newServletRequest(servletContext);
+        ServletRequestEvent event = new ServletRequestEvent(servletContext, request);
+        ConfigServletRequestListener listener = new ConfigServletRequestListener();
+
+        for (int workerThreads : WORKER_THREADS) {
+            ThreadPoolExecutor executor = newExecutor(workerThreads);
+            BenchmarkRunner.run(workerThreads + " threads", WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, () -> {
+                long legacyCost = run(executor, workerThreads, () -> {
+                    // 原实现：每个请求查找 Config 并绑定到 ThreadLocal
+                    ClassLoader classLoader = event.getServletRequest().getServletContext().getClassLoader();
+                    legacyConfigThreadLocal.set(ConfigProviderResolver.instance().getConfig(classLoader));
+                    BenchmarkRunner.consume(legacyConfigThreadLocal.get());
+                    legacyConfigThreadLocal.remove();
+                });
+                long listenerCost = run(executor, workerThreads, () -> {
+                    listener.requestInitialized(event);
+                    BenchmarkRunner.consume(ConfigServletRequestListener.getConfig());
+                    listener.requestDestroyed(event);
+                });
+                return String.format("ThreadLocal %.2f ns/request , listener %.2f ns/request",
+                        (double) legacyCost / REQUESTS, (double) listenerCost / REQUESTS);
+            });
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * @return 所有工作线程处理 {@link #REQUESTS} 个请求的耗时（纳秒）
+     */
+    private static long run(ThreadPoolExecutor executor, int workerThreads, Runnable requestHandler) throws Exception {
+        int requestsPerThread = REQUESTS / workerThreads;
+        List<Callable<Void>> tasks = new ArrayList<>(workerThreads);
+        for (int i = 0; i < workerThreads; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < requestsPerThread; j++) {
+                    requestHandler.run();
+                }
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        executor.invokeAll(tasks);
+        return System.nanoTime() - start;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int workerThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "http-nio-exec-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+}
@@ -0,0 +1,120 @@
+package org.geektimes.configuration.microprofile.config.servlet.listener;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ConfigServletRequestListener} Test
+ */
+public class ConfigServletRequestListenerTest {
+
+    @Test
+    public void testGetConfig() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        ServletContext servletContext = newServletContext(classLoader);
+        ConfigServletRequestListener listener = new ConfigServletRequestListener();
+
+        ServletRequest request = newServletRequest(servletContext);
+        listener.requestInitialized(new ServletRequestEvent(servletContext, request));
+        Config config = ConfigServletRequestListener.getConfig();
+        assertSame(ConfigProviderResolver.instance().getConfig(classLoader), config);
+        assertSame(config, servletContext.getAttribute(ConfigServletRequestListener.CONFIG_ATTRIBUTE_NAME));
+
+        // 请求快照在同一请求中不变
+        Config requestConfig = ConfigServletRequestListener.getRequestConfig(request);
+        assertNotNull(requestConfig);
+        assertNotSame(config, requestConfig);
+        assertSame(requestConfig, ConfigServletRequestListener.getRequestConfig(request));
+        listener.requestDestroyed(new ServletRequestEvent(servletContext, request));
+
+        ServletRequest nextRequest = newServletRequest(servletContext);
+        listener.requestInitialized(new ServletRequestEvent(servletContext, nextRequest));
+        assertSame(config, ConfigServletRequestListener.getConfig());
+        assertNotSame(requestConfig, ConfigServletRequestListener.getRequestConfig(nextRequest));
+    }
+
+    /**
+     * 共享当前类的多个 Web 应用各自获取自身的 {@link Config}
+     */
+    @Test
+    public void testGetConfigByClassLoader() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        ConfigServletRequestListener listener = new ConfigServletRequestListener();
+        try (URLClassLoader firstClassLoader = new URLClassLoader(new URL[0], classLoader);
+             URLClassLoader secondClassLoader = new URLClassLoader(new URL[0], classLoader)) {
+            ServletContext firstContext = newServletContext(firstClassLoader);
+            ServletContext secondContext = newServletContext(secondClassLoader);
+            listener.requestInitialized(new ServletRequestEvent(firstContext, newServletRequest(firstContext)));
+            listener.requestInitialized(new ServletRequestEvent(secondContext, newServletRequest(secondContext)));
+
+            Thread thread = Thread.currentThread();
+            ClassLoader contextClassLoader = thread.getContextClassLoader();
+            try {
+                thread.setContextClassLoader(firstClassLoader);
+                Config firstConfig = ConfigServletRequestListener.getConfig();
+                assertSame(firstContext.getAttribute(ConfigServletRequestListener.CONFIG_ATTRIBUTE_NAME), firstConfig);
+                thread.setContextClassLoader(secondClassLoader);
+                Config secondConfig = ConfigServletRequestListener.getConfig();
+                assertSame(secondContext.getAttribute(ConfigServletRequestListener.CONFIG_ATTRIBUTE_NAME), secondConfig);
+                assertNotSame(firstConfig, secondConfig);
+
+                listener.contextDestroyed(new ServletContextEvent(secondContext));
+                assertNotSame(secondConfig, ConfigServletRequestListener.getConfig());
+                thread.setContextClassLoader(firstClassLoader);
+                assertSame(firstConfig, ConfigServletRequestListener.getConfig());
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+                listener.contextDestroyed(new ServletContextEvent(firstContext));
+            }
+        }
+    }
+
+    static ServletContext newServletContext(ClassLoader classLoader) {
+        Map<String, Object> attributes = new HashMap<>();
+        return (ServletContext) Proxy.newProxyInstance(ConfigServletRequestListenerTest.class.getClassLoader(),
+                new Class[]{ServletContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getClassLoader":
+                            return classLoader;
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    static ServletRequest newServletRequest(ServletContext servletContext) {
+        Map<String, Object> attributes = new HashMap<>();
+        return (ServletRequest) Proxy.newProxyInstance(ConfigServletRequestListenerTest.class.getClassLoader(),
+                new Class[]{ServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getServletContext":
+                            return servletContext;
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,85 @@
+package org.geektimes.configuration.microprofile.config.source;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link FileConfigSource} Test
+ */
+public class FileConfigSourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileConfigSource configSource;
+
+    @After
+    public void destroy() {
+        configSource.close();
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        Path defaultFile = temporaryFolder.getRoot().toPath().resolve("default.properties");
+        Path overrideFile = temporaryFolder.getRoot().toPath().resolve("override.properties");
+        write(defaultFile, "a=1", "b=2", "c=3");
+        write(overrideFile, "a=10");
+        configSource = new FileConfigSource(FileConfigSource.DEFAULT_ORDINAL, 50, defaultFile, overrideFile);
+        assertEquals("10", configSource.getProperties().get("a"));
+        assertEquals("2", configSource.getValue("b"));
+
+        BlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+        configSource.addChangeListener((source, changedPropertyNames) -> changes.add(changedPropertyNames));
+
+        // 修改 b，删除 c，新增 d；a 被覆盖，修改后值不变
+        write(defaultFile, "a=100", "b=20", "d=4");
+        Set<String> changedPropertyNames = changes.poll(10, TimeUnit.SECONDS);
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), changedPropertyNames);
+        assertEquals("10", configSource.getValue("a"));
+        assertEquals("20", configSource.getValue("b"));
+        assertNull(configSource.getValue("c"));
+        assertEquals("4", configSource.getValue("d"));
+
+        // 删除覆盖文件
+        Files.delete(overrideFile);
+        assertEquals(new HashSet<>(Arrays.asList("a")), changes.poll(10, TimeUnit.SECONDS));
+        assertEquals("100", configSource.getValue("a"));
+    }
+
+    /**
+     * 通知监听器时不持有配置源的锁，监听器持有其他锁再读取配置源时不会死锁
+     */
+    @Test
+    public void testFireChangeWithoutLock() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("default.properties");
+        write(file, "a=1");
+        configSource = new FileConfigSource(FileConfigSource.DEFAULT_ORDINAL, 60 * 1000, file);
+        assertEquals("1", configSource.getProperties().get("a"));
+
+        BlockingQueue<Boolean> holdsLock = new LinkedBlockingQueue<>();
+        configSource.addChangeListener((source, changedPropertyNames) -> holdsLock.add(Thread.holdsLock(source)));
+        write(file, "a=2");
+        configSource.reload(file);
+        assertEquals(Boolean.FALSE, holdsLock.poll());
+        assertEquals("2", configSource.getValue("a"));
+    }
+
+    private static void write(Path file, String... lines) throws IOException {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,7 @@
 package org.geektimes.context;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
 import org.geektimes.function.ThrowableAction;
 import org.geektimes.function.ThrowableFunction;
 
@@ -8,12 +10,11 @@ import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.naming.*;
 import javax.servlet.ServletContext;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Java 传统组件上下文（基于 JNDI实现）
@@ -22,6 +23,18 @@ public class ClassicComponentContext implements ComponentContext {
 
     public static final String CONTEXT_NAME = ClassicComponentContext.class.getName();
 
+    /**
+     * 延迟初始化模式（ServletContext 参数），开启后组件在首次获取时才实例化与初始化
+     */
+    public static final String LAZY_INIT_PARAM_NAME = "org.geektimes.context.lazy-init";
+
+    /**
+     * 延迟初始化模式下仍需在启动时初始化的组件名称（ServletContext 参数，逗号分隔）
+     *
+     * @see Eager
+     */
+    public static final String EAGER_COMPONENT_NAMES_PARAM_NAME = "org.geektimes.context.eager-components";
+
     private static final String COMPONENT_ENV_CONTEXT_NAME = "java:comp/env";
 
     private static final Logger logger = Logger.getLogger(CONTEXT_NAME);
@@ -41,12 +54,80 @@ public class ClassicComponentContext implements ComponentContext {
 
     private ClassLoader classLoader;
 
-    private Map<String, Object> componentsCache = new LinkedHashMap<>();
+    /**
+     * 是否延迟初始化组件
+     */
+    private boolean lazyInit;
+
+    /**
+     * 所有的组件名称（不可变列表）
+     */
+    private volatile List<String> componentNames = Collections.emptyList();
+
+    /**
+     * 需要在启动时初始化的组件名称，仅延迟初始化模式使用
+     */
+    private final Set<String> eagerComponentNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 组件注册表（不可变快照，仅包含已实例化的组件），读操作无锁
+     */
+    private volatile ComponentRegistry componentRegistry = ComponentRegistry.EMPTY;
+
+    /**
+     * 组件持有者（名称 -> 持有者），仅延迟初始化模式使用
+     */
+    private volatile Map<String, ComponentHolder> componentHolders = Collections.emptyMap();
+
+    /**
+     * 组件创建锁（延迟初始化模式），组件创建串行执行，避免不同线程以相反顺序获取组件时相互等待
+     */
+    private final ReentrantLock creationLock = new ReentrantLock();
+
+    /**
+     * 正在创建的组件名称（仅持有 {@link #creationLock} 的线程访问），用于检测延迟初始化时的循环依赖
+     */
+    private final LinkedHashSet<String> creatingComponentNames = new LinkedHashSet<>();
+
+    /**
+     * 列举 JNDI 名称时获知的组件类型（名称 -> 类型），绑定 {@link Reference} 的组件类型未知，不包含在内
+     */
+    private final Map<String, Class<?>> componentClasses = new ConcurrentHashMap<>();
+
+    /**
+     * @PreDestroy 方法回调（按注册顺序），销毁时逆序执行并逐个移除
+     */
+    private final Deque<PreDestroyCallback> preDestroyCallbacks = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 组件类注入元信息缓存
+     */
+    private final ConcurrentMap<Class<?>, InjectionMetadata> injectionMetadataCache = new ConcurrentHashMap<>();
 
     /**
-     * @PreDestroy 方法缓存，Key 为标注方法，Value 为方法所属对象
+     * 组件方法拦截器（通过 {@link ServiceLoader} 加载）
      */
-    private Map<Method, Object> preDestroyMethodCache = new LinkedHashMap<>();
+    private List<ComponentInterceptor> componentInterceptors = Collections.emptyList();
+
+    /**
+     * 组件类拦截元信息缓存
+     */
+    private final ConcurrentMap<Class<?>, InterceptionMetadata> interceptionMetadataCache = new ConcurrentHashMap<>();
+
+    /**
+     * {@link ConfigProperty} 字段注入器，首次注入配置时创建
+     */
+    private volatile ConfigPropertyInjector configPropertyInjector;
+
+    /**
+     * 组件实例化与初始化线程池，仅在 {@link #init()} 期间存在
+     */
+    private ForkJoinPool initializationExecutor;
+
+    /**
+     * 组件启动耗时
+     */
+    private final Map<String, StartupTiming> startupTimings = new ConcurrentHashMap<>();
 
     /**
      * 获取 ComponentContext
@@ -64,59 +145,188 @@ public class ClassicComponentContext implements ComponentContext {
     }
 
     /**
-     * 实例化组件
+     * 实例化组件（并行），需要拦截的组件替换为代理对象
      */
     protected void instantiateComponents() {
-        // 遍历获取所有的组件名称
-        List<String> componentNames = listAllComponentNames();
         // 通过依赖查找，实例化对象（ Tomcat BeanFactory setter 方法的执行，仅支持简单类型）
-        componentNames.forEach(name -> componentsCache.put(name, lookupComponent(name)));
+        // 不同名称的 JNDI 查找相互独立，可以并行执行
+        Map<String, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+        componentNames.forEach(name -> futures.put(name, CompletableFuture.supplyAsync(() -> {
+            long startTime = System.nanoTime();
+            Object component = createProxy(lookupComponent(name));
+            getStartupTiming(name).instantiationTime = System.nanoTime() - startTime;
+            return component;
+        }, initializationExecutor)));
+        // 按照名称顺序保存组件，并发布注册表
+        Map<String, Object> components = new LinkedHashMap<>();
+        futures.forEach((name, future) -> components.put(name, join(future)));
+        this.componentRegistry = new ComponentRegistry(components);
     }
 
     /**
      * 初始化组件（支持 Java 标准 Commons Annotation 生命周期）
      * <ol>
-     *  <li>注入阶段 - {@link Resource}</li>
+     *  <li>注入阶段 - {@link Resource}、{@link ConfigProperty}</li>
      *  <li>初始阶段 - {@link PostConstruct}</li>
      *  <li>销毁阶段 - {@link PreDestroy}</li>
      * </ol>
+     * 基于 {@link Resource} 字段构建组件依赖关系图，组件在其依赖组件初始化完成后才会初始化，
+     * 相互独立的组件并行初始化。
+     *
+     * @throws IllegalStateException 组件之间存在循环依赖时
      */
     protected void initializeComponents() {
-        componentsCache.values().forEach(this::initializeComponent);
+        Map<String, Set<String>> dependencies = resolveComponentDependencies();
+        List<String> sortedComponentNames = sortComponentNames(dependencies);
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (String name : sortedComponentNames) {
+            // 拓扑排序保证依赖组件的 Future 已经创建
+            CompletableFuture<?>[] dependencyFutures = dependencies.get(name)
+                    .stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(name, CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                long startTime = System.nanoTime();
+                initializeComponent(componentRegistry.get(name));
+                getStartupTiming(name).initializationTime = System.nanoTime() - startTime;
+            }, initializationExecutor));
+        }
+        futures.values().forEach(ClassicComponentContext::join);
+    }
+
+    /**
+     * 解析组件依赖关系，同时检查 {@link Resource} 字段的类型（初始化任何组件之前）
+     *
+     * @return Key 为组件名称，Value 为其 {@link Resource} 字段依赖的组件名称集合
+     * @throws IllegalStateException 依赖的组件不能注入到字段时
+     */
+    private Map<String, Set<String>> resolveComponentDependencies() {
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        ComponentRegistry componentRegistry = this.componentRegistry;
+        componentRegistry.getComponents().forEach((name, component) -> {
+            Set<String> dependentNames = new LinkedHashSet<>();
+            if (component != null) {
+                for (InjectionMetadata.ResourceElement element :
+                        getInjectionMetadata(InterceptionMetadata.getTarget(component).getClass()).getResourceElements()) {
+                    String dependentName = element.getName();
+                    if (componentRegistry.contains(dependentName)) {
+                        checkResourceType(element, componentRegistry.get(dependentName));
+                        if (!dependentName.equals(name)) {
+                            dependentNames.add(dependentName);
+                        }
+                    }
+                }
+            }
+            dependencies.put(name, dependentNames);
+        });
+        return dependencies;
+    }
+
+    /**
+     * 检查被注入的组件与 {@link Resource} 字段的类型是否兼容。被 {@link ComponentInterceptor} 拦截的组件
+     * 替换为其接口的 JDK 动态代理，字段需要声明为接口类型，不能是组件类
+     *
+     * @throws IllegalStateException 不兼容时
+     */
+    private static void checkResourceType(InjectionMetadata.ResourceElement element, Object injectedObject) {
+        Field field = element.getField();
+        if (injectedObject == null || field.getType().isInstance(injectedObject)) {
+            return;
+        }
+        Object target = InterceptionMetadata.getTarget(injectedObject);
+        String message = String.format("The component[%s] of %s can't be injected into the field %s",
+                element.getName(), target.getClass().getName(), field);
+        if (target != injectedObject) {
+            message += " , the component is intercepted and proxied by its interfaces, "
+                    + "please declare the field with an interface type";
+        }
+        throw new IllegalStateException(message);
+    }
+
+    /**
+     * 组件名称拓扑排序（依赖组件在前）
+     *
+     * @param dependencies 组件依赖关系
+     * @return 排序后的组件名称
+     * @throws IllegalStateException 组件之间存在循环依赖时
+     */
+    private List<String> sortComponentNames(Map<String, Set<String>> dependencies) {
+        List<String> sortedNames = new ArrayList<>(dependencies.size());
+        Set<String> visitedNames = new HashSet<>();
+        // 当前访问路径，用于检测循环依赖
+        LinkedHashSet<String> visitingNames = new LinkedHashSet<>();
+        dependencies.keySet().forEach(name -> sortComponentNames(name, dependencies, visitedNames,
+                visitingNames, sortedNames));
+        return sortedNames;
+    }
+
+    private void sortComponentNames(String name, Map<String, Set<String>> dependencies, Set<String> visitedNames,
+                                    LinkedHashSet<String> visitingNames, List<String> sortedNames) {
+        if (visitedNames.contains(name)) {
+            return;
+        }
+        if (!visitingNames.add(name)) {
+            throw circularDependenciesException(visitingNames, name);
+        }
+        for (String dependentName : dependencies.get(name)) {
+            sortComponentNames(dependentName, dependencies, visitedNames, visitingNames, sortedNames);
+        }
+        visitingNames.remove(name);
+        visitedNames.add(name);
+        sortedNames.add(name);
+    }
+
+    private static IllegalStateException circularDependenciesException(Set<String> path, String name) {
+        List<String> cycle = new ArrayList<>(path);
+        cycle = cycle.subList(cycle.indexOf(name), cycle.size());
+        return new IllegalStateException("The components have circular dependencies : "
+                + String.join(" -> ", cycle) + " -> " + name);
     }
 
     /**
      * 初始化组件（支持 Java 标准 Commons Annotation 生命周期）
      * <ol>
-     *  <li>注入阶段 - {@link Resource}</li>
+     *  <li>注入阶段 - {@link Resource}、{@link ConfigProperty}</li>
      *  <li>初始阶段 - {@link PostConstruct}</li>
      *  <li>销毁阶段 - {@link PreDestroy}</li>
      * </ol>
+     *
+     * @param component 组件对象，代理对象时初始化其代理的组件对象
      */
     public void initializeComponent(Object component) {
+        component = InterceptionMetadata.getTarget(component);
         Class<?> componentClass = component.getClass();
-        // 注入阶段 - {@link Resource}
-        injectComponent(component, componentClass);
-        // 查询候选方法
-        List<Method> candidateMethods = findCandidateMethods(componentClass);
+        InjectionMetadata metadata = getInjectionMetadata(componentClass);
+        // 注入阶段 - {@link Resource}、{@link ConfigProperty}
+        injectComponent(component, metadata);
         // 初始阶段 - {@link PostConstruct}
-        processPostConstruct(component, candidateMethods);
+        processPostConstruct(component, metadata);
         // 本阶段处理 {@link PreDestroy} 方法元数据
-        processPreDestroyMetadata(component, candidateMethods);
+        processPreDestroyMetadata(component, metadata);
     }
 
     /**
-     * 获取组件类中的候选方法
+     * 获取组件类的注入元信息（每个类仅解析一次）
      *
      * @param componentClass 组件类
      * @return non-null
      */
-    private List<Method> findCandidateMethods(Class<?> componentClass) {
-        return Stream.of(componentClass.getMethods())                     // public 方法
-                .filter(method ->
-                        !Modifier.isStatic(method.getModifiers()) &&      // 非 static
-                                method.getParameterCount() == 0)          // 无参数
-                .collect(Collectors.toList());
+    InjectionMetadata getInjectionMetadata(Class<?> componentClass) {
+        return injectionMetadataCache.computeIfAbsent(componentClass, InjectionMetadata::build);
+    }
+
+    /**
+     * 创建组件的代理对象（存在被 {@link ComponentInterceptor} 拦截的方法时）
+     *
+     * @param component 组件对象
+     * @return 无需代理时返回 <code>component</code>
+     */
+    private Object createProxy(Object component) {
+        if (component == null || componentInterceptors.isEmpty()) {
+            return component;
+        }
+        return interceptionMetadataCache.computeIfAbsent(component.getClass(),
+                type -> InterceptionMetadata.build(type, componentInterceptors)).newProxy(component);
     }
 
     private void registerShutdownHook() {
@@ -132,53 +342,65 @@ public class ClassicComponentContext implements ComponentContext {
     }
 
     protected void injectComponent(Object component, Class<?> componentClass) {
-        Stream.of(componentClass.getDeclaredFields())
-                .filter(field -> {
-                    int mods = field.getModifiers();
-                    return !Modifier.isStatic(mods) &&
-                            field.isAnnotationPresent(Resource.class);
-                }).forEach(field -> {
-            Resource resource = field.getAnnotation(Resource.class);
-            String resourceName = resource.name();
-            Object injectedObject = lookupComponent(resourceName);
-            field.setAccessible(true);
-            try {
-                // 注入目标对象
-                field.set(component, injectedObject);
-            } catch (IllegalAccessException e) {
+        injectComponent(component, getInjectionMetadata(componentClass));
+    }
+
+    private void injectComponent(Object component, InjectionMetadata metadata) {
+        for (InjectionMetadata.ResourceElement element : metadata.getResourceElements()) {
+            Object injectedObject = resolveComponent(element.getName());
+            checkResourceType(element, injectedObject);
+            // 注入目标对象
+            ThrowableAction.execute(() -> element.inject(component, injectedObject));
+        }
+        for (InjectionMetadata.ConfigPropertyElement element : metadata.getConfigPropertyElements()) {
+            getConfigPropertyInjector().inject(component, element);
+        }
+    }
+
+    /**
+     * 获取 {@link ConfigPropertyInjector}，使用当前 ClassLoader 关联的 Config
+     * （需要在上下文初始化之前注册，参考 ServletContextConfigInitializer）
+     */
+    private ConfigPropertyInjector getConfigPropertyInjector() {
+        ConfigPropertyInjector injector = this.configPropertyInjector;
+        if (injector == null) {
+            synchronized (this) {
+                injector = this.configPropertyInjector;
+                if (injector == null) {
+                    injector = new ConfigPropertyInjector(ConfigProviderResolver.instance().getConfig(classLoader));
+                    this.configPropertyInjector = injector;
+                }
             }
-        });
+        }
+        return injector;
     }
 
-    private void processPostConstruct(Object component, List<Method> candidateMethods) {
-        candidateMethods
-                .stream()
-                .filter(method -> method.isAnnotationPresent(PostConstruct.class))// 标注 @PostConstruct
-                .forEach(method -> {
-                    // 执行目标方法
-                    ThrowableAction.execute(() -> method.invoke(component));
-                });
+    private void processPostConstruct(Object component, InjectionMetadata metadata) {
+        for (InjectionMetadata.LifecycleElement element : metadata.getPostConstructElements()) {
+            // 执行目标方法
+            ThrowableAction.execute(() -> element.invoke(component));
+        }
     }
 
     /**
-     * @param component        组件对象
-     * @param candidateMethods 候选方法
+     * @param component 组件对象
+     * @param metadata  注入元信息
      * @see #processPreDestroy()
      */
-    private void processPreDestroyMetadata(Object component, List<Method> candidateMethods) {
-        candidateMethods.stream()
-                .filter(method -> method.isAnnotationPresent(PreDestroy.class)) // 标注 @PreDestroy
-                .forEach(method -> {
-                    preDestroyMethodCache.put(method, component);
-                });
+    private void processPreDestroyMetadata(Object component, InjectionMetadata metadata) {
+        for (InjectionMetadata.LifecycleElement element : metadata.getPreDestroyElements()) {
+            preDestroyCallbacks.add(new PreDestroyCallback(component, element));
+        }
     }
 
     private void processPreDestroy() {
-        for (Method preDestroyMethod : preDestroyMethodCache.keySet()) {
-            // 移除集合中的对象，防止重复执行 @PreDestroy 方法
-            Object component = preDestroyMethodCache.remove(preDestroyMethod);
+        PreDestroyCallback callback;
+        // 原子地移除回调，防止 ShutdownHook 与 destroy() 重复执行 @PreDestroy 方法
+        // 逆序执行，依赖方先于被依赖方销毁
+        while ((callback = preDestroyCallbacks.pollLast()) != null) {
+            PreDestroyCallback currentCallback = callback;
             // 执行目标方法
-            ThrowableAction.execute(() -> preDestroyMethod.invoke(component));
+            ThrowableAction.execute(() -> currentCallback.element.invoke(currentCallback.component));
         }
     }
 
@@ -227,17 +449,132 @@ public class ClassicComponentContext implements ComponentContext {
     }
 
 
+    /**
+     * 通过名称查找组件对象，延迟初始化模式下首次获取时实例化并初始化组件
+     *
+     * @param name 组件名称
+     * @param <C>  组件对象类型
+     * @return 如果找不到返回, <code>null</code>
+     */
     public <C> C getComponent(String name) {
-        return (C) componentsCache.get(name);
+        Object component = componentRegistry.get(name);
+        if (component == null && lazyInit) {
+            ComponentHolder holder = componentHolders.get(name);
+            component = holder == null ? null : holder.get();
+        }
+        return (C) component;
     }
 
     /**
-     * 获取所有的组件名称
+     * 通过类型查找组件对象（基于预先计算的类型索引，不会执行 JNDI 查找）
+     * <p>
+     * 延迟初始化模式下，首次按类型查找会初始化尚未初始化、且类型可能匹配的组件：列举名称时已知类型的组件按类型过滤，
+     * 类型未知的组件（如 Tomcat 绑定的 {@link Reference}）都需要初始化，建议优先通过名称查找。
+     * 正在创建的组件（如在其 {@link PostConstruct} 方法中按类型查找）不会被重复创建。
+     * 被 {@link ComponentInterceptor} 拦截的组件为代理对象，仅能通过其接口类型查找。
      *
-     * @return
+     * @param type 组件类型
+     * @param <C>  组件对象类型
+     * @return 如果找不到返回, <code>null</code>
+     * @throws IllegalStateException 存在多个该类型的组件时
+     */
+    @Override
+    public <C> C getComponent(Class<C> type) {
+        if (lazyInit && this.componentRegistry.getComponents().size() < componentHolders.size()) {
+            ComponentRegistry componentRegistry = this.componentRegistry;
+            componentHolders.forEach((name, holder) -> {
+                if (!componentRegistry.contains(name) && isCandidate(name, type) && !isCreating(name)) {
+                    holder.get();
+                }
+            });
+        }
+        ComponentRegistry componentRegistry = this.componentRegistry;
+        List<String> names = componentRegistry.getComponentNames(type);
+        if (names.isEmpty()) {
+            return null;
+        }
+        if (names.size() > 1) {
+            throw new IllegalStateException(String.format("More than one component of type[%s] : %s",
+                    type.getName(), names));
+        }
+        return type.cast(componentRegistry.get(names.get(0)));
+    }
+
+    /**
+     * @return 组件类型未知，或者可以赋值给 <code>type</code> 时返回 <code>true</code>
+     */
+    private boolean isCandidate(String name, Class<?> type) {
+        Class<?> componentClass = componentClasses.get(name);
+        return componentClass == null || type.isAssignableFrom(componentClass);
+    }
+
+    /**
+     * @return 当前线程正在创建该组件时返回 <code>true</code>
+     */
+    private boolean isCreating(String name) {
+        return creationLock.isHeldByCurrentThread() && creatingComponentNames.contains(name);
+    }
+
+    /**
+     * 解析注入的组件，优先从注册表中获取，不存在时才执行 JNDI 查找
+     *
+     * @param name 组件名称
+     * @return 组件对象
+     */
+    private Object resolveComponent(String name) {
+        ComponentRegistry componentRegistry = this.componentRegistry;
+        if (componentRegistry.contains(name)) {
+            return componentRegistry.get(name);
+        }
+        ComponentHolder holder = componentHolders.get(name);
+        return holder == null ? lookupComponent(name) : holder.get();
+    }
+
+    /**
+     * 创建组件：实例化并初始化，然后发布到注册表（延迟初始化模式，调用者持有 {@link #creationLock}）
+     *
+     * @param name 组件名称
+     * @return 组件对象
+     * @throws IllegalStateException 组件之间存在循环依赖时
+     */
+    private Object createComponent(String name) {
+        if (!creatingComponentNames.add(name)) {
+            throw circularDependenciesException(creatingComponentNames, name);
+        }
+        try {
+            StartupTiming timing = getStartupTiming(name);
+            long startTime = System.nanoTime();
+            Object component = lookupComponent(name);
+            timing.instantiationTime = System.nanoTime() - startTime;
+            if (component != null) {
+                startTime = System.nanoTime();
+                initializeComponent(component);
+                timing.initializationTime = System.nanoTime() - startTime;
+                component = createProxy(component);
+            }
+            registerComponent(name, component);
+            return component;
+        } finally {
+            creatingComponentNames.remove(name);
+        }
+    }
+
+    /**
+     * 发布组件到注册表（写时复制）
+     */
+    private synchronized void registerComponent(String name, Object component) {
+        Map<String, Object> components = new LinkedHashMap<>(componentRegistry.getComponents());
+        components.put(name, component);
+        this.componentRegistry = new ComponentRegistry(components);
+    }
+
+    /**
+     * 获取所有的组件名称（包括延迟初始化模式下尚未初始化的组件）
+     *
+     * @return 不可变列表
      */
     public List<String> getComponentNames() {
-        return new ArrayList<>(componentsCache.keySet());
+        return componentNames;
     }
 
     private List<String> listAllComponentNames() {
@@ -267,6 +604,12 @@ public class ClassicComponentContext implements ComponentContext {
                     String fullName = name.startsWith("/") ?
                             element.getName() : name + "/" + element.getName();
                     fullNames.add(fullName);
+                    if (!Reference.class.isAssignableFrom(targetClass)) {
+                        componentClasses.put(fullName, targetClass);
+                    }
+                    if (targetClass.isAnnotationPresent(Eager.class)) {
+                        eagerComponentNames.add(fullName);
+                    }
                 }
             }
             return fullNames;
@@ -276,12 +619,183 @@ public class ClassicComponentContext implements ComponentContext {
     @Override
     public void init() {
         initClassLoader();
+        initComponentInterceptors();
         initEnvContext();
-        instantiateComponents();
-        initializeComponents();
+        initLazyInit();
+        initComponentNames();
+        if (lazyInit) {
+            initEagerComponents();
+        } else {
+            initInitializationExecutor();
+            try {
+                instantiateComponents();
+                initializeComponents();
+            } finally {
+                destroyInitializationExecutor();
+            }
+        }
+        reportStartupTimings();
         registerShutdownHook();
     }
 
+    private void initComponentInterceptors() {
+        List<ComponentInterceptor> componentInterceptors = new ArrayList<>();
+        ServiceLoader.load(ComponentInterceptor.class, classLoader).forEach(componentInterceptors::add);
+        this.componentInterceptors = Collections.unmodifiableList(componentInterceptors);
+    }
+
+    private void initLazyInit() {
+        this.lazyInit = Boolean.parseBoolean(servletContext.getInitParameter(LAZY_INIT_PARAM_NAME));
+        String eagerComponentNames = servletContext.getInitParameter(EAGER_COMPONENT_NAMES_PARAM_NAME);
+        if (eagerComponentNames != null) {
+            for (String name : eagerComponentNames.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    this.eagerComponentNames.add(name.trim());
+                }
+            }
+        }
+    }
+
+    /**
+     * 遍历获取所有的组件名称，延迟初始化模式下为每个组件创建持有者
+     */
+    private void initComponentNames() {
+        List<String> componentNames = Collections.unmodifiableList(new ArrayList<>(listAllComponentNames()));
+        if (lazyInit) {
+            Map<String, ComponentHolder> componentHolders = new HashMap<>();
+            componentNames.forEach(name -> componentHolders.put(name, new ComponentHolder(name)));
+            this.componentHolders = componentHolders;
+        }
+        this.componentNames = componentNames;
+    }
+
+    /**
+     * 延迟初始化模式下，在当前线程中依次初始化 {@link Eager} 组件（依赖组件随之初始化）
+     */
+    private void initEagerComponents() {
+        componentNames.stream()
+                .filter(eagerComponentNames::contains)
+                .map(componentHolders::get)
+                .forEach(ComponentHolder::get);
+    }
+
+    /**
+     * 初始化组件实例化与初始化的线程池，工作线程使用 WebApp ClassLoader 作为上下文 ClassLoader，
+     * 保证组件（如 JPA 实现）在工作线程中能够加载资源
+     */
+    private void initInitializationExecutor() {
+        ClassLoader classLoader = this.classLoader;
+        this.initializationExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            };
+            thread.setName("ComponentContext-init-" + thread.getPoolIndex());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }, null, false);
+    }
+
+    private void destroyInitializationExecutor() {
+        initializationExecutor.shutdown();
+        initializationExecutor = null;
+    }
+
+    private StartupTiming getStartupTiming(String name) {
+        return startupTimings.computeIfAbsent(name, n -> new StartupTiming());
+    }
+
+    /**
+     * 输出组件启动耗时报告
+     */
+    private void reportStartupTimings() {
+        StringBuilder report = new StringBuilder("组件启动耗时报告（毫秒）：");
+        componentRegistry.getComponentNames().forEach(name -> {
+            StartupTiming timing = getStartupTiming(name);
+            report.append(String.format("%n%-40s 实例化：%8.2f，初始化：%8.2f", name,
+                    timing.instantiationTime / 1e6, timing.initializationTime / 1e6));
+        });
+        logger.info(report.toString());
+    }
+
+    /**
+     * 获取组件启动耗时（纳秒）
+     *
+     * @param name 组件名称
+     * @return 实例化与初始化耗时之和，组件不存在时返回 -1
+     */
+    public long getStartupTime(String name) {
+        StartupTiming timing = startupTimings.get(name);
+        return timing == null ? -1 : timing.instantiationTime + timing.initializationTime;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 组件持有者，首次获取时创建组件（双重检查，创建时持有全局的 {@link #creationLock}）
+     * <p>
+     * 各个组件独立加锁时，线程 1 创建 A 时依赖 B，线程 2 创建 B 时依赖 A，两个线程会相互等待；
+     * 全局锁保证依赖关系只在同一线程内展开，循环依赖总能被检测到。组件创建后读取无锁。
+     */
+    private class ComponentHolder {
+
+        private final String name;
+
+        private volatile boolean created;
+
+        private Object component;
+
+        private ComponentHolder(String name) {
+            this.name = name;
+        }
+
+        Object get() {
+            if (!created) {
+                creationLock.lock();
+                try {
+                    if (!created) {
+                        component = createComponent(name);
+                        // volatile 写，保证 component 对其他线程可见
+                        created = true;
+                    }
+                } finally {
+                    creationLock.unlock();
+                }
+            }
+            return component;
+        }
+    }
+
+    /**
+     * {@link PreDestroy} 方法回调
+     */
+    private static class PreDestroyCallback {
+
+        private final Object component;
+
+        private final InjectionMetadata.LifecycleElement element;
+
+        private PreDestroyCallback(Object component, InjectionMetadata.LifecycleElement element) {
+            this.component = component;
+            this.element = element;
+        }
+    }
+
+    /**
+     * 组件启动耗时（纳秒）
+     */
+    private static class StartupTiming {
+
+        private volatile long instantiationTime;
+
+        private volatile long initializationTime;
+    }
+
     private void initClassLoader() {
         // 获取当前 ServletContext（WebApp）ClassLoader
         this.classLoader = servletContext.getClassLoader();
@@ -290,17 +804,31 @@ public class ClassicComponentContext implements ComponentContext {
     @Override
     public void destroy() throws RuntimeException {
         processPreDestroy();
+        destroyConfigPropertyInjector();
         clearCache();
         closeEnvContext();
     }
 
+    private synchronized void destroyConfigPropertyInjector() {
+        if (configPropertyInjector != null) {
+            configPropertyInjector.destroy();
+            configPropertyInjector = null;
+        }
+    }
+
     private void closeEnvContext() {
         close(this.envContext);
     }
 
     private void clearCache() {
-        componentsCache.clear();
-        preDestroyMethodCache.clear();
+        componentRegistry = ComponentRegistry.EMPTY;
+        componentHolders = Collections.emptyMap();
+        componentNames = Collections.emptyList();
+        eagerComponentNames.clear();
+        componentClasses.clear();
+        preDestroyCallbacks.clear();
+        injectionMetadataCache.clear();
+        interceptionMetadataCache.clear();
     }
 
     private void initEnvContext() throws RuntimeException {
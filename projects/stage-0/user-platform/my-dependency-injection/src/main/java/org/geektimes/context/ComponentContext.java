@@ -30,6 +30,15 @@ public interface ComponentContext {
      */
     <C> C getComponent(String name);
 
+    /**
+     * 通过类型查找组件对象
+     *
+     * @param type 组件类型
+     * @param <C>  组件对象类型
+     * @return 如果找不到返回, <code>null</code>
+     */
+    <C> C getComponent(Class<C> type);
+
     /**
      * 获取所有的组件名称
      *
@@ -0,0 +1,48 @@
+package org.geektimes.context;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 组件方法拦截器
+ * <p>
+ * 通过 {@link java.util.ServiceLoader} 加载（META-INF/services/org.geektimes.context.ComponentInterceptor），
+ * 组件类存在被拦截的方法时，{@link ClassicComponentContext} 基于组件实现的接口创建 JDK 动态代理，
+ * 通过名称或者类型获取、以及注入到其他组件的均为代理对象。注入被拦截组件的 {@link javax.annotation.Resource}
+ * 字段需要声明为接口类型，声明为组件类时初始化失败。
+ *
+ * @see ComponentInvocation
+ */
+public interface ComponentInterceptor {
+
+    /**
+     * 是否拦截组件类的方法（每个组件类仅判断一次）
+     *
+     * @param method 组件类的方法（非接口方法，可读取实现类方法上的注解）
+     * @return 拦截时返回 <code>true</code>
+     */
+    boolean supports(Method method);
+
+    /**
+     * 拦截方法调用
+     *
+     * @param invocation 方法调用，通过 {@link ComponentInvocation#proceed()} 执行下一个拦截器或者目标方法
+     * @return 方法返回值
+     * @throws Throwable 目标方法或者拦截器抛出的异常
+     */
+    Object intercept(ComponentInvocation invocation) throws Throwable;
+
+    /**
+     * 使用指定的拦截器创建组件的代理对象（不经过 {@link ClassicComponentContext}，如测试）
+     *
+     * @param component     组件对象
+     * @param interfaceType 代理的接口类型（组件实现的接口）
+     * @param interceptors  拦截器
+     * @param <T>           接口类型
+     * @return 组件类没有被拦截的方法时返回 <code>component</code>
+     */
+    static <T> T newProxy(Object component, Class<T> interfaceType, ComponentInterceptor... interceptors) {
+        return interfaceType.cast(InterceptionMetadata.build(component.getClass(), Arrays.asList(interceptors))
+                .newProxy(component));
+    }
+}
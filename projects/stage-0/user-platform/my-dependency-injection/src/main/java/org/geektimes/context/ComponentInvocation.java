@@ -0,0 +1,68 @@
+package org.geektimes.context;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 组件方法调用（拦截器链）
+ *
+ * @see ComponentInterceptor
+ */
+public final class ComponentInvocation {
+
+    private final Object target;
+
+    private final Method method;
+
+    /**
+     * 代理的接口方法，用于调用目标方法
+     */
+    private final Method interfaceMethod;
+
+    private final Object[] arguments;
+
+    private final ComponentInterceptor[] interceptors;
+
+    private int index;
+
+    ComponentInvocation(Object target, Method method, Method interfaceMethod, Object[] arguments,
+                        ComponentInterceptor[] interceptors) {
+        this.target = target;
+        this.method = method;
+        this.interfaceMethod = interfaceMethod;
+        this.arguments = arguments;
+        this.interceptors = interceptors;
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * @return 组件类的方法
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * 执行下一个拦截器，所有拦截器执行完毕后执行目标方法
+     *
+     * @return 方法返回值
+     * @throws Throwable 目标方法抛出的异常（非 {@link InvocationTargetException}）
+     */
+    public Object proceed() throws Throwable {
+        if (index < interceptors.length) {
+            return interceptors[index++].intercept(this);
+        }
+        try {
+            return interfaceMethod.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.geektimes.context;
+
+import java.util.*;
+
+/**
+ * 不可变的组件注册表（快照）
+ * <p>
+ * 包括名称与组件的映射，以及预先计算的类型索引（组件类、父类以及所有接口 -> 组件名称）。
+ * 注册表一经创建不再修改，通过 volatile 字段发布后读操作无需加锁。
+ *
+ * @see ClassicComponentContext
+ */
+final class ComponentRegistry {
+
+    static final ComponentRegistry EMPTY = new ComponentRegistry(Collections.emptyMap());
+
+    /**
+     * 名称与组件的映射（保持注册顺序）
+     */
+    private final Map<String, Object> components;
+
+    private final List<String> componentNames;
+
+    /**
+     * 类型索引，Value 为该类型所有组件名称（保持注册顺序）
+     */
+    private final Map<Class<?>, List<String>> typeIndex;
+
+    ComponentRegistry(Map<String, Object> components) {
+        Map<String, Object> copy = new LinkedHashMap<>(components);
+        this.components = Collections.unmodifiableMap(copy);
+        this.componentNames = Collections.unmodifiableList(new ArrayList<>(copy.keySet()));
+        this.typeIndex = buildTypeIndex(copy);
+    }
+
+    private static Map<Class<?>, List<String>> buildTypeIndex(Map<String, Object> components) {
+        Map<Class<?>, List<String>> typeIndex = new HashMap<>();
+        components.forEach((name, component) -> {
+            if (component == null) {
+                return;
+            }
+            for (Class<?> type : resolveTypes(component.getClass())) {
+                typeIndex.computeIfAbsent(type, t -> new ArrayList<>(1)).add(name);
+            }
+        });
+        typeIndex.replaceAll((type, names) -> Collections.unmodifiableList(names));
+        return typeIndex;
+    }
+
+    /**
+     * 解析组件类的所有类型：自身、父类（不包括 {@link Object}）以及所有接口
+     */
+    private static Set<Class<?>> resolveTypes(Class<?> componentClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        Deque<Class<?>> candidates = new ArrayDeque<>();
+        candidates.add(componentClass);
+        while (!candidates.isEmpty()) {
+            Class<?> type = candidates.poll();
+            if (Object.class.equals(type) || !types.add(type)) {
+                continue;
+            }
+            if (type.getSuperclass() != null) {
+                candidates.add(type.getSuperclass());
+            }
+            candidates.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return types;
+    }
+
+    Object get(String name) {
+        return components.get(name);
+    }
+
+    boolean contains(String name) {
+        return components.containsKey(name);
+    }
+
+    Map<String, Object> getComponents() {
+        return components;
+    }
+
+    List<String> getComponentNames() {
+        return componentNames;
+    }
+
+    /**
+     * @param type 组件类型
+     * @return 指定类型的组件名称，non-null
+     */
+    List<String> getComponentNames(Class<?> type) {
+        return typeIndex.getOrDefault(type, Collections.emptyList());
+    }
+}
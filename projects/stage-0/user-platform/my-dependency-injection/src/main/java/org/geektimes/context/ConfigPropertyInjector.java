@@ -0,0 +1,282 @@
+package org.geektimes.context;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigValue;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.config.spi.Converter;
+import org.geektimes.function.ThrowableAction;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link ConfigProperty} 字段注入
+ * <p>
+ * 按字段的泛型类型预先绑定 {@link Converter}（每个字段解析一次），支持 {@link Config#getConverter(Class)}
+ * 能够转换的类型（包括基本类型与数组），以及元素可转换的 {@link List}、{@link Set} 与 {@link Optional}。
+ * <p>
+ * 标注 {@link Dynamic} 的字段在配置发布新的快照之后就地更新，热点代码直接读取字段，无需每次查找属性与转换类型。
+ * 不依赖具体的 {@link Config} 实现：{@link Config} 实现的公开接口中存在
+ * <code>addChangeListener(L)</code> 与 <code>removeChangeListener(L)</code> 方法，且 L 为仅有
+ * <code>onChange(Config, Set&lt;String&gt;)</code> 方法的接口时（如 my-configuration 的 ObservableConfig），
+ * 通过反射注册监听器，否则 {@link Dynamic} 字段仅在注入时赋值。
+ *
+ * @see InjectionMetadata.ConfigPropertyElement
+ */
+class ConfigPropertyInjector {
+
+    private static final Logger logger = Logger.getLogger(ConfigPropertyInjector.class.getName());
+
+    private final Config config;
+
+    /**
+     * 字段 -> 预先绑定的值解析器
+     */
+    private final ConcurrentMap<Field, ValueResolver> valueResolvers = new ConcurrentHashMap<>();
+
+    /**
+     * 属性名 -> {@link Dynamic} 字段
+     */
+    private final ConcurrentMap<String, Queue<DynamicField>> dynamicFields = new ConcurrentHashMap<>();
+
+    /**
+     * <code>removeChangeListener</code> 方法，{@link Config} 不支持变化通知时为 <code>null</code>
+     */
+    private final Method removeChangeListenerMethod;
+
+    /**
+     * 注册的监听器（代理）
+     */
+    private final Object changeListener;
+
+    ConfigPropertyInjector(Config config) {
+        this.config = config;
+        Method addChangeListenerMethod = findChangeListenerMethod(config.getClass(), "addChangeListener");
+        Method removeChangeListenerMethod = addChangeListenerMethod == null ? null :
+                findChangeListenerMethod(config.getClass(), "removeChangeListener");
+        if (removeChangeListenerMethod != null &&
+                removeChangeListenerMethod.getParameterTypes()[0] == addChangeListenerMethod.getParameterTypes()[0]) {
+            this.changeListener = newChangeListener(addChangeListenerMethod.getParameterTypes()[0]);
+            this.removeChangeListenerMethod = removeChangeListenerMethod;
+            ThrowableAction.execute(() -> addChangeListenerMethod.invoke(config, changeListener));
+        } else {
+            this.changeListener = null;
+            this.removeChangeListenerMethod = null;
+            logger.log(Level.FINE, "配置[" + config.getClass().getName() + "]不支持变化通知，@Dynamic 字段不会更新");
+        }
+    }
+
+    /**
+     * 注入配置值，{@link Dynamic} 字段同时登记以便配置变化时更新
+     *
+     * @throws IllegalStateException 配置不存在且没有默认值，或者字段类型无法转换时
+     */
+    void inject(Object component, InjectionMetadata.ConfigPropertyElement element) {
+        Object value = resolveValue(element);
+        ThrowableAction.execute(() -> element.inject(component, value));
+        if (element.isDynamic()) {
+            dynamicFields.computeIfAbsent(element.getName(), name -> new ConcurrentLinkedQueue<>())
+                    .add(new DynamicField(component, element));
+        }
+    }
+
+    /**
+     * 配置变化时更新 {@link Dynamic} 字段
+     *
+     * @param changedPropertyNames 变化的属性名，<code>null</code> 表示全部更新
+     */
+    void onChange(Set<String> changedPropertyNames) {
+        if (changedPropertyNames == null) {
+            dynamicFields.values().forEach(fields -> fields.forEach(this::update));
+            return;
+        }
+        for (String propertyName : changedPropertyNames) {
+            Queue<DynamicField> fields = dynamicFields.get(propertyName);
+            if (fields != null) {
+                fields.forEach(this::update);
+            }
+        }
+    }
+
+    void destroy() {
+        if (removeChangeListenerMethod != null) {
+            ThrowableAction.execute(() -> removeChangeListenerMethod.invoke(config, changeListener));
+        }
+        dynamicFields.clear();
+        valueResolvers.clear();
+    }
+
+    /**
+     * 在 {@link Config} 实现的公开接口中查找变化监听器的注册方法
+     *
+     * @return 不存在时返回 <code>null</code>
+     */
+    private static Method findChangeListenerMethod(Class<?> configClass, String methodName) {
+        Deque<Class<?>> types = new ArrayDeque<>();
+        for (Class<?> type = configClass; type != null; type = type.getSuperclass()) {
+            types.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        while (!types.isEmpty()) {
+            Class<?> type = types.poll();
+            if (Modifier.isPublic(type.getModifiers())) {
+                for (Method method : type.getMethods()) {
+                    if (method.getName().equals(methodName) && method.getParameterCount() == 1 &&
+                            isChangeListenerType(method.getParameterTypes()[0])) {
+                        return method;
+                    }
+                }
+            }
+            types.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return null;
+    }
+
+    /**
+     * @return 是否为仅有 <code>onChange(Config, Set)</code> 抽象方法的接口
+     */
+    private static boolean isChangeListenerType(Class<?> type) {
+        if (!type.isInterface()) {
+            return false;
+        }
+        Method onChange = null;
+        for (Method method : type.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers())) {
+                continue;
+            }
+            if (onChange != null) {
+                return false;
+            }
+            onChange = method;
+        }
+        return onChange != null && onChange.getName().equals("onChange") &&
+                Arrays.equals(onChange.getParameterTypes(), new Class<?>[]{Config.class, Set.class});
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object newChangeListener(Class<?> listenerType) {
+        return Proxy.newProxyInstance(listenerType.getClassLoader(), new Class<?>[]{listenerType},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return "ConfigChangeListener[" + ConfigPropertyInjector.this + "]";
+                        }
+                    }
+                    if (Modifier.isAbstract(method.getModifiers())) {
+                        onChange((Set<String>) args[1]);
+                    }
+                    return null;
+                });
+    }
+
+    private void update(DynamicField dynamicField) {
+        InjectionMetadata.ConfigPropertyElement element = dynamicField.element;
+        try {
+            element.inject(dynamicField.component, resolveValue(element));
+        } catch (Throwable e) {
+            logger.log(Level.WARNING, String.format("配置属性[%s]更新字段[%s]失败，保留原值：%s",
+                    element.getName(), element.getField(), e.getMessage()));
+        }
+    }
+
+    private Object resolveValue(InjectionMetadata.ConfigPropertyElement element) {
+        ValueResolver valueResolver = valueResolvers.computeIfAbsent(element.getField(), this::newValueResolver);
+        ConfigValue configValue = config.getConfigValue(element.getName());
+        String value = configValue == null ? null : configValue.getValue();
+        if (value == null) {
+            value = element.getDefaultValue();
+        }
+        Object convertedValue = value == null ? null : valueResolver.converter.convert(value);
+        if (valueResolver.optional) {
+            return Optional.ofNullable(convertedValue).map(valueResolver.wrapper);
+        }
+        if (convertedValue == null) {
+            throw new IllegalStateException(String.format("The config property[%s] of field[%s] is not configured",
+                    element.getName(), element.getField()));
+        }
+        return valueResolver.wrapper.apply(convertedValue);
+    }
+
+    private ValueResolver newValueResolver(Field field) {
+        Type type = field.getGenericType();
+        boolean optional = false;
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Optional.class) {
+            optional = true;
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        if (type instanceof Class) {
+            return new ValueResolver(getConverter((Class<?>) type), Function.identity(), optional);
+        }
+        if (type instanceof ParameterizedType) {
+            Type rawType = ((ParameterizedType) type).getRawType();
+            Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                // 元素数组的 Converter（逗号分隔），转换为不可变集合
+                Converter<?> converter = getConverter(Array.newInstance((Class<?>) elementType, 0).getClass());
+                if (rawType == List.class || rawType == Collection.class) {
+                    return new ValueResolver(converter,
+                            array -> Collections.unmodifiableList(Arrays.asList((Object[]) array)), optional);
+                }
+                if (rawType == Set.class) {
+                    return new ValueResolver(converter, array -> Collections.unmodifiableSet(
+                            new LinkedHashSet<>(Arrays.asList((Object[]) array))), optional);
+                }
+            }
+        }
+        throw new IllegalStateException("The type of config property field is not supported : " + field);
+    }
+
+    private Converter<?> getConverter(Class<?> type) {
+        if (type == String.class) {
+            return value -> value;
+        }
+        return config.getConverter(type)
+                .orElseThrow(() -> new IllegalStateException("No Converter for type : " + type.getName()));
+    }
+
+    /**
+     * 预先绑定的 {@link Converter} 与结果包装
+     */
+    private static class ValueResolver {
+
+        private final Converter<?> converter;
+
+        private final Function<Object, Object> wrapper;
+
+        private final boolean optional;
+
+        private ValueResolver(Converter<?> converter, Function<Object, Object> wrapper, boolean optional) {
+            this.converter = converter;
+            this.wrapper = wrapper;
+            this.optional = optional;
+        }
+    }
+
+    private static class DynamicField {
+
+        private final Object component;
+
+        private final InjectionMetadata.ConfigPropertyElement element;
+
+        private DynamicField(Object component, InjectionMetadata.ConfigPropertyElement element) {
+            this.component = component;
+            this.element = element;
+        }
+    }
+}
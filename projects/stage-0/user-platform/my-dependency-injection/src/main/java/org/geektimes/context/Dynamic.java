@@ -0,0 +1,18 @@
+package org.geektimes.context;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注的 {@link ConfigProperty} 字段在配置变化时就地更新，字段必须声明为 volatile，保证更新对读取线程可见
+ * <p>
+ * 更新失败（如转换异常、属性被删除且没有默认值）时保留原值。
+ *
+ * @see ClassicComponentContext#injectComponent(Object)
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Dynamic {
+}
@@ -0,0 +1,17 @@
+package org.geektimes.context;
+
+import java.lang.annotation.*;
+
+/**
+ * 延迟初始化模式下，标注的组件仍在上下文启动时实例化与初始化（预热）
+ * <p>
+ * 组件类型需要在列举 JNDI 名称时可知，对于 Tomcat 等绑定 {@link javax.naming.Reference} 的实现，
+ * 请使用 ServletContext 参数 {@link ClassicComponentContext#EAGER_COMPONENT_NAMES_PARAM_NAME} 指定组件名称。
+ *
+ * @see ClassicComponentContext#LAZY_INIT_PARAM_NAME
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Eager {
+}
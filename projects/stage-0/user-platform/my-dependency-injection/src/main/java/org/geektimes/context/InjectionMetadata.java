@@ -0,0 +1,278 @@
+package org.geektimes.context;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * 组件类的注入元信息（按类解析一次并缓存）
+ * <ul>
+ *  <li>注入字段 - {@link Resource}，预先解析为字段 Setter {@link MethodHandle}</li>
+ *  <li>配置字段 - {@link ConfigProperty}（可选 {@link Dynamic}）</li>
+ *  <li>初始方法 - {@link PostConstruct}</li>
+ *  <li>销毁方法 - {@link PreDestroy}</li>
+ * </ul>
+ * 重复注入相同类型的对象时不再需要反射扫描。
+ *
+ * @see ClassicComponentContext#injectComponent(Object)
+ */
+class InjectionMetadata {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType SETTER_TYPE = methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType CALLBACK_TYPE = methodType(void.class, Object.class);
+
+    private final Class<?> componentClass;
+
+    private final List<ResourceElement> resourceElements;
+
+    private final List<ConfigPropertyElement> configPropertyElements;
+
+    private final List<LifecycleElement> postConstructElements;
+
+    private final List<LifecycleElement> preDestroyElements;
+
+    private InjectionMetadata(Class<?> componentClass, List<ResourceElement> resourceElements,
+                              List<ConfigPropertyElement> configPropertyElements,
+                              List<LifecycleElement> postConstructElements,
+                              List<LifecycleElement> preDestroyElements) {
+        this.componentClass = componentClass;
+        this.resourceElements = resourceElements;
+        this.configPropertyElements = configPropertyElements;
+        this.postConstructElements = postConstructElements;
+        this.preDestroyElements = preDestroyElements;
+    }
+
+    /**
+     * 解析组件类的注入元信息
+     *
+     * @param componentClass 组件类
+     * @return non-null
+     * @throws IllegalStateException {@link Dynamic} 字段没有声明为 volatile 时
+     */
+    static InjectionMetadata build(Class<?> componentClass) {
+        List<ResourceElement> resourceElements = new ArrayList<>();
+        List<ConfigPropertyElement> configPropertyElements = new ArrayList<>();
+        // 非 static 的 @Resource 与 @ConfigProperty 字段
+        for (Field field : componentClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Resource resource = field.getAnnotation(Resource.class);
+            if (resource != null) {
+                resourceElements.add(new ResourceElement(resource.name(), field, setter(field)));
+            }
+            ConfigProperty configProperty = field.getAnnotation(ConfigProperty.class);
+            if (configProperty != null) {
+                String name = configProperty.name().isEmpty() ?
+                        componentClass.getName() + "." + field.getName() : configProperty.name();
+                boolean dynamic = field.isAnnotationPresent(Dynamic.class);
+                if (dynamic && !Modifier.isVolatile(field.getModifiers())) {
+                    // 配置变化时在其他线程更新
+                    throw new IllegalStateException("The @Dynamic field must be volatile : " + field);
+                }
+                configPropertyElements.add(new ConfigPropertyElement(name, configProperty.defaultValue(),
+                        dynamic, field, setter(field)));
+            }
+        }
+
+        List<LifecycleElement> postConstructElements = new ArrayList<>();
+        List<LifecycleElement> preDestroyElements = new ArrayList<>();
+        // public、非 static 且无参数的方法
+        for (Method method : componentClass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0) {
+                continue;
+            }
+            if (method.isAnnotationPresent(PostConstruct.class)) {
+                postConstructElements.add(new LifecycleElement(method));
+            }
+            if (method.isAnnotationPresent(PreDestroy.class)) {
+                preDestroyElements.add(new LifecycleElement(method));
+            }
+        }
+
+        return new InjectionMetadata(componentClass,
+                Collections.unmodifiableList(resourceElements),
+                Collections.unmodifiableList(configPropertyElements),
+                Collections.unmodifiableList(postConstructElements),
+                Collections.unmodifiableList(preDestroyElements));
+    }
+
+    private static MethodHandle setter(Field field) {
+        field.setAccessible(true);
+        try {
+            return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Class<?> getComponentClass() {
+        return componentClass;
+    }
+
+    public List<ResourceElement> getResourceElements() {
+        return resourceElements;
+    }
+
+    public List<ConfigPropertyElement> getConfigPropertyElements() {
+        return configPropertyElements;
+    }
+
+    public List<LifecycleElement> getPostConstructElements() {
+        return postConstructElements;
+    }
+
+    public List<LifecycleElement> getPreDestroyElements() {
+        return preDestroyElements;
+    }
+
+    /**
+     * {@link Resource} 注入字段
+     */
+    static class ResourceElement {
+
+        private final String name;
+
+        private final Field field;
+
+        private final MethodHandle setter;
+
+        ResourceElement(String name, Field field, MethodHandle setter) {
+            this.name = name;
+            this.field = field;
+            this.setter = setter;
+        }
+
+        /**
+         * @return {@link Resource#name()}
+         */
+        public String getName() {
+            return name;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * 注入目标对象
+         *
+         * @param component      组件对象
+         * @param injectedObject 被注入的对象
+         * @throws Throwable 类型不匹配时
+         */
+        public void inject(Object component, Object injectedObject) throws Throwable {
+            setter.invokeExact(component, injectedObject);
+        }
+    }
+
+    /**
+     * {@link ConfigProperty} 注入字段
+     */
+    static class ConfigPropertyElement {
+
+        private final String name;
+
+        private final String defaultValue;
+
+        private final boolean dynamic;
+
+        private final Field field;
+
+        private final MethodHandle setter;
+
+        ConfigPropertyElement(String name, String defaultValue, boolean dynamic, Field field, MethodHandle setter) {
+            this.name = name;
+            this.defaultValue = ConfigProperty.UNCONFIGURED_VALUE.equals(defaultValue) ? null : defaultValue;
+            this.dynamic = dynamic;
+            this.field = field;
+            this.setter = setter;
+        }
+
+        /**
+         * @return 配置属性名，未指定时为"类名.字段名"
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 未指定默认值时返回 <code>null</code>
+         */
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * @return 是否标注 {@link Dynamic}
+         */
+        public boolean isDynamic() {
+            return dynamic;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * 注入配置值
+         *
+         * @param component 组件对象
+         * @param value     转换后的配置值
+         * @throws Throwable 类型不匹配时
+         */
+        public void inject(Object component, Object value) throws Throwable {
+            setter.invokeExact(component, value);
+        }
+    }
+
+    /**
+     * 生命周期回调方法
+     */
+    static class LifecycleElement {
+
+        private final Method method;
+
+        private final MethodHandle callback;
+
+        LifecycleElement(Method method) {
+            this.method = method;
+            method.setAccessible(true);
+            try {
+                this.callback = lookup.unreflect(method).asType(CALLBACK_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * 执行回调方法
+         *
+         * @param component 组件对象
+         * @throws Throwable 回调方法执行异常时
+         */
+        public void invoke(Object component) throws Throwable {
+            callback.invokeExact(component);
+        }
+    }
+}
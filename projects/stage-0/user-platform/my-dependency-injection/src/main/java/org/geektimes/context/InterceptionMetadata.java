@@ -0,0 +1,170 @@
+package org.geektimes.context;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * 组件类的拦截元信息（按类解析一次并缓存）
+ * <p>
+ * 预先解析每个接口方法对应的组件类方法与拦截器链，以及 JDK 动态代理类的构造器，
+ * 创建代理与调用方法时不再需要反射查找。
+ *
+ * @see ComponentInterceptor
+ */
+class InterceptionMetadata {
+
+    private static final Logger logger = Logger.getLogger(InterceptionMetadata.class.getName());
+
+    /**
+     * 无需代理
+     */
+    static final InterceptionMetadata NONE = new InterceptionMetadata(null, Collections.emptyMap());
+
+    private final Constructor<?> proxyConstructor;
+
+    /**
+     * 接口方法 -> 拦截元素（仅包括被拦截的方法）
+     */
+    private final Map<Method, InterceptedElement> interceptedElements;
+
+    private InterceptionMetadata(Constructor<?> proxyConstructor, Map<Method, InterceptedElement> interceptedElements) {
+        this.proxyConstructor = proxyConstructor;
+        this.interceptedElements = interceptedElements;
+    }
+
+    /**
+     * 解析组件类的拦截元信息
+     *
+     * @param componentClass 组件类
+     * @param interceptors   拦截器
+     * @return 无需代理时返回 {@link #NONE}
+     */
+    static InterceptionMetadata build(Class<?> componentClass, List<ComponentInterceptor> interceptors) {
+        if (interceptors.isEmpty()) {
+            return NONE;
+        }
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = componentClass; type != null; type = type.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        Map<Method, InterceptedElement> interceptedElements = new HashMap<>();
+        for (Class<?> interfaceType : interfaces) {
+            for (Method interfaceMethod : interfaceType.getMethods()) {
+                Method method = findMethod(componentClass, interfaceMethod);
+                if (method == null) {
+                    continue;
+                }
+                ComponentInterceptor[] methodInterceptors = interceptors.stream()
+                        .filter(interceptor -> interceptor.supports(method))
+                        .toArray(ComponentInterceptor[]::new);
+                if (methodInterceptors.length > 0) {
+                    interceptedElements.put(interfaceMethod, new InterceptedElement(method, methodInterceptors));
+                }
+            }
+        }
+        if (interceptedElements.isEmpty()) {
+            return NONE;
+        }
+        try {
+            Constructor<?> proxyConstructor = Proxy.getProxyClass(componentClass.getClassLoader(),
+                    interfaces.toArray(new Class[0])).getConstructor(InvocationHandler.class);
+            return new InterceptionMetadata(proxyConstructor, interceptedElements);
+        } catch (NoSuchMethodException | IllegalArgumentException e) {
+            logger.warning("The component class can't be proxied : " + componentClass.getName() + " , " + e.getMessage());
+            return NONE;
+        }
+    }
+
+    private static Method findMethod(Class<?> componentClass, Method interfaceMethod) {
+        try {
+            return componentClass.getMethod(interfaceMethod.getName(), interfaceMethod.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 创建组件的代理对象
+     *
+     * @param target 组件对象
+     * @return 无需代理时返回 <code>target</code>
+     */
+    Object newProxy(Object target) {
+        if (this == NONE) {
+            return target;
+        }
+        try {
+            return proxyConstructor.newInstance(new ComponentInvocationHandler(target, interceptedElements));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取代理的组件对象
+     *
+     * @param component 组件对象或者其代理对象
+     * @return 非代理对象时返回 <code>component</code>
+     */
+    static Object getTarget(Object component) {
+        if (component != null && Proxy.isProxyClass(component.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(component);
+            if (handler instanceof ComponentInvocationHandler) {
+                return ((ComponentInvocationHandler) handler).target;
+            }
+        }
+        return component;
+    }
+
+    private static class InterceptedElement {
+
+        private final Method method;
+
+        private final ComponentInterceptor[] interceptors;
+
+        private InterceptedElement(Method method, ComponentInterceptor[] interceptors) {
+            this.method = method;
+            this.interceptors = interceptors;
+        }
+    }
+
+    private static class ComponentInvocationHandler implements InvocationHandler {
+
+        private final Object target;
+
+        private final Map<Method, InterceptedElement> interceptedElements;
+
+        private ComponentInvocationHandler(Object target, Map<Method, InterceptedElement> interceptedElements) {
+            this.target = target;
+            this.interceptedElements = interceptedElements;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            InterceptedElement element = interceptedElements.get(method);
+            if (element != null) {
+                return new ComponentInvocation(target, element.method, method, args, element.interceptors).proceed();
+            }
+            switch (method.getName()) {
+                case "equals":
+                    if (method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
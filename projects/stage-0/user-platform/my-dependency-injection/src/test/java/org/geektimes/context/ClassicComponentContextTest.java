@@ -0,0 +1,510 @@
+package org.geektimes.context;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.naming.Context;
+import javax.naming.NameClassPair;
+import javax.naming.NamingEnumeration;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ClassicComponentContext} 测试（JNDI 与 ServletContext 为动态代理实现）
+ */
+public class ClassicComponentContextTest {
+
+    /**
+     * 组件名称 -> 组件类型，每次 JNDI 查找创建新的实例
+     */
+    private static final Map<String, Class<?>> bindings = new LinkedHashMap<>();
+
+    private static final Queue<String> initializedNames = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger instantiationCount = new AtomicInteger();
+
+    /**
+     * 组件名称 -> 执行 {@link PostConstruct} 方法的线程
+     */
+    private static final Map<String, Thread> initializingThreads = new ConcurrentHashMap<>();
+
+    /**
+     * {@link ParallelA} 与 {@link ParallelB} 初始化时相互等待
+     */
+    private static volatile CyclicBarrier initializationBarrier;
+
+    private final Map<String, String> initParameters = new HashMap<>();
+
+    private ClassicComponentContext context;
+
+    @Before
+    public void init() {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TestInitialContextFactory.class.getName());
+        bindings.clear();
+        initializedNames.clear();
+        instantiationCount.set(0);
+        initializingThreads.clear();
+    }
+
+    @After
+    public void destroy() {
+        if (context != null) {
+            context.destroy();
+        }
+        System.clearProperty(Context.INITIAL_CONTEXT_FACTORY);
+    }
+
+    @Test
+    public void testInitializeInDependencyOrder() {
+        bind("controller", Controller.class);
+        bind("service", Service.class);
+        bind("repository", Repository.class);
+        bind("clock", Clock.class);
+        context = newContext();
+
+        assertEquals(Arrays.asList("controller", "service", "repository", "clock"), context.getComponentNames());
+        List<String> names = new ArrayList<>(initializedNames);
+        assertEquals(4, names.size());
+        // 依赖组件先初始化，相互独立的组件并行初始化
+        assertTrue(names.indexOf("repository") < names.indexOf("service"));
+        assertTrue(names.indexOf("service") < names.indexOf("controller"));
+
+        Controller controller = context.getComponent("controller");
+        assertTrue(controller.service.initialized);
+        assertSame(controller.service, context.getComponent(Service.class));
+        assertSame(context.getComponent("repository"), controller.service.repository);
+    }
+
+    @Test
+    public void testCircularDependencies() {
+        bind("cycleA", CycleA.class);
+        bind("cycleB", CycleB.class);
+        try {
+            newContext();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("cycleA -> cycleB -> cycleA"));
+        }
+    }
+
+    /**
+     * 初始化之后按名称与类型查找组件，不再执行 JNDI 查找
+     */
+    @Test
+    public void testGetComponent() {
+        bind("service", Service.class);
+        bind("repository", Repository.class);
+        bind("lookupRepository", LookupRepository.class);
+        bind("clock", Clock.class);
+        context = newContext();
+        int count = instantiationCount.get();
+
+        Service service = context.getComponent("service");
+        assertSame(service, context.getComponent(Service.class));
+        assertSame(context.getComponent("clock"), context.getComponent(Clock.class));
+        assertSame(context.getComponent("lookupRepository"), context.getComponent(LookupRepository.class));
+        assertNull(context.getComponent("nobody"));
+        assertNull(context.getComponent(Controller.class));
+        try {
+            // repository 与 lookupRepository
+            context.getComponent(Repository.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("[repository, lookupRepository]"));
+        }
+        assertEquals(count, instantiationCount.get());
+    }
+
+    @Test
+    public void testInitializeOnInitializationThreads() {
+        bind("service", Service.class);
+        bind("repository", Repository.class);
+        context = newContext();
+
+        for (String name : Arrays.asList("service", "repository")) {
+            Thread thread = initializingThreads.get(name);
+            assertTrue(thread.getName().startsWith("ComponentContext-init-"));
+            assertSame(getClass().getClassLoader(), thread.getContextClassLoader());
+            assertTrue(context.getStartupTime(name) >= 0);
+        }
+        assertEquals(-1, context.getStartupTime("nobody"));
+    }
+
+    /**
+     * 两个相互独立的组件在初始化时相互等待，串行初始化时会超时
+     */
+    @Test
+    public void testInitializeIndependentComponentsInParallel() {
+        Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+        initializationBarrier = new CyclicBarrier(2);
+        bind("parallelA", ParallelA.class);
+        bind("parallelB", ParallelB.class);
+        context = newContext();
+        assertTrue(context.<ParallelA>getComponent("parallelA").initialized);
+        assertTrue(context.<ParallelB>getComponent("parallelB").initialized);
+    }
+
+    @Test
+    public void testInitializationFailure() {
+        bind("service", Service.class);
+        bind("repository", FailingRepository.class);
+        try {
+            newContext();
+            fail();
+        } catch (RuntimeException e) {
+            // @PostConstruct 方法抛出的异常
+            assertEquals("repository", e.getCause().getMessage());
+        }
+        // 依赖组件初始化失败时不会初始化
+        assertFalse(initializedNames.contains("service"));
+    }
+
+    @Test
+    public void testLazyInit() {
+        initParameters.put(ClassicComponentContext.LAZY_INIT_PARAM_NAME, "true");
+        bind("controller", Controller.class);
+        bind("service", Service.class);
+        bind("repository", Repository.class);
+        bind("clock", Clock.class);
+        context = newContext();
+        assertEquals(0, instantiationCount.get());
+
+        Controller controller = context.getComponent("controller");
+        assertEquals(3, instantiationCount.get());
+        assertEquals(Arrays.asList("repository", "service", "controller"), new ArrayList<>(initializedNames));
+        assertSame(controller, context.getComponent("controller"));
+        assertSame(controller.service.repository, context.getComponent(Repository.class));
+        // 按类型查找仅初始化类型匹配的组件
+        assertEquals(3, instantiationCount.get());
+        assertNotNull(context.getComponent(Clock.class));
+        assertEquals(4, instantiationCount.get());
+    }
+
+    @Test
+    public void testLazyInitWithEagerComponents() {
+        initParameters.put(ClassicComponentContext.LAZY_INIT_PARAM_NAME, "true");
+        initParameters.put(ClassicComponentContext.EAGER_COMPONENT_NAMES_PARAM_NAME, "service");
+        bind("controller", Controller.class);
+        bind("service", Service.class);
+        bind("repository", Repository.class);
+        context = newContext();
+        assertEquals(Arrays.asList("repository", "service"), new ArrayList<>(initializedNames));
+    }
+
+    @Test
+    public void testLazyInitWithEagerAnnotation() {
+        initParameters.put(ClassicComponentContext.LAZY_INIT_PARAM_NAME, "true");
+        bind("controller", Controller.class);
+        bind("eagerService", EagerService.class);
+        bind("repository", Repository.class);
+        bind("clock", Clock.class);
+        context = newContext();
+
+        // 仅 @Eager 组件及其依赖组件在启动时初始化
+        assertEquals(Arrays.asList("repository", "eagerservice"), new ArrayList<>(initializedNames));
+        assertEquals(2, instantiationCount.get());
+        assertEquals(Arrays.asList("controller", "eagerService", "repository", "clock"), context.getComponentNames());
+        assertNull(context.getComponent("nobody"));
+        assertEquals(2, instantiationCount.get());
+    }
+
+    @Test
+    public void testLazyCircularDependencies() {
+        initParameters.put(ClassicComponentContext.LAZY_INIT_PARAM_NAME, "true");
+        bind("cycleA", CycleA.class);
+        bind("cycleB", CycleB.class);
+        context = newContext();
+        try {
+            context.getComponent("cycleB");
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("cycleB -> cycleA -> cycleB"));
+        }
+    }
+
+    /**
+     * 线程 1 获取 service（依赖 repository），线程 2 同时获取 repository（初始化时按类型查找组件），
+     * 组件各自加锁时两个线程会相互等待
+     */
+    @Test
+    public void testLazyInitInParallel() throws Exception {
+        initParameters.put(ClassicComponentContext.LAZY_INIT_PARAM_NAME, "true");
+        bind("service", Service.class);
+        bind("repository", LookupRepository.class);
+        bind("clock", Clock.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 50; i++) {
+                if (context != null) {
+                    context.destroy();
+                }
+                instantiationCount.set(0);
+                context = newContext();
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<Service> service = executor.submit(() -> {
+                    barrier.await();
+                    return context.getComponent("service");
+                });
+                Future<Repository> repository = executor.submit(() -> {
+                    barrier.await();
+                    return context.getComponent("repository");
+                });
+                assertSame(repository.get(10, TimeUnit.SECONDS), service.get(10, TimeUnit.SECONDS).repository);
+                assertEquals(3, instantiationCount.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 被拦截的组件为接口代理，注入到接口类型的字段，不能注入到组件类类型的字段
+     */
+    @Test
+    public void testInterceptedComponentInjection() {
+        bind("greeting", InterceptedGreeting.class);
+        bind("client", GreetingClient.class);
+        context = newContext();
+        GreetingClient client = context.getComponent("client");
+        assertTrue(Proxy.isProxyClass(client.greeting.getClass()));
+        assertEquals("intercepted hello", client.greeting.greet());
+        context.destroy();
+
+        bind("client", ConcreteGreetingClient.class);
+        try {
+            newContext();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains(ConcreteGreetingClient.class.getName() + ".greeting"));
+            assertTrue(e.getMessage().contains("interface type"));
+        }
+    }
+
+    private ClassicComponentContext newContext() {
+        ClassicComponentContext context = new ClassicComponentContext();
+        this.context = context;
+        context.init(newServletContext());
+        return context;
+    }
+
+    private static void bind(String name, Class<?> componentClass) {
+        bindings.put(name, componentClass);
+    }
+
+    private ServletContext newServletContext() {
+        Map<String, Object> attributes = new HashMap<>();
+        return (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ServletContext.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getClassLoader":
+                            return ClassicComponentContextTest.class.getClassLoader();
+                        case "getInitParameter":
+                            return initParameters.get(args[0]);
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * "java:comp/env" 为 {@link #bindings} 中的组件
+     */
+    public static class TestInitialContextFactory implements InitialContextFactory {
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+            Context envContext = newContext((method, args) -> {
+                switch (method) {
+                    case "lookup":
+                        Class<?> componentClass = bindings.get(args[0].toString());
+                        return componentClass == null ? null : componentClass.newInstance();
+                    case "list":
+                        List<NameClassPair> pairs = new ArrayList<>();
+                        bindings.forEach((name, type) -> pairs.add(new NameClassPair(name, type.getName())));
+                        return newNamingEnumeration(pairs.iterator());
+                    default:
+                        return null;
+                }
+            });
+            return newContext((method, args) -> "lookup".equals(method) ? envContext : null);
+        }
+
+        private static Context newContext(ContextOperation operation) {
+            return (Context) Proxy.newProxyInstance(Context.class.getClassLoader(), new Class[]{Context.class},
+                    (proxy, method, args) -> operation.execute(method.getName(), args));
+        }
+
+        private static NamingEnumeration<?> newNamingEnumeration(Iterator<?> iterator) {
+            return (NamingEnumeration<?>) Proxy.newProxyInstance(NamingEnumeration.class.getClassLoader(),
+                    new Class[]{NamingEnumeration.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "hasMore":
+                            case "hasMoreElements":
+                                return iterator.hasNext();
+                            case "next":
+                            case "nextElement":
+                                return iterator.next();
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    private interface ContextOperation {
+
+        Object execute(String method, Object[] args) throws Exception;
+    }
+
+    public abstract static class TestComponent {
+
+        volatile boolean initialized;
+
+        public TestComponent() {
+            instantiationCount.incrementAndGet();
+        }
+
+        @PostConstruct
+        public void initialize() {
+            String name = getClass().getSimpleName().toLowerCase().replace("lookup", "");
+            initializingThreads.put(name, Thread.currentThread());
+            initialized = true;
+            initializedNames.add(name);
+        }
+    }
+
+    public static class Repository extends TestComponent {
+    }
+
+    /**
+     * 初始化时按类型查找其他组件
+     */
+    public static class LookupRepository extends Repository {
+
+        @PostConstruct
+        public void lookup() {
+            assertNotNull(ClassicComponentContext.getInstance().getComponent(Clock.class));
+        }
+    }
+
+    public static class FailingRepository extends Repository {
+
+        @PostConstruct
+        public void initializeFailed() {
+            throw new IllegalStateException("repository");
+        }
+    }
+
+    public static class ParallelA extends TestComponent {
+
+        @PostConstruct
+        public void await() throws Exception {
+            initializationBarrier.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public static class ParallelB extends ParallelA {
+    }
+
+    public static class Service extends TestComponent {
+
+        @Resource(name = "repository")
+        private Repository repository;
+    }
+
+    @Eager
+    public static class EagerService extends TestComponent {
+
+        @Resource(name = "repository")
+        private Repository repository;
+    }
+
+    public static class Controller extends TestComponent {
+
+        @Resource(name = "service")
+        private Service service;
+    }
+
+    public static class Clock extends TestComponent {
+    }
+
+    public static class CycleA extends TestComponent {
+
+        @Resource(name = "cycleB")
+        private CycleB cycleB;
+    }
+
+    public static class CycleB extends TestComponent {
+
+        @Resource(name = "cycleA")
+        private CycleA cycleA;
+    }
+
+    public interface Greeting {
+
+        String greet();
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface Intercepted {
+    }
+
+    public static class InterceptedGreeting extends TestComponent implements Greeting {
+
+        @Override
+        @Intercepted
+        public String greet() {
+            return "hello";
+        }
+    }
+
+    public static class GreetingClient extends TestComponent {
+
+        @Resource(name = "greeting")
+        private Greeting greeting;
+    }
+
+    public static class ConcreteGreetingClient extends TestComponent {
+
+        @Resource(name = "greeting")
+        private InterceptedGreeting greeting;
+    }
+
+    /**
+     * 拦截 {@link Intercepted} 方法，返回值增加前缀
+     * （META-INF/services/org.geektimes.context.ComponentInterceptor）
+     */
+    public static class PrefixInterceptor implements ComponentInterceptor {
+
+        @Override
+        public boolean supports(Method method) {
+            return method.isAnnotationPresent(Intercepted.class);
+        }
+
+        @Override
+        public Object intercept(ComponentInvocation invocation) throws Throwable {
+            return "intercepted " + invocation.proceed();
+        }
+    }
+}
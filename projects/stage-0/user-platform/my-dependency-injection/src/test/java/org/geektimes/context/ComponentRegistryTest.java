@@ -0,0 +1,63 @@
+package org.geektimes.context;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ComponentRegistry} 测试
+ */
+public class ComponentRegistryTest {
+
+    @Test
+    public void testTypeIndex() {
+        Map<String, Object> components = new LinkedHashMap<>();
+        components.put("list", new ArrayList<>());
+        components.put("set", new HashSet<>());
+        components.put("missing", null);
+        ComponentRegistry registry = new ComponentRegistry(components);
+
+        assertEquals(Arrays.asList("list", "set", "missing"), registry.getComponentNames());
+        assertEquals(Collections.singletonList("list"), registry.getComponentNames(ArrayList.class));
+        // 父类与接口
+        assertEquals(Collections.singletonList("list"), registry.getComponentNames(AbstractList.class));
+        assertEquals(Arrays.asList("list", "set"), registry.getComponentNames(Collection.class));
+        assertEquals(Arrays.asList("list", "set"), registry.getComponentNames(Serializable.class));
+        // 不包括 Object
+        assertTrue(registry.getComponentNames(Object.class).isEmpty());
+        assertTrue(registry.getComponentNames(Map.class).isEmpty());
+
+        // null 组件不参与类型索引
+        assertTrue(registry.contains("missing"));
+        assertNull(registry.get("missing"));
+        assertFalse(registry.contains("nobody"));
+    }
+
+    /**
+     * 注册表创建之后不受原始 Map 修改的影响，并且不可修改
+     */
+    @Test
+    public void testImmutable() {
+        Map<String, Object> components = new LinkedHashMap<>();
+        components.put("list", new ArrayList<>());
+        ComponentRegistry registry = new ComponentRegistry(components);
+        components.put("set", new HashSet<>());
+
+        assertFalse(registry.contains("set"));
+        assertEquals(Collections.singletonList("list"), registry.getComponentNames());
+        try {
+            registry.getComponents().put("set", new HashSet<>());
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            registry.getComponentNames(Collection.class).add("set");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertTrue(ComponentRegistry.EMPTY.getComponentNames().isEmpty());
+    }
+}
@@ -0,0 +1,220 @@
+package org.geektimes.context;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.geektimes.configuration.microprofile.config.DefaultConfigBuilder;
+import org.geektimes.configuration.microprofile.config.source.MapBasedConfigSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ConfigPropertyInjector} 测试
+ */
+public class ConfigPropertyInjectorTest {
+
+    private TestConfigSource configSource;
+
+    private ConfigPropertyInjector injector;
+
+    @Before
+    public void init() {
+        configSource = new TestConfigSource();
+        Config config = new DefaultConfigBuilder(getClass().getClassLoader())
+                .addDiscoveredConverters()
+                .withSources(configSource)
+                .build();
+        injector = new ConfigPropertyInjector(config);
+    }
+
+    @After
+    public void destroy() {
+        injector.destroy();
+    }
+
+    @Test
+    public void testDefaultNameAndValue() {
+        configSource.set(Names.class.getName() + ".defaultName", "by-field-name");
+        Names names = inject(new Names());
+        assertEquals("by-field-name", names.defaultName);
+        assertEquals("default", names.defaultValue);
+
+        // 配置的值优先于默认值
+        configSource.set("names.defaultValue", "configured");
+        assertEquals("configured", inject(new Names()).defaultValue);
+    }
+
+    @Test
+    public void testTypes() {
+        configSource.set("types.primitive", "8080");
+        configSource.set("types.array", "1,2,3");
+        configSource.set("types.list", "a,b,a");
+        configSource.set("types.set", "1,2,1");
+        configSource.set("types.optional", "42");
+        Types types = inject(new Types());
+        assertEquals(8080, types.primitive);
+        assertArrayEquals(new int[]{1, 2, 3}, types.array);
+        assertEquals(Arrays.asList("a", "b", "a"), types.list);
+        assertEquals(new LinkedHashSet<>(Arrays.asList(1, 2)), types.set);
+        assertEquals(Optional.of(42), types.optional);
+        assertFalse(types.absent.isPresent());
+        try {
+            types.list.add("c");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            // 不可变集合
+        }
+    }
+
+    @Test
+    public void testMissingValue() {
+        try {
+            inject(new Names());
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains(Names.class.getName() + ".defaultName"));
+        }
+    }
+
+    @Test
+    public void testUnsupportedType() {
+        configSource.set("unsupported.thread", "main");
+        try {
+            inject(new Unsupported());
+            fail();
+        } catch (IllegalStateException expected) {
+            // 没有 Thread 类型的 Converter
+        }
+    }
+
+    @Test
+    public void testDynamic() {
+        configSource.set("dynamic.timeout", "10");
+        configSource.set("dynamic.hosts", "a,b");
+        configSource.set("dynamic.fixed", "1");
+        DynamicComponent component = inject(new DynamicComponent());
+        assertEquals(10, component.timeout);
+        assertEquals(Arrays.asList("a", "b"), component.hosts);
+
+        configSource.set("dynamic.timeout", "20");
+        configSource.set("dynamic.hosts", "c");
+        configSource.set("dynamic.fixed", "2");
+        assertEquals(20, component.timeout);
+        assertEquals(Collections.singletonList("c"), component.hosts);
+        // 未标注 Dynamic 的字段不更新
+        assertEquals(1, component.fixed);
+
+        // 转换失败与属性被删除时保留原值
+        configSource.set("dynamic.timeout", "twenty");
+        assertEquals(20, component.timeout);
+        configSource.set("dynamic.timeout", null);
+        assertEquals(20, component.timeout);
+        configSource.set("dynamic.timeout", "30");
+        assertEquals(30, component.timeout);
+
+        // 销毁之后不再更新
+        injector.destroy();
+        configSource.set("dynamic.timeout", "40");
+        assertEquals(30, component.timeout);
+    }
+
+    @Test
+    public void testNonVolatileDynamicField() {
+        try {
+            InjectionMetadata.build(NonVolatileDynamicComponent.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("volatile"));
+        }
+    }
+
+    private <T> T inject(T component) {
+        for (InjectionMetadata.ConfigPropertyElement element :
+                InjectionMetadata.build(component.getClass()).getConfigPropertyElements()) {
+            injector.inject(component, element);
+        }
+        return component;
+    }
+
+    /**
+     * 属性变化时增量更新并通知
+     */
+    private static class TestConfigSource extends MapBasedConfigSource {
+
+        private TestConfigSource() {
+            super("test", 100);
+        }
+
+        @Override
+        protected void prepareConfigData(Map configData) {
+        }
+
+        void set(String propertyName, String propertyValue) {
+            Set<String> changedPropertyNames = updateConfigData(Collections.singletonMap(propertyName, propertyValue));
+            if (!changedPropertyNames.isEmpty()) {
+                fireChange(changedPropertyNames);
+            }
+        }
+    }
+
+    public static class Names {
+
+        @ConfigProperty
+        private String defaultName;
+
+        @ConfigProperty(name = "names.defaultValue", defaultValue = "default")
+        private String defaultValue;
+    }
+
+    public static class Types {
+
+        @ConfigProperty(name = "types.primitive")
+        private int primitive;
+
+        @ConfigProperty(name = "types.array")
+        private int[] array;
+
+        @ConfigProperty(name = "types.list")
+        private List<String> list;
+
+        @ConfigProperty(name = "types.set")
+        private Set<Integer> set;
+
+        @ConfigProperty(name = "types.optional")
+        private Optional<Integer> optional;
+
+        @ConfigProperty(name = "types.absent")
+        private Optional<String> absent;
+    }
+
+    public static class Unsupported {
+
+        @ConfigProperty(name = "unsupported.thread")
+        private Thread thread;
+    }
+
+    public static class DynamicComponent {
+
+        @Dynamic
+        @ConfigProperty(name = "dynamic.timeout")
+        private volatile int timeout;
+
+        @Dynamic
+        @ConfigProperty(name = "dynamic.hosts")
+        private volatile List<String> hosts;
+
+        @ConfigProperty(name = "dynamic.fixed")
+        private int fixed;
+    }
+
+    public static class NonVolatileDynamicComponent {
+
+        @Dynamic
+        @ConfigProperty(name = "dynamic.timeout")
+        private int timeout;
+    }
+}
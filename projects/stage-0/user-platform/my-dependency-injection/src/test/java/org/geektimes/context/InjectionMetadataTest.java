@@ -0,0 +1,125 @@
+package org.geektimes.context;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.Test;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link InjectionMetadata} 测试
+ */
+public class InjectionMetadataTest {
+
+    @Test
+    public void testBuild() {
+        InjectionMetadata metadata = InjectionMetadata.build(Component.class);
+        assertEquals(Component.class, metadata.getComponentClass());
+
+        // static 字段不注入
+        assertEquals(Arrays.asList("repository", "clock"), metadata.getResourceElements().stream()
+                .map(InjectionMetadata.ResourceElement::getName).collect(Collectors.toList()));
+
+        List<InjectionMetadata.ConfigPropertyElement> configPropertyElements = metadata.getConfigPropertyElements();
+        assertEquals(2, configPropertyElements.size());
+        assertEquals(Component.class.getName() + ".timeout", configPropertyElements.get(0).getName());
+        assertNull(configPropertyElements.get(0).getDefaultValue());
+        assertTrue(configPropertyElements.get(0).isDynamic());
+        assertEquals("component.name", configPropertyElements.get(1).getName());
+        assertEquals("default", configPropertyElements.get(1).getDefaultValue());
+        assertFalse(configPropertyElements.get(1).isDynamic());
+
+        // 包括继承的 public 方法，不包括有参数的方法
+        assertEquals(Arrays.asList("init", "start"), methodNames(metadata.getPostConstructElements()));
+        assertEquals(Arrays.asList("stop"), methodNames(metadata.getPreDestroyElements()));
+    }
+
+    @Test
+    public void testInject() throws Throwable {
+        InjectionMetadata metadata = InjectionMetadata.build(Component.class);
+        Component component = new Component();
+        Object repository = new Object();
+        metadata.getResourceElements().get(0).inject(component, repository);
+        metadata.getConfigPropertyElements().get(0).inject(component, 30);
+        assertSame(repository, component.repository);
+        assertEquals(30, component.timeout);
+
+        for (InjectionMetadata.LifecycleElement element : metadata.getPostConstructElements()) {
+            element.invoke(component);
+        }
+        // Class#getMethods() 的顺序不确定
+        assertEquals(new HashSet<>(Arrays.asList("init", "start")), new HashSet<>(component.callbacks));
+
+        try {
+            // 类型不匹配
+            metadata.getResourceElements().get(1).inject(component, "clock");
+            fail();
+        } catch (ClassCastException expected) {
+        }
+    }
+
+    /**
+     * 同一个类的注入元信息仅解析一次，重复注入时复用
+     */
+    @Test
+    public void testCache() {
+        ClassicComponentContext context = new ClassicComponentContext();
+        InjectionMetadata metadata = context.getInjectionMetadata(Component.class);
+        assertSame(metadata, context.getInjectionMetadata(Component.class));
+        assertNotSame(metadata, context.getInjectionMetadata(BaseComponent.class));
+    }
+
+    private static List<String> methodNames(List<InjectionMetadata.LifecycleElement> elements) {
+        return elements.stream().map(element -> element.getMethod().getName()).sorted().collect(Collectors.toList());
+    }
+
+    public static class BaseComponent {
+
+        final List<String> callbacks = new ArrayList<>();
+
+        @PostConstruct
+        public void init() {
+            callbacks.add("init");
+        }
+    }
+
+    public static class Component extends BaseComponent {
+
+        @Resource(name = "shared")
+        private static Object shared;
+
+        @Resource(name = "repository")
+        private Object repository;
+
+        @Resource(name = "clock")
+        private Thread clock;
+
+        @Dynamic
+        @ConfigProperty
+        private volatile int timeout;
+
+        @ConfigProperty(name = "component.name", defaultValue = "default")
+        private String name;
+
+        @PostConstruct
+        public void start() {
+            callbacks.add("start");
+        }
+
+        @PostConstruct
+        public void startWith(String argument) {
+        }
+
+        @PreDestroy
+        public void stop() {
+        }
+    }
+}
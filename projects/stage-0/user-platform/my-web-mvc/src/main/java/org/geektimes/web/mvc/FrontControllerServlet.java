@@ -1,11 +1,14 @@
 package org.geektimes.web.mvc;
 
-import org.apache.commons.lang.StringUtils;
 import org.geektimes.web.mvc.controller.Controller;
 import org.geektimes.web.mvc.controller.PageController;
 import org.geektimes.web.mvc.controller.RestController;
 import org.geektimes.web.mvc.header.CacheControlHeaderWriter;
 import org.geektimes.web.mvc.header.annotation.CacheControl;
+import org.geektimes.web.mvc.method.HandlerMethodInvoker;
+import org.geektimes.web.mvc.method.ParameterConversionException;
+import org.geektimes.web.mvc.routing.RequestRouter;
+import org.geektimes.web.mvc.routing.RouteMatch;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletConfig;
@@ -21,23 +24,23 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.Path;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
 
 import static java.util.Arrays.asList;
-import static org.apache.commons.lang.StringUtils.substringAfter;
 
 public class FrontControllerServlet extends HttpServlet {
 
     /**
-     * 请求路径和 Controller 的映射关系缓存
+     * {@link RouteMatch} 请求属性名称，Controller 可以通过它获取路径变量
      */
-    private Map<String, Controller> controllersMapping = new HashMap<>();
+    public static final String ROUTE_MATCH_ATTRIBUTE_NAME = RouteMatch.class.getName();
 
     /**
-     * 请求路径和 {@link HandlerMethodInfo} 映射关系缓存
+     * 请求路由器（初始化阶段构建，运行期只读）
      */
-    private Map<String, HandlerMethodInfo> handleMethodInfoMapping = new HashMap<>();
+    private final RequestRouter requestRouter = new RequestRouter();
 
     /**
      * 初始化 Servlet
@@ -49,29 +52,57 @@ public class FrontControllerServlet extends HttpServlet {
     }
 
     /**
-     * 读取所有的 RestController 的注解元信息 @Path
+     * 读取所有的 Controller 的注解元信息 @Path，并构建路由树
      * 利用 ServiceLoader 技术（Java SPI）
      */
     private void initHandleMethods() {
         for (Controller controller : ServiceLoader.load(Controller.class)) {
             Class<?> controllerClass = controller.getClass();
             Path pathFromClass = controllerClass.getAnnotation(Path.class);
-            String requestPath = pathFromClass.value();
+            String controllerPath = pathFromClass == null ? "" : pathFromClass.value();
             Method[] publicMethods = controllerClass.getMethods();
-            // 处理方法支持的 HTTP 方法集合
             for (Method method : publicMethods) {
+                if (!isHandlerMethod(controller, method)) {
+                    continue;
+                }
+                // 处理方法支持的 HTTP 方法集合
                 Set<String> supportedHttpMethods = findSupportedHttpMethods(method);
                 Path pathFromMethod = method.getAnnotation(Path.class);
-                if (pathFromMethod != null) {
-                    requestPath += pathFromMethod.value();
-                }
-                handleMethodInfoMapping.put(requestPath,
-                        new HandlerMethodInfo(requestPath, method, supportedHttpMethods));
+                String requestPath = pathFromMethod == null ? controllerPath : controllerPath + "/" + pathFromMethod.value();
+                // REST 处理方法在初始化阶段绑定调用器
+                HandlerMethodInvoker handlerMethodInvoker = controller instanceof RestController ?
+                        new HandlerMethodInvoker(controller, method) : null;
+                HandlerMethodInfo handlerMethodInfo = new HandlerMethodInfo(requestPath, method,
+                        supportedHttpMethods, controller, handlerMethodInvoker);
+                requestRouter.register(requestPath, supportedHttpMethods, handlerMethodInfo);
             }
-            controllersMapping.put(requestPath, controller);
         }
     }
 
+    /**
+     * 判断是否为处理方法：标注 @Path 或者 HTTP 方法注解，或者 {@link PageController#execute} 方法
+     *
+     * @param controller Controller
+     * @param method     public 方法
+     * @return 如果是，返回 <code>true</code>
+     */
+    private boolean isHandlerMethod(Controller controller, Method method) {
+        if (Object.class.equals(method.getDeclaringClass()) || method.isBridge() || method.isSynthetic()) {
+            return false;
+        }
+        if (method.isAnnotationPresent(Path.class)) {
+            return true;
+        }
+        for (Annotation annotationFromMethod : method.getAnnotations()) {
+            if (annotationFromMethod.annotationType().isAnnotationPresent(HttpMethod.class)) {
+                return true;
+            }
+        }
+        return controller instanceof PageController && "execute".equals(method.getName())
+                && Arrays.equals(method.getParameterTypes(),
+                new Class[]{HttpServletRequest.class, HttpServletResponse.class});
+    }
+
     /**
      * 获取处理方法中标注的 HTTP方法集合
      *
@@ -111,58 +142,86 @@ public class FrontControllerServlet extends HttpServlet {
         String requestURI = request.getRequestURI();
         // contextPath  = /a or "/" or ""
         String servletContextPath = request.getContextPath();
-        String prefixPath = servletContextPath;
-        // 映射路径（子路径）
-        String requestMappingPath = substringAfter(requestURI,
-                StringUtils.replace(prefixPath, "//", "/"));
-        // 映射到 Controller
-        Controller controller = controllersMapping.get(requestMappingPath);
+        // 映射路径（子路径）从 contextPath 之后开始匹配，无需截取子字符串
+        // 每个请求独立的 RouteMatch，它会作为请求属性暴露，同一线程内的 forward/include 不能覆盖它
+        RouteMatch routeMatch = requestRouter.newRouteMatch();
+        RouteMatch.Status status = requestRouter.route(requestURI, servletContextPath.length(),
+                request.getMethod(), routeMatch);
+
+        if (status == RouteMatch.Status.METHOD_NOT_ALLOWED) {
+            // HTTP 方法不支持
+            response.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
 
-        if (controller != null) {
+        if (status == RouteMatch.Status.FOUND) {
 
-            HandlerMethodInfo handlerMethodInfo = handleMethodInfoMapping.get(requestMappingPath);
+            HandlerMethodInfo handlerMethodInfo = routeMatch.getHandlerMethodInfo();
+            // 映射到 Controller
+            Controller controller = handlerMethodInfo.getController();
+            // 暴露路径变量给 Controller
+            request.setAttribute(ROUTE_MATCH_ATTRIBUTE_NAME, routeMatch);
 
             try {
-                if (handlerMethodInfo != null) {
-
-                    String httpMethod = request.getMethod();
-
-                    if (!handlerMethodInfo.getSupportedHttpMethods().contains(httpMethod)) {
-                        // HTTP 方法不支持
-                        response.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
-                        return;
-                    }
-
-                    if (controller instanceof PageController) {
-                        PageController pageController = PageController.class.cast(controller);
-                        String viewPath = pageController.execute(request, response);
-                        // 页面请求 forward
-                        // request -> RequestDispatcher forward
-                        // RequestDispatcher requestDispatcher = request.getRequestDispatcher(viewPath);
-                        // ServletContext -> RequestDispatcher forward
-                        // ServletContext -> RequestDispatcher 必须以 "/" 开头
-                        ServletContext servletContext = request.getServletContext();
-                        if (!viewPath.startsWith("/")) {
-                            viewPath = "/" + viewPath;
-                        }
-                        RequestDispatcher requestDispatcher = servletContext.getRequestDispatcher(viewPath);
-                        requestDispatcher.forward(request, response);
-                        return;
-                    } else if (controller instanceof RestController) {
-                        // TODO
+                if (controller instanceof PageController) {
+                    PageController pageController = PageController.class.cast(controller);
+                    String viewPath = pageController.execute(request, response);
+                    // 页面请求 forward
+                    // request -> RequestDispatcher forward
+                    // RequestDispatcher requestDispatcher = request.getRequestDispatcher(viewPath);
+                    // ServletContext -> RequestDispatcher forward
+                    // ServletContext -> RequestDispatcher 必须以 "/" 开头
+                    ServletContext servletContext = request.getServletContext();
+                    if (!viewPath.startsWith("/")) {
+                        viewPath = "/" + viewPath;
                     }
-
+                    RequestDispatcher requestDispatcher = servletContext.getRequestDispatcher(viewPath);
+                    requestDispatcher.forward(request, response);
+                    return;
+                } else if (controller instanceof RestController) {
+                    HandlerMethodInvoker handlerMethodInvoker = handlerMethodInfo.getHandlerMethodInvoker();
+                    Object result = handlerMethodInvoker.invoke(request, response, routeMatch);
+                    writeResponseBody(handlerMethodInvoker, result, response);
+                    return;
                 }
+            } catch (ParameterConversionException e) {
+                // 参数转换失败属于客户端错误
+                response.sendError(e.getStatus(), e.getMessage());
+                return;
+            } catch (IOException | ServletException e) {
+                throw e;
             } catch (Throwable throwable) {
-                if (throwable.getCause() instanceof IOException) {
-                    throw (IOException) throwable.getCause();
+                // MethodHandle 调用直接抛出处理方法的异常，只有反射调用需要解包
+                Throwable cause = throwable instanceof InvocationTargetException && throwable.getCause() != null ?
+                        throwable.getCause() : throwable;
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
                 } else {
-                    throw new ServletException(throwable.getCause());
+                    throw new ServletException(cause);
                 }
             }
         }
     }
 
+    /**
+     * 输出 REST 处理方法的返回值
+     *
+     * @param handlerMethodInvoker 处理方法调用器
+     * @param result               返回值，可能为 <code>null</code>
+     * @param response             HTTP 响应
+     * @throws IOException
+     */
+    private void writeResponseBody(HandlerMethodInvoker handlerMethodInvoker, Object result,
+                                   HttpServletResponse response) throws IOException {
+        if (result == null || response.isCommitted()) {
+            return;
+        }
+        if (response.getContentType() == null) {
+            response.setContentType(handlerMethodInvoker.getContentType());
+        }
+        response.getWriter().write(String.valueOf(result));
+    }
+
 //    private void beforeInvoke(Method handleMethod, HttpServletRequest request, HttpServletResponse response) {
 //
 //        CacheControl cacheControl = handleMethod.getAnnotation(CacheControl.class);
@@ -1,5 +1,8 @@
 package org.geektimes.web.mvc;
 
+import org.geektimes.web.mvc.controller.Controller;
+import org.geektimes.web.mvc.method.HandlerMethodInvoker;
+
 import java.lang.reflect.Method;
 import java.util.Set;
 
@@ -16,10 +19,26 @@ public class HandlerMethodInfo {
 
     private final Set<String> supportedHttpMethods;
 
+    private final Controller controller;
+
+    private final HandlerMethodInvoker handlerMethodInvoker;
+
     public HandlerMethodInfo(String requestPath, Method handlerMethod, Set<String> supportedHttpMethods) {
+        this(requestPath, handlerMethod, supportedHttpMethods, null);
+    }
+
+    public HandlerMethodInfo(String requestPath, Method handlerMethod, Set<String> supportedHttpMethods,
+                             Controller controller) {
+        this(requestPath, handlerMethod, supportedHttpMethods, controller, null);
+    }
+
+    public HandlerMethodInfo(String requestPath, Method handlerMethod, Set<String> supportedHttpMethods,
+                             Controller controller, HandlerMethodInvoker handlerMethodInvoker) {
         this.requestPath = requestPath;
         this.handlerMethod = handlerMethod;
         this.supportedHttpMethods = supportedHttpMethods;
+        this.controller = controller;
+        this.handlerMethodInvoker = handlerMethodInvoker;
     }
 
     public String getRequestPath() {
@@ -33,4 +52,18 @@ public class HandlerMethodInfo {
     public Set<String> getSupportedHttpMethods() {
         return supportedHttpMethods;
     }
+
+    /**
+     * @return 处理方法所属的 Controller
+     */
+    public Controller getController() {
+        return controller;
+    }
+
+    /**
+     * @return 预先绑定的处理方法调用器，仅 {@link org.geektimes.web.mvc.controller.RestController} 存在
+     */
+    public HandlerMethodInvoker getHandlerMethodInvoker() {
+        return handlerMethodInvoker;
+    }
 }
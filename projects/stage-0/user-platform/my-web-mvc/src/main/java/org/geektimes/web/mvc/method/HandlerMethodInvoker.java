@@ -0,0 +1,109 @@
+package org.geektimes.web.mvc.method;
+
+import org.geektimes.web.mvc.routing.RouteMatch;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.geektimes.web.mvc.method.MethodParameterResolvers.RESOLVER_PARAMETER_TYPES;
+
+/**
+ * 处理方法调用器
+ * <p>
+ * 在初始化阶段将处理方法与 Controller 实例绑定，并将各个参数解析器（{@link MethodParameterResolvers}）
+ * 组合成单一的 {@link MethodHandle}：(HttpServletRequest, HttpServletResponse, RouteMatch) -> Object，
+ * 运行期无反射查找，基本类型参数也不会装箱。
+ *
+ * @since 1.0
+ */
+public class HandlerMethodInvoker {
+
+    private static final MethodType INVOKER_TYPE = methodType(Object.class, RESOLVER_PARAMETER_TYPES);
+
+    private final Method handlerMethod;
+
+    private final MethodHandle invoker;
+
+    /**
+     * 响应内容类型，来源于 {@link Produces}
+     */
+    private final String contentType;
+
+    /**
+     * @param controller    Controller 实例
+     * @param handlerMethod 处理方法
+     * @throws IllegalArgumentException 处理方法参数不支持时
+     */
+    public HandlerMethodInvoker(Object controller, Method handlerMethod) throws IllegalArgumentException {
+        this.handlerMethod = handlerMethod;
+        this.contentType = resolveContentType(handlerMethod);
+        try {
+            this.invoker = createInvoker(controller, handlerMethod);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("The handler method can't be bound : " + handlerMethod, e);
+        }
+    }
+
+    private static MethodHandle createInvoker(Object controller, Method handlerMethod)
+            throws ReflectiveOperationException {
+        handlerMethod.setAccessible(true);
+        // (P1, P2, ... Pn) -> R
+        MethodHandle target = MethodHandles.lookup().unreflect(handlerMethod).bindTo(controller);
+        Parameter[] parameters = handlerMethod.getParameters();
+        int resolverParameterCount = RESOLVER_PARAMETER_TYPES.length;
+        // 从后往前将每个参数替换为其解析器，得到 (Req, Resp, Match) * n -> R
+        for (int i = parameters.length - 1; i > -1; i--) {
+            MethodHandle resolver = MethodParameterResolvers.resolver(parameters[i]);
+            target = MethodHandles.collectArguments(target, i, resolver);
+        }
+        // 合并重复的参数，得到 (Req, Resp, Match) -> R
+        int[] reorder = new int[parameters.length * resolverParameterCount];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i % resolverParameterCount;
+        }
+        MethodType resolverType = methodType(target.type().returnType(), RESOLVER_PARAMETER_TYPES);
+        target = MethodHandles.permuteArguments(target, resolverType, reorder);
+        return target.asType(INVOKER_TYPE);
+    }
+
+    private static String resolveContentType(Method handlerMethod) {
+        Produces produces = handlerMethod.getAnnotation(Produces.class);
+        if (produces == null) {
+            produces = handlerMethod.getDeclaringClass().getAnnotation(Produces.class);
+        }
+        return produces == null || produces.value().length == 0 ? MediaType.TEXT_PLAIN : produces.value()[0];
+    }
+
+    /**
+     * 调用处理方法
+     *
+     * @param request    HTTP 请求
+     * @param response   HTTP 响应
+     * @param routeMatch 路由匹配结果
+     * @return 处理方法返回值，void 方法返回 <code>null</code>
+     * @throws Throwable 处理方法或者参数解析异常时
+     */
+    public Object invoke(HttpServletRequest request, HttpServletResponse response, RouteMatch routeMatch)
+            throws Throwable {
+        return (Object) invoker.invokeExact(request, response, routeMatch);
+    }
+
+    public Method getHandlerMethod() {
+        return handlerMethod;
+    }
+
+    /**
+     * @return 响应内容类型，默认为 {@link MediaType#TEXT_PLAIN}
+     */
+    public String getContentType() {
+        return contentType;
+    }
+}
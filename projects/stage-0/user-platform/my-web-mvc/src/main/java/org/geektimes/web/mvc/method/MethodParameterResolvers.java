@@ -0,0 +1,318 @@
+package org.geektimes.web.mvc.method;
+
+import org.apache.commons.lang.ClassUtils;
+import org.geektimes.web.mvc.routing.RouteMatch;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.*;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * 处理方法参数解析器（{@link MethodHandle} 实现）
+ * <p>
+ * 每个参数在初始化阶段被解析成类型为 (HttpServletRequest, HttpServletResponse, RouteMatch) -> 参数类型
+ * 的 {@link MethodHandle}，支持：
+ * <ul>
+ *     <li>{@link PathParam} - 路径变量</li>
+ *     <li>{@link QueryParam} - 请求参数</li>
+ *     <li>{@link HeaderParam} - 请求头</li>
+ *     <li>{@link DefaultValue} - 上述参数的默认值</li>
+ *     <li>{@link HttpServletRequest} 与 {@link HttpServletResponse}</li>
+ *     <li>无注解参数 - 请求体（String、byte[]、InputStream、Reader 或者 String 可转换类型）</li>
+ * </ul>
+ * 字符串到参数类型的转换遵循 JAX-RS 规则：基本类型、String、static valueOf(String)、
+ * static fromString(String) 以及 String 参数构造器；转换失败时抛出 {@link ParameterConversionException}，
+ * 路径变量对应 404，其他参数对应 400。
+ *
+ * @since 1.0
+ */
+final class MethodParameterResolvers {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    /**
+     * 参数解析器的统一参数类型
+     */
+    static final Class<?>[] RESOLVER_PARAMETER_TYPES =
+            {HttpServletRequest.class, HttpServletResponse.class, RouteMatch.class};
+
+    private MethodParameterResolvers() {
+    }
+
+    /**
+     * 创建参数解析器
+     *
+     * @param parameter 方法参数
+     * @return (HttpServletRequest, HttpServletResponse, RouteMatch) -> 参数类型
+     * @throws IllegalArgumentException 参数类型不支持时
+     */
+    static MethodHandle resolver(Parameter parameter) throws ReflectiveOperationException {
+        Class<?> parameterType = parameter.getType();
+
+        if (HttpServletRequest.class.equals(parameterType)) {
+            return argument(0, parameterType);
+        } else if (HttpServletResponse.class.equals(parameterType)) {
+            return argument(1, parameterType);
+        }
+
+        String defaultValue = null;
+        DefaultValue defaultValueAnnotation = parameter.getAnnotation(DefaultValue.class);
+        if (defaultValueAnnotation != null) {
+            defaultValue = defaultValueAnnotation.value();
+        }
+
+        PathParam pathParam = parameter.getAnnotation(PathParam.class);
+        if (pathParam != null) {
+            MethodHandle getter = lookup.findVirtual(RouteMatch.class, "getPathVariable",
+                    methodType(String.class, String.class));
+            return stringResolver(MethodHandles.insertArguments(getter, 1, pathParam.value()), 2,
+                    defaultValue, parameter, HttpServletResponse.SC_NOT_FOUND);
+        }
+
+        QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+        if (queryParam != null) {
+            MethodHandle getter = lookup.findVirtual(HttpServletRequest.class, "getParameter",
+                    methodType(String.class, String.class));
+            return stringResolver(MethodHandles.insertArguments(getter, 1, queryParam.value()), 0,
+                    defaultValue, parameter, HttpServletResponse.SC_BAD_REQUEST);
+        }
+
+        HeaderParam headerParam = parameter.getAnnotation(HeaderParam.class);
+        if (headerParam != null) {
+            MethodHandle getter = lookup.findVirtual(HttpServletRequest.class, "getHeader",
+                    methodType(String.class, String.class));
+            return stringResolver(MethodHandles.insertArguments(getter, 1, headerParam.value()), 0,
+                    defaultValue, parameter, HttpServletResponse.SC_BAD_REQUEST);
+        }
+
+        for (Annotation annotation : parameter.getAnnotations()) {
+            if (annotation.annotationType().getPackage().equals(PathParam.class.getPackage())) {
+                throw new IllegalArgumentException("The annotation @" + annotation.annotationType().getSimpleName()
+                        + " is not supported on the parameter : " + parameter);
+            }
+        }
+
+        return bodyResolver(parameter);
+    }
+
+    /**
+     * 请求体参数解析器
+     */
+    private static MethodHandle bodyResolver(Parameter parameter) throws ReflectiveOperationException {
+        Class<?> parameterType = parameter.getType();
+        MethodHandle reader;
+        if (InputStream.class.isAssignableFrom(parameterType)) {
+            reader = lookup.findVirtual(HttpServletRequest.class, "getInputStream",
+                    methodType(ServletInputStream.class));
+        } else if (Reader.class.isAssignableFrom(parameterType)) {
+            reader = lookup.findVirtual(HttpServletRequest.class, "getReader", methodType(BufferedReader.class));
+        } else if (byte[].class.equals(parameterType)) {
+            reader = lookup.findStatic(MethodParameterResolvers.class, "readBodyAsBytes",
+                    methodType(byte[].class, HttpServletRequest.class));
+        } else {
+            reader = lookup.findStatic(MethodParameterResolvers.class, "readBody",
+                    methodType(String.class, HttpServletRequest.class));
+            reader = MethodHandles.filterReturnValue(reader,
+                    failOnConversion(converter(parameterType, parameter), HttpServletResponse.SC_BAD_REQUEST, parameter));
+        }
+        return spread(reader.asType(methodType(parameterType, HttpServletRequest.class)), 0);
+    }
+
+    /**
+     * 基于字符串来源的参数解析器
+     *
+     * @param getter        (源类型) -> String
+     * @param argumentIndex 源类型在统一参数中的位置
+     * @param defaultValue  默认值，可能为 <code>null</code>
+     * @param parameter     方法参数
+     * @param failureStatus 转换失败时的响应状态码
+     */
+    private static MethodHandle stringResolver(MethodHandle getter, int argumentIndex, String defaultValue,
+                                               Parameter parameter, int failureStatus)
+            throws ReflectiveOperationException {
+        if (defaultValue != null) {
+            MethodHandle defaultIfNull = lookup.findStatic(MethodParameterResolvers.class, "defaultIfNull",
+                    methodType(String.class, String.class, String.class));
+            getter = MethodHandles.filterReturnValue(getter, MethodHandles.insertArguments(defaultIfNull, 1, defaultValue));
+        }
+        MethodHandle converter = failOnConversion(converter(parameter.getType(), parameter), failureStatus, parameter);
+        return spread(MethodHandles.filterReturnValue(getter, converter), argumentIndex);
+    }
+
+    /**
+     * 将转换器抛出的 {@link RuntimeException}（如 {@link NumberFormatException}）
+     * 包装为 {@link ParameterConversionException}
+     *
+     * @param converter String -> 目标类型
+     * @param status    转换失败时的响应状态码
+     */
+    private static MethodHandle failOnConversion(MethodHandle converter, int status, Parameter parameter)
+            throws ReflectiveOperationException {
+        MethodHandle handler = lookup.findStatic(MethodParameterResolvers.class, "conversionFailed",
+                methodType(Object.class, RuntimeException.class, String.class, int.class, Parameter.class));
+        handler = MethodHandles.insertArguments(handler, 2, status, parameter)
+                .asType(methodType(converter.type().returnType(), RuntimeException.class, String.class));
+        return MethodHandles.catchException(converter, RuntimeException.class, handler);
+    }
+
+    private static Object conversionFailed(RuntimeException e, String value, int status, Parameter parameter) {
+        throw new ParameterConversionException("The value[" + value + "] can't be converted to the parameter : "
+                + parameter, e, status);
+    }
+
+    /**
+     * 将单参数 MethodHandle 扩展为统一参数类型
+     */
+    private static MethodHandle spread(MethodHandle handle, int argumentIndex) {
+        for (int i = 0; i < RESOLVER_PARAMETER_TYPES.length; i++) {
+            if (i != argumentIndex) {
+                handle = MethodHandles.dropArguments(handle, i, RESOLVER_PARAMETER_TYPES[i]);
+            }
+        }
+        return handle;
+    }
+
+    private static MethodHandle argument(int argumentIndex, Class<?> type) {
+        return spread(MethodHandles.identity(type), argumentIndex);
+    }
+
+    /**
+     * 字符串转换器
+     *
+     * @param targetType 目标类型
+     * @param parameter  方法参数（用于错误信息）
+     * @return String -> 目标类型
+     */
+    static MethodHandle converter(Class<?> targetType, Object parameter) throws ReflectiveOperationException {
+        if (String.class.equals(targetType) || Object.class.equals(targetType)) {
+            return MethodHandles.identity(String.class).asType(methodType(targetType, String.class));
+        }
+
+        if (targetType.isPrimitive()) {
+            MethodHandle parse = primitiveParser(targetType);
+            // 缺失的基本类型参数使用默认值（0、false），全程不装箱
+            MethodHandle defaultValue = MethodHandles.dropArguments(
+                    MethodHandles.constant(targetType, zero(targetType)), 0, String.class);
+            return MethodHandles.guardWithTest(isNull(), defaultValue, parse);
+        }
+
+        if (Character.class.equals(targetType)) {
+            MethodHandle charAt = lookup.findVirtual(String.class, "charAt", methodType(char.class, int.class));
+            return nullSafe(MethodHandles.insertArguments(charAt, 1, 0).asType(methodType(Character.class, String.class)));
+        }
+
+        for (String factoryMethodName : new String[]{"valueOf", "fromString"}) {
+            try {
+                MethodHandle factory = lookup.findStatic(targetType, factoryMethodName, methodType(targetType, String.class));
+                return nullSafe(factory);
+            } catch (NoSuchMethodException | IllegalAccessException ignored) {
+            }
+        }
+
+        if (!Modifier.isAbstract(targetType.getModifiers())) {
+            try {
+                return nullSafe(lookup.findConstructor(targetType, methodType(void.class, String.class)));
+            } catch (NoSuchMethodException | IllegalAccessException ignored) {
+            }
+        }
+
+        throw new IllegalArgumentException("The type[" + targetType.getName()
+                + "] can't be converted from String : " + parameter);
+    }
+
+    /**
+     * 输入为 <code>null</code> 时直接返回 <code>null</code>
+     */
+    private static MethodHandle nullSafe(MethodHandle convert) throws ReflectiveOperationException {
+        MethodType type = convert.type();
+        MethodHandle nullValue = MethodHandles.dropArguments(MethodHandles.constant(type.returnType(), null),
+                0, String.class);
+        return MethodHandles.guardWithTest(isNull(), nullValue, convert);
+    }
+
+    private static MethodHandle isNull() throws ReflectiveOperationException {
+        return lookup.findStatic(MethodParameterResolvers.class, "isNull", methodType(boolean.class, String.class));
+    }
+
+    /**
+     * 基本类型解析方法，如 {@link Integer#parseInt(String)}
+     */
+    private static MethodHandle primitiveParser(Class<?> primitiveType) throws ReflectiveOperationException {
+        if (char.class.equals(primitiveType)) {
+            MethodHandle charAt = lookup.findVirtual(String.class, "charAt", methodType(char.class, int.class));
+            return MethodHandles.insertArguments(charAt, 1, 0);
+        }
+        Class<?> wrapperType = ClassUtils.primitiveToWrapper(primitiveType);
+        String simpleName = primitiveType.getSimpleName();
+        String methodName = "parse" + Character.toUpperCase(simpleName.charAt(0)) + simpleName.substring(1);
+        if (int.class.equals(primitiveType)) {
+            methodName = "parseInt";
+        }
+        return lookup.findStatic(wrapperType, methodName, methodType(primitiveType, String.class));
+    }
+
+    private static Object zero(Class<?> primitiveType) {
+        if (boolean.class.equals(primitiveType)) {
+            return false;
+        } else if (char.class.equals(primitiveType)) {
+            return '\0';
+        } else if (byte.class.equals(primitiveType)) {
+            return (byte) 0;
+        } else if (short.class.equals(primitiveType)) {
+            return (short) 0;
+        } else if (int.class.equals(primitiveType)) {
+            return 0;
+        } else if (long.class.equals(primitiveType)) {
+            return 0L;
+        } else if (float.class.equals(primitiveType)) {
+            return 0F;
+        }
+        return 0D;
+    }
+
+    private static boolean isNull(String value) {
+        return value == null;
+    }
+
+    private static String defaultIfNull(String value, String defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    private static byte[] readBodyAsBytes(HttpServletRequest request) throws IOException {
+        try (InputStream inputStream = request.getInputStream()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = inputStream.read(buffer)) > -1) {
+                outputStream.write(buffer, 0, n);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static String readBody(HttpServletRequest request) throws IOException {
+        StringBuilder body = new StringBuilder();
+        try (Reader reader = request.getReader()) {
+            char[] buffer = new char[2048];
+            int n;
+            while ((n = reader.read(buffer)) > -1) {
+                body.append(buffer, 0, n);
+            }
+        }
+        return body.length() == 0 ? null : body.toString();
+    }
+}
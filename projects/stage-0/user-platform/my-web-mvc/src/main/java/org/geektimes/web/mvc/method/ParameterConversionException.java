@@ -0,0 +1,28 @@
+package org.geektimes.web.mvc.method;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 请求参数转换失败
+ * <p>
+ * 按照 JAX-RS 规则，路径变量转换失败时响应 404，请求参数与请求头（以及请求体）转换失败时响应 400。
+ * 这里不直接使用 {@link javax.ws.rs.WebApplicationException}，其构造依赖 JAX-RS 运行时实现。
+ *
+ * @since 1.0
+ */
+public class ParameterConversionException extends IllegalArgumentException {
+
+    private final int status;
+
+    public ParameterConversionException(String message, Throwable cause, int status) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    /**
+     * @return HTTP 响应状态码，{@link HttpServletResponse#SC_NOT_FOUND} 或者 {@link HttpServletResponse#SC_BAD_REQUEST}
+     */
+    public int getStatus() {
+        return status;
+    }
+}
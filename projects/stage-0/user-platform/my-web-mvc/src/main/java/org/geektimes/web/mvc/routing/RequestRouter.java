@@ -0,0 +1,296 @@
+package org.geektimes.web.mvc.routing;
+
+import org.geektimes.web.mvc.HandlerMethodInfo;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 基于路径段前缀树（Trie）的请求路由器
+ * <p>
+ * 支持的路径模板（与 JAX-RS {@link javax.ws.rs.Path} 语法保持一致）：
+ * <ul>
+ *     <li>静态路径段 - /users</li>
+ *     <li>路径变量 - /users/{id}</li>
+ *     <li>正则路径段 - /users/{id:\d+}</li>
+ * </ul>
+ * 匹配优先级：静态路径段 > 正则路径段 > 路径变量，匹配失败时回溯。
+ * <p>
+ * 路由树仅在初始化阶段构建（非线程安全），构建完成后只读；
+ * 匹配阶段时间复杂度与请求路径长度成正比，并且不会分配临时对象（结果写入可复用的 {@link RouteMatch}）。
+ *
+ * @since 1.0
+ */
+public class RequestRouter {
+
+    private final Node root = new Node(null);
+
+    /**
+     * 最大路径变量数量，用于确定 {@link RouteMatch} 的容量
+     */
+    private int maxVariableCount;
+
+    /**
+     * 正则路径段数量，用于确定 {@link RouteMatch} 中可复用 Matcher 的容量
+     */
+    private int regexCount;
+
+    /**
+     * 注册路由
+     *
+     * @param pathTemplate      路径模板，如 /users/{id}
+     * @param httpMethods       支持的 HTTP 方法集合
+     * @param handlerMethodInfo 处理方法信息
+     * @throws IllegalArgumentException 路径模板不合法时
+     * @throws IllegalStateException    相同路径模板与 HTTP 方法重复注册时
+     */
+    public void register(String pathTemplate, Collection<String> httpMethods, HandlerMethodInfo handlerMethodInfo) {
+        Node node = root;
+        List<String> variableNames = new ArrayList<>();
+        for (String segment : splitSegments(pathTemplate)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String expression = segment.substring(1, segment.length() - 1).trim();
+                int colonIndex = expression.indexOf(':');
+                String variableName = colonIndex < 0 ? expression : expression.substring(0, colonIndex).trim();
+                String regex = colonIndex < 0 ? null : expression.substring(colonIndex + 1).trim();
+                if (variableName.isEmpty()) {
+                    throw new IllegalArgumentException("The path variable name must not be empty : " + pathTemplate);
+                }
+                variableNames.add(variableName);
+                node = node.getOrCreateVariableChild(regex);
+            } else {
+                node = node.getOrCreateStaticChild(segment);
+            }
+        }
+
+        String[] names = variableNames.toArray(new String[0]);
+        for (String httpMethod : httpMethods) {
+            Route existedRoute = node.routes.get(httpMethod);
+            if (existedRoute != null) {
+                throw new IllegalStateException(String.format("The route[%s %s] has been registered by %s",
+                        httpMethod, pathTemplate, existedRoute.handlerMethodInfo.getHandlerMethod()));
+            }
+            node.routes.put(httpMethod, new Route(handlerMethodInfo, names));
+        }
+        maxVariableCount = Math.max(maxVariableCount, names.length);
+    }
+
+    /**
+     * 创建与当前路由树匹配的 {@link RouteMatch}，可以在同一线程内复用
+     *
+     * @return non-null
+     */
+    public RouteMatch newRouteMatch() {
+        return new RouteMatch(maxVariableCount, regexCount);
+    }
+
+    /**
+     * 匹配请求路径
+     *
+     * @param path       请求路径（如 requestURI）
+     * @param offset     匹配起始位置（如 contextPath 长度）
+     * @param httpMethod HTTP 方法
+     * @param routeMatch 匹配结果
+     * @return 匹配状态
+     */
+    public RouteMatch.Status route(String path, int offset, String httpMethod, RouteMatch routeMatch) {
+        routeMatch.reset(path);
+        Node node = match(root, path, offset, routeMatch, 0);
+        if (node == null) {
+            return routeMatch.status = RouteMatch.Status.NOT_FOUND;
+        }
+        Route route = node.routes.get(httpMethod);
+        if (route == null) {
+            return routeMatch.status = RouteMatch.Status.METHOD_NOT_ALLOWED;
+        }
+        routeMatch.route = route;
+        return routeMatch.status = RouteMatch.Status.FOUND;
+    }
+
+    private Node match(Node node, String path, int start, RouteMatch routeMatch, int variableIndex) {
+        int length = path.length();
+        // 跳过 "/"，兼容 "//" 的情况
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return node.routes.isEmpty() ? null : node;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+
+        // 静态路径段优先
+        Node child = node.findStaticChild(path, start, end);
+        if (child != null) {
+            Node result = match(child, path, end, routeMatch, variableIndex);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        // 正则路径段以及路径变量
+        for (Node variableChild : node.variableChildren) {
+            if (variableChild.pattern != null &&
+                    !routeMatch.matcher(variableChild.regexIndex, variableChild.pattern).region(start, end).matches()) {
+                continue;
+            }
+            routeMatch.bind(variableIndex, start, end);
+            Node result = match(variableChild, path, end, routeMatch, variableIndex + 1);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    private static List<String> splitSegments(String pathTemplate) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pathTemplate.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 计算路径区间 [start, end) 的哈希值：{@link String#hashCode()} 的算法再混合高 16 位（同 {@link java.util.HashMap}），
+     * 与 {@link String#hashCode()} 的结果不同，注册与匹配时均需使用本方法
+     */
+    static int hash(String path, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 路由信息（路由树叶子节点上的处理方法）
+     */
+    static class Route {
+
+        final HandlerMethodInfo handlerMethodInfo;
+
+        final String[] variableNames;
+
+        Route(HandlerMethodInfo handlerMethodInfo, String[] variableNames) {
+            this.handlerMethodInfo = handlerMethodInfo;
+            this.variableNames = variableNames;
+        }
+    }
+
+    /**
+     * 路由树节点
+     */
+    private class Node {
+
+        /**
+         * 正则表达式（仅变量节点）
+         */
+        private final Pattern pattern;
+
+        private final int regexIndex;
+
+        /**
+         * 静态子节点开放寻址哈希表，路径段在匹配时不需要截取子字符串
+         */
+        private String[] staticSegments = new String[0];
+
+        private Node[] staticChildren = new Node[0];
+
+        private int staticChildrenCount;
+
+        /**
+         * 变量子节点，正则节点在前
+         */
+        private final List<Node> variableChildren = new ArrayList<>();
+
+        /**
+         * HTTP 方法与路由的映射
+         */
+        private final Map<String, Route> routes = new HashMap<>();
+
+        Node(String regex) {
+            this.pattern = regex == null ? null : Pattern.compile(regex);
+            this.regexIndex = regex == null ? -1 : regexCount++;
+        }
+
+        Node findStaticChild(String path, int start, int end) {
+            if (staticChildrenCount == 0) {
+                return null;
+            }
+            int length = end - start;
+            int mask = staticSegments.length - 1;
+            for (int i = hash(path, start, end) & mask; ; i = (i + 1) & mask) {
+                String segment = staticSegments[i];
+                if (segment == null) {
+                    return null;
+                }
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return staticChildren[i];
+                }
+            }
+        }
+
+        Node getOrCreateStaticChild(String segment) {
+            Node child = findStaticChild(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node(null);
+                if ((staticChildrenCount + 1) * 2 > staticSegments.length) {
+                    resizeStaticChildren(Math.max(4, staticSegments.length * 2));
+                }
+                putStaticChild(segment, child);
+            }
+            return child;
+        }
+
+        Node getOrCreateVariableChild(String regex) {
+            for (Node variableChild : variableChildren) {
+                String childRegex = variableChild.pattern == null ? null : variableChild.pattern.pattern();
+                if (Objects.equals(regex, childRegex)) {
+                    return variableChild;
+                }
+            }
+            Node child = new Node(regex);
+            if (regex == null) {
+                variableChildren.add(child);
+            } else {
+                // 正则节点优先于普通路径变量节点
+                int index = 0;
+                while (index < variableChildren.size() && variableChildren.get(index).pattern != null) {
+                    index++;
+                }
+                variableChildren.add(index, child);
+            }
+            return child;
+        }
+
+        private void resizeStaticChildren(int capacity) {
+            String[] oldSegments = staticSegments;
+            Node[] oldChildren = staticChildren;
+            staticSegments = new String[capacity];
+            staticChildren = new Node[capacity];
+            staticChildrenCount = 0;
+            for (int i = 0; i < oldSegments.length; i++) {
+                if (oldSegments[i] != null) {
+                    putStaticChild(oldSegments[i], oldChildren[i]);
+                }
+            }
+        }
+
+        private void putStaticChild(String segment, Node child) {
+            int mask = staticSegments.length - 1;
+            int i = hash(segment, 0, segment.length()) & mask;
+            while (staticSegments[i] != null) {
+                i = (i + 1) & mask;
+            }
+            staticSegments[i] = segment;
+            staticChildren[i] = child;
+            staticChildrenCount++;
+        }
+    }
+}
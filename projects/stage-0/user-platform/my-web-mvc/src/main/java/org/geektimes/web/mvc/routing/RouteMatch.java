@@ -0,0 +1,118 @@
+package org.geektimes.web.mvc.routing;
+
+import org.geektimes.web.mvc.HandlerMethodInfo;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 路由匹配结果（可变对象，可以在同一线程内复用，非线程安全）
+ * <p>
+ * 路径变量仅记录在请求路径中的起止位置，在调用 {@link #getPathVariable(String)} 时才会截取字符串。
+ *
+ * @see RequestRouter#route(String, int, String, RouteMatch)
+ * @since 1.0
+ */
+public class RouteMatch {
+
+    /**
+     * 匹配状态
+     */
+    public enum Status {
+
+        /**
+         * 路由匹配成功
+         */
+        FOUND,
+
+        /**
+         * 请求路径匹配，但 HTTP 方法不支持
+         */
+        METHOD_NOT_ALLOWED,
+
+        /**
+         * 请求路径不匹配
+         */
+        NOT_FOUND
+    }
+
+    /**
+     * 路径变量的起止位置，[2 * i] 为起始位置，[2 * i + 1] 为结束位置
+     */
+    private final int[] variableBounds;
+
+    /**
+     * 正则路径段的可复用 Matcher
+     */
+    private final Matcher[] matchers;
+
+    private String path;
+
+    RequestRouter.Route route;
+
+    Status status = Status.NOT_FOUND;
+
+    RouteMatch(int maxVariableCount, int regexCount) {
+        this.variableBounds = new int[maxVariableCount * 2];
+        this.matchers = new Matcher[regexCount];
+    }
+
+    void reset(String path) {
+        this.path = path;
+        this.route = null;
+        this.status = Status.NOT_FOUND;
+    }
+
+    void bind(int variableIndex, int start, int end) {
+        variableBounds[variableIndex * 2] = start;
+        variableBounds[variableIndex * 2 + 1] = end;
+    }
+
+    Matcher matcher(int regexIndex, Pattern pattern) {
+        Matcher matcher = matchers[regexIndex];
+        if (matcher == null) {
+            matcher = pattern.matcher(path);
+            matchers[regexIndex] = matcher;
+        } else {
+            matcher.reset(path);
+        }
+        return matcher;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return 匹配成功时返回处理方法信息，否则返回 <code>null</code>
+     */
+    public HandlerMethodInfo getHandlerMethodInfo() {
+        return route == null ? null : route.handlerMethodInfo;
+    }
+
+    /**
+     * 获取路径变量值
+     *
+     * @param name 路径变量名称
+     * @return 如果不存在，返回 <code>null</code>
+     */
+    public String getPathVariable(String name) {
+        if (route == null) {
+            return null;
+        }
+        String[] variableNames = route.variableNames;
+        for (int i = 0; i < variableNames.length; i++) {
+            if (variableNames[i].equals(name)) {
+                return path.substring(variableBounds[i * 2], variableBounds[i * 2 + 1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 路径变量数量
+     */
+    public int getPathVariableCount() {
+        return route == null ? 0 : route.variableNames.length;
+    }
+}
@@ -0,0 +1,56 @@
+package org.geektimes.web.mvc.method;
+
+import org.geektimes.benchmark.BenchmarkRunner;
+import org.geektimes.web.mvc.HandlerMethodInfo;
+import org.geektimes.web.mvc.routing.RequestRouter;
+import org.geektimes.web.mvc.routing.RouteMatch;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+/**
+ * {@link HandlerMethodInvoker} 与 {@link Method#invoke(Object, Object...)} 性能对比
+ *
+ * @see BenchmarkRunner
+ */
+public class HandlerMethodInvokerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final int OPERATIONS = 5_000_000;
+
+    public static void main(String[] args) throws Throwable {
+        HandlerMethodInvokerTest.UserRestController controller = new HandlerMethodInvokerTest.UserRestController();
+        Method method = HandlerMethodInvokerTest.UserRestController.class
+                .getMethod("getUser", long.class, boolean.class, int.class);
+
+        RequestRouter router = new RequestRouter();
+        router.register("/users/{id}", Collections.singleton("GET"),
+                new HandlerMethodInfo("/users/{id}", method, Collections.emptySet()));
+        RouteMatch routeMatch = router.newRouteMatch();
+        router.route("/users/123", 0, "GET", routeMatch);
+
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+                HandlerMethodInvokerBenchmark.class.getClassLoader(), new Class[]{HttpServletRequest.class},
+                (proxy, m, a) -> "size".equals(a[0]) ? "20" : "true");
+
+        HandlerMethodInvoker invoker = new HandlerMethodInvoker(controller, method);
+
+        BenchmarkRunner.run("HandlerMethodInvoker", WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, () -> {
+            long methodHandleCost = BenchmarkRunner.time(OPERATIONS, () -> invoker.invoke(request, null, routeMatch));
+            long reflectionCost = BenchmarkRunner.time(OPERATIONS, () -> {
+                // 与 MethodHandle 版本解析相同的参数，仅调用方式不同
+                long id = Long.parseLong(routeMatch.getPathVariable("id"));
+                boolean verbose = Boolean.parseBoolean(request.getParameter("verbose"));
+                int size = Integer.parseInt(request.getParameter("size"));
+                return method.invoke(controller, id, verbose, size);
+            });
+            return String.format("MethodHandle %.2f ns/op , Method.invoke %.2f ns/op",
+                    (double) methodHandleCost / OPERATIONS, (double) reflectionCost / OPERATIONS);
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package org.geektimes.web.mvc.method;
+
+import org.geektimes.web.mvc.HandlerMethodInfo;
+import org.geektimes.web.mvc.controller.RestController;
+import org.geektimes.web.mvc.routing.RequestRouter;
+import org.geektimes.web.mvc.routing.RouteMatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HandlerMethodInvoker} Test
+ */
+public class HandlerMethodInvokerTest {
+
+    private final Map<String, String> parameters = new HashMap<>();
+
+    private String body;
+
+    private HttpServletRequest request;
+
+    @Before
+    public void init() {
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getParameter":
+                            return parameters.get(args[0]);
+                        case "getReader":
+                            return new BufferedReader(new StringReader(body));
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testInvoke() throws Throwable {
+        RouteMatch routeMatch = route("/users/{id}", "/users/123");
+        parameters.put("verbose", "true");
+
+        HandlerMethodInvoker invoker = invoker("getUser", long.class, boolean.class, int.class);
+        assertEquals("user-123-true-10", invoker.invoke(request, null, routeMatch));
+        assertEquals("application/json", invoker.getContentType());
+
+        parameters.clear();
+        assertEquals("user-123-false-10", invoker.invoke(request, null, routeMatch));
+    }
+
+    @Test
+    public void testInvokeWithBody() throws Throwable {
+        body = "42";
+        HandlerMethodInvoker invoker = invoker("update", Integer.class, HttpServletRequest.class);
+        assertEquals(43, invoker.invoke(request, null, route("/", "/")));
+        assertEquals("text/plain", invoker.getContentType());
+    }
+
+    @Test
+    public void testInvokeVoidMethod() throws Throwable {
+        assertNull(invoker("noop").invoke(request, null, route("/", "/")));
+    }
+
+    @Test
+    public void testInvokeWithIllegalParameter() throws Throwable {
+        HandlerMethodInvoker invoker = invoker("getUser", long.class, boolean.class, int.class);
+        try {
+            invoker.invoke(request, null, route("/users/{id}", "/users/abc"));
+            fail();
+        } catch (ParameterConversionException e) {
+            assertEquals(404, e.getStatus());
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+
+        parameters.put("size", "ten");
+        try {
+            invoker.invoke(request, null, route("/users/{id}", "/users/123"));
+            fail();
+        } catch (ParameterConversionException e) {
+            assertEquals(400, e.getStatus());
+        }
+
+        body = "forty-two";
+        try {
+            invoker("update", Integer.class, HttpServletRequest.class).invoke(request, null, route("/", "/"));
+            fail();
+        } catch (ParameterConversionException e) {
+            assertEquals(400, e.getStatus());
+        }
+    }
+
+    private HandlerMethodInvoker invoker(String methodName, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new HandlerMethodInvoker(new UserRestController(), UserRestController.class.getMethod(methodName, parameterTypes));
+    }
+
+    private static RouteMatch route(String pathTemplate, String path) {
+        RequestRouter router = new RequestRouter();
+        router.register(pathTemplate, Collections.singleton("GET"),
+                new HandlerMethodInfo(pathTemplate, null, Collections.emptySet()));
+        RouteMatch routeMatch = router.newRouteMatch();
+        router.route(path, 0, "GET", routeMatch);
+        return routeMatch;
+    }
+
+    public static class UserRestController implements RestController {
+
+        @Produces("application/json")
+        public String getUser(@PathParam("id") long id, @QueryParam("verbose") boolean verbose,
+                              @QueryParam("size") @DefaultValue("10") int size) {
+            return "user-" + id + "-" + verbose + "-" + size;
+        }
+
+        public int update(Integer value, HttpServletRequest request) {
+            assertNotNull(request);
+            return value + 1;
+        }
+
+        public void noop() {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.geektimes.web.mvc.routing;
+
+import org.geektimes.web.mvc.HandlerMethodInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RequestRouter} Test
+ */
+public class RequestRouterTest {
+
+    private RequestRouter router;
+
+    private HandlerMethodInfo staticUsers;
+
+    private HandlerMethodInfo userById;
+
+    private HandlerMethodInfo userByName;
+
+    private HandlerMethodInfo userOrders;
+
+    @Before
+    public void init() {
+        router = new RequestRouter();
+        staticUsers = register("/users/me", "GET");
+        userById = register("/users/{id:\\d+}", "GET", "PUT");
+        userByName = register("/users/{name}", "GET");
+        userOrders = register("/users/{id}/orders/{orderId}", "GET");
+    }
+
+    private HandlerMethodInfo register(String pathTemplate, String... httpMethods) {
+        HandlerMethodInfo handlerMethodInfo = new HandlerMethodInfo(pathTemplate, null, Collections.emptySet());
+        router.register(pathTemplate, Arrays.asList(httpMethods), handlerMethodInfo);
+        return handlerMethodInfo;
+    }
+
+    @Test
+    public void testRoute() {
+        RouteMatch routeMatch = router.newRouteMatch();
+
+        assertEquals(RouteMatch.Status.FOUND, router.route("/users/me", 0, "GET", routeMatch));
+        assertSame(staticUsers, routeMatch.getHandlerMethodInfo());
+
+        assertEquals(RouteMatch.Status.FOUND, router.route("/app/users/123", 4, "GET", routeMatch));
+        assertSame(userById, routeMatch.getHandlerMethodInfo());
+        assertEquals("123", routeMatch.getPathVariable("id"));
+
+        assertEquals(RouteMatch.Status.FOUND, router.route("/users/mercy/", 0, "GET", routeMatch));
+        assertSame(userByName, routeMatch.getHandlerMethodInfo());
+        assertEquals("mercy", routeMatch.getPathVariable("name"));
+        assertNull(routeMatch.getPathVariable("id"));
+
+        assertEquals(RouteMatch.Status.FOUND, router.route("//users/1//orders/2", 0, "GET", routeMatch));
+        assertSame(userOrders, routeMatch.getHandlerMethodInfo());
+        assertEquals("1", routeMatch.getPathVariable("id"));
+        assertEquals("2", routeMatch.getPathVariable("orderId"));
+    }
+
+    @Test
+    public void testRouteWithUnsupportedHttpMethod() {
+        RouteMatch routeMatch = router.newRouteMatch();
+        assertEquals(RouteMatch.Status.FOUND, router.route("/users/1", 0, "PUT", routeMatch));
+        assertEquals(RouteMatch.Status.METHOD_NOT_ALLOWED, router.route("/users/me", 0, "PUT", routeMatch));
+        assertNull(routeMatch.getHandlerMethodInfo());
+    }
+
+    @Test
+    public void testRouteNotFound() {
+        RouteMatch routeMatch = router.newRouteMatch();
+        assertEquals(RouteMatch.Status.NOT_FOUND, router.route("/", 0, "GET", routeMatch));
+        assertEquals(RouteMatch.Status.NOT_FOUND, router.route("/users", 0, "GET", routeMatch));
+        assertEquals(RouteMatch.Status.NOT_FOUND, router.route("/users/1/orders", 0, "GET", routeMatch));
+    }
+
+    @Test
+    public void testManyStaticRoutes() {
+        for (int i = 0; i < 500; i++) {
+            register("/controller" + i + "/action", "GET");
+        }
+        RouteMatch routeMatch = router.newRouteMatch();
+        for (int i = 0; i < 500; i++) {
+            assertEquals(RouteMatch.Status.FOUND, router.route("/controller" + i + "/action", 0, "GET", routeMatch));
+            assertEquals("/controller" + i + "/action", routeMatch.getHandlerMethodInfo().getRequestPath());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicatedRoute() {
+        register("/users/{uid:\\d+}", "PUT");
+    }
+}
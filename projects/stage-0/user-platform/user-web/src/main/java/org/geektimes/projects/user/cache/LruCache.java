@@ -0,0 +1,219 @@
+package org.geektimes.projects.user.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 有界、带过期时间的 LRU 缓存
+ * <p>
+ * 按 Key 的哈希分段，每段为访问顺序的 {@link LinkedHashMap}，超过段容量时淘汰最久未使用的条目，
+ * 读写仅锁定所在分段。条目过期后在下次访问时移除。
+ * <p>
+ * 不支持 <code>null</code> 的 Key 与 Value，需要缓存"不存在"时由调用方使用占位对象。
+ *
+ * @param <K> Key 类型
+ * @param <V> Value 类型
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int maxSize;
+
+    private final long defaultTtlNanos;
+
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    /**
+     * @param maxSize    最大条目数
+     * @param defaultTtl 默认过期时间，小于等于 0 时不过期
+     * @param unit       时间单位
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, long defaultTtl, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The max size must be positive : " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.defaultTtlNanos = unit.toNanos(defaultTtl);
+        // 容量较小时不分段，避免每段容量过小导致过早淘汰
+        int segmentCount = maxSize < MAX_SEGMENTS * 4 ? 1 : MAX_SEGMENTS;
+        int segmentCapacity = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity, evictionCount);
+        }
+    }
+
+    private Segment<K, V> segment(Object key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * @return 不存在或者已过期时返回 <code>null</code>
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        Entry<V> entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                segment.remove(key);
+                expirationCount.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * 是否存在未过期的条目（不计入命中统计）
+     */
+    public boolean containsKey(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            return entry != null && !entry.isExpired(System.nanoTime());
+        }
+    }
+
+    /**
+     * 使用默认过期时间缓存
+     */
+    public void put(K key, V value) {
+        put(key, value, defaultTtlNanos);
+    }
+
+    /**
+     * @param ttl  过期时间，小于等于 0 时不过期
+     * @param unit 时间单位
+     */
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        put(key, value, unit.toNanos(ttl));
+    }
+
+    private void put(K key, V value, long ttlNanos) {
+        Entry<V> entry = new Entry<>(value, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    public void remove(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * 移除 Key 满足条件的条目
+     */
+    public void removeIf(Predicate<? super K> predicate) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.keySet().removeIf(predicate);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return 当前条目数（可能包括尚未移除的过期条目）
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+
+        /**
+         * 过期时间（{@link System#nanoTime()}），0 表示不过期
+         */
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt != 0 && now - expireAt >= 0;
+        }
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        private final int capacity;
+
+        private final LongAdder evictionCount;
+
+        private Segment(int capacity, LongAdder evictionCount) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictionCount.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -15,7 +15,8 @@ import static javax.persistence.GenerationType.AUTO;
  * @since 1.0
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "users_name_id", columnList = "name, id"))
+@Cacheable
 public class User implements Serializable {
 
     @Id
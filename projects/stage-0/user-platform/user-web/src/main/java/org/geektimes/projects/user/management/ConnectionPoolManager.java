@@ -0,0 +1,64 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.sql.PooledDataSource;
+
+import java.util.Map;
+
+public class ConnectionPoolManager implements ConnectionPoolManagerMBean {
+
+    private final PooledDataSource dataSource;
+
+    public ConnectionPoolManager(PooledDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public int getMaxPoolSize() {
+        return dataSource.getMaxPoolSize();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return dataSource.getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return dataSource.getIdleConnections();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return dataSource.getTotalConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return dataSource.getPendingThreads();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return dataSource.getBorrowCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return dataSource.getTimeoutCount();
+    }
+
+    @Override
+    public long getLeakCount() {
+        return dataSource.getLeakCount();
+    }
+
+    @Override
+    public long getStatementCacheHitCount() {
+        return dataSource.getStatementCacheHitCount();
+    }
+
+    @Override
+    public Map<String, Long> getWaitTimeHistogram() {
+        return dataSource.getWaitTimeHistogram();
+    }
+}
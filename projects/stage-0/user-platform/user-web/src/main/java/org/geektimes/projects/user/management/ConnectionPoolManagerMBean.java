@@ -0,0 +1,35 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.sql.PooledDataSource;
+
+import java.util.Map;
+
+/**
+ * {@link PooledDataSource} 连接池统计 MBean 接口描述
+ */
+public interface ConnectionPoolManagerMBean {
+
+    // MBeanAttributeInfo 列表
+    int getMaxPoolSize();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    int getPendingThreads();
+
+    long getBorrowCount();
+
+    long getTimeoutCount();
+
+    long getLeakCount();
+
+    long getStatementCacheHitCount();
+
+    /**
+     * @return 等待时间分布，Key 为区间，Value 为次数
+     */
+    Map<String, Long> getWaitTimeHistogram();
+}
@@ -0,0 +1,70 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
+import org.geektimes.projects.user.orm.jpa.cache.EntityCache;
+import org.geektimes.projects.user.orm.jpa.cache.QueryResultCache;
+
+public class EntityCacheManager implements EntityCacheManagerMBean {
+
+    private final DelegatingEntityManager entityManager;
+
+    public EntityCacheManager(DelegatingEntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int getEntityCacheSize() {
+        EntityCache cache = entityManager.getEntityCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getEntityCacheHitCount() {
+        EntityCache cache = entityManager.getEntityCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getEntityCacheMissCount() {
+        EntityCache cache = entityManager.getEntityCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public double getEntityCacheHitRatio() {
+        return hitRatio(getEntityCacheHitCount(), getEntityCacheMissCount());
+    }
+
+    @Override
+    public int getQueryCacheSize() {
+        QueryResultCache cache = entityManager.getQueryResultCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getQueryCacheHitCount() {
+        QueryResultCache cache = entityManager.getQueryResultCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getQueryCacheMissCount() {
+        QueryResultCache cache = entityManager.getQueryResultCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public double getQueryCacheHitRatio() {
+        return hitRatio(getQueryCacheHitCount(), getQueryCacheMissCount());
+    }
+
+    @Override
+    public void evictAll() {
+        entityManager.invalidateCaches();
+    }
+
+    private static double hitRatio(long hitCount, long missCount) {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,29 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
+
+/**
+ * {@link DelegatingEntityManager} 实体缓存与查询结果缓存统计 MBean 接口描述
+ */
+public interface EntityCacheManagerMBean {
+
+    // MBeanAttributeInfo 列表
+    int getEntityCacheSize();
+
+    long getEntityCacheHitCount();
+
+    long getEntityCacheMissCount();
+
+    double getEntityCacheHitRatio();
+
+    int getQueryCacheSize();
+
+    long getQueryCacheHitCount();
+
+    long getQueryCacheMissCount();
+
+    double getQueryCacheHitRatio();
+
+    // MBeanOperationInfo
+    void evictAll();
+}
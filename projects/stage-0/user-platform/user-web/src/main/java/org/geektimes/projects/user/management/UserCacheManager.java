@@ -0,0 +1,64 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.cache.LruCache;
+import org.geektimes.projects.user.repository.CachingUserRepository;
+
+public class UserCacheManager implements UserCacheManagerMBean {
+
+    private final CachingUserRepository userRepository;
+
+    public UserCacheManager(CachingUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    private LruCache<?, ?> cache() {
+        return userRepository.getUsersCache();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return cache().getMaxSize();
+    }
+
+    @Override
+    public int getSize() {
+        return cache().size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache().getMissCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long requestCount = hitCount + getMissCount();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache().getEvictionCount();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return cache().getExpirationCount();
+    }
+
+    @Override
+    public int getPendingWrites() {
+        return userRepository.getPendingWrites();
+    }
+
+    @Override
+    public void invalidateAll() {
+        userRepository.invalidateAll();
+    }
+}
@@ -0,0 +1,32 @@
+package org.geektimes.projects.user.management;
+
+import org.geektimes.projects.user.repository.CachingUserRepository;
+
+/**
+ * {@link CachingUserRepository} 用户缓存统计 MBean 接口描述
+ */
+public interface UserCacheManagerMBean {
+
+    // MBeanAttributeInfo 列表
+    int getMaxSize();
+
+    int getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    long getEvictionCount();
+
+    long getExpirationCount();
+
+    /**
+     * @return 尚未写入（Write-Behind）的用户数量
+     */
+    int getPendingWrites();
+
+    // MBeanOperationInfo
+    void invalidateAll();
+}
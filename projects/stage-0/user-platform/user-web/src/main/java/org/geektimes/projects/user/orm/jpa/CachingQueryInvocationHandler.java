@@ -0,0 +1,160 @@
+package org.geektimes.projects.user.orm.jpa;
+
+import org.geektimes.projects.user.orm.jpa.cache.QueryKey;
+import org.geektimes.projects.user.orm.jpa.cache.QueryResultCache;
+
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 查询结果缓存代理
+ * <p>
+ * 记录参数与分页，{@link Query#getResultList()} 与 {@link Query#getSingleResult()} 优先读取
+ * {@link QueryResultCache}（实体解析为受管理的实体），{@link Query#executeUpdate()} 执行后使所有缓存失效。
+ * 设置锁模式或者当前工作单元存在活动事务时不使用缓存。
+ *
+ * @see DelegatingEntityManager
+ */
+class CachingQueryInvocationHandler implements InvocationHandler {
+
+    private static final Constructor<?> QUERY_PROXY_CONSTRUCTOR = proxyConstructor(Query.class);
+
+    private static final Constructor<?> TYPED_QUERY_PROXY_CONSTRUCTOR = proxyConstructor(TypedQuery.class);
+
+    private final Query target;
+
+    private final String queryString;
+
+    private final DelegatingEntityManager entityManager;
+
+    private final QueryResultCache queryResultCache;
+
+    /**
+     * 参数名称或者位置 -> 参数值
+     */
+    private final Map<Object, Object> parameters = new HashMap<>();
+
+    private int firstResult;
+
+    private int maxResults = Integer.MAX_VALUE;
+
+    private boolean locked;
+
+    private CachingQueryInvocationHandler(Query target, String queryString, DelegatingEntityManager entityManager,
+                                          QueryResultCache queryResultCache) {
+        this.target = target;
+        this.queryString = queryString;
+        this.entityManager = entityManager;
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * @param queryString 区分 JPQL 与命名查询的查询标识
+     */
+    @SuppressWarnings("unchecked")
+    static <Q extends Query> Q newProxy(Q target, String queryString, DelegatingEntityManager entityManager,
+                                        QueryResultCache queryResultCache) {
+        Constructor<?> constructor = target instanceof TypedQuery ?
+                TYPED_QUERY_PROXY_CONSTRUCTOR : QUERY_PROXY_CONSTRUCTOR;
+        try {
+            return (Q) constructor.newInstance(
+                    new CachingQueryInvocationHandler(target, queryString, entityManager, queryResultCache));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getResultList":
+            case "getSingleResult":
+                return getResult(method);
+            case "executeUpdate":
+                try {
+                    return invokeTarget(method, args);
+                } finally {
+                    // 批量更新或者删除，无法确定影响的实体
+                    entityManager.invalidateCaches();
+                }
+            case "setParameter":
+                recordParameter(args);
+                break;
+            case "setFirstResult":
+                firstResult = (Integer) args[0];
+                break;
+            case "setMaxResults":
+                maxResults = (Integer) args[0];
+                break;
+            case "setLockMode":
+                locked = true;
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        Object result = invokeTarget(method, args);
+        // 链式调用返回代理
+        return result == target ? proxy : result;
+    }
+
+    private void recordParameter(Object[] args) {
+        Object key = args[0];
+        if (key instanceof Parameter) {
+            Parameter<?> parameter = (Parameter<?>) key;
+            key = parameter.getName() != null ? parameter.getName() : parameter.getPosition();
+        }
+        // 包括 TemporalType
+        parameters.put(key, args.length > 2 ? Arrays.asList(args[1], args[2]) : args[1]);
+    }
+
+    private Object getResult(Method method) throws Throwable {
+        if (locked || entityManager.isTransactionActive()) {
+            return invokeTarget(method, null);
+        }
+        QueryKey key = new QueryKey(queryString + "#" + method.getName(), parameters, firstResult, maxResults);
+        Object result = queryResultCache.get(key);
+        if (result != null) {
+            return result;
+        }
+        long stamp = entityManager.getWriteStamp();
+        result = invokeTarget(method, null);
+        if (result != null && entityManager.getWriteStamp() == stamp) {
+            queryResultCache.put(key, result);
+            // 写操作可能发生在检查之后、缓存之前，再次检查
+            if (entityManager.getWriteStamp() != stamp) {
+                queryResultCache.invalidateAll();
+            }
+        }
+        return result;
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Constructor<?> proxyConstructor(Class<?> queryType) {
+        try {
+            return Proxy.getProxyClass(CachingQueryInvocationHandler.class.getClassLoader(), queryType)
+                    .getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
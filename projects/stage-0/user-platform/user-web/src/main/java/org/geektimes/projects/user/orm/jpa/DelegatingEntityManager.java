@@ -1,8 +1,30 @@
 package org.geektimes.projects.user.orm.jpa;
 
 import org.geektimes.context.ClassicComponentContext;
+import org.geektimes.projects.user.management.EntityCacheManager;
+import org.geektimes.projects.user.orm.jpa.cache.DefaultEntityCache;
+import org.geektimes.projects.user.orm.jpa.cache.EntityCache;
+import org.geektimes.projects.user.orm.jpa.cache.EntityReference;
+import org.geektimes.projects.user.orm.jpa.cache.EntityResolver;
+import org.geektimes.projects.user.orm.jpa.cache.QueryResultCache;
+import org.hibernate.LockOptions;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.persistence.*;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
@@ -10,37 +32,182 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.metamodel.Metamodel;
 import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
-import java.util.List;
-import java.util.Map;
-import java.util.Properties;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * 委派实现（静态 AOP 实现）
  * 保持容器内单例
  * 目前实现 DelegatingEntityManager : EntityManager = 1:1
  * DelegatingEntityManager : EntityManager = 1:N
+ * <p>
+ * 每个线程（工作单元，如一次请求）复用同一个 {@link EntityManager}，同一工作单元内的操作与事务共享持久化上下文，
+ * 工作单元结束时需要调用 {@link #closeCurrentEntityManagers()} 关闭（Web 请求由
+ * {@link org.geektimes.projects.user.web.listener.EntityManagerCleanupListener} 处理）。
+ * <p>
+ * 二级缓存：
+ * <ul>
+ *     <li>{@link #find(Class, Object)} 读取 {@link Cacheable} 实体时使用 {@link EntityCache}，命中时缓存的副本
+ *     关联到当前持久化上下文（不执行 SQL），与未命中时一样返回受管理的实体，修改在刷新时写入</li>
+ *     <li>JPQL 与命名查询的结果使用 {@link QueryResultCache}，Key 为查询、参数与分页。结果中的实体保存为主键，
+ *     命中时通过 {@link #find(Class, Object)} 解析（{@link Cacheable} 实体读取 {@link EntityCache}），返回受管理的实体</li>
+ *     <li>persist、merge、remove 与批量更新使相关缓存失效，刷新时被更新或者删除的实体（包括脏检查产生的更新）
+ *     通过 Hibernate 事件监听器失效，事务结束时再次失效</li>
+ *     <li>当前工作单元存在活动事务时不使用缓存，保证事务内读取到自身的修改</li>
+ * </ul>
+ * 缓存统计通过 JMX（{@link #ENTITY_CACHE_OBJECT_NAME}）暴露。配置需在 {@link #init()} 之前设置。
  */
 public class DelegatingEntityManager implements EntityManager {
 
+    private static final Logger logger = Logger.getLogger(DelegatingEntityManager.class.getName());
+
+    public static final String ENTITY_CACHE_OBJECT_NAME = "org.geektimes.projects.user.management:type=EntityCache";
+
+    /**
+     * 当前线程绑定的 EntityManager（DelegatingEntityManager -> EntityManager）
+     */
+    private static final ThreadLocal<Map<DelegatingEntityManager, EntityManager>> currentEntityManagers =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
     private String persistenceUnitName;
 
     private String propertiesLocation;
 
     private EntityManagerFactory entityManagerFactory;
 
+    private int entityCacheSize = 10000;
+
+    private int offHeapEntityCacheSize = 0;
+
+    private long entityCacheTtl = 10 * 60 * 1000;
+
+    private int queryCacheSize = 1000;
+
+    private long queryCacheTtl = 60 * 1000;
+
+    private EntityCache entityCache;
+
+    private QueryResultCache queryResultCache;
+
+    /**
+     * 写入版本，每次写入递增，用于避免缓存与写入并发时读取到的旧数据
+     */
+    private final AtomicLong writeStamp = new AtomicLong();
+
+    /**
+     * 当前线程事务中待失效的缓存，事务结束时处理
+     */
+    private final ThreadLocal<PendingInvalidation> pendingInvalidation = ThreadLocal.withInitial(PendingInvalidation::new);
+
     @PostConstruct
     public void init() {
         this.entityManagerFactory =
                 Persistence.createEntityManagerFactory(persistenceUnitName, loadProperties(propertiesLocation));
+        if (entityCache == null && entityCacheSize > 0) {
+            entityCache = new DefaultEntityCache(entityCacheSize, offHeapEntityCacheSize,
+                    entityCacheTtl, TimeUnit.MILLISECONDS);
+        }
+        if (queryCacheSize > 0) {
+            queryResultCache = new QueryResultCache(queryCacheSize, queryCacheTtl, TimeUnit.MILLISECONDS,
+                    new QueryEntityResolver());
+        }
+        registerInvalidationListener();
+        registerMBean();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        unregisterMBean();
+        if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
+            entityManagerFactory.close();
+        }
+    }
+
+    /**
+     * 刷新时执行的更新与删除使缓存失效，包括未调用 merge 的受管理实体
+     */
+    private void registerInvalidationListener() {
+        EventListenerRegistry eventListenerRegistry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        InvalidationListener listener = new InvalidationListener();
+        eventListenerRegistry.appendListeners(EventType.POST_UPDATE, listener);
+        eventListenerRegistry.appendListeners(EventType.POST_DELETE, listener);
+    }
+
+    private void registerMBean() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(ENTITY_CACHE_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new EntityCacheManager(this), objectName);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "实体缓存 MBean 注册失败：" + e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(ENTITY_CACHE_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "实体缓存 MBean 注销失败：" + e.getMessage());
+        }
     }
 
     /**
      * 如果存在多态的情况，尽可能保持方法是 protected
      * @return
      */
-    protected EntityManager getEntityManager(){ // 每个线程获取的 EntityManager 实例，原型实例
-        return entityManagerFactory.createEntityManager();
+    protected EntityManager getEntityManager(){ // 每个线程获取的 EntityManager 实例，工作单元内复用
+        Map<DelegatingEntityManager, EntityManager> entityManagers = currentEntityManagers.get();
+        EntityManager entityManager = entityManagers.get(this);
+        if (entityManager == null || !entityManager.isOpen()) {
+            entityManager = entityManagerFactory.createEntityManager();
+            entityManagers.put(this, entityManager);
+        }
+        return entityManager;
+    }
+
+    /**
+     * 关闭当前线程绑定的所有 EntityManager（未提交的事务将被回滚）
+     */
+    public static void closeCurrentEntityManagers() {
+        Map<DelegatingEntityManager, EntityManager> entityManagers = currentEntityManagers.get();
+        entityManagers.forEach((delegatingEntityManager, entityManager) -> {
+            // 未提交的事务回滚，写入时已失效
+            delegatingEntityManager.pendingInvalidation.remove();
+            try {
+                close(entityManager);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "EntityManager 关闭失败：" + e.getMessage());
+            }
+        });
+        currentEntityManagers.remove();
+    }
+
+    private static void close(EntityManager entityManager) {
+        if (!entityManager.isOpen()) {
+            return;
+        }
+        try {
+            EntityTransaction transaction = entityManager.getTransaction();
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        } finally {
+            entityManager.close();
+        }
     }
 
     // 假设子类
@@ -58,11 +225,14 @@ public class DelegatingEntityManager implements EntityManager {
             throw new RuntimeException(e);
         }
         // 增加 JNDI 引用处理
-        ClassicComponentContext componentContext = ClassicComponentContext.getInstance();
+        ClassicComponentContext componentContext = null;
 
         for (String propertyName : properties.stringPropertyNames()) {
             String propertyValue = properties.getProperty(propertyName);
             if (propertyValue.startsWith("@")) {
+                if (componentContext == null) {
+                    componentContext = ClassicComponentContext.getInstance();
+                }
                 String componentName = propertyValue.substring(1);
                 Object component = componentContext.getComponent(componentName);
                 properties.put(propertyName, component);
@@ -85,24 +255,204 @@ public class DelegatingEntityManager implements EntityManager {
         this.propertiesLocation = propertiesLocation;
     }
 
+    /**
+     * @param entityCacheSize 实体缓存（堆内）最大实体数，0 表示不使用实体缓存
+     */
+    public void setEntityCacheSize(int entityCacheSize) {
+        this.entityCacheSize = entityCacheSize;
+    }
+
+    /**
+     * @param offHeapEntityCacheSize 实体缓存堆外层最大实体数，0 表示不使用堆外层
+     */
+    public void setOffHeapEntityCacheSize(int offHeapEntityCacheSize) {
+        this.offHeapEntityCacheSize = offHeapEntityCacheSize;
+    }
+
+    /**
+     * @param entityCacheTtl 实体缓存过期时间（毫秒），小于等于 0 时不过期
+     */
+    public void setEntityCacheTtl(long entityCacheTtl) {
+        this.entityCacheTtl = entityCacheTtl;
+    }
+
+    /**
+     * @param queryCacheSize 查询结果缓存最大数量，0 表示不使用查询结果缓存
+     */
+    public void setQueryCacheSize(int queryCacheSize) {
+        this.queryCacheSize = queryCacheSize;
+    }
+
+    /**
+     * @param queryCacheTtl 查询结果缓存过期时间（毫秒），小于等于 0 时不过期
+     */
+    public void setQueryCacheTtl(long queryCacheTtl) {
+        this.queryCacheTtl = queryCacheTtl;
+    }
+
+    /**
+     * 使用自定义的实体缓存实现
+     */
+    public void setEntityCache(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /**
+     * @return 不使用实体缓存时返回 <code>null</code>
+     */
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * @return 不使用查询结果缓存时返回 <code>null</code>
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * 使所有实体缓存与查询结果缓存失效
+     */
+    public void invalidateCaches() {
+        writeStamp.incrementAndGet();
+        if (entityCache != null) {
+            entityCache.evictAll();
+        }
+        if (queryResultCache != null) {
+            queryResultCache.invalidateAll();
+        }
+        if (isTransactionActive()) {
+            pendingInvalidation.get().all = true;
+        }
+    }
+
+    long getWriteStamp() {
+        return writeStamp.get();
+    }
+
+    /**
+     * 当前线程的工作单元是否存在活动事务（不创建 EntityManager）
+     */
+    boolean isTransactionActive() {
+        EntityManager entityManager = currentEntityManagers.get().get(this);
+        return entityManager != null && entityManager.isOpen() && entityManager.getTransaction().isActive();
+    }
+
+    private void invalidate(Object entity) {
+        writeStamp.incrementAndGet();
+        if (entityCache != null) {
+            Class<?> entityClass = getEntityClass(entity.getClass());
+            Object primaryKey = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+            if (primaryKey != null) {
+                entityCache.evict(entityClass, primaryKey);
+                if (isTransactionActive()) {
+                    pendingInvalidation.get().entities
+                            .computeIfAbsent(entityClass, c -> new HashSet<>()).add(primaryKey);
+                }
+            }
+        }
+        if (queryResultCache != null) {
+            queryResultCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 事务结束后再次失效，避免其他线程在事务提交前缓存旧数据
+     */
+    private void invalidatePending() {
+        PendingInvalidation pending = pendingInvalidation.get();
+        pendingInvalidation.remove();
+        if (!pending.all && pending.entities.isEmpty()) {
+            return;
+        }
+        writeStamp.incrementAndGet();
+        if (entityCache != null) {
+            if (pending.all) {
+                entityCache.evictAll();
+            } else {
+                pending.entities.forEach((entityClass, primaryKeys) ->
+                        primaryKeys.forEach(primaryKey -> entityCache.evict(entityClass, primaryKey)));
+            }
+        }
+        if (queryResultCache != null) {
+            queryResultCache.invalidateAll();
+        }
+    }
+
+    private boolean isCacheable(Class<?> entityClass) {
+        Cacheable cacheable = entityClass.getAnnotation(Cacheable.class);
+        return entityCache != null && cacheable != null && cacheable.value() && !isTransactionActive();
+    }
+
+    /**
+     * 实体类（排除代理等子类）
+     */
+    private static Class<?> getEntityClass(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (c.isAnnotationPresent(Entity.class)) {
+                return c;
+            }
+        }
+        return type;
+    }
+
+    private <Q extends Query> Q cachingQuery(Q query, String queryString) {
+        return queryResultCache == null ? query :
+                CachingQueryInvocationHandler.newProxy(query, queryString, this, queryResultCache);
+    }
+
     @Override
     public void persist(Object entity) {
         getEntityManager().persist(entity);
+        invalidate(entity);
     }
 
     @Override
     public <T> T merge(T entity) {
-        return getEntityManager().merge(entity);
+        T mergedEntity = getEntityManager().merge(entity);
+        invalidate(mergedEntity);
+        return mergedEntity;
     }
 
     @Override
     public void remove(Object entity) {
         getEntityManager().remove(entity);
+        invalidate(entity);
     }
 
+    /**
+     * {@link Cacheable} 实体优先从 {@link EntityCache} 读取，返回的实体均受当前持久化上下文管理
+     */
     @Override
     public <T> T find(Class<T> entityClass, Object primaryKey) {
-        return getEntityManager().find(entityClass, primaryKey);
+        if (!isCacheable(entityClass)) {
+            return getEntityManager().find(entityClass, primaryKey);
+        }
+        T entity = entityCache.get(entityClass, primaryKey);
+        if (entity != null) {
+            SessionImplementor session = getEntityManager().unwrap(SessionImplementor.class);
+            EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+            EntityKey entityKey = session.generateEntityKey((Serializable) primaryKey, persister);
+            PersistenceContext persistenceContext = session.getPersistenceContext();
+            if (persistenceContext.getEntity(entityKey) != null || persistenceContext.getProxy(entityKey) != null) {
+                // 持久化上下文中已存在，返回已存在的实体（不执行 SQL）
+                return getEntityManager().find(entityClass, primaryKey);
+            }
+            // 关联缓存的副本，快照为缓存的状态，之后的修改通过脏检查写入
+            session.buildLockRequest(LockOptions.NONE).lock(entity);
+            return entity;
+        }
+        long stamp = writeStamp.get();
+        entity = getEntityManager().find(entityClass, primaryKey);
+        if (entity != null && writeStamp.get() == stamp) {
+            entityCache.put(entityClass, primaryKey, entity);
+            // 写入可能发生在检查之后、缓存之前，再次检查
+            if (writeStamp.get() != stamp) {
+                entityCache.evict(entityClass, primaryKey);
+            }
+        }
+        return entity;
     }
 
     @Override
@@ -202,7 +552,7 @@ public class DelegatingEntityManager implements EntityManager {
 
     @Override
     public Query createQuery(String qlString) {
-        return getEntityManager().createQuery(qlString);
+        return cachingQuery(getEntityManager().createQuery(qlString), qlString);
     }
 
     @Override
@@ -222,17 +572,17 @@ public class DelegatingEntityManager implements EntityManager {
 
     @Override
     public <T> TypedQuery<T> createQuery(String qlString, Class<T> resultClass) {
-        return getEntityManager().createQuery(qlString, resultClass);
+        return cachingQuery(getEntityManager().createQuery(qlString, resultClass), qlString);
     }
 
     @Override
     public Query createNamedQuery(String name) {
-        return getEntityManager().createNamedQuery(name);
+        return cachingQuery(getEntityManager().createNamedQuery(name), "named:" + name);
     }
 
     @Override
     public <T> TypedQuery<T> createNamedQuery(String name, Class<T> resultClass) {
-        return getEntityManager().createNamedQuery(name, resultClass);
+        return cachingQuery(getEntityManager().createNamedQuery(name, resultClass), "named:" + name);
     }
 
     @Override
@@ -292,22 +642,27 @@ public class DelegatingEntityManager implements EntityManager {
 
     @Override
     public void close() {
-        getEntityManager().close();
+        EntityManager entityManager = currentEntityManagers.get().remove(this);
+        pendingInvalidation.remove();
+        if (entityManager != null) {
+            close(entityManager);
+        }
     }
 
     @Override
     public boolean isOpen() {
-        return getEntityManager().isOpen();
+        return entityManagerFactory.isOpen();
     }
 
     @Override
     public EntityTransaction getTransaction() {
-        return getEntityManager().getTransaction();
+        EntityTransaction transaction = getEntityManager().getTransaction();
+        return entityCache == null && queryResultCache == null ? transaction : new InvalidatingTransaction(transaction);
     }
 
     @Override
     public EntityManagerFactory getEntityManagerFactory() {
-        return getEntityManager().getEntityManagerFactory();
+        return entityManagerFactory;
     }
 
     @Override
@@ -340,4 +695,105 @@ public class DelegatingEntityManager implements EntityManager {
         return getEntityManager().getEntityGraphs(entityClass);
     }
 
+    /**
+     * 事务中待失效的缓存
+     */
+    private static class PendingInvalidation {
+
+        private final Map<Class<?>, Set<Object>> entities = new HashMap<>();
+
+        private boolean all;
+    }
+
+    /**
+     * 刷新时被更新或者删除的实体失效
+     */
+    private class InvalidationListener implements PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            invalidate(event.getEntity());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            invalidate(event.getEntity());
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return false;
+        }
+    }
+
+    /**
+     * 查询结果中的实体保存为主键，读取时通过 {@link #find(Class, Object)} 解析
+     */
+    private class QueryEntityResolver implements EntityResolver {
+
+        @Override
+        public EntityReference getReference(Object value) {
+            Class<?> entityClass = getEntityClass(value.getClass());
+            if (!entityClass.isAnnotationPresent(Entity.class)) {
+                return null;
+            }
+            // 结果中的实体可能包含未刷新的修改，不放入实体缓存
+            return new EntityReference(entityClass, entityManagerFactory.getPersistenceUnitUtil().getIdentifier(value));
+        }
+
+        @Override
+        public Object resolve(EntityReference reference) {
+            return find(reference.getEntityClass(), reference.getPrimaryKey());
+        }
+    }
+
+    /**
+     * 事务结束（提交或者回滚）后处理待失效的缓存
+     */
+    private class InvalidatingTransaction implements EntityTransaction {
+
+        private final EntityTransaction transaction;
+
+        private InvalidatingTransaction(EntityTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void begin() {
+            transaction.begin();
+        }
+
+        @Override
+        public void commit() {
+            try {
+                transaction.commit();
+            } finally {
+                invalidatePending();
+            }
+        }
+
+        @Override
+        public void rollback() {
+            try {
+                transaction.rollback();
+            } finally {
+                invalidatePending();
+            }
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            transaction.setRollbackOnly();
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return transaction.getRollbackOnly();
+        }
+
+        @Override
+        public boolean isActive() {
+            return transaction.isActive();
+        }
+    }
 }
@@ -0,0 +1,154 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import org.geektimes.projects.user.cache.LruCache;
+
+import javax.persistence.PersistenceException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认的 {@link EntityCache} 实现，保存实体的序列化形式
+ * <ul>
+ *     <li>堆内层：有界 {@link LruCache}，Value 为 byte[]</li>
+ *     <li>堆外层（可选）：有界 {@link LruCache}，Value 为 Direct {@link ByteBuffer}，容量可远大于堆内层，
+ *     堆内层未命中时读取并回填堆内层</li>
+ * </ul>
+ */
+public class DefaultEntityCache implements EntityCache {
+
+    private final LruCache<EntityKey, byte[]> heapCache;
+
+    private final LruCache<EntityKey, ByteBuffer> offHeapCache;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param heapSize    堆内层最大实体数
+     * @param offHeapSize 堆外层最大实体数，小于等于 0 时不使用堆外层
+     * @param ttl         过期时间，小于等于 0 时不过期
+     * @param unit        时间单位
+     */
+    public DefaultEntityCache(int heapSize, int offHeapSize, long ttl, TimeUnit unit) {
+        this.heapCache = new LruCache<>(heapSize, ttl, unit);
+        this.offHeapCache = offHeapSize > 0 ? new LruCache<>(offHeapSize, ttl, unit) : null;
+    }
+
+    @Override
+    public <T> T get(Class<T> entityClass, Object primaryKey) {
+        EntityKey key = new EntityKey(entityClass, primaryKey);
+        byte[] bytes = heapCache.get(key);
+        if (bytes == null && offHeapCache != null) {
+            ByteBuffer buffer = offHeapCache.get(key);
+            if (buffer != null) {
+                bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                heapCache.put(key, bytes);
+            }
+        }
+        if (bytes == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entityClass.cast(Serialization.deserialize(bytes));
+    }
+
+    @Override
+    public void put(Class<?> entityClass, Object primaryKey, Object entity) {
+        byte[] bytes = Serialization.serialize(entity);
+        if (bytes == null) {
+            return;
+        }
+        EntityKey key = new EntityKey(entityClass, primaryKey);
+        heapCache.put(key, bytes);
+        if (offHeapCache != null) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            offHeapCache.put(key, buffer);
+        }
+    }
+
+    @Override
+    public boolean contains(Class cls, Object primaryKey) {
+        EntityKey key = new EntityKey(cls, primaryKey);
+        // 不计入命中统计
+        return heapCache.containsKey(key) || (offHeapCache != null && offHeapCache.containsKey(key));
+    }
+
+    @Override
+    public void evict(Class cls, Object primaryKey) {
+        EntityKey key = new EntityKey(cls, primaryKey);
+        heapCache.remove(key);
+        if (offHeapCache != null) {
+            offHeapCache.remove(key);
+        }
+    }
+
+    @Override
+    public void evict(Class cls) {
+        heapCache.removeIf(key -> key.entityClass.equals(cls));
+        if (offHeapCache != null) {
+            offHeapCache.removeIf(key -> key.entityClass.equals(cls));
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        heapCache.clear();
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> cls) {
+        if (cls.isInstance(this)) {
+            return cls.cast(this);
+        }
+        throw new PersistenceException("Unsupported unwrap type : " + cls.getName());
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public int size() {
+        return offHeapCache == null ? heapCache.size() : Math.max(heapCache.size(), offHeapCache.size());
+    }
+
+    private static class EntityKey {
+
+        private final Class<?> entityClass;
+
+        private final Object primaryKey;
+
+        private EntityKey(Class<?> entityClass, Object primaryKey) {
+            this.entityClass = entityClass;
+            this.primaryKey = primaryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            EntityKey that = (EntityKey) o;
+            return entityClass.equals(that.entityClass) && primaryKey.equals(that.primaryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityClass, primaryKey);
+        }
+    }
+}
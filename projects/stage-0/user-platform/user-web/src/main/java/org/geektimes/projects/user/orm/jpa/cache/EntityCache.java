@@ -0,0 +1,35 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import javax.persistence.Cache;
+
+/**
+ * 实体二级缓存（可扩展），缓存 {@link javax.persistence.Cacheable} 实体
+ * <p>
+ * 实现需要保证返回的实体为副本，调用方修改返回的实体不会影响缓存。
+ *
+ * @see DefaultEntityCache
+ * @see org.geektimes.projects.user.orm.jpa.DelegatingEntityManager#setEntityCache(EntityCache)
+ */
+public interface EntityCache extends Cache {
+
+    /**
+     * @param entityClass 实体类
+     * @param primaryKey  主键
+     * @return 实体副本，不存在时返回 <code>null</code>
+     */
+    <T> T get(Class<T> entityClass, Object primaryKey);
+
+    /**
+     * 缓存实体，无法缓存（如不可序列化）时忽略
+     */
+    void put(Class<?> entityClass, Object primaryKey, Object entity);
+
+    long getHitCount();
+
+    long getMissCount();
+
+    /**
+     * @return 当前缓存的实体数量
+     */
+    int size();
+}
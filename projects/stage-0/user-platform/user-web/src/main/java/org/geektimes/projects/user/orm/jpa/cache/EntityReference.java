@@ -0,0 +1,46 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import java.util.Objects;
+
+/**
+ * 查询结果中的实体引用：实体类与主键
+ *
+ * @see QueryResultCache
+ */
+public final class EntityReference {
+
+    private final Class<?> entityClass;
+
+    private final Object primaryKey;
+
+    public EntityReference(Class<?> entityClass, Object primaryKey) {
+        this.entityClass = entityClass;
+        this.primaryKey = primaryKey;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Object getPrimaryKey() {
+        return primaryKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EntityReference that = (EntityReference) o;
+        return entityClass.equals(that.entityClass) && primaryKey.equals(that.primaryKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityClass, primaryKey);
+    }
+
+    @Override
+    public String toString() {
+        return entityClass.getName() + "#" + primaryKey;
+    }
+}
@@ -0,0 +1,21 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+/**
+ * 查询结果中的实体与 {@link EntityReference} 之间的转换
+ *
+ * @see QueryResultCache
+ */
+public interface EntityResolver {
+
+    /**
+     * @param value 查询结果中的值
+     * @return 非实体时返回 <code>null</code>
+     */
+    EntityReference getReference(Object value);
+
+    /**
+     * @param reference 实体引用
+     * @return 当前持久化上下文中受管理的实体，实体不存在时返回 <code>null</code>
+     */
+    Object resolve(EntityReference reference);
+}
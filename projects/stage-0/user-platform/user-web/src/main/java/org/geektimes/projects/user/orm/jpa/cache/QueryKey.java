@@ -0,0 +1,55 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 查询结果缓存的 Key：查询语句（或者命名查询名称）、参数以及分页
+ */
+public final class QueryKey {
+
+    private final String queryString;
+
+    private final Map<Object, Object> parameters;
+
+    private final int firstResult;
+
+    private final int maxResults;
+
+    private final int hashCode;
+
+    /**
+     * @param queryString JPQL 或者命名查询名称（需要区分前缀）
+     * @param parameters  参数（名称或者位置 -> 值），复制保存
+     * @param firstResult 起始位置
+     * @param maxResults  最大结果数
+     */
+    public QueryKey(String queryString, Map<?, ?> parameters, int firstResult, int maxResults) {
+        this.queryString = queryString;
+        this.parameters = new HashMap<>(parameters);
+        this.firstResult = firstResult;
+        this.maxResults = maxResults;
+        this.hashCode = Objects.hash(queryString, this.parameters, firstResult, maxResults);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryKey that = (QueryKey) o;
+        return firstResult == that.firstResult && maxResults == that.maxResults
+                && queryString.equals(that.queryString) && parameters.equals(that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryKey{" + queryString + ", parameters=" + parameters +
+                ", firstResult=" + firstResult + ", maxResults=" + maxResults + '}';
+    }
+}
@@ -0,0 +1,185 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import org.geektimes.projects.user.cache.LruCache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果缓存，实体保存为 {@link EntityReference}，读取时通过 {@link EntityResolver} 解析为当前持久化上下文中
+ * 受管理的实体（与未命中时一样），其他值保存不可变值或者序列化形式
+ * <p>
+ * 不跟踪查询涉及的实体，任意实体写入时整体失效。引用的实体已不存在时视为未命中。
+ */
+public class QueryResultCache {
+
+    /**
+     * <code>null</code> 值
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * 无法缓存或者实体已不存在
+     */
+    private static final Object MISSING = new Object();
+
+    private final LruCache<QueryKey, Object> cache;
+
+    private final EntityResolver entityResolver;
+
+    /**
+     * @param maxSize        最大查询结果数
+     * @param ttl            过期时间，小于等于 0 时不过期
+     * @param unit           时间单位
+     * @param entityResolver 实体与 {@link EntityReference} 之间的转换
+     */
+    public QueryResultCache(int maxSize, long ttl, TimeUnit unit, EntityResolver entityResolver) {
+        this.cache = new LruCache<>(maxSize, ttl, unit);
+        this.entityResolver = entityResolver;
+    }
+
+    /**
+     * @return 查询结果（实体受当前持久化上下文管理），不存在时返回 <code>null</code>
+     */
+    public Object get(QueryKey key) {
+        Object cachedResult = cache.get(key);
+        if (cachedResult == null) {
+            return null;
+        }
+        Object result = assemble(cachedResult);
+        if (result == MISSING) {
+            cache.remove(key);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * 缓存查询结果，<code>null</code> 或者包含不可序列化的值时忽略
+     */
+    public void put(QueryKey key, Object result) {
+        if (result == null) {
+            return;
+        }
+        Object cachedResult = disassemble(result);
+        if (cachedResult != MISSING) {
+            cache.put(key, cachedResult);
+        }
+    }
+
+    /**
+     * 结果列表与元组逐个元素转换，实体转换为 {@link EntityReference}
+     */
+    private Object disassemble(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            List<Object> cachedValues = new ArrayList<>(values.size());
+            for (Object element : values) {
+                Object cachedValue = disassemble(element);
+                if (cachedValue == MISSING) {
+                    return MISSING;
+                }
+                cachedValues.add(cachedValue);
+            }
+            return cachedValues;
+        }
+        if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            Object[] cachedValues = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                cachedValues[i] = disassemble(values[i]);
+                if (cachedValues[i] == MISSING) {
+                    return MISSING;
+                }
+            }
+            return cachedValues;
+        }
+        if (isImmutable(value)) {
+            return value;
+        }
+        EntityReference reference = entityResolver.getReference(value);
+        if (reference != null) {
+            return reference;
+        }
+        byte[] bytes = Serialization.serialize(value);
+        return bytes == null ? MISSING : new SerializedValue(bytes);
+    }
+
+    private Object assemble(Object cachedValue) {
+        if (cachedValue == NULL) {
+            return null;
+        }
+        if (cachedValue instanceof List) {
+            List<?> cachedValues = (List<?>) cachedValue;
+            List<Object> values = new ArrayList<>(cachedValues.size());
+            for (Object element : cachedValues) {
+                Object value = assemble(element);
+                if (value == MISSING) {
+                    return MISSING;
+                }
+                values.add(value);
+            }
+            return values;
+        }
+        if (cachedValue instanceof Object[]) {
+            Object[] cachedValues = (Object[]) cachedValue;
+            Object[] values = new Object[cachedValues.length];
+            for (int i = 0; i < cachedValues.length; i++) {
+                values[i] = assemble(cachedValues[i]);
+                if (values[i] == MISSING) {
+                    return MISSING;
+                }
+            }
+            return values;
+        }
+        if (cachedValue instanceof EntityReference) {
+            Object entity = entityResolver.resolve((EntityReference) cachedValue);
+            return entity == null ? MISSING : entity;
+        }
+        if (cachedValue instanceof SerializedValue) {
+            return Serialization.deserialize(((SerializedValue) cachedValue).bytes);
+        }
+        return cachedValue;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte || value instanceof Double
+                || value instanceof Float || value instanceof Boolean || value instanceof Character
+                || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Enum;
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 非实体的可变值，读取时反序列化得到副本
+     */
+    private static final class SerializedValue {
+
+        private final byte[] bytes;
+
+        private SerializedValue(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.geektimes.projects.user.orm.jpa.cache;
+
+import java.io.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 基于 Java 序列化的缓存值编解码，缓存中保存序列化形式，读取时得到独立的副本
+ */
+final class Serialization {
+
+    private static final Logger logger = Logger.getLogger(Serialization.class.getName());
+
+    private Serialization() {
+    }
+
+    /**
+     * @return 不可序列化时返回 <code>null</code>
+     */
+    static byte[] serialize(Object value) {
+        if (!(value instanceof Serializable)) {
+            return null;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(value);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "The value can't be serialized : " + e.getMessage());
+            return null;
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @throws IllegalStateException 反序列化失败时
+     */
+    static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                // 优先使用 WebApp ClassLoader
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                if (classLoader != null) {
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException ignored) {
+                        // 使用默认方式加载
+                    }
+                }
+                return super.resolveClass(desc);
+            }
+        }) {
+            return objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("The cached value can't be deserialized", e);
+        }
+    }
+}
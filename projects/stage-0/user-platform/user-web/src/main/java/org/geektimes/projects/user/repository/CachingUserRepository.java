@@ -0,0 +1,504 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.cache.LruCache;
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.management.UserCacheManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.geektimes.projects.user.repository.Users.copy;
+
+/**
+ * 带缓存的 {@link UserRepository}（装饰器）
+ * <ul>
+ *     <li>读穿透：{@link #getById(Long)} 与 {@link #getByNameAndPassword(String, String)} 优先读取有界 LRU 缓存，
+ *     未命中时查询被装饰的 {@link UserRepository} 并缓存，不存在的 ID 也会缓存（负缓存，过期时间较短）</li>
+ *     <li>失效：{@link #save(User)}、{@link #update(User)} 与 {@link #deleteById(Long)} 更新或者移除缓存，
+ *     外部修改数据时可调用 {@link #invalidate(Long)} 或者 {@link #invalidateAll()}</li>
+ *     <li>Write-Behind（可选）：{@link #update(User)} 仅更新缓存并放入待写队列，同一用户的多次更新合并为一次，
+ *     由后台线程定期批量写入；写入失败的用户放回队列，按指数退避重试，重试耗尽后才丢弃并使缓存失效</li>
+ * </ul>
+ * 缓存统计通过 JMX（{@link #USER_CACHE_OBJECT_NAME}）暴露。配置需在 {@link #init()} 之前设置。
+ */
+public class CachingUserRepository implements UserRepository {
+
+    private static final Logger logger = Logger.getLogger(CachingUserRepository.class.getName());
+
+    /**
+     * 用户缓存 MBean ObjectName
+     */
+    public static final String USER_CACHE_OBJECT_NAME = "org.geektimes.projects.user.management:type=UserCache";
+
+    /**
+     * 负缓存占位对象
+     */
+    private static final User NOT_FOUND = new User();
+
+    private final UserRepository delegate;
+
+    private int maxSize = 10000;
+
+    private long ttl = 5 * 60 * 1000;
+
+    private long negativeTtl = 30 * 1000;
+
+    private boolean writeBehind;
+
+    private long writeBehindDelay = 1000;
+
+    private int maxWriteAttempts = 3;
+
+    private long writeRetryBackoff = 1000;
+
+    /**
+     * 用户 ID -> 用户（或者 {@link #NOT_FOUND}）
+     */
+    private LruCache<Long, User> usersCache;
+
+    /**
+     * 用户名称 -> 用户 ID
+     */
+    private LruCache<String, Long> userIdsCache;
+
+    /**
+     * 写操作计数，加载期间存在写操作时加载结果可能已过时，不再缓存
+     */
+    private final AtomicLong writeStamp = new AtomicLong();
+
+    /**
+     * 待写入的用户，Key 为用户 ID（合并同一用户的多次更新）
+     */
+    private final ConcurrentMap<Long, User> pendingUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * 写入失败的用户 ID -> 重试状态
+     */
+    private final ConcurrentMap<Long, WriteRetry> writeRetries = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService writeBehindExecutor;
+
+    public CachingUserRepository() {
+        this(new DatabaseUserRepository());
+    }
+
+    public CachingUserRepository(UserRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param maxSize 最大缓存用户数
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param ttl 用户缓存过期时间（毫秒）
+     */
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * @param negativeTtl 不存在的用户 ID 的缓存过期时间（毫秒），小于等于 0 时不缓存
+     */
+    public void setNegativeTtl(long negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * @param writeBehindDelay Write-Behind 写入间隔（毫秒）
+     */
+    public void setWriteBehindDelay(long writeBehindDelay) {
+        this.writeBehindDelay = writeBehindDelay;
+    }
+
+    /**
+     * @param maxWriteAttempts Write-Behind 每个用户最多写入次数（包括首次写入）
+     */
+    public void setMaxWriteAttempts(int maxWriteAttempts) {
+        this.maxWriteAttempts = maxWriteAttempts;
+    }
+
+    /**
+     * @param writeRetryBackoff Write-Behind 首次重试的最小间隔（毫秒），之后每次失败翻倍
+     */
+    public void setWriteRetryBackoff(long writeRetryBackoff) {
+        this.writeRetryBackoff = writeRetryBackoff;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.usersCache = new LruCache<>(maxSize, ttl, TimeUnit.MILLISECONDS);
+        this.userIdsCache = new LruCache<>(maxSize, ttl, TimeUnit.MILLISECONDS);
+        if (writeBehind) {
+            writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-cache-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writeBehindExecutor.scheduleWithFixedDelay(this::flush, writeBehindDelay, writeBehindDelay,
+                    TimeUnit.MILLISECONDS);
+        }
+        registerUserCacheMBean();
+    }
+
+    private void registerUserCacheMBean() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(USER_CACHE_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new UserCacheManager(this), objectName);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "用户缓存 MBean 注册失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止 Write-Behind 并写入所有待写入的用户（忽略重试间隔）
+     */
+    @PreDestroy
+    public void destroy() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(USER_CACHE_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "用户缓存 MBean 注销失败：" + e.getMessage());
+        }
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+            try {
+                writeBehindExecutor.awaitTermination(writeBehindDelay, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(true);
+        if (!pendingUpdates.isEmpty()) {
+            logger.log(Level.SEVERE, "用户写入失败，" + pendingUpdates.size() + " 个用户的更新未写入");
+        }
+    }
+
+    @Override
+    public boolean save(User user) {
+        writeStamp.incrementAndGet();
+        boolean saved = delegate.save(user);
+        if (saved && user.getId() != null) {
+            // 替换可能存在的负缓存
+            cache(user);
+        }
+        return saved;
+    }
+
+    @Override
+    public int saveAll(Collection<User> users) {
+        writeStamp.incrementAndGet();
+        int count = delegate.saveAll(users);
+        users.stream().map(User::getId).filter(Objects::nonNull).forEach(this::invalidate);
+        return count;
+    }
+
+    @Override
+    public boolean deleteById(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        writeStamp.incrementAndGet();
+        pendingUpdates.remove(userId);
+        writeRetries.remove(userId);
+        boolean deleted = delegate.deleteById(userId);
+        invalidate(userId);
+        return deleted;
+    }
+
+    /**
+     * 开启 Write-Behind 时仅更新缓存并放入待写队列，写入失败时重试，重试耗尽时记录日志并使缓存失效
+     */
+    @Override
+    public boolean update(User user) {
+        Long userId = user.getId();
+        if (userId == null) {
+            return false;
+        }
+        writeStamp.incrementAndGet();
+        if (writeBehind) {
+            User copy = copy(user);
+            pendingUpdates.put(userId, copy);
+            cache(copy);
+            return true;
+        }
+        boolean updated = delegate.update(user);
+        if (updated) {
+            cache(user);
+        } else {
+            invalidate(userId);
+        }
+        return updated;
+    }
+
+    @Override
+    public int updateAll(Collection<User> users) {
+        if (writeBehind) {
+            return UserRepository.super.updateAll(users);
+        }
+        writeStamp.incrementAndGet();
+        int count = delegate.updateAll(users);
+        users.stream().map(User::getId).filter(Objects::nonNull).forEach(this::invalidate);
+        return count;
+    }
+
+    @Override
+    public boolean[] updateEach(Collection<User> users) {
+        if (writeBehind) {
+            return UserRepository.super.updateEach(users);
+        }
+        writeStamp.incrementAndGet();
+        boolean[] updated = delegate.updateEach(users);
+        users.stream().map(User::getId).filter(Objects::nonNull).forEach(this::invalidate);
+        return updated;
+    }
+
+    @Override
+    public User getById(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        User user = usersCache.get(userId);
+        if (user != null) {
+            return user == NOT_FOUND ? null : copy(user);
+        }
+        // 待写入的用户比存储中的新
+        user = pendingUpdates.get(userId);
+        if (user != null) {
+            return copy(user);
+        }
+        long stamp = writeStamp.get();
+        user = delegate.getById(userId);
+        cacheLoaded(userId, user, stamp);
+        return user;
+    }
+
+    /**
+     * 缓存命中但密码不匹配时仍查询被装饰的 {@link UserRepository}，密码错误的请求不缓存
+     */
+    @Override
+    public User getByNameAndPassword(String userName, String password) {
+        Long userId = userName == null ? null : userIdsCache.get(userName);
+        if (userId != null) {
+            User user = usersCache.get(userId);
+            if (user != null && user != NOT_FOUND && userName.equals(user.getName())
+                    && Objects.equals(password, user.getPassword())) {
+                return copy(user);
+            }
+        }
+        long stamp = writeStamp.get();
+        User user = delegate.getByNameAndPassword(userName, password);
+        if (user == null || user.getId() == null) {
+            return user;
+        }
+        User pendingUser = pendingUpdates.get(user.getId());
+        if (pendingUser != null) {
+            // 存储中的名称与密码可能已被待写入的更新修改
+            return userName.equals(pendingUser.getName()) && Objects.equals(password, pendingUser.getPassword()) ?
+                    copy(pendingUser) : null;
+        }
+        cacheLoaded(user.getId(), user, stamp);
+        return user;
+    }
+
+    /**
+     * 不经过缓存，开启 Write-Behind 时先写入待写入的用户
+     */
+    @Override
+    public Collection<User> getAll() {
+        flush();
+        return delegate.getAll();
+    }
+
+    /**
+     * 不经过缓存，开启 Write-Behind 时先写入待写入的用户
+     */
+    @Override
+    public Page<User> findPage(UserCursor after, int limit, UserSort sort) {
+        flush();
+        return delegate.findPage(after, limit, sort);
+    }
+
+    /**
+     * 不经过缓存，开启 Write-Behind 时先写入待写入的用户
+     */
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        flush();
+        return delegate.streamAll(fetchSize);
+    }
+
+    /**
+     * 写入所有待写入的用户，尚未到达重试时间的用户留待下次写入
+     *
+     * @return 写入成功的数量
+     */
+    public int flush() {
+        return flush(false);
+    }
+
+    /**
+     * @param force 是否忽略重试间隔
+     */
+    private synchronized int flush(boolean force) {
+        if (pendingUpdates.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        List<User> users = new ArrayList<>(pendingUpdates.size());
+        for (Map.Entry<Long, User> entry : pendingUpdates.entrySet()) {
+            WriteRetry retry = writeRetries.get(entry.getKey());
+            if (!force && retry != null && retry.nextAttemptTime > now) {
+                continue;
+            }
+            // 仅移除当前值，写入期间的新更新留待下次写入
+            if (pendingUpdates.remove(entry.getKey(), entry.getValue())) {
+                users.add(entry.getValue());
+            }
+        }
+        if (users.isEmpty()) {
+            return 0;
+        }
+        boolean[] updated;
+        try {
+            updated = delegate.updateEach(users);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "用户写入失败：" + e.getMessage(), e);
+            updated = new boolean[users.size()];
+        }
+        // 仅重试失败的用户
+        int count = 0;
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (updated[i]) {
+                writeRetries.remove(user.getId());
+                count++;
+            } else {
+                retry(user, now);
+            }
+        }
+        if (count < users.size()) {
+            logger.log(Level.WARNING, "用户写入不完整：" + count + "/" + users.size() + "，失败的用户稍后重试");
+        }
+        return count;
+    }
+
+    /**
+     * 写入失败的用户放回待写队列（putIfAbsent，写入期间的新更新优先），重试耗尽时丢弃并使缓存失效
+     */
+    private void retry(User user, long now) {
+        Long userId = user.getId();
+        WriteRetry retry = writeRetries.get(userId);
+        int attempts = retry == null ? 1 : retry.attempts + 1;
+        if (attempts >= maxWriteAttempts) {
+            writeRetries.remove(userId);
+            logger.log(Level.SEVERE, "用户[" + userId + "]写入失败 " + attempts + " 次，放弃写入，缓存已失效");
+            if (!pendingUpdates.containsKey(userId)) {
+                invalidate(userId);
+            }
+            return;
+        }
+        long backoff = writeRetryBackoff << Math.min(attempts - 1, 16);
+        writeRetries.put(userId, new WriteRetry(attempts, now + backoff));
+        pendingUpdates.putIfAbsent(userId, user);
+    }
+
+    /**
+     * 使指定用户的缓存失效
+     */
+    public void invalidate(Long userId) {
+        usersCache.remove(userId);
+    }
+
+    /**
+     * 使所有缓存失效（不包括待写入的用户）
+     */
+    public void invalidateAll() {
+        writeStamp.incrementAndGet();
+        usersCache.clear();
+        userIdsCache.clear();
+        pendingUpdates.values().forEach(this::cache);
+    }
+
+    public LruCache<Long, User> getUsersCache() {
+        return usersCache;
+    }
+
+    public int getPendingWrites() {
+        return pendingUpdates.size();
+    }
+
+    private void cache(User user) {
+        usersCache.put(user.getId(), copy(user));
+        if (user.getName() != null) {
+            userIdsCache.put(user.getName(), user.getId());
+        }
+    }
+
+    /**
+     * Write-Behind 重试状态
+     */
+    private static class WriteRetry {
+
+        /**
+         * 已失败的写入次数
+         */
+        private final int attempts;
+
+        private final long nextAttemptTime;
+
+        private WriteRetry(int attempts, long nextAttemptTime) {
+            this.attempts = attempts;
+            this.nextAttemptTime = nextAttemptTime;
+        }
+    }
+
+    /**
+     * 缓存加载结果，加载期间存在写操作时放弃
+     */
+    private void cacheLoaded(Long userId, User user, long stamp) {
+        if (writeStamp.get() != stamp || pendingUpdates.containsKey(userId)) {
+            return;
+        }
+        if (user != null) {
+            cache(user);
+        } else if (negativeTtl > 0) {
+            usersCache.put(userId, NOT_FOUND, negativeTtl, TimeUnit.MILLISECONDS);
+        } else {
+            return;
+        }
+        // 写操作可能发生在检查之后、缓存之前，再次检查
+        if (writeStamp.get() != stamp) {
+            invalidate(userId);
+        }
+    }
+}
@@ -4,25 +4,25 @@ import org.geektimes.function.ThrowableFunction;
 import org.geektimes.context.ClassicComponentContext;
 import org.geektimes.projects.user.domain.User;
 import org.geektimes.projects.user.sql.DBConnectionManager;
+import org.geektimes.projects.user.sql.ParameterBinders;
+import org.geektimes.projects.user.sql.RowMapper;
+import org.geektimes.projects.user.sql.RowMappers;
 
-import java.beans.BeanInfo;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-
-import static org.apache.commons.lang.ClassUtils.wrapperToPrimitive;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DatabaseUserRepository implements UserRepository {
 
     private static Logger logger = Logger.getLogger(DatabaseUserRepository.class.getName());
 
     /**
-     * 通用处理方式
+     * 通用处理方式：记录日志，方法返回失败的结果（false、0、null 或者空的结果），不向调用方抛出异常
      */
     private static Consumer<Throwable> COMMON_EXCEPTION_HANDLER = e -> logger.log(Level.SEVERE, e.getMessage());
 
@@ -30,133 +30,375 @@ public class DatabaseUserRepository implements UserRepository {
             "INSERT INTO users(name,password,email,phoneNumber) VALUES " +
                     "(?,?,?,?)";
 
+    public static final String UPDATE_USER_DML_SQL =
+            "UPDATE users SET name=?,password=?,email=?,phoneNumber=? WHERE id=?";
+
+    public static final String DELETE_USER_DML_SQL = "DELETE FROM users WHERE id=?";
+
     public static final String QUERY_ALL_USERS_DML_SQL = "SELECT id,name,password,email,phoneNumber FROM users";
 
+    /**
+     * 默认批量大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
     private final DBConnectionManager dbConnectionManager;
 
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
     public DatabaseUserRepository() {
-        this.dbConnectionManager = ClassicComponentContext.getInstance().getComponent("bean/DBConnectionManager");
+        this(ClassicComponentContext.getInstance().getComponent(DBConnectionManager.class));
+    }
+
+    public DatabaseUserRepository(DBConnectionManager dbConnectionManager) {
+        this.dbConnectionManager = dbConnectionManager;
+    }
+
+    /**
+     * @param batchSize {@link #saveAll(Collection)} 与 {@link #updateAll(Collection)} 每批（每个事务）的行数
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive : " + batchSize);
+        }
+        this.batchSize = batchSize;
     }
 
     private Connection getConnection() {
         return dbConnectionManager.getConnection();
     }
 
+    /**
+     * 保存用户，并设置生成的主键
+     */
     @Override
     public boolean save(User user) {
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_DML_SQL,
+                     Statement.RETURN_GENERATED_KEYS)) {
+            ParameterBinders.bind(preparedStatement, insertArgs(user));
+            if (preparedStatement.executeUpdate() != 1) {
+                return false;
+            }
+            List<Long> ids = getGeneratedKeys(preparedStatement);
+            if (!ids.isEmpty()) {
+                user.setId(ids.get(0));
+            }
+            return true;
+        } catch (Throwable e) {
+            COMMON_EXCEPTION_HANDLER.accept(e);
+        }
         return false;
     }
 
     @Override
     public boolean deleteById(Long userId) {
-        return false;
+        return executeUpdate(DELETE_USER_DML_SQL, COMMON_EXCEPTION_HANDLER, userId) == 1;
     }
 
     @Override
     public boolean update(User user) {
-        return false;
+        return executeUpdate(UPDATE_USER_DML_SQL, COMMON_EXCEPTION_HANDLER, updateArgs(user)) == 1;
+    }
+
+    /**
+     * 批量保存用户（addBatch/executeBatch），每 {@link #setBatchSize(int) batchSize} 行一个事务，
+     * 驱动返回每行的生成主键时设置到用户对象
+     *
+     * @return 保存成功的数量，某批失败时回滚该批并停止，返回之前已提交的数量
+     */
+    @Override
+    public int saveAll(Collection<User> users) {
+        return count(executeBatch(INSERT_USER_DML_SQL, users, DatabaseUserRepository::insertArgs, true));
+    }
+
+    /**
+     * 批量更新用户，每 {@link #setBatchSize(int) batchSize} 行一个事务
+     *
+     * @return 更新成功的数量，某批失败时回滚该批并停止，返回之前已提交的数量
+     */
+    @Override
+    public int updateAll(Collection<User> users) {
+        return count(updateEach(users));
+    }
+
+    /**
+     * 批量更新用户，每 {@link #setBatchSize(int) batchSize} 行一个事务，每行的结果取自
+     * {@link Statement#executeBatch()} 返回的更新数量
+     *
+     * @return 某批失败时回滚该批并停止，该批及之后的用户均为 <code>false</code>
+     */
+    @Override
+    public boolean[] updateEach(Collection<User> users) {
+        return executeBatch(UPDATE_USER_DML_SQL, users, DatabaseUserRepository::updateArgs, false);
+    }
+
+    private static int count(boolean[] results) {
+        int count = 0;
+        for (boolean result : results) {
+            if (result) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Object[] insertArgs(User user) {
+        return new Object[]{user.getName(), user.getPassword(), user.getEmail(), user.getPhoneNumber()};
+    }
+
+    private static Object[] updateArgs(User user) {
+        return new Object[]{user.getName(), user.getPassword(), user.getEmail(), user.getPhoneNumber(), user.getId()};
     }
 
     @Override
     public User getById(Long userId) {
-        return null;
+        return executeQuery(QUERY_ALL_USERS_DML_SQL + " WHERE id=?", this::mapFirstUser,
+                COMMON_EXCEPTION_HANDLER, userId);
     }
 
     @Override
     public User getByNameAndPassword(String userName, String password) {
-        return executeQuery("SELECT id,name,password,email,phoneNumber FROM users WHERE name=? and password=?",
-                resultSet -> {
-                    // TODO
-                    return new User();
-                }, COMMON_EXCEPTION_HANDLER, userName, password);
+        return executeQuery(QUERY_ALL_USERS_DML_SQL + " WHERE name=? and password=?", this::mapFirstUser,
+                COMMON_EXCEPTION_HANDLER, userName, password);
     }
 
     @Override
     public Collection<User> getAll() {
-        return executeQuery("SELECT id,name,password,email,phoneNumber FROM users", resultSet -> {
-            // BeanInfo -> IntrospectionException
-            BeanInfo userBeanInfo = Introspector.getBeanInfo(User.class, Object.class);
+        return executeQuery(QUERY_ALL_USERS_DML_SQL, resultSet -> {
+            RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
             List<User> users = new ArrayList<>();
             while (resultSet.next()) { // 如果存在并且游标滚动 // SQLException
-                User user = new User();
-                for (PropertyDescriptor propertyDescriptor : userBeanInfo.getPropertyDescriptors()) {
-                    String fieldName = propertyDescriptor.getName();
-                    Class fieldType = propertyDescriptor.getPropertyType();
-                    String methodName = resultSetMethodMappings.get(fieldType);
-                    // 可能存在映射关系（不过此处是相等的）
-                    String columnLabel = mapColumnLabel(fieldName);
-                    Method resultSetMethod = ResultSet.class.getMethod(methodName, String.class);
-                    // 通过放射调用 getXXX(String) 方法
-                    Object resultValue = resultSetMethod.invoke(resultSet, columnLabel);
-                    // 获取 User 类 Setter方法
-                    // PropertyDescriptor ReadMethod 等于 Getter 方法
-                    // PropertyDescriptor WriteMethod 等于 Setter 方法
-                    Method setterMethodFromUser = propertyDescriptor.getWriteMethod();
-                    // 以 id 为例，  user.setId(resultSet.getLong("id"));
-                    setterMethodFromUser.invoke(user, resultValue);
-                }
+                users.add(rowMapper.mapRow(resultSet));
             }
             return users;
-        }, e -> {
-            // 异常处理
-        });
+        }, COMMON_EXCEPTION_HANDLER);
     }
 
     /**
-     * @param sql
-     * @param function
-     * @param <T>
-     * @return
+     * 通过 {@link Statement#setMaxRows(int)} 多查询一行判断是否存在下一页
+     *
+     * @return 异常时返回空的分页
      */
-    protected <T> T executeQuery(String sql, ThrowableFunction<ResultSet, T> function,
-                                 Consumer<Throwable> exceptionHandler, Object... args) {
+    @Override
+    public Page<User> findPage(UserCursor after, int limit, UserSort sort) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive : " + limit);
+        }
+        String sql = QUERY_ALL_USERS_DML_SQL +
+                (after == null ? "" : " WHERE " + sort.seekCondition("users", "?", "?")) +
+                " ORDER BY " + sort.orderBy("users");
+        Object[] args = after == null ? new Object[0] : sort.seekParameters(after);
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            ParameterBinders.bind(preparedStatement, args);
+            preparedStatement.setMaxRows(limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
+                List<User> users = new ArrayList<>(limit + 1);
+                while (resultSet.next()) {
+                    users.add(rowMapper.mapRow(resultSet));
+                }
+                return Page.of(users, limit, UserCursor::of);
+            }
+        } catch (Throwable e) {
+            COMMON_EXCEPTION_HANDLER.accept(e);
+        }
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    /**
+     * 基于只进、只读游标的流式查询，每次从数据库获取 fetchSize 行，逐行映射，
+     * {@link Stream} 关闭时关闭结果集、语句并归还连接
+     *
+     * @return 查询异常时返回空的 {@link Stream}，读取过程中异常时结束
+     */
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
         Connection connection = getConnection();
+        if (connection == null) {
+            COMMON_EXCEPTION_HANDLER.accept(new SQLException("The connection is not available"));
+            return Stream.empty();
+        }
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
         try {
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            for (int i = 0; i < args.length; i++) {
-                Object arg = args[i];
-                Class argType = arg.getClass();
-
-                Class wrapperType = wrapperToPrimitive(argType);
+            // 部分驱动（如 PostgreSQL）仅在非自动提交模式下按 fetchSize 分批获取，连接归还时恢复
+            connection.setAutoCommit(false);
+            preparedStatement = connection.prepareStatement(QUERY_ALL_USERS_DML_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            resultSet = preparedStatement.executeQuery();
+            RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
+            AutoCloseable[] resources = {resultSet, preparedStatement, connection};
+            return StreamSupport.stream(new ResultSetSpliterator<>(resultSet, rowMapper), false)
+                    .onClose(() -> close(resources));
+        } catch (Throwable e) {
+            close(resultSet, preparedStatement, connection);
+            COMMON_EXCEPTION_HANDLER.accept(e);
+        }
+        return Stream.empty();
+    }
 
-                if (wrapperType == null) {
-                    wrapperType = argType;
+    private static void close(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    COMMON_EXCEPTION_HANDLER.accept(e);
                 }
-
-                // Boolean -> boolean
-                String methodName = preparedStatementMethodMappings.get(argType);
-                Method method = PreparedStatement.class.getMethod(methodName, wrapperType);
-                method.invoke(preparedStatement, i + 1, args);
             }
-            ResultSet resultSet = preparedStatement.executeQuery();
-            // 返回一个 POJO List -> ResultSet -> POJO List
-            // ResultSet -> T
-            return function.apply(resultSet);
+        }
+    }
+
+    private User mapFirstUser(ResultSet resultSet) throws SQLException {
+        return resultSet.next() ? RowMappers.getRowMapper(User.class, resultSet.getMetaData()).mapRow(resultSet) : null;
+    }
+
+    /**
+     * 执行更新
+     *
+     * @return 影响行数，异常时返回 0
+     */
+    protected int executeUpdate(String sql, Consumer<Throwable> exceptionHandler, Object... args) {
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            ParameterBinders.bind(preparedStatement, args);
+            return preparedStatement.executeUpdate();
         } catch (Throwable e) {
             exceptionHandler.accept(e);
         }
-        return null;
+        return 0;
     }
 
+    /**
+     * 分批执行 DML，每批一个事务
+     *
+     * @param argsFunction        用户 -> 参数
+     * @param returnGeneratedKeys 是否获取生成的主键
+     * @return 影响行数
+     */
+    private boolean[] executeBatch(String sql, Collection<User> users, Function<User, Object[]> argsFunction,
+                                   boolean returnGeneratedKeys) {
+        boolean[] results = new boolean[users.size()];
+        int offset = 0;
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = returnGeneratedKeys ?
+                     connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
+                     connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            List<User> chunk = new ArrayList<>(Math.min(batchSize, users.size()));
+            for (User user : users) {
+                ParameterBinders.bind(preparedStatement, argsFunction.apply(user));
+                preparedStatement.addBatch();
+                chunk.add(user);
+                if (chunk.size() == batchSize) {
+                    executeChunk(connection, preparedStatement, chunk, returnGeneratedKeys, results, offset);
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeChunk(connection, preparedStatement, chunk, returnGeneratedKeys, results, offset);
+            }
+        } catch (Throwable e) {
+            COMMON_EXCEPTION_HANDLER.accept(e);
+        }
+        return results;
+    }
 
-    private static String mapColumnLabel(String fieldName) {
-        return fieldName;
+    /**
+     * 执行并提交一批，每行的结果写入 <code>results</code> 中 <code>offset</code> 开始的位置
+     */
+    private void executeChunk(Connection connection, PreparedStatement preparedStatement, List<User> chunk,
+                              boolean returnGeneratedKeys, boolean[] results, int offset) throws SQLException {
+        int[] updateCounts;
+        List<Long> ids;
+        try {
+            updateCounts = preparedStatement.executeBatch();
+            ids = returnGeneratedKeys ? getGeneratedKeys(preparedStatement) : Collections.emptyList();
+            connection.commit();
+        } catch (SQLException e) {
+            preparedStatement.clearBatch();
+            connection.rollback();
+            throw e;
+        }
+        // 部分驱动（如 Derby）批量执行时仅返回最后一行的主键，此时不设置
+        if (ids.size() == chunk.size()) {
+            for (int i = 0; i < ids.size(); i++) {
+                chunk.get(i).setId(ids.get(i));
+            }
+        }
+        for (int i = 0; i < updateCounts.length && i < chunk.size(); i++) {
+            results[offset + i] = updateCounts[i] > 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+        }
+    }
+
+    private static List<Long> getGeneratedKeys(Statement statement) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            while (generatedKeys != null && generatedKeys.next()) {
+                ids.add(generatedKeys.getLong(1));
+            }
+        }
+        return ids;
     }
 
     /**
-     * 数据类型与 ResultSet 方法名映射
+     * 执行查询，连接、语句与结果集在返回之前关闭（语句放回连接的语句缓存）
+     *
+     * @param sql              SQL
+     * @param function         ResultSet -> T
+     * @param exceptionHandler 异常处理
+     * @param args             参数，通过 {@link ParameterBinders} 绑定
+     * @param <T>              返回类型
+     * @return 异常时返回 <code>null</code>
      */
-    static Map<Class, String> resultSetMethodMappings = new HashMap<>();
+    protected <T> T executeQuery(String sql, ThrowableFunction<ResultSet, T> function,
+                                 Consumer<Throwable> exceptionHandler, Object... args) {
+        // 关闭连接，归还连接池
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            ParameterBinders.bind(preparedStatement, args);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                // 返回一个 POJO List -> ResultSet -> POJO List
+                // ResultSet -> T
+                return function.apply(resultSet);
+            }
+        } catch (Throwable e) {
+            exceptionHandler.accept(e);
+        }
+        return null;
+    }
 
-    static Map<Class, String> preparedStatementMethodMappings = new HashMap<>();
+    /**
+     * 逐行映射 {@link ResultSet} 的 {@link Spliterator}
+     */
+    private static class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
 
-    static {
-        resultSetMethodMappings.put(Long.class, "getLong");
-        resultSetMethodMappings.put(String.class, "getString");
+        private final ResultSet resultSet;
 
-        preparedStatementMethodMappings.put(Long.class, "setLong"); // long
-        preparedStatementMethodMappings.put(String.class, "setString"); //
+        private final RowMapper<T> rowMapper;
 
+        private ResultSetSpliterator(ResultSet resultSet, RowMapper<T> rowMapper) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+        }
 
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                action.accept(rowMapper.mapRow(resultSet));
+                return true;
+            } catch (SQLException e) {
+                COMMON_EXCEPTION_HANDLER.accept(e);
+                return false;
+            }
+        }
     }
 }
@@ -4,49 +4,268 @@ import org.geektimes.projects.user.domain.User;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.geektimes.projects.user.repository.Users.copy;
 
 /**
  * 内存型 {@link UserRepository} 实现
+ * <p>
+ * 用户名称、邮箱以及电话号码为唯一键，各自维护并发的二级索引（唯一键 -> 用户 ID），
+ * 查询与唯一性检查为 O(1)。写操作按涉及的主键与唯一键加分段锁（按锁序号顺序获取，避免死锁），
+ * 不同用户的写操作大多可以并发执行，读操作无锁。
+ * <p>
+ * 存储的是用户对象的副本，修改返回的对象不会影响存储与索引，需要通过 {@link #update(User)} 更新。
  *
  * @since 1.0s
  */
 public class InMemoryUserRepository implements UserRepository {
 
-    private Map<Long, User> repository = new ConcurrentHashMap<>();
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentMap<Long, User> repository = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> phoneNumberIndex = new ConcurrentHashMap<>();
 
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    public InMemoryUserRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 保存新用户，ID 为空时自动生成（通过唯一性检查之后才生成，保存成功时回填到 <code>user</code>，
+     * 与 {@link DatabaseUserRepository#save(User)} 一致），指定的 ID 使生成器跳过该值
+     *
+     * @return ID 已经存在或者名称、邮箱、电话号码已被其他用户使用时返回 <code>false</code>，<code>user</code> 不变
+     */
     @Override
     public boolean save(User user) {
-        return repository.put(user.getId(), user) == null;
+        Long id = user.getId();
+        int[] lockIndexes = lock(id, user.getName(), user.getEmail(), user.getPhoneNumber());
+        try {
+            if (!isUnique(user)) {
+                return false;
+            }
+            User copy = copy(user);
+            if (id == null) {
+                // 生成的 ID 未加锁，可能与并发保存的指定 ID 相同，重新生成
+                do {
+                    copy.setId(idGenerator.incrementAndGet());
+                } while (repository.putIfAbsent(copy.getId(), copy) != null);
+            } else if (repository.putIfAbsent(id, copy) == null) {
+                idGenerator.accumulateAndGet(id, Math::max);
+            } else {
+                return false;
+            }
+            index(copy);
+            user.setId(copy.getId());
+            return true;
+        } finally {
+            unlock(lockIndexes);
+        }
     }
 
     @Override
     public boolean deleteById(Long userId) {
-        return repository.remove(userId) != null;
+        User user = repository.get(userId);
+        if (user == null) {
+            return false;
+        }
+        int[] lockIndexes = lock(userId, user.getName(), user.getEmail(), user.getPhoneNumber());
+        try {
+            // 加锁期间用户可能已被删除
+            if (!repository.remove(userId, user)) {
+                return false;
+            }
+            unindex(user);
+            return true;
+        } finally {
+            unlock(lockIndexes);
+        }
     }
 
+    /**
+     * 更新已存在的用户
+     *
+     * @return 用户不存在或者名称、邮箱、电话号码已被其他用户使用时返回 <code>false</code>
+     */
     @Override
     public boolean update(User user) {
-        save(user);
-        return true;
+        Long id = user.getId();
+        if (id == null) {
+            return false;
+        }
+        while (true) {
+            User existingUser = repository.get(id);
+            if (existingUser == null) {
+                return false;
+            }
+            int[] lockIndexes = lock(id, user.getName(), user.getEmail(), user.getPhoneNumber(),
+                    existingUser.getName(), existingUser.getEmail(), existingUser.getPhoneNumber());
+            try {
+                if (repository.get(id) != existingUser) {
+                    // 加锁前用户已被修改，旧的唯一键可能未加锁，重试
+                    continue;
+                }
+                if (!isUnique(user)) {
+                    return false;
+                }
+                User copy = copy(user);
+                unindex(existingUser);
+                repository.put(id, copy);
+                index(copy);
+                return true;
+            } finally {
+                unlock(lockIndexes);
+            }
+        }
     }
 
     @Override
     public User getById(Long userId) {
-        return repository.get(userId);
+        return copy(repository.get(userId));
     }
 
+    /**
+     * 基于名称索引查询
+     *
+     * @return 用户不存在或者密码不匹配时返回 <code>null</code>
+     */
     @Override
     public User getByNameAndPassword(String userName, String password) {
-        return repository.values()
-                .stream()
-                .filter(user -> Objects.equals(userName, user.getName())
-                        && Objects.equals(password, user.getPassword()))
-                .findFirst()
-                .get();
+        User user = getByIndex(nameIndex, userName, User::getName);
+        return user != null && Objects.equals(password, user.getPassword()) ? copy(user) : null;
     }
 
+    public User getByEmail(String email) {
+        return copy(getByIndex(emailIndex, email, User::getEmail));
+    }
+
+    public User getByPhoneNumber(String phoneNumber) {
+        return copy(getByIndex(phoneNumberIndex, phoneNumber, User::getPhoneNumber));
+    }
+
+    private User getByIndex(Map<String, Long> index, String key, Function<User, String> keyFunction) {
+        if (key == null) {
+            return null;
+        }
+        Long id = index.get(key);
+        User user = id == null ? null : repository.get(id);
+        // 读操作无锁，并发更新时索引与用户可能短暂不一致，需要再次比较
+        return user != null && key.equals(keyFunction.apply(user)) ? user : null;
+    }
+
+    /**
+     * @return 当前用户的快照，不会随存储变化
+     */
     @Override
     public Collection<User> getAll() {
-        return repository.values();
+        List<User> users = new ArrayList<>(repository.size());
+        repository.values().forEach(user -> users.add(copy(user)));
+        return users;
+    }
+
+    /**
+     * 内存中没有有序索引，遍历所有用户筛选游标之后的 limit + 1 个
+     */
+    @Override
+    public Page<User> findPage(UserCursor cursor, int limit, UserSort sort) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive : " + limit);
+        }
+        Comparator<User> comparator = sort.getComparator();
+        User after = cursor == null ? null : cursor.toUser();
+        List<User> users = repository.values().stream()
+                .filter(user -> after == null || comparator.compare(user, after) > 0)
+                .sorted(comparator)
+                .limit(limit + 1L)
+                .map(Users::copy)
+                .collect(Collectors.toList());
+        return Page.of(users, limit, UserCursor::of);
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return repository.values().stream().map(Users::copy);
+    }
+
+    /**
+     * 名称、邮箱以及电话号码未被其他用户使用（调用方需持有相应的锁）
+     */
+    private boolean isUnique(User user) {
+        Long id = user.getId();
+        return isUnique(nameIndex, user.getName(), id)
+                && isUnique(emailIndex, user.getEmail(), id)
+                && isUnique(phoneNumberIndex, user.getPhoneNumber(), id);
+    }
+
+    private static boolean isUnique(Map<String, Long> index, String key, Long id) {
+        if (key == null) {
+            return true;
+        }
+        Long existingId = index.get(key);
+        return existingId == null || existingId.equals(id);
+    }
+
+    private void index(User user) {
+        index(nameIndex, user.getName(), user.getId());
+        index(emailIndex, user.getEmail(), user.getId());
+        index(phoneNumberIndex, user.getPhoneNumber(), user.getId());
+    }
+
+    private static void index(Map<String, Long> index, String key, Long id) {
+        if (key != null) {
+            index.put(key, id);
+        }
+    }
+
+    private void unindex(User user) {
+        unindex(nameIndex, user.getName(), user.getId());
+        unindex(emailIndex, user.getEmail(), user.getId());
+        unindex(phoneNumberIndex, user.getPhoneNumber(), user.getId());
+    }
+
+    private static void unindex(Map<String, Long> index, String key, Long id) {
+        if (key != null) {
+            index.remove(key, id);
+        }
+    }
+
+    /**
+     * 按锁序号顺序获取主键与唯一键对应的分段锁
+     *
+     * @return 已获取的锁序号
+     */
+    private int[] lock(Object... keys) {
+        int[] lockIndexes = Arrays.stream(keys)
+                .filter(Objects::nonNull)
+                .mapToInt(key -> (key.hashCode() ^ (key.hashCode() >>> 16)) & (LOCK_STRIPES - 1))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int lockIndex : lockIndexes) {
+            locks[lockIndex].lock();
+        }
+        return lockIndexes;
+    }
+
+    private void unlock(int[] lockIndexes) {
+        for (int i = lockIndexes.length - 1; i > -1; i--) {
+            locks[lockIndexes[i]].unlock();
+        }
     }
 }
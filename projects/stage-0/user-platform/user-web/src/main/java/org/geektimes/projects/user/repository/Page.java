@@ -0,0 +1,57 @@
+package org.geektimes.projects.user.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 基于游标（Keyset）的分页结果
+ * <p>
+ * 下一页通过 {@link #getNextCursor()} 作为 after 获取，每一页的代价与第一页相同，
+ * 而不像 OFFSET 分页那样随页数增长。
+ *
+ * @param <T> 元素类型
+ * @see UserRepository#findPage(UserCursor, int, UserSort)
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final UserCursor nextCursor;
+
+    public Page(List<T> items, UserCursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 根据多查询一行（limit + 1）的结果创建分页
+     *
+     * @param rows           查询结果，最多 limit + 1 行
+     * @param limit          每页数量
+     * @param cursorFunction 元素 -> 游标
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<? super T, UserCursor> cursorFunction) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new Page<>(items, cursorFunction.apply(items.get(limit - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return 下一页的游标，最后一页时返回 <code>null</code>
+     */
+    public UserCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
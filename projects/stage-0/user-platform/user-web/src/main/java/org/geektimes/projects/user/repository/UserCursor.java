@@ -0,0 +1,68 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.domain.User;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 分页游标，记录上一页最后一个用户的排序列与 id
+ * <p>
+ * 游标自身携带排序列的值，不依赖游标用户是否存在，游标用户被删除后仍可继续翻页。
+ *
+ * @see UserSort
+ */
+public final class UserCursor implements Serializable {
+
+    private final Long id;
+
+    private final String name;
+
+    public UserCursor(Long id, String name) {
+        this.id = Objects.requireNonNull(id, "The id must not be null");
+        this.name = name;
+    }
+
+    public static UserCursor of(User user) {
+        return new UserCursor(user.getId(), user.getName());
+    }
+
+    /**
+     * @return 仅包含排序列与 id 的用户，用于与 {@link UserSort#getComparator()} 比较
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        return user;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserCursor that = (UserCursor) o;
+        return id.equals(that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name);
+    }
+
+    @Override
+    public String toString() {
+        return "UserCursor{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -4,6 +4,7 @@ import org.geektimes.projects.user.domain.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 用户存储仓库
@@ -18,9 +19,91 @@ public interface UserRepository {
 
     boolean update(User user);
 
+    /**
+     * 批量保存用户
+     *
+     * @param users 用户集合
+     * @return 保存成功的数量
+     */
+    default int saveAll(Collection<User> users) {
+        int count = 0;
+        for (User user : users) {
+            if (save(user)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 批量更新用户
+     *
+     * @param users 用户集合
+     * @return 更新成功的数量
+     */
+    default int updateAll(Collection<User> users) {
+        int count = 0;
+        for (User user : users) {
+            if (update(user)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 批量更新用户，返回每个用户的结果
+     *
+     * @param users 用户集合
+     * @return 与 users 迭代顺序一致，更新成功的用户为 <code>true</code>
+     */
+    default boolean[] updateEach(Collection<User> users) {
+        boolean[] updated = new boolean[users.size()];
+        int i = 0;
+        for (User user : users) {
+            updated[i++] = update(user);
+        }
+        return updated;
+    }
+
     User getById(Long userId);
 
     User getByNameAndPassword(String userName, String password);
 
     Collection<User> getAll();
+
+    /**
+     * 按 id 升序分页
+     *
+     * @see #findPage(UserCursor, int, UserSort)
+     */
+    default Page<User> findPage(UserCursor after, int limit) {
+        return findPage(after, limit, UserSort.ID_ASC);
+    }
+
+    /**
+     * 基于游标（Keyset）分页：从游标之后开始查询，而不是跳过 OFFSET 行，翻页代价与页数无关
+     *
+     * @param after 上一页的 {@link Page#getNextCursor()}，第一页为 <code>null</code>
+     * @param limit 每页数量
+     * @param sort  排序
+     * @return non-null
+     * @throws IllegalArgumentException limit 小于 1 时
+     */
+    Page<User> findPage(UserCursor after, int limit, UserSort sort);
+
+    /**
+     * 流式获取所有用户，用户在消费时逐个加载，适用于导出、批处理等大数据量场景
+     * <p>
+     * 返回的 {@link Stream} 可能持有底层资源（如数据库连接），使用完毕后必须关闭：
+     * <pre>
+     * try (Stream&lt;User&gt; users = userRepository.streamAll(1000)) {
+     *     users.forEach(...);
+     * }
+     * </pre>
+     *
+     * @param fetchSize 每次从底层存储获取的数量（提示）
+     * @return non-null
+     */
+    Stream<User> streamAll(int fetchSize);
 }
@@ -0,0 +1,98 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.domain.User;
+
+import java.util.Comparator;
+
+/**
+ * 用户分页排序，排序列相同时以 id 排序，保证游标唯一
+ * <p>
+ * 非 id 排序时通过 {@link UserCursor} 中的排序列与 id 定位（Seek），需要 (name, id) 索引，
+ * 如 {@link org.geektimes.projects.user.sql.DBConnectionManager#CREATE_USERS_NAME_INDEX_DDL_SQL}。
+ * 空的 name 排在最后（降序时最前），与 Derby 一致。
+ */
+public enum UserSort {
+
+    ID_ASC("id", false, Comparator.comparing(User::getId)),
+
+    ID_DESC("id", true, Comparator.comparing(User::getId).reversed()),
+
+    NAME_ASC("name", false, Comparator.comparing(User::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(User::getId)),
+
+    NAME_DESC("name", true, NAME_ASC.comparator.reversed());
+
+    private final String property;
+
+    private final boolean descending;
+
+    private final Comparator<User> comparator;
+
+    UserSort(String property, boolean descending, Comparator<User> comparator) {
+        this.property = property;
+        this.descending = descending;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return 排序属性，与列名相同
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public boolean isById() {
+        return "id".equals(property);
+    }
+
+    /**
+     * @return 与排序一致的比较器
+     */
+    public Comparator<User> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * 生成 Seek 条件，如 <code>u.name >= :afterName AND (u.name > :afterName OR u.id > :afterId)</code>，
+     * 等价于行值比较 <code>(u.name, u.id) > (:afterName, :afterId)</code>（Derby 与 JPQL 均不支持），
+     * 首个条件可以直接使用 (name, id) 索引的范围扫描
+     *
+     * @param alias            查询的别名（SQL 为表名）
+     * @param valuePlaceholder 游标排序列参数占位符，如 ":afterName" 或 "?"
+     * @param idPlaceholder    游标 id 参数占位符，如 ":afterId" 或 "?"
+     * @see #seekParameters(UserCursor)
+     */
+    public String seekCondition(String alias, String valuePlaceholder, String idPlaceholder) {
+        String operator = descending ? "<" : ">";
+        String id = alias + ".id " + operator + " " + idPlaceholder;
+        if (isById()) {
+            return id;
+        }
+        String column = alias + "." + property;
+        return column + " " + operator + "= " + valuePlaceholder + " AND (" + column + " " + operator + " " +
+                valuePlaceholder + " OR " + id + ")";
+    }
+
+    /**
+     * @param cursor 游标
+     * @return {@link #seekCondition} 中占位符 "?" 依次对应的参数
+     */
+    public Object[] seekParameters(UserCursor cursor) {
+        return isById() ? new Object[]{cursor.getId()} :
+                new Object[]{cursor.getName(), cursor.getName(), cursor.getId()};
+    }
+
+    /**
+     * @param alias 查询的别名
+     * @return ORDER BY 子句（不包括 "ORDER BY"）
+     */
+    public String orderBy(String alias) {
+        String direction = descending ? " DESC" : "";
+        String id = alias + ".id" + direction;
+        return isById() ? id : alias + "." + property + direction + ", " + id;
+    }
+}
@@ -0,0 +1,30 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.domain.User;
+
+/**
+ * {@link User} 工具类
+ */
+final class Users {
+
+    private Users() {
+    }
+
+    /**
+     * 复制用户，避免调用方修改存储或者缓存中的对象
+     *
+     * @return <code>user</code> 为 <code>null</code> 时返回 <code>null</code>
+     */
+    static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setPassword(user.getPassword());
+        copy.setEmail(user.getEmail());
+        copy.setPhoneNumber(user.getPhoneNumber());
+        return copy;
+    }
+}
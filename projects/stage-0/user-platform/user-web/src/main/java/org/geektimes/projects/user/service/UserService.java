@@ -1,6 +1,9 @@
 package org.geektimes.projects.user.service;
 
 import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.repository.Page;
+import org.geektimes.projects.user.repository.UserCursor;
+import org.geektimes.projects.user.repository.UserSort;
 import org.geektimes.projects.user.sql.LocalTransactional;
 
 /**
@@ -36,4 +39,22 @@ public interface UserService {
     User queryUserById(Long id);
 
     User queryUserByNameAndPassword(String name, String password);
+
+    /**
+     * 按 id 升序分页查询用户
+     *
+     * @see #queryUsers(UserCursor, int, UserSort)
+     */
+    default Page<User> queryUsers(UserCursor after, int limit) {
+        return queryUsers(after, limit, UserSort.ID_ASC);
+    }
+
+    /**
+     * 基于游标（Keyset）分页查询用户
+     *
+     * @param after 上一页的 {@link Page#getNextCursor()}，第一页为 <code>null</code>
+     * @param limit 每页数量
+     * @param sort  排序
+     */
+    Page<User> queryUsers(UserCursor after, int limit, UserSort sort);
 }
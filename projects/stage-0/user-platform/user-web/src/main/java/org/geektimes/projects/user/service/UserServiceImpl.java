@@ -1,10 +1,14 @@
 package org.geektimes.projects.user.service;
 
 import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.repository.Page;
+import org.geektimes.projects.user.repository.UserCursor;
+import org.geektimes.projects.user.repository.UserSort;
 import org.geektimes.projects.user.sql.LocalTransactional;
 
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import javax.validation.Validator;
 
 public class UserServiceImpl implements UserService {
@@ -22,12 +26,14 @@ public class UserServiceImpl implements UserService {
         // before process
 //        EntityTransaction transaction = entityManager.getTransaction();
 //        transaction.begin();
+        // 事务由 LocalTransactionInterceptor 开始与结束（EntityTransaction 与 JDBC Connection）
 
         // 主调用
         entityManager.persist(user);
 
         // 调用其他方法方法
-        update(user); // 涉及事务
+        // 通过 this 调用 update 方法不经过组件代理，不会开启 Inner 事务，
+        // 需要 Inner 事务时应调用其他组件（代理）的方法
         // register 方法和 update 方法存在于同一线程
         // register 方法属于 Outer 事务（逻辑）
         // update 方法属于 Inner 事务（逻辑）
@@ -53,7 +59,7 @@ public class UserServiceImpl implements UserService {
         // after process
         // transaction.commit();
 
-        return false;
+        return true;
     }
 
     @Override
@@ -76,4 +82,25 @@ public class UserServiceImpl implements UserService {
     public User queryUserByNameAndPassword(String name, String password) {
         return null;
     }
+
+    /**
+     * JPQL Seek 查询，通过 {@link TypedQuery#setMaxResults(int)} 多查询一行判断是否存在下一页
+     */
+    @Override
+    public Page<User> queryUsers(UserCursor after, int limit, UserSort sort) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive : " + limit);
+        }
+        String jpql = "SELECT u FROM User u" +
+                (after == null ? "" : " WHERE " + sort.seekCondition("u", ":afterName", ":afterId")) +
+                " ORDER BY " + sort.orderBy("u");
+        TypedQuery<User> query = entityManager.createQuery(jpql, User.class);
+        if (after != null) {
+            query.setParameter("afterId", after.getId());
+            if (!sort.isById()) {
+                query.setParameter("afterName", after.getName());
+            }
+        }
+        return Page.of(query.setMaxResults(limit + 1).getResultList(), limit, UserCursor::of);
+    }
 }
@@ -1,13 +1,20 @@
 package org.geektimes.projects.user.sql;
 
 import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.management.ConnectionPoolManager;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.persistence.EntityManager;
 import javax.sql.DataSource;
 import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.HashMap;
@@ -19,12 +26,84 @@ public class DBConnectionManager { // JNDI Component
 
     private final Logger logger = Logger.getLogger(DBConnectionManager.class.getName());
 
-    @Resource(name = "jdbc/UserPlatformDB")
+    /**
+     * 连接池 MBean ObjectName
+     */
+    public static final String CONNECTION_POOL_OBJECT_NAME = "org.geektimes.projects.user.management:type=ConnectionPool";
+
+    /**
+     * 驱动 DataSource，连接池由 {@link PooledDataSource} 实现，不能再使用容器的连接池（如 Tomcat DBCP）
+     */
+    @Resource(name = "jdbc/UserPlatformDriverDB")
     private DataSource dataSource;
 
     @Resource(name = "bean/EntityManager")
     private EntityManager entityManager;
 
+    // 连接池配置，通过 Tomcat BeanFactory（context.xml）设置
+
+    private int maxPoolSize = 20;
+
+    private int minIdle;
+
+    private long maxWait = 10000;
+
+    private long idleTimeout = 10 * 60 * 1000;
+
+    private long leakDetectionThreshold;
+
+    private boolean leakDetectionStackTrace;
+
+    private String validationQuery;
+
+    private int statementCacheSize = 32;
+
+    private PooledDataSource pooledDataSource;
+
+    private LocalTransactionManager transactionManager;
+
+    @PostConstruct
+    public void init() {
+        PooledDataSource pooledDataSource = new PooledDataSource(dataSource, maxPoolSize);
+        pooledDataSource.setMinIdle(minIdle);
+        pooledDataSource.setMaxWait(maxWait);
+        pooledDataSource.setIdleTimeout(idleTimeout);
+        pooledDataSource.setLeakDetectionThreshold(leakDetectionThreshold);
+        pooledDataSource.setLeakDetectionStackTrace(leakDetectionStackTrace);
+        pooledDataSource.setValidationQuery(validationQuery);
+        pooledDataSource.setStatementCacheSize(statementCacheSize);
+        this.pooledDataSource = pooledDataSource;
+        this.transactionManager = new LocalTransactionManager(pooledDataSource);
+        registerConnectionPoolMBean();
+    }
+
+    private void registerConnectionPoolMBean() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(CONNECTION_POOL_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new ConnectionPoolManager(pooledDataSource), objectName);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "连接池 MBean 注册失败：" + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(CONNECTION_POOL_OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "连接池 MBean 注销失败：" + e.getMessage());
+        }
+        pooledDataSource.close();
+    }
+
 //    public Connection getConnection() {
 //        ComponentContext context = ComponentContext.getInstance();
 //        // 依赖查找
@@ -46,20 +125,34 @@ public class DBConnectionManager { // JNDI Component
         return entityManager;
     }
 
+    /**
+     * 从连接池借出连接，使用完毕后需要关闭（归还）；当前线程存在本地事务时返回事务绑定的连接
+     *
+     * @return 获取失败时返回 <code>null</code>
+     * @see #releaseConnection(Connection)
+     * @see LocalTransactionManager
+     */
     public Connection getConnection() {
-        // 依赖查找
-        Connection connection = null;
+        Connection connection = LocalTransactionManager.getTransactionalConnection(pooledDataSource);
+        if (connection != null) {
+            return connection;
+        }
         try {
-            connection = dataSource.getConnection();
+            connection = pooledDataSource.getConnection();
         } catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
-        if (connection != null) {
-            logger.log(Level.INFO, "获取 JNDI 数据库连接成功！");
-        }
         return connection;
     }
 
+    public PooledDataSource getPooledDataSource() {
+        return pooledDataSource;
+    }
+
+    public LocalTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
 
 //    private Connection connection;
 //
@@ -71,14 +164,60 @@ public class DBConnectionManager { // JNDI Component
 //        return this.connection;
 //    }
 
-    public void releaseConnection() {
-//        if (this.connection != null) {
-//            try {
-//                this.connection.close();
-//            } catch (SQLException e) {
-//                throw new RuntimeException(e.getCause());
-//            }
-//        }
+    /**
+     * 归还连接到连接池
+     *
+     * @param connection {@link #getConnection()} 获取的连接，可能为 <code>null</code>
+     */
+    public void releaseConnection(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    // Setter 方法会被 Tomcat JNDI 实现调用
+
+    /**
+     * 设置目标 {@link DataSource}（非 JNDI 环境使用，需要在 {@link #init()} 之前调用）
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public void setLeakDetectionStackTrace(boolean leakDetectionStackTrace) {
+        this.leakDetectionStackTrace = leakDetectionStackTrace;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
     }
 
     public static final String DROP_USERS_TABLE_DDL_SQL = "DROP TABLE users";
@@ -91,6 +230,11 @@ public class DBConnectionManager { // JNDI Component
             "phoneNumber VARCHAR(64) NOT NULL" +
             ")";
 
+    /**
+     * 按 name 排序分页（Seek）使用的索引
+     */
+    public static final String CREATE_USERS_NAME_INDEX_DDL_SQL = "CREATE INDEX users_name_id ON users(name, id)";
+
     public static final String INSERT_USER_DML_SQL = "INSERT INTO users(name,password,email,phoneNumber) VALUES " +
             "('A','******','a@gmail.com','1') , " +
             "('B','******','b@gmail.com','2') , " +
@@ -115,6 +259,7 @@ public class DBConnectionManager { // JNDI Component
         System.out.println(statement.execute(DROP_USERS_TABLE_DDL_SQL)); // false
         // 创建 users 表
         System.out.println(statement.execute(CREATE_USERS_TABLE_DDL_SQL)); // false
+        System.out.println(statement.execute(CREATE_USERS_NAME_INDEX_DDL_SQL)); // false
         System.out.println(statement.executeUpdate(INSERT_USER_DML_SQL));  // 5
 
         // 执行查询语句（DML）
@@ -0,0 +1,162 @@
+package org.geektimes.projects.user.sql;
+
+import org.geektimes.context.ClassicComponentContext;
+import org.geektimes.context.ComponentInterceptor;
+import org.geektimes.context.ComponentInvocation;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.lang.reflect.Method;
+
+/**
+ * {@link LocalTransactional} 方法拦截器，方法正常返回时提交事务，抛出异常时回滚事务
+ * <p>
+ * 默认使用组件 "bean/DBConnectionManager" 的 {@link LocalTransactionManager}，以及组件 "bean/EntityManager"
+ * 当前线程的 {@link EntityTransaction}（首次拦截时查找，不存在时仅管理 JDBC 事务）：
+ * <ul>
+ *     <li>{@link EntityTransaction} 未开始时由本次调用开始，先于 JDBC 事务提交，回滚时两者均回滚</li>
+ *     <li>{@link EntityTransaction} 已开始时加入，回滚时标记为仅回滚。JPA 不支持 {@link java.sql.Savepoint}
+ *     与挂起事务，此时调用 NESTED 与 REQUIRES_NEW 方法抛出 {@link IllegalStateException}</li>
+ * </ul>
+ * JDBC 连接在首次访问时才绑定到事务，仅使用 JPA 的方法不占用连接。
+ * 两者不是分布式事务，{@link EntityTransaction} 提交之后 JDBC 事务提交失败时无法撤销。
+ * 同一组件内部通过 <code>this</code> 调用的方法不经过代理，不会被拦截。
+ *
+ * @see LocalTransactionManager
+ */
+public class LocalTransactionInterceptor implements ComponentInterceptor {
+
+    private volatile LocalTransactionManager transactionManager;
+
+    private volatile EntityManager entityManager;
+
+    private volatile boolean entityManagerResolved;
+
+    public LocalTransactionInterceptor() {
+    }
+
+    public LocalTransactionInterceptor(LocalTransactionManager transactionManager) {
+        this(transactionManager, null);
+    }
+
+    /**
+     * @param entityManager 为 <code>null</code> 时仅管理 JDBC 事务
+     */
+    public LocalTransactionInterceptor(LocalTransactionManager transactionManager, EntityManager entityManager) {
+        this.transactionManager = transactionManager;
+        this.entityManager = entityManager;
+        this.entityManagerResolved = true;
+    }
+
+    @Override
+    public boolean supports(Method method) {
+        return method.isAnnotationPresent(LocalTransactional.class);
+    }
+
+    @Override
+    public Object intercept(ComponentInvocation invocation) throws Throwable {
+        LocalTransactional definition = invocation.getMethod().getAnnotation(LocalTransactional.class);
+        EntityManager entityManager = getEntityManager();
+        EntityTransaction entityTransaction = entityManager == null ? null : entityManager.getTransaction();
+        if (entityTransaction != null && entityTransaction.isActive()) {
+            checkJoinable(definition.propagation(), invocation.getMethod());
+        }
+        LocalTransactionManager transactionManager = getTransactionManager();
+        LocalTransactionManager.TransactionStatus status = transactionManager.begin(definition);
+        boolean newEntityTransaction = false;
+        Object result;
+        try {
+            if (entityTransaction != null && !entityTransaction.isActive()) {
+                entityTransaction.begin();
+                newEntityTransaction = true;
+            }
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            rollback(transactionManager, status, entityTransaction, newEntityTransaction, e);
+            throw e;
+        }
+        commit(transactionManager, status, entityTransaction, newEntityTransaction);
+        return result;
+    }
+
+    /**
+     * JPA 不支持挂起事务与 {@link java.sql.Savepoint}，{@link EntityTransaction} 已开始时只能加入
+     */
+    private static void checkJoinable(int propagation, Method method) {
+        if (propagation == LocalTransactional.PROPAGATION_REQUIRES_NEW) {
+            throw new IllegalStateException(String.format("The method[%s] requires a new transaction, " +
+                    "but the active EntityTransaction can't be suspended", method));
+        }
+        if (propagation == LocalTransactional.PROPAGATION_NESTED) {
+            throw new IllegalStateException(String.format("The method[%s] requires a nested transaction, " +
+                    "but the active EntityTransaction doesn't support savepoints", method));
+        }
+    }
+
+    private static void commit(LocalTransactionManager transactionManager,
+                               LocalTransactionManager.TransactionStatus status,
+                               EntityTransaction entityTransaction, boolean newEntityTransaction) {
+        if (newEntityTransaction) {
+            if (entityTransaction.getRollbackOnly()) {
+                // 内层方法已回滚，JDBC 事务同样不能提交
+                status.setRollbackOnly();
+            }
+            try {
+                if (status.isRollbackOnly()) {
+                    entityTransaction.rollback();
+                } else {
+                    entityTransaction.commit();
+                }
+            } catch (RuntimeException e) {
+                rollback(transactionManager, status, null, false, e);
+                throw e;
+            }
+        }
+        // 仅回滚时抛出 IllegalStateException
+        transactionManager.commit(status);
+    }
+
+    /**
+     * 回滚事务，回滚失败的异常附加到 <code>failure</code>，不覆盖方法抛出的异常
+     */
+    private static void rollback(LocalTransactionManager transactionManager,
+                                 LocalTransactionManager.TransactionStatus status,
+                                 EntityTransaction entityTransaction, boolean newEntityTransaction,
+                                 Throwable failure) {
+        if (entityTransaction != null) {
+            try {
+                if (newEntityTransaction) {
+                    entityTransaction.rollback();
+                } else if (entityTransaction.isActive()) {
+                    entityTransaction.setRollbackOnly();
+                }
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        try {
+            transactionManager.rollback(status);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private LocalTransactionManager getTransactionManager() {
+        LocalTransactionManager transactionManager = this.transactionManager;
+        if (transactionManager == null) {
+            DBConnectionManager dbConnectionManager =
+                    ClassicComponentContext.getInstance().getComponent("bean/DBConnectionManager");
+            transactionManager = dbConnectionManager.getTransactionManager();
+            this.transactionManager = transactionManager;
+        }
+        return transactionManager;
+    }
+
+    private EntityManager getEntityManager() {
+        if (!entityManagerResolved) {
+            entityManager = ClassicComponentContext.getInstance().getComponent("bean/EntityManager");
+            entityManagerResolved = true;
+        }
+        return entityManager;
+    }
+}
@@ -0,0 +1,355 @@
+package org.geektimes.projects.user.sql;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.geektimes.projects.user.sql.LocalTransactional.*;
+
+/**
+ * 本地（JDBC）事务管理器
+ * <p>
+ * 物理事务的连接绑定到当前线程，同一线程中的逻辑事务共享该连接：
+ * <ul>
+ *     <li>{@link LocalTransactional#PROPAGATION_REQUIRED} - 存在事务时加入，否则创建物理事务</li>
+ *     <li>{@link LocalTransactional#PROPAGATION_REQUIRES_NEW} - 挂起当前事务，创建新的物理事务（新连接）</li>
+ *     <li>{@link LocalTransactional#PROPAGATION_NESTED} - 存在事务时基于 {@link Savepoint} 局部提交与回滚，
+ *     否则创建物理事务</li>
+ * </ul>
+ * 物理事务的连接在首次 {@link #getTransactionalConnection(DataSource) 获取}时才从数据源借出并开始 JDBC 事务，
+ * 没有访问 JDBC 的事务（如仅使用 JPA 的方法）不占用连接。
+ * 事务期间 {@link DBConnectionManager#getConnection()} 返回绑定的连接（包装），
+ * 其 close、commit 与 setAutoCommit 方法不影响物理事务，rollback 方法将事务标记为仅回滚。
+ *
+ * @see LocalTransactionInterceptor
+ */
+public class LocalTransactionManager {
+
+    private static final Logger logger = Logger.getLogger(LocalTransactionManager.class.getName());
+
+    /**
+     * 当前线程的事务（栈顶）
+     */
+    private static final ThreadLocal<TransactionStatus> currentTransaction = new ThreadLocal<>();
+
+    private final DataSource dataSource;
+
+    public LocalTransactionManager(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 获取当前线程事务绑定的连接，首次获取时借出连接并开始 JDBC 事务
+     *
+     * @param dataSource 数据源
+     * @return 当前线程不存在该数据源的事务时返回 <code>null</code>
+     * @throws IllegalStateException 获取连接或者设置事务失败时
+     */
+    public static Connection getTransactionalConnection(DataSource dataSource) {
+        TransactionStatus status = currentTransaction.get();
+        return status != null && status.resource.dataSource == dataSource ? status.resource.bind() : null;
+    }
+
+    /**
+     * 开始事务
+     *
+     * @param definition 事务定义
+     * @return 事务状态，需要传递给 {@link #commit(TransactionStatus)} 或者 {@link #rollback(TransactionStatus)}
+     * @throws IllegalStateException 创建 {@link Savepoint} 失败时
+     */
+    public TransactionStatus begin(LocalTransactional definition) {
+        TransactionStatus current = currentTransaction.get();
+        if (current != null && current.resource.dataSource != dataSource) {
+            // 其他数据源的事务，不参与
+            current = null;
+        }
+        int propagation = definition.propagation();
+        TransactionStatus status;
+        if (current == null || propagation == PROPAGATION_REQUIRES_NEW) {
+            status = new TransactionStatus(new TransactionResource(dataSource, definition.isolation()), true,
+                    false, null);
+        } else if (propagation == PROPAGATION_NESTED) {
+            Connection connection = current.resource.connection;
+            try {
+                // 连接尚未绑定时之前没有 JDBC 操作，回滚时回滚整个物理事务即可
+                status = new TransactionStatus(current.resource, false, true,
+                        connection == null ? null : connection.setSavepoint());
+            } catch (SQLException e) {
+                throw new IllegalStateException("The savepoint can't be created", e);
+            }
+        } else {
+            status = new TransactionStatus(current.resource, false, false, null);
+        }
+        status.previous = currentTransaction.get();
+        currentTransaction.set(status);
+        return status;
+    }
+
+    /**
+     * 提交事务：物理事务提交，嵌套事务释放 {@link Savepoint}，加入的事务无需操作
+     *
+     * @throws IllegalStateException 提交失败，或者物理事务已被标记为仅回滚（已回滚）时
+     */
+    public void commit(TransactionStatus status) {
+        try {
+            TransactionResource resource = status.resource;
+            if (status.savepoint != null) {
+                releaseSavepoint(status);
+            } else if (status.newTransaction) {
+                if (resource.rollbackOnly) {
+                    if (resource.connection != null) {
+                        resource.connection.rollback();
+                    }
+                    throw new IllegalStateException("The transaction has been rolled back because it was marked as rollback-only");
+                }
+                if (resource.connection != null) {
+                    resource.connection.commit();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("The transaction can't be committed", e);
+        } finally {
+            complete(status);
+        }
+    }
+
+    /**
+     * 回滚事务：物理事务回滚，嵌套事务回滚到 {@link Savepoint}（仅回滚标记恢复为创建 Savepoint 时的状态），
+     * 加入的事务标记为仅回滚
+     *
+     * @throws IllegalStateException 回滚失败时
+     */
+    public void rollback(TransactionStatus status) {
+        try {
+            TransactionResource resource = status.resource;
+            if (status.nested) {
+                if (status.savepoint != null) {
+                    resource.connection.rollback(status.savepoint);
+                    releaseSavepoint(status);
+                } else if (resource.connection != null) {
+                    // 连接在嵌套事务中绑定，物理事务中的操作均属于嵌套事务
+                    resource.connection.rollback();
+                }
+                // 回滚之后恢复开始嵌套事务时的仅回滚标记，之前加入的事务回滚时外层事务仍然不能提交
+                resource.rollbackOnly = status.savepointRollbackOnly;
+            } else if (status.newTransaction) {
+                if (resource.connection != null) {
+                    resource.connection.rollback();
+                }
+            } else {
+                resource.rollbackOnly = true;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("The transaction can't be rolled back", e);
+        } finally {
+            complete(status);
+        }
+    }
+
+    private static void releaseSavepoint(TransactionStatus status) {
+        try {
+            status.resource.connection.releaseSavepoint(status.savepoint);
+        } catch (SQLException e) {
+            // 部分驱动不支持释放 Savepoint，事务结束时自动释放
+            logger.log(Level.FINE, "The savepoint can't be released : " + e.getMessage());
+        }
+    }
+
+    /**
+     * 恢复外层事务，物理事务结束时重置并关闭（归还）连接
+     */
+    private static void complete(TransactionStatus status) {
+        if (status.previous == null) {
+            currentTransaction.remove();
+        } else {
+            currentTransaction.set(status.previous);
+        }
+        TransactionResource resource = status.resource;
+        if (status.newTransaction && resource.connection != null) {
+            try {
+                resource.connection.setAutoCommit(true);
+                if (resource.connection.getTransactionIsolation() != resource.previousIsolation) {
+                    resource.connection.setTransactionIsolation(resource.previousIsolation);
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "The connection can't be reset : " + e.getMessage());
+            } finally {
+                close(resource.connection);
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "The connection can't be closed : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 事务状态（逻辑事务）
+     */
+    public static class TransactionStatus {
+
+        private final TransactionResource resource;
+
+        /**
+         * 是否为物理事务的创建者
+         */
+        private final boolean newTransaction;
+
+        /**
+         * 是否为嵌套事务
+         */
+        private final boolean nested;
+
+        /**
+         * 嵌套事务的 Savepoint，开始嵌套事务时连接尚未绑定则为 <code>null</code>
+         */
+        private final Savepoint savepoint;
+
+        /**
+         * 开始嵌套事务时物理事务是否已被标记为仅回滚
+         */
+        private final boolean savepointRollbackOnly;
+
+        /**
+         * 外层（或者被挂起的）事务
+         */
+        private TransactionStatus previous;
+
+        private TransactionStatus(TransactionResource resource, boolean newTransaction, boolean nested,
+                                  Savepoint savepoint) {
+            this.resource = resource;
+            this.newTransaction = newTransaction;
+            this.nested = nested;
+            this.savepoint = savepoint;
+            this.savepointRollbackOnly = nested && resource.rollbackOnly;
+        }
+
+        public boolean isNewTransaction() {
+            return newTransaction;
+        }
+
+        public boolean isNested() {
+            return nested;
+        }
+
+        public boolean isRollbackOnly() {
+            return resource.rollbackOnly;
+        }
+
+        /**
+         * 标记物理事务为仅回滚
+         */
+        public void setRollbackOnly() {
+            resource.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * 物理事务资源，连接在首次获取时绑定
+     */
+    private static class TransactionResource {
+
+        private final DataSource dataSource;
+
+        private final int isolation;
+
+        /**
+         * 绑定的物理连接，未绑定时为 <code>null</code>（仅当前线程访问）
+         */
+        private Connection connection;
+
+        private int previousIsolation;
+
+        /**
+         * 绑定连接的包装，提供给事务中的数据访问代码
+         */
+        private Connection transactionalConnection;
+
+        private volatile boolean rollbackOnly;
+
+        private TransactionResource(DataSource dataSource, int isolation) {
+            this.dataSource = dataSource;
+            this.isolation = isolation;
+        }
+
+        /**
+         * 绑定连接（首次调用时借出连接并开始 JDBC 事务）
+         *
+         * @return 绑定连接的包装
+         * @throws IllegalStateException 获取连接或者设置事务失败时
+         */
+        private Connection bind() {
+            if (transactionalConnection != null) {
+                return transactionalConnection;
+            }
+            Connection connection = null;
+            try {
+                connection = dataSource.getConnection();
+                int previousIsolation = connection.getTransactionIsolation();
+                if (previousIsolation != isolation) {
+                    connection.setTransactionIsolation(isolation);
+                }
+                connection.setAutoCommit(false);
+                this.connection = connection;
+                this.previousIsolation = previousIsolation;
+                this.transactionalConnection = new TransactionalConnection(this);
+                return transactionalConnection;
+            } catch (SQLException e) {
+                close(connection);
+                throw new IllegalStateException("The transaction can't be started", e);
+            }
+        }
+    }
+
+    /**
+     * 事务连接，物理事务由 {@link LocalTransactionManager} 控制
+     */
+    private static class TransactionalConnection extends DelegatingConnection {
+
+        private final TransactionResource resource;
+
+        private TransactionalConnection(TransactionResource resource) {
+            super(resource.connection);
+            this.resource = resource;
+        }
+
+        /**
+         * 事务中多次获取的是同一个连接，关闭不影响之后的使用
+         */
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) {
+        }
+
+        @Override
+        public boolean getAutoCommit() {
+            return false;
+        }
+
+        @Override
+        public void rollback() {
+            resource.rollbackOnly = true;
+        }
+
+        @Override
+        public String toString() {
+            return "Transactional" + resource.connection;
+        }
+    }
+}
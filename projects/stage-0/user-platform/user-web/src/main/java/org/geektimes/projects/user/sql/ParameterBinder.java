@@ -0,0 +1,24 @@
+package org.geektimes.projects.user.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * {@link PreparedStatement} 参数绑定器
+ *
+ * @param <T> 参数类型
+ * @see ParameterBinders
+ */
+@FunctionalInterface
+public interface ParameterBinder<T> {
+
+    /**
+     * 绑定参数
+     *
+     * @param preparedStatement {@link PreparedStatement}
+     * @param parameterIndex    参数位置，从 1 开始
+     * @param value             参数值
+     * @throws SQLException 绑定失败时
+     */
+    void bind(PreparedStatement preparedStatement, int parameterIndex, T value) throws SQLException;
+}
@@ -0,0 +1,100 @@
+package org.geektimes.projects.user.sql;
+
+import java.math.BigDecimal;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按 Java 类型预先构建的 {@link ParameterBinder} 表，绑定时无反射查找
+ * <ul>
+ *     <li>{@link Long}、{@link Integer}、{@link Boolean}、{@link String}、{@link Timestamp}、{@link BigDecimal}</li>
+ *     <li><code>null</code> - {@link PreparedStatement#setNull(int, int)}，SQL 类型来源于参数元信息（每次绑定最多获取一次，
+ *     {@link PreparedStatementCache 缓存的语句}复用同一个参数元信息）</li>
+ *     <li>其他类型 - {@link PreparedStatement#setObject(int, Object)}</li>
+ * </ul>
+ */
+public final class ParameterBinders {
+
+    private static final Map<Class<?>, ParameterBinder<?>> binders = new HashMap<>();
+
+    private static final ParameterBinder<Object> OBJECT_BINDER = PreparedStatement::setObject;
+
+    static {
+        register(Long.class, (statement, index, value) -> statement.setLong(index, value));
+        register(String.class, PreparedStatement::setString);
+        register(Integer.class, (statement, index, value) -> statement.setInt(index, value));
+        register(Boolean.class, (statement, index, value) -> statement.setBoolean(index, value));
+        register(Timestamp.class, PreparedStatement::setTimestamp);
+        register(BigDecimal.class, PreparedStatement::setBigDecimal);
+    }
+
+    private ParameterBinders() {
+    }
+
+    private static <T> void register(Class<T> type, ParameterBinder<T> binder) {
+        binders.put(type, binder);
+    }
+
+    /**
+     * 获取参数类型的绑定器
+     *
+     * @param type 参数类型
+     * @return non-null
+     */
+    @SuppressWarnings("unchecked")
+    public static ParameterBinder<Object> getBinder(Class<?> type) {
+        ParameterBinder<?> binder = binders.get(type);
+        return binder == null ? OBJECT_BINDER : (ParameterBinder<Object>) binder;
+    }
+
+    /**
+     * 按顺序绑定所有参数
+     *
+     * @param preparedStatement {@link PreparedStatement}
+     * @param args              参数，可能包含 <code>null</code>
+     * @throws SQLException 绑定失败时
+     */
+    public static void bind(PreparedStatement preparedStatement, Object... args) throws SQLException {
+        ParameterMetaData parameterMetaData = null;
+        boolean parameterMetaDataResolved = false;
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                if (!parameterMetaDataResolved) {
+                    parameterMetaData = getParameterMetaData(preparedStatement);
+                    parameterMetaDataResolved = true;
+                }
+                preparedStatement.setNull(i + 1, getParameterType(parameterMetaData, i + 1));
+            } else {
+                getBinder(arg.getClass()).bind(preparedStatement, i + 1, arg);
+            }
+        }
+    }
+
+    /**
+     * @return 驱动不支持参数元信息时返回 <code>null</code>
+     */
+    private static ParameterMetaData getParameterMetaData(PreparedStatement preparedStatement) {
+        try {
+            return preparedStatement.getParameterMetaData();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static int getParameterType(ParameterMetaData parameterMetaData, int parameterIndex) {
+        if (parameterMetaData != null) {
+            try {
+                return parameterMetaData.getParameterType(parameterIndex);
+            } catch (SQLException e) {
+                // 驱动不支持参数类型
+            }
+        }
+        return Types.NULL;
+    }
+}
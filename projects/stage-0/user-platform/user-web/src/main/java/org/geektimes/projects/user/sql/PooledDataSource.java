@@ -0,0 +1,620 @@
+package org.geektimes.projects.user.sql;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 连接池 {@link DataSource} 实现，物理连接来源于目标 {@link DataSource}
+ * <ul>
+ *     <li>借出与归还无锁：空闲连接保存在 {@link ConcurrentLinkedDeque}（LIFO），借出连接数通过 CAS 许可计数限制，
+ *     许可不足时线程挂起等待归还（非公平），超过 {@link #setMaxWait(long) 最大等待时间} 时抛出
+ *     {@link SQLTransientConnectionException}</li>
+ *     <li>借出时校验连接，无效连接直接关闭</li>
+ *     <li>每个物理连接缓存 {@link PreparedStatement}（LRU，见 {@link PreparedStatementCache}）</li>
+ *     <li>后台线程回收超过 {@link #setIdleTimeout(long) 空闲超时} 的连接，将空闲连接补充到
+ *     {@link #setMinIdle(int) 最少空闲连接数}，并检测连接泄露（记录借出线程，
+ *     {@link #setLeakDetectionStackTrace(boolean) 开启}时记录借出时的调用栈）</li>
+ *     <li>统计信息：活跃、空闲连接数以及等待时间分布</li>
+ * </ul>
+ * 连接使用完毕后调用 {@link Connection#close()} 归还连接池。
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(PooledDataSource.class.getName());
+
+    /**
+     * 等待时间分布的上界（毫秒），最后一个区间没有上界
+     */
+    private static final long[] WAIT_TIME_BUCKETS = {1, 5, 10, 50, 100, 500, 1000};
+
+    /**
+     * 后台线程执行周期（毫秒）
+     */
+    private static final long HOUSEKEEPING_PERIOD = 1000;
+
+    private final DataSource targetDataSource;
+
+    private final int maxPoolSize;
+
+    private volatile int minIdle;
+
+    private volatile long maxWait = 10000;
+
+    private volatile long idleTimeout = 10 * 60 * 1000;
+
+    private volatile long leakDetectionThreshold;
+
+    private volatile boolean leakDetectionStackTrace;
+
+    private volatile String validationQuery;
+
+    private volatile int validationTimeout = 5;
+
+    private volatile boolean isValidUnsupported;
+
+    private volatile int statementCacheSize;
+
+    /**
+     * 可用的借出许可，初始值等于最大连接数
+     */
+    private final AtomicInteger availablePermits;
+
+    /**
+     * 等待许可的线程
+     */
+    private final ConcurrentLinkedQueue<Thread> waitingThreads = new ConcurrentLinkedQueue<>();
+
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private final Set<PooledConnection> activeConnections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    private final LongAdder statementCacheHitCount = new LongAdder();
+
+    private final LongAdder[] waitTimeCounts = new LongAdder[WAIT_TIME_BUCKETS.length + 1];
+
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed;
+
+    /**
+     * @param targetDataSource 目标 {@link DataSource}
+     * @param maxPoolSize      最大连接数
+     */
+    public PooledDataSource(DataSource targetDataSource, int maxPoolSize) {
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("The max pool size must be positive : " + maxPoolSize);
+        }
+        this.targetDataSource = targetDataSource;
+        this.maxPoolSize = maxPoolSize;
+        this.availablePermits = new AtomicInteger(maxPoolSize);
+        for (int i = 0; i < waitTimeCounts.length; i++) {
+            waitTimeCounts[i] = new LongAdder();
+        }
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PooledDataSource-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_PERIOD, HOUSEKEEPING_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The data source has been closed");
+        }
+        long startTime = System.nanoTime();
+        try {
+            if (!acquirePermit(maxWait)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException(String.format(
+                        "Connection is not available, request timed out after %dms (active : %d, idle : %d)",
+                        maxWait, getActiveConnections(), getIdleConnections()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            recordWaitTime(System.nanoTime() - startTime);
+        }
+        try {
+            PooledConnection pooledConnection = takeConnection();
+            borrowCount.increment();
+            return pooledConnection.borrow();
+        } catch (SQLException | RuntimeException e) {
+            releasePermit();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取借出许可：存在可用许可时仅需 CAS，否则挂起当前线程直到许可归还或者超时
+     *
+     * @param timeout 超时时间（毫秒）
+     * @return 超时返回 <code>false</code>
+     */
+    private boolean acquirePermit(long timeout) throws InterruptedException {
+        if (tryAcquirePermit()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Thread currentThread = Thread.currentThread();
+        waitingThreads.add(currentThread);
+        try {
+            // 加入等待队列之后再次尝试，避免错过加入之前的归还
+            while (!tryAcquirePermit()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        } finally {
+            waitingThreads.remove(currentThread);
+            if (availablePermits.get() > 0) {
+                // 归还时唤醒的可能是当前线程（包括已超时的线程），将剩余的许可交给下一个等待线程
+                unparkWaitingThread();
+            }
+        }
+    }
+
+    private boolean tryAcquirePermit() {
+        int permits;
+        while ((permits = availablePermits.get()) > 0) {
+            if (availablePermits.compareAndSet(permits, permits - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releasePermit() {
+        availablePermits.incrementAndGet();
+        unparkWaitingThread();
+    }
+
+    private void unparkWaitingThread() {
+        Thread waitingThread = waitingThreads.peek();
+        if (waitingThread != null) {
+            LockSupport.unpark(waitingThread);
+        }
+    }
+
+    /**
+     * 获取空闲连接（借出时校验），不存在时创建新的物理连接
+     */
+    private PooledConnection takeConnection() throws SQLException {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            if (isValid(pooledConnection.connection)) {
+                return pooledConnection;
+            }
+            closeConnection(pooledConnection);
+        }
+        Connection connection = targetDataSource.getConnection();
+        totalConnections.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private boolean isValid(Connection connection) {
+        String validationQuery = this.validationQuery;
+        try {
+            if (validationQuery == null) {
+                return isValidUnsupported ? !connection.isClosed() : connection.isValid(validationTimeout);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(validationTimeout);
+                statement.execute(validationQuery);
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "The connection is invalid : " + e.getMessage());
+            return false;
+        } catch (AbstractMethodError e) {
+            // 驱动不支持 JDBC 4 Connection#isValid(int)，退化为检查连接是否已关闭
+            if (!isValidUnsupported) {
+                isValidUnsupported = true;
+                logger.log(Level.WARNING, "The driver doesn't support Connection#isValid(int), "
+                        + "please set the validation query");
+            }
+            return !isClosed(connection);
+        }
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 归还连接，回滚未提交的事务
+     */
+    private void returnConnection(PooledConnection pooledConnection) {
+        activeConnections.remove(pooledConnection);
+        try {
+            Connection connection = pooledConnection.connection;
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (closed) {
+                closeConnection(pooledConnection);
+            } else {
+                pooledConnection.lastAccessTime = System.currentTimeMillis();
+                idleConnections.offerFirst(pooledConnection);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "The connection can't be reset : " + e.getMessage());
+            closeConnection(pooledConnection);
+        } finally {
+            releasePermit();
+        }
+    }
+
+    private void closeConnection(PooledConnection pooledConnection) {
+        totalConnections.decrementAndGet();
+        if (pooledConnection.statementCache != null) {
+            pooledConnection.statementCache.close();
+        }
+        try {
+            pooledConnection.connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "The connection can't be closed : " + e.getMessage());
+        }
+    }
+
+    private void recordWaitTime(long waitTimeNanos) {
+        long waitTime = TimeUnit.NANOSECONDS.toMillis(waitTimeNanos);
+        int i = 0;
+        while (i < WAIT_TIME_BUCKETS.length && waitTime > WAIT_TIME_BUCKETS[i]) {
+            i++;
+        }
+        waitTimeCounts[i].increment();
+    }
+
+    /**
+     * 回收空闲超时的连接，补充空闲连接，并检测连接泄露
+     */
+    void housekeep() {
+        long now = System.currentTimeMillis();
+        long idleTimeout = this.idleTimeout;
+        if (idleTimeout > 0) {
+            for (PooledConnection pooledConnection : idleConnections) {
+                if (idleConnections.size() <= minIdle) {
+                    break;
+                }
+                if (now - pooledConnection.lastAccessTime > idleTimeout
+                        && idleConnections.remove(pooledConnection)) {
+                    closeConnection(pooledConnection);
+                }
+            }
+        }
+        fillPool();
+        long leakDetectionThreshold = this.leakDetectionThreshold;
+        if (leakDetectionThreshold > 0) {
+            for (PooledConnection pooledConnection : activeConnections) {
+                String borrowThreadName = pooledConnection.borrowThreadName;
+                if (borrowThreadName != null && !pooledConnection.leakReported
+                        && now - pooledConnection.borrowTime > leakDetectionThreshold) {
+                    pooledConnection.leakReported = true;
+                    leakCount.increment();
+                    logger.log(Level.WARNING, String.format("The connection has been borrowed by thread[%s] for more "
+                                    + "than %dms, a possible leak was detected", borrowThreadName, leakDetectionThreshold),
+                            pooledConnection.borrowTrace);
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建物理连接，直到空闲连接数达到 {@link #minIdle} 或者总连接数达到最大连接数
+     */
+    void fillPool() {
+        while (!closed && idleConnections.size() < minIdle) {
+            int total = totalConnections.get();
+            if (total >= maxPoolSize) {
+                return;
+            }
+            // 预留连接数，借出时创建的连接不受影响
+            if (!totalConnections.compareAndSet(total, total + 1)) {
+                continue;
+            }
+            PooledConnection pooledConnection;
+            try {
+                pooledConnection = new PooledConnection(targetDataSource.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                totalConnections.decrementAndGet();
+                logger.log(Level.WARNING, "The idle connection can't be created : " + e.getMessage());
+                return;
+            }
+            pooledConnection.lastAccessTime = System.currentTimeMillis();
+            idleConnections.offerLast(pooledConnection);
+            if (closed && idleConnections.remove(pooledConnection)) {
+                closeConnection(pooledConnection);
+            }
+        }
+    }
+
+    /**
+     * 关闭连接池，关闭所有的空闲连接，活跃连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            closeConnection(pooledConnection);
+        }
+    }
+
+    // 统计信息
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.size();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return 正在等待连接的线程数（估计值）
+     */
+    public int getPendingThreads() {
+        return waitingThreads.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount.sum();
+    }
+
+    /**
+     * @return 等待时间分布，Key 为区间（如 "<=10ms"），Value 为次数
+     */
+    public Map<String, Long> getWaitTimeHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < WAIT_TIME_BUCKETS.length; i++) {
+            histogram.put("<=" + WAIT_TIME_BUCKETS[i] + "ms", waitTimeCounts[i].sum());
+        }
+        histogram.put(">" + WAIT_TIME_BUCKETS[WAIT_TIME_BUCKETS.length - 1] + "ms",
+                waitTimeCounts[WAIT_TIME_BUCKETS.length].sum());
+        return histogram;
+    }
+
+    // 配置
+
+    /**
+     * @param minIdle 最少空闲连接数，后台线程随即创建连接补足，回收空闲连接时同样保留
+     */
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+        if (minIdle > 0 && !closed) {
+            housekeeper.execute(this::fillPool);
+        }
+    }
+
+    /**
+     * @param maxWait 获取连接的最大等待时间（毫秒）
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @param idleTimeout 空闲超时（毫秒），小于等于 0 时不回收
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @param leakDetectionThreshold 连接借出超过该时间（毫秒）视为泄露，小于等于 0 时不检测
+     */
+    public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    /**
+     * @param leakDetectionStackTrace 检测连接泄露时是否记录借出时的调用栈，默认不记录（每次借出都需要创建
+     *                                {@link Throwable} 并填充调用栈，仅在排查泄露时开启）
+     */
+    public void setLeakDetectionStackTrace(boolean leakDetectionStackTrace) {
+        this.leakDetectionStackTrace = leakDetectionStackTrace;
+    }
+
+    /**
+     * @param validationQuery 校验连接的 SQL，为 <code>null</code> 时使用 {@link Connection#isValid(int)}
+     *                        （不支持 JDBC 4 的驱动需要设置，如 Derby 10.1 的 "VALUES 1"）
+     */
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * @param validationTimeout 校验连接的超时时间（秒）
+     */
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * @param statementCacheSize 每个物理连接缓存的 {@link PreparedStatement} 数量，小于等于 0 时不缓存，
+     *                           仅对之后创建的物理连接生效
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    // DataSource 方法
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pooled connections share the same credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return logger;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * 池化的物理连接
+     */
+    private class PooledConnection {
+
+        private final Connection connection;
+
+        /**
+         * 语句缓存，未开启时为 <code>null</code>
+         */
+        private final PreparedStatementCache statementCache;
+
+        private volatile long lastAccessTime;
+
+        private volatile long borrowTime;
+
+        /**
+         * 借出连接的线程名称，仅在开启泄露检测时记录
+         */
+        private volatile String borrowThreadName;
+
+        /**
+         * 借出时的调用栈，仅在开启泄露检测并且开启记录调用栈时记录
+         */
+        private volatile Throwable borrowTrace;
+
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            int statementCacheSize = PooledDataSource.this.statementCacheSize;
+            this.statementCache = statementCacheSize > 0 ?
+                    new PreparedStatementCache(connection, statementCacheSize, statementCacheHitCount) : null;
+        }
+
+        /**
+         * 借出连接，每次借出创建新的 {@link BorrowedConnection}，已关闭的不能再使用
+         */
+        private Connection borrow() {
+            borrowTime = System.currentTimeMillis();
+            boolean leakDetection = leakDetectionThreshold > 0;
+            borrowThreadName = leakDetection ? Thread.currentThread().getName() : null;
+            borrowTrace = leakDetection && leakDetectionStackTrace ?
+                    new Throwable("The connection was borrowed by thread[" + borrowThreadName + "]") : null;
+            leakReported = false;
+            activeConnections.add(this);
+            return new BorrowedConnection(this);
+        }
+    }
+
+    /**
+     * 借出的连接，{@link Connection#close()} 时归还连接池，开启语句缓存时
+     * {@link Connection#prepareStatement(String)} 返回缓存的语句
+     */
+    private class BorrowedConnection extends DelegatingConnection {
+
+        private final PooledConnection pooledConnection;
+
+        private BorrowedConnection(PooledConnection pooledConnection) {
+            super(pooledConnection.connection);
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        protected void doClose() {
+            returnConnection(pooledConnection);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatementCache statementCache = pooledConnection.statementCache;
+            if (statementCache == null) {
+                return super.prepareStatement(sql);
+            }
+            delegate();
+            return statementCache.prepareStatement(this, sql);
+        }
+
+        @Override
+        public String toString() {
+            return "Pooled" + pooledConnection.connection;
+        }
+    }
+}
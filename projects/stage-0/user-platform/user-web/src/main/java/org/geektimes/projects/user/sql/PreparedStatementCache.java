@@ -0,0 +1,204 @@
+package org.geektimes.projects.user.sql;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 物理连接级别的 {@link PreparedStatement} LRU 缓存（按 SQL 缓存）
+ * <p>
+ * 返回的 {@link PreparedStatement} 关闭时关闭当前结果集、清除参数，并将 maxRows、fetchSize 与 queryTimeout
+ * 恢复为创建时的驱动默认值，然后放回缓存；重置失败的语句被关闭，不再复用。超过容量时关闭最久未使用的空闲语句。
+ * 语句的 {@link ParameterMetaData} 在首次获取之后同样被缓存。
+ * 连接同一时刻只被一个线程借出，因此缓存无需同步。
+ *
+ * @see PooledDataSource#setStatementCacheSize(int)
+ */
+class PreparedStatementCache {
+
+    private static final Logger logger = Logger.getLogger(PreparedStatementCache.class.getName());
+
+    private final Connection connection;
+
+    private final int maxSize;
+
+    private final LongAdder hitCount;
+
+    /**
+     * 访问顺序的 LinkedHashMap，头部为最久未使用的语句
+     */
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    PreparedStatementCache(Connection connection, int maxSize, LongAdder hitCount) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * 获取缓存的 {@link PreparedStatement}，不存在时创建并缓存
+     *
+     * @param owner 借出的连接，作为 {@link PreparedStatement#getConnection()} 的返回值
+     * @param sql   SQL
+     * @return 关闭后放回缓存的 {@link PreparedStatement}
+     * @throws SQLException 创建失败时
+     */
+    PreparedStatement prepareStatement(Connection owner, String sql) throws SQLException {
+        CachedStatement cachedStatement = statements.get(sql);
+        if (cachedStatement != null && cachedStatement.broken) {
+            statements.remove(sql);
+            cachedStatement = null;
+        }
+        if (cachedStatement != null) {
+            if (cachedStatement.inUse) {
+                // 相同 SQL 的语句正在使用，直接创建（不缓存）
+                return new DelegatingPreparedStatement<>(owner, connection.prepareStatement(sql));
+            }
+            hitCount.increment();
+        } else {
+            cachedStatement = new CachedStatement(connection.prepareStatement(sql));
+            statements.put(sql, cachedStatement);
+            evict();
+        }
+        cachedStatement.inUse = true;
+        return new CachedPreparedStatement(owner, cachedStatement);
+    }
+
+    /**
+     * 关闭超过容量的空闲语句（最久未使用优先）
+     */
+    private void evict() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement cachedStatement = iterator.next();
+            if (!cachedStatement.inUse) {
+                iterator.remove();
+                close(cachedStatement.statement);
+            }
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * 关闭所有缓存的语句
+     */
+    void close() {
+        for (CachedStatement cachedStatement : statements.values()) {
+            close(cachedStatement.statement);
+        }
+        statements.clear();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "The statement can't be closed : " + e.getMessage());
+        }
+    }
+
+    private static class CachedStatement {
+
+        private final PreparedStatement statement;
+
+        /**
+         * 创建时的驱动默认值
+         */
+        private final int maxRows;
+
+        private final int fetchSize;
+
+        private final int queryTimeout;
+
+        /**
+         * 参数元信息，首次获取时缓存（绑定 <code>null</code> 参数时需要参数的 SQL 类型）
+         */
+        private ParameterMetaData parameterMetaData;
+
+        private boolean inUse;
+
+        /**
+         * 重置失败，已被关闭
+         */
+        private boolean broken;
+
+        private CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.maxRows = statement.getMaxRows();
+            this.fetchSize = statement.getFetchSize();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        /**
+         * 恢复语句状态，下一个使用者不受上一个使用者设置的影响
+         */
+        private void reset() throws SQLException {
+            ResultSet resultSet = statement.getResultSet();
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            statement.clearParameters();
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+        }
+    }
+
+    /**
+     * 缓存的语句，{@link PreparedStatement#close()} 时放回缓存
+     */
+    private static class CachedPreparedStatement extends DelegatingPreparedStatement<PreparedStatement> {
+
+        private final CachedStatement cachedStatement;
+
+        private CachedPreparedStatement(Connection owner, CachedStatement cachedStatement) {
+            super(owner, cachedStatement.statement);
+            this.cachedStatement = cachedStatement;
+        }
+
+        @Override
+        protected void doClose() {
+            try {
+                cachedStatement.reset();
+            } catch (SQLException e) {
+                cachedStatement.broken = true;
+                PreparedStatementCache.close(cachedStatement.statement);
+            } finally {
+                cachedStatement.inUse = false;
+            }
+        }
+
+        @Override
+        public ParameterMetaData getParameterMetaData() throws SQLException {
+            PreparedStatement statement = delegate();
+            ParameterMetaData parameterMetaData = cachedStatement.parameterMetaData;
+            if (parameterMetaData == null) {
+                parameterMetaData = statement.getParameterMetaData();
+                cachedStatement.parameterMetaData = parameterMetaData;
+            }
+            return parameterMetaData;
+        }
+
+        @Override
+        public String toString() {
+            return "Cached" + cachedStatement.statement;
+        }
+    }
+}
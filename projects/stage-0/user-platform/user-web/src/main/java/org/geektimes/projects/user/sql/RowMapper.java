@@ -0,0 +1,23 @@
+package org.geektimes.projects.user.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link ResultSet} 行映射器
+ *
+ * @param <T> 映射的对象类型
+ * @see RowMappers
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * 将 {@link ResultSet} 当前行映射为对象，不移动游标
+     *
+     * @param resultSet {@link ResultSet}
+     * @return 映射的对象
+     * @throws SQLException 读取列失败时
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
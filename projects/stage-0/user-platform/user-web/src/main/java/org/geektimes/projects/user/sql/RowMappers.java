@@ -0,0 +1,255 @@
+package org.geektimes.projects.user.sql;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * 实体类 {@link RowMapper} 工厂
+ * <p>
+ * 按实体类与列布局（列标签顺序）编译并缓存 {@link RowMapper}：
+ * <ul>
+ *     <li>属性与列的映射来源于 {@link Column#name()}（为空时使用字段名称）以及 {@link Id} 字段，列名忽略大小写</li>
+ *     <li>通过列索引读取，每列预先绑定 ResultSet#getXXX(int) 与属性 Setter 的 {@link MethodHandle}</li>
+ * </ul>
+ * 映射时无反射查找，也无需按列名查找列。
+ */
+public final class RowMappers {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType CONSTRUCTOR_TYPE = methodType(Object.class);
+
+    private static final MethodType COLUMN_MAPPER_TYPE = methodType(void.class, Object.class, ResultSet.class);
+
+    /**
+     * 实体类 -> 列布局 -> RowMapper
+     */
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, RowMapper<?>>> rowMappersCache =
+            new ConcurrentHashMap<>();
+
+    /**
+     * 列类型 -> (ResultSet, int) -> 列类型
+     */
+    private static final Map<Class<?>, MethodHandle> columnReaders = new HashMap<>();
+
+    static {
+        try {
+            registerColumnReader(String.class, "getString");
+            registerColumnReader(long.class, "getLong");
+            registerColumnReader(int.class, "getInt");
+            registerColumnReader(short.class, "getShort");
+            registerColumnReader(byte.class, "getByte");
+            registerColumnReader(boolean.class, "getBoolean");
+            registerColumnReader(double.class, "getDouble");
+            registerColumnReader(float.class, "getFloat");
+            registerColumnReader(BigDecimal.class, "getBigDecimal");
+            registerColumnReader(Timestamp.class, "getTimestamp");
+            registerColumnReader(Date.class, "getDate");
+            registerColumnReader(Time.class, "getTime");
+            registerColumnReader(byte[].class, "getBytes");
+            registerColumnReader(Object.class, "getObject");
+            // 包装类型，SQL NULL 映射为 null
+            for (Class<?> wrapperType : new Class[]{Long.class, Integer.class, Short.class, Byte.class,
+                    Boolean.class, Double.class, Float.class}) {
+                columnReaders.put(wrapperType, lookup.findStatic(RowMappers.class, "get" + wrapperType.getSimpleName(),
+                        methodType(wrapperType, ResultSet.class, int.class)));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RowMappers() {
+    }
+
+    private static void registerColumnReader(Class<?> columnType, String methodName)
+            throws ReflectiveOperationException {
+        columnReaders.put(columnType, lookup.findVirtual(ResultSet.class, methodName,
+                methodType(columnType, int.class)));
+    }
+
+    /**
+     * 获取实体类在指定列布局下的 {@link RowMapper}（每种列布局仅编译一次）
+     *
+     * @param entityClass 实体类，必须存在无参构造器
+     * @param metaData    {@link ResultSet} 元信息
+     * @param <T>         实体类型
+     * @return non-null
+     * @throws SQLException             读取元信息失败时
+     * @throws IllegalArgumentException 实体类无法映射时
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> getRowMapper(Class<T> entityClass, ResultSetMetaData metaData)
+            throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+        }
+        ConcurrentMap<String, RowMapper<?>> rowMappers =
+                rowMappersCache.computeIfAbsent(entityClass, type -> new ConcurrentHashMap<>());
+        return (RowMapper<T>) rowMappers.computeIfAbsent(String.join(",", columnLabels),
+                layout -> compile(entityClass, columnLabels));
+    }
+
+    private static <T> RowMapper<T> compile(Class<T> entityClass, String[] columnLabels) {
+        Map<String, Field> columnFields = resolveColumnFields(entityClass);
+        try {
+            MethodHandle constructor = lookup.findConstructor(entityClass, methodType(void.class))
+                    .asType(CONSTRUCTOR_TYPE);
+            List<MethodHandle> columnMappers = new ArrayList<>(columnLabels.length);
+            for (int i = 0; i < columnLabels.length; i++) {
+                Field field = columnFields.get(columnLabels[i].toUpperCase(Locale.ENGLISH));
+                if (field != null) {
+                    columnMappers.add(columnMapper(field, i + 1));
+                }
+            }
+            return new CompiledRowMapper<>(constructor, columnMappers.toArray(new MethodHandle[0]));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("The entity class can't be mapped : " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * 解析实体类的列属性
+     *
+     * @return Key 为大写的列名称
+     */
+    private static Map<String, Field> resolveColumnFields(Class<?> entityClass) {
+        Map<String, Field> columnFields = new HashMap<>();
+        for (Class<?> type = entityClass; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                Column column = field.getAnnotation(Column.class);
+                if (column == null && !field.isAnnotationPresent(Id.class)) {
+                    continue;
+                }
+                String columnName = column == null || column.name().isEmpty() ? field.getName() : column.name();
+                columnFields.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), field);
+            }
+        }
+        return columnFields;
+    }
+
+    /**
+     * 单列映射：(Object, ResultSet) -> void，等价于 entity.setXxx(resultSet.getXxx(columnIndex))
+     */
+    private static MethodHandle columnMapper(Field field, int columnIndex) throws ReflectiveOperationException {
+        Class<?> fieldType = field.getType();
+        MethodHandle reader = columnReaders.get(fieldType);
+        if (reader == null) {
+            reader = columnReaders.get(Object.class).asType(methodType(fieldType, ResultSet.class, int.class));
+        }
+        // (ResultSet) -> 属性类型
+        reader = MethodHandles.insertArguments(reader, 1, columnIndex);
+        // (实体类型, 属性类型) -> void
+        MethodHandle setter = setter(field);
+        return MethodHandles.filterArguments(setter, 1, reader).asType(COLUMN_MAPPER_TYPE);
+    }
+
+    /**
+     * 属性 Setter 方法，不存在时直接设置字段
+     */
+    private static MethodHandle setter(Field field) throws IllegalAccessException {
+        String fieldName = field.getName();
+        String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        try {
+            Method setterMethod = field.getDeclaringClass().getMethod(setterName, field.getType());
+            return lookup.unreflect(setterMethod);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            field.setAccessible(true);
+            return lookup.unreflectSetter(field);
+        }
+    }
+
+    private static Long getLong(ResultSet resultSet, int columnIndex) throws SQLException {
+        long value = resultSet.getLong(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet resultSet, int columnIndex) throws SQLException {
+        int value = resultSet.getInt(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Short getShort(ResultSet resultSet, int columnIndex) throws SQLException {
+        short value = resultSet.getShort(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Byte getByte(ResultSet resultSet, int columnIndex) throws SQLException {
+        byte value = resultSet.getByte(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Boolean getBoolean(ResultSet resultSet, int columnIndex) throws SQLException {
+        boolean value = resultSet.getBoolean(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet resultSet, int columnIndex) throws SQLException {
+        double value = resultSet.getDouble(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Float getFloat(ResultSet resultSet, int columnIndex) throws SQLException {
+        float value = resultSet.getFloat(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * 编译后的 {@link RowMapper}
+     */
+    private static class CompiledRowMapper<T> implements RowMapper<T> {
+
+        /**
+         * () -> Object
+         */
+        private final MethodHandle constructor;
+
+        /**
+         * (Object, ResultSet) -> void
+         */
+        private final MethodHandle[] columnMappers;
+
+        private CompiledRowMapper(MethodHandle constructor, MethodHandle[] columnMappers) {
+            this.constructor = constructor;
+            this.columnMappers = columnMappers;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T mapRow(ResultSet resultSet) throws SQLException {
+            try {
+                Object entity = (Object) constructor.invokeExact();
+                for (MethodHandle columnMapper : columnMappers) {
+                    columnMapper.invokeExact(entity, resultSet);
+                }
+                return (T) entity;
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.geektimes.projects.user.web.listener;
+
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
+
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+/**
+ * 请求结束时关闭当前线程绑定的 {@link javax.persistence.EntityManager}
+ *
+ * @see DelegatingEntityManager#closeCurrentEntityManagers()
+ */
+public class EntityManagerCleanupListener implements ServletRequestListener {
+
+    @Override
+    public void requestInitialized(ServletRequestEvent sre) {
+    }
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent sre) {
+        DelegatingEntityManager.closeCurrentEntityManagers();
+    }
+}
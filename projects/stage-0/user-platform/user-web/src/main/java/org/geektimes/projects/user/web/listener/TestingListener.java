@@ -2,6 +2,7 @@ package org.geektimes.projects.user.web.listener;
 
 import org.geektimes.context.ClassicComponentContext;
 import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
 import org.geektimes.projects.user.sql.DBConnectionManager;
 
 import javax.jms.*;
@@ -24,7 +25,7 @@ public class TestingListener implements ServletContextListener {
     public void contextInitialized(ServletContextEvent sce) {
         ClassicComponentContext context = ClassicComponentContext.getInstance();
         DBConnectionManager dbConnectionManager = context.getComponent("bean/DBConnectionManager");
-        dbConnectionManager.getConnection();
+        dbConnectionManager.releaseConnection(dbConnectionManager.getConnection());
         testPropertyFromServletContext(sce.getServletContext());
         testPropertyFromJNDI(context);
         testUser(dbConnectionManager.getEntityManager());
@@ -55,9 +56,14 @@ public class TestingListener implements ServletContextListener {
         user.setEmail("mercyblitz@gmail.com");
         user.setPhoneNumber("abcdefg");
         EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-        entityManager.persist(user);
-        transaction.commit();
+        try {
+            transaction.begin();
+            entityManager.persist(user);
+            transaction.commit();
+        } finally {
+            // 启动线程不属于请求，手动关闭绑定的 EntityManager
+            DelegatingEntityManager.closeCurrentEntityManagers();
+        }
     }
 
     private void testJms(ConnectionFactory connectionFactory) {
@@ -4,4 +4,5 @@ id INT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMEN
 name VARCHAR(16) NOT NULL,
 password VARCHAR(64) NOT NULL,
 email VARCHAR(64) NOT NULL,
-phoneNumber VARCHAR(32) NOT NULL)
\ No newline at end of file
+phoneNumber VARCHAR(32) NOT NULL);
+CREATE INDEX users_name_id ON users(name, id)
\ No newline at end of file
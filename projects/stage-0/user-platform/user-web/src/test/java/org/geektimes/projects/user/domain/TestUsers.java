@@ -0,0 +1,47 @@
+package org.geektimes.projects.user.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试与基准测试共用的 {@link User} 数据
+ */
+public abstract class TestUsers {
+
+    private TestUsers() {
+    }
+
+    /**
+     * @param name 用户名，同时用于生成 email
+     * @return 未保存（id 为 <code>null</code>）的用户
+     */
+    public static User newUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setPassword("password");
+        user.setEmail(name + "@gmail.com");
+        user.setPhoneNumber("1");
+        return user;
+    }
+
+    /**
+     * @param i 序号
+     * @return 名称为 "user-i"、电话号码为 i 的未保存用户
+     */
+    public static User newUser(int i) {
+        User user = newUser("user-" + i);
+        user.setPhoneNumber(String.valueOf(i));
+        return user;
+    }
+
+    /**
+     * @return 序号为 [0, count) 的未保存用户
+     */
+    public static List<User> newUsers(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(newUser(i));
+        }
+        return users;
+    }
+}
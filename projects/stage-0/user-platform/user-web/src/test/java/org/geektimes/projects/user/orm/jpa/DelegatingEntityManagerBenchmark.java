@@ -0,0 +1,103 @@
+package org.geektimes.projects.user.orm.jpa;
+
+import org.geektimes.benchmark.BenchmarkRunner;
+import org.geektimes.projects.user.domain.TestUsers;
+import org.geektimes.projects.user.domain.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.Arrays;
+
+/**
+ * {@link DelegatingEntityManager} 每个工作单元复用 {@link EntityManager} 与每次委派调用创建 {@link EntityManager}
+ * （原实现）的请求延迟对比
+ * <p>
+ * 每个模拟请求执行 5 次 find 与 1 次 JPQL 查询，请求结束时调用
+ * {@link DelegatingEntityManager#closeCurrentEntityManagers()}（等价于 EntityManagerCleanupListener）。
+ * 分为两种场景：5 次 find 不同的用户，以及 5 次 find 同一用户（如过滤器、控制器与视图分别加载当前用户）。
+ *
+ * @see BenchmarkRunner
+ */
+public class DelegatingEntityManagerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final int REQUESTS = 2000;
+
+    private static final int USERS = 100;
+
+    private static final String PROPERTIES_LOCATION = "META-INF/jpa-benchmark.properties";
+
+    public static void main(String[] args) throws Throwable {
+        DelegatingEntityManager threadScoped = newEntityManager(new DelegatingEntityManager());
+        // 原实现：每次委派调用创建新的 EntityManager
+        DelegatingEntityManager perCall = newEntityManager(new DelegatingEntityManager() {
+            @Override
+            protected EntityManager getEntityManager() {
+                return getEntityManagerFactory().createEntityManager();
+            }
+        });
+        prepareUsers(threadScoped);
+
+        for (boolean sameUser : new boolean[]{false, true}) {
+            long[] perCallLatencies = new long[REQUESTS];
+            long[] threadScopedLatencies = new long[REQUESTS];
+            BenchmarkRunner.run(sameUser ? "同一用户" : "不同用户", WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, () -> {
+                for (int r = 0; r < REQUESTS; r++) {
+                    perCallLatencies[r] = request(perCall, r, sameUser);
+                    threadScopedLatencies[r] = request(threadScoped, r, sameUser);
+                }
+                return String.format("per-call %s , thread-scoped %s",
+                        summary(perCallLatencies), summary(threadScopedLatencies));
+            });
+        }
+        threadScoped.getEntityManagerFactory().close();
+        perCall.getEntityManagerFactory().close();
+    }
+
+    private static DelegatingEntityManager newEntityManager(DelegatingEntityManager entityManager) {
+        entityManager.setPersistenceUnitName("emf");
+        entityManager.setPropertiesLocation(PROPERTIES_LOCATION);
+        // 仅对比 EntityManager 复用，不使用二级缓存
+        entityManager.setEntityCacheSize(0);
+        entityManager.setQueryCacheSize(0);
+        entityManager.init();
+        return entityManager;
+    }
+
+    private static void prepareUsers(DelegatingEntityManager entityManager) {
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        for (User user : TestUsers.newUsers(USERS)) {
+            entityManager.persist(user);
+        }
+        transaction.commit();
+        DelegatingEntityManager.closeCurrentEntityManagers();
+    }
+
+    /**
+     * @return 请求耗时（纳秒）
+     */
+    private static long request(DelegatingEntityManager entityManager, int request, boolean sameUser) throws Throwable {
+        return BenchmarkRunner.time(() -> {
+            try {
+                for (int i = 0; i < 5; i++) {
+                    long id = (sameUser ? request : request + i) % USERS + 1;
+                    BenchmarkRunner.consume(entityManager.find(User.class, id));
+                }
+                return entityManager.createQuery("SELECT COUNT(u) FROM User u").getSingleResult();
+            } finally {
+                DelegatingEntityManager.closeCurrentEntityManagers();
+            }
+        });
+    }
+
+    private static String summary(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        return String.format("mean %.1f us , p99 %.1f us", mean / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3);
+    }
+}
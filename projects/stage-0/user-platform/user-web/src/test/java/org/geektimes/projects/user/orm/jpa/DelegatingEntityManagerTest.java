@@ -0,0 +1,213 @@
+package org.geektimes.projects.user.orm.jpa;
+
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.orm.jpa.cache.EntityCache;
+import org.geektimes.projects.user.orm.jpa.cache.QueryResultCache;
+import org.geektimes.projects.user.web.listener.EntityManagerCleanupListener;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityTransaction;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DelegatingEntityManager} 二级缓存测试（Hibernate + Derby）
+ */
+public class DelegatingEntityManagerTest {
+
+    private static final String QUERY = "SELECT u FROM User u WHERE u.name = :name";
+
+    private DelegatingEntityManager entityManager;
+
+    @Before
+    public void init() {
+        entityManager = new DelegatingEntityManager();
+        entityManager.setPersistenceUnitName("emf");
+        entityManager.setPropertiesLocation("META-INF/jpa-test.properties");
+        entityManager.init();
+    }
+
+    @After
+    public void destroy() {
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        entityManager.destroy();
+    }
+
+    /**
+     * 同一线程的工作单元内复用 EntityManager，请求结束时关闭
+     */
+    @Test
+    public void testEntityManagerPerThread() throws Exception {
+        Session session = entityManager.unwrap(Session.class);
+        assertSame(session, entityManager.unwrap(Session.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(session, executor.submit(() -> {
+                try {
+                    return entityManager.unwrap(Session.class);
+                } finally {
+                    DelegatingEntityManager.closeCurrentEntityManagers();
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // persist 与 getTransaction 使用同一个持久化上下文
+        User user = newUser("mercy");
+        entityManager.persist(user);
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        transaction.commit();
+        assertTrue(entityManager.contains(user));
+
+        // 请求结束时关闭，未提交的事务回滚
+        entityManager.getTransaction().begin();
+        entityManager.persist(newUser("uncommitted"));
+        new EntityManagerCleanupListener().requestDestroyed(null);
+        assertFalse(session.isOpen());
+        assertNotSame(session, entityManager.unwrap(Session.class));
+        assertEquals(1L, (long) entityManager.createQuery("SELECT COUNT(u) FROM User u", Long.class)
+                .getSingleResult());
+    }
+
+    @Test
+    public void testEntityCache() {
+        User user = save(newUser("mercy"));
+        EntityCache entityCache = entityManager.getEntityCache();
+
+        assertEquals(user, entityManager.find(User.class, user.getId()));
+        assertEquals(1, entityCache.getMissCount());
+        assertTrue(entityCache.contains(User.class, user.getId()));
+
+        // 新的工作单元从缓存读取副本，并关联到持久化上下文
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        User cachedUser = entityManager.find(User.class, user.getId());
+        assertEquals(user, cachedUser);
+        assertEquals(1, entityCache.getHitCount());
+        assertTrue(entityManager.contains(cachedUser));
+        assertSame(cachedUser, entityManager.find(User.class, user.getId()));
+        cachedUser.setEmail("changed@gmail.com");
+
+        // 事务中写入后失效
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        entityManager.merge(cachedUser);
+        assertFalse(entityCache.contains(User.class, user.getId()));
+        transaction.commit();
+
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        assertEquals("changed@gmail.com", entityManager.find(User.class, user.getId()).getEmail());
+    }
+
+    @Test
+    public void testCacheHitChangesAreFlushed() {
+        User user = save(newUser("mercy"));
+        EntityCache entityCache = entityManager.getEntityCache();
+        entityManager.find(User.class, user.getId());
+        DelegatingEntityManager.closeCurrentEntityManagers();
+
+        User cachedUser = entityManager.find(User.class, user.getId());
+        assertEquals(1, entityCache.getHitCount());
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        cachedUser.setEmail("changed@gmail.com");
+        transaction.commit();
+        // 脏检查产生的更新使缓存失效
+        assertFalse(entityCache.contains(User.class, user.getId()));
+
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        assertEquals("changed@gmail.com", entityManager.find(User.class, user.getId()).getEmail());
+        assertEquals(1, entityCache.getHitCount());
+    }
+
+    @Test
+    public void testCacheMissChangesInvalidate() {
+        User user = save(newUser("mercy"));
+        EntityCache entityCache = entityManager.getEntityCache();
+        DelegatingEntityManager.closeCurrentEntityManagers();
+
+        User loadedUser = entityManager.find(User.class, user.getId());
+        assertTrue(entityCache.contains(User.class, user.getId()));
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        loadedUser.setEmail("changed@gmail.com");
+        transaction.commit();
+        assertFalse(entityCache.contains(User.class, user.getId()));
+
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        assertEquals("changed@gmail.com", entityManager.find(User.class, user.getId()).getEmail());
+        assertEquals(0, entityCache.getHitCount());
+    }
+
+    @Test
+    public void testQueryResultCache() {
+        save(newUser("mercy"));
+        QueryResultCache queryResultCache = entityManager.getQueryResultCache();
+
+        assertEquals(1, findByName("mercy").size());
+        assertEquals(1, findByName("mercy").size());
+        assertEquals(1, queryResultCache.getHitCount());
+        // 参数不同
+        assertTrue(findByName("other").isEmpty());
+        assertEquals(2, queryResultCache.getMissCount());
+
+        // 写入后失效
+        save(newUser("other"));
+        assertEquals(0, queryResultCache.size());
+        assertEquals(1, findByName("other").size());
+        assertEquals(1, queryResultCache.getHitCount());
+    }
+
+    /**
+     * 命中时结果中的实体通过 find 解析，受当前持久化上下文管理
+     */
+    @Test
+    public void testQueryResultCacheReturnsManagedEntities() {
+        User user = save(newUser("mercy"));
+        findByName("mercy");
+        DelegatingEntityManager.closeCurrentEntityManagers();
+
+        List<User> users = findByName("mercy");
+        assertEquals(1, entityManager.getQueryResultCache().getHitCount());
+        User cachedUser = users.get(0);
+        assertEquals(user.getId(), cachedUser.getId());
+        assertTrue(entityManager.contains(cachedUser));
+        assertSame(cachedUser, entityManager.find(User.class, user.getId()));
+        // 同一持久化上下文中再次命中返回同一个实体
+        assertSame(cachedUser, findByName("mercy").get(0));
+
+        // 修改通过脏检查写入
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        cachedUser.setEmail("changed@gmail.com");
+        transaction.commit();
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        assertEquals("changed@gmail.com", findByName("mercy").get(0).getEmail());
+
+        // 标量结果
+        assertEquals(1L, (long) entityManager.createQuery("SELECT COUNT(u) FROM User u", Long.class)
+                .getSingleResult());
+        assertEquals(1L, (long) entityManager.createQuery("SELECT COUNT(u) FROM User u", Long.class)
+                .getSingleResult());
+    }
+
+    private List<User> findByName(String name) {
+        return entityManager.createQuery(QUERY, User.class).setParameter("name", name).getResultList();
+    }
+
+    private User save(User user) {
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        entityManager.persist(user);
+        transaction.commit();
+        return user;
+    }
+}
@@ -0,0 +1,207 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.domain.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.geektimes.projects.user.repository.Users.copy;
+import static org.junit.Assert.*;
+
+/**
+ * {@link CachingUserRepository} 测试
+ */
+public class CachingUserRepositoryTest {
+
+    private final CountingUserRepository delegate = new CountingUserRepository();
+
+    private CachingUserRepository userRepository;
+
+    @After
+    public void destroy() {
+        userRepository.destroy();
+    }
+
+    @Test
+    public void testReadThroughAndInvalidation() {
+        userRepository = newCachingUserRepository(false);
+        User user = newUser("mercy");
+        assertTrue(userRepository.save(user));
+
+        assertEquals(user, userRepository.getById(user.getId()));
+        assertEquals(user, userRepository.getByNameAndPassword("mercy", "password"));
+        assertEquals(0, delegate.reads.get());
+        assertNull(userRepository.getByNameAndPassword("mercy", "wrong"));
+        assertEquals(1, delegate.reads.get());
+
+        // 负缓存
+        assertNull(userRepository.getById(404L));
+        assertNull(userRepository.getById(404L));
+        assertEquals(2, delegate.reads.get());
+
+        user.setPassword("changed");
+        assertTrue(userRepository.update(user));
+        assertEquals("changed", userRepository.getById(user.getId()).getPassword());
+
+        assertTrue(userRepository.deleteById(user.getId()));
+        assertNull(userRepository.getById(user.getId()));
+        assertNull(userRepository.getByNameAndPassword("mercy", "changed"));
+
+        userRepository.invalidateAll();
+        assertNull(userRepository.getById(user.getId()));
+        assertTrue(userRepository.getUsersCache().getHitCount() > 0);
+        assertTrue(userRepository.getUsersCache().getMissCount() > 0);
+    }
+
+    @Test
+    public void testWriteBehind() {
+        userRepository = newCachingUserRepository(true);
+        User user = newUser("mercy");
+        assertTrue(userRepository.save(user));
+
+        for (int i = 0; i < 10; i++) {
+            user.setEmail("mercy-" + i + "@gmail.com");
+            assertTrue(userRepository.update(user));
+        }
+        assertEquals(0, delegate.updates.get());
+        assertEquals(1, userRepository.getPendingWrites());
+        assertEquals("mercy-9@gmail.com", userRepository.getById(user.getId()).getEmail());
+
+        userRepository.invalidateAll();
+        assertEquals("mercy-9@gmail.com", userRepository.getById(user.getId()).getEmail());
+
+        // 合并为一次写入
+        assertEquals(1, userRepository.flush());
+        assertEquals(1, delegate.updates.get());
+        assertEquals(0, userRepository.getPendingWrites());
+        assertEquals("mercy-9@gmail.com", delegate.getById(user.getId()).getEmail());
+    }
+
+    @Test
+    public void testWriteBehindRetry() throws InterruptedException {
+        userRepository = newCachingUserRepository(true);
+        User user = newUser("mercy");
+        assertTrue(userRepository.save(user));
+
+        // 写入期间的新更新优先于失败的旧值
+        user.setEmail("mercy-1@gmail.com");
+        assertTrue(userRepository.update(user));
+        delegate.failures.set(1);
+        delegate.duringUpdate = () -> {
+            User newer = copy(user);
+            newer.setEmail("mercy-2@gmail.com");
+            userRepository.update(newer);
+        };
+        assertEquals(0, userRepository.flush());
+        delegate.duringUpdate = null;
+        assertEquals(1, userRepository.getPendingWrites());
+        assertEquals("mercy-2@gmail.com", userRepository.getById(user.getId()).getEmail());
+
+        // 重试间隔之内不写入
+        assertEquals(0, userRepository.flush());
+        assertEquals(1, delegate.updates.get());
+        Thread.sleep(250);
+        assertEquals(1, userRepository.flush());
+        assertEquals("mercy-2@gmail.com", delegate.getById(user.getId()).getEmail());
+
+        // 重试耗尽后丢弃，缓存失效
+        user.setEmail("mercy-3@gmail.com");
+        assertTrue(userRepository.update(user));
+        delegate.failures.set(2);
+        assertEquals(0, userRepository.flush());
+        Thread.sleep(250);
+        assertEquals(0, userRepository.flush());
+        assertEquals(0, userRepository.getPendingWrites());
+        assertEquals("mercy-2@gmail.com", userRepository.getById(user.getId()).getEmail());
+    }
+
+    @Test
+    public void testWriteBehindRetryFailedUsersOnly() throws InterruptedException {
+        userRepository = newCachingUserRepository(true);
+        User succeeded = newUser(1);
+        User failed = newUser(2);
+        assertTrue(userRepository.save(succeeded));
+        assertTrue(userRepository.save(failed));
+
+        succeeded.setEmail("succeeded@gmail.com");
+        failed.setEmail("failed@gmail.com");
+        assertTrue(userRepository.update(succeeded));
+        assertTrue(userRepository.update(failed));
+        delegate.failingUserIds.add(failed.getId());
+        assertEquals(1, userRepository.flush());
+        assertEquals(1, userRepository.getPendingWrites());
+        assertEquals("succeeded@gmail.com", delegate.getById(succeeded.getId()).getEmail());
+
+        // 仅重试失败的用户
+        delegate.failingUserIds.clear();
+        Thread.sleep(250);
+        assertEquals(1, userRepository.flush());
+        assertEquals(0, userRepository.getPendingWrites());
+        assertEquals("failed@gmail.com", delegate.getById(failed.getId()).getEmail());
+    }
+
+    private CachingUserRepository newCachingUserRepository(boolean writeBehind) {
+        CachingUserRepository userRepository = new CachingUserRepository(delegate);
+        userRepository.setMaxSize(100);
+        userRepository.setWriteBehind(writeBehind);
+        // 测试中手动写入
+        userRepository.setWriteBehindDelay(60 * 1000);
+        userRepository.setMaxWriteAttempts(2);
+        userRepository.setWriteRetryBackoff(200);
+        userRepository.init();
+        return userRepository;
+    }
+
+    private static class CountingUserRepository extends InMemoryUserRepository {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private final AtomicInteger updates = new AtomicInteger();
+
+        /**
+         * 剩余的写入失败次数
+         */
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private volatile Runnable duringUpdate;
+
+        /**
+         * 写入失败（返回 false）的用户 ID
+         */
+        private final Set<Long> failingUserIds = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public User getById(Long userId) {
+            reads.incrementAndGet();
+            return super.getById(userId);
+        }
+
+        @Override
+        public User getByNameAndPassword(String userName, String password) {
+            reads.incrementAndGet();
+            return super.getByNameAndPassword(userName, password);
+        }
+
+        @Override
+        public boolean[] updateEach(Collection<User> users) {
+            updates.incrementAndGet();
+            if (duringUpdate != null) {
+                duringUpdate.run();
+            }
+            if (failures.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new IllegalStateException("The users can't be updated");
+            }
+            boolean[] updated = new boolean[users.size()];
+            int i = 0;
+            for (User user : users) {
+                updated[i++] = !failingUserIds.contains(user.getId()) && update(user);
+            }
+            return updated;
+        }
+    }
+}
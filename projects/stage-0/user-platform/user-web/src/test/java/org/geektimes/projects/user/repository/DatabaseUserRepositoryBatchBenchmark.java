@@ -0,0 +1,73 @@
+package org.geektimes.projects.user.repository;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.benchmark.BenchmarkRunner;
+import org.geektimes.projects.user.domain.TestUsers;
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.sql.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * {@link DatabaseUserRepository#saveAll} 批量插入与 {@link DatabaseUserRepository#save} 单行插入的吞吐量对比
+ * （Derby users 表）
+ *
+ * @see BenchmarkRunner
+ */
+public class DatabaseUserRepositoryBatchBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 2;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final int ROWS = 5_000;
+
+    private static final int BATCH_SIZE = 500;
+
+    public static void main(String[] args) throws Throwable {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/user-repository-benchmark");
+        dataSource.setCreateDatabase("create");
+        DBConnectionManager dbConnectionManager = new DBConnectionManager();
+        dbConnectionManager.setDataSource(dataSource);
+        dbConnectionManager.setValidationQuery("VALUES 1");
+        dbConnectionManager.init();
+        DatabaseUserRepository userRepository = new DatabaseUserRepository(dbConnectionManager);
+        userRepository.setBatchSize(BATCH_SIZE);
+        try {
+            BenchmarkRunner.run("DatabaseUserRepository", WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, () -> {
+                recreateUsersTable(dataSource);
+                List<User> batchUsers = TestUsers.newUsers(ROWS);
+                long batchCost = BenchmarkRunner.time(() -> userRepository.saveAll(batchUsers));
+
+                recreateUsersTable(dataSource);
+                List<User> users = TestUsers.newUsers(ROWS);
+                long singleCost = BenchmarkRunner.time(() -> {
+                    for (User user : users) {
+                        userRepository.save(user);
+                    }
+                    return null;
+                });
+                return String.format("saveAll(batch size %d) %.0f rows/s , save %.0f rows/s",
+                        BATCH_SIZE, ROWS / (batchCost / 1e9), ROWS / (singleCost / 1e9));
+            });
+        } finally {
+            dbConnectionManager.destroy();
+        }
+    }
+
+    private static void recreateUsersTable(EmbeddedDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.geektimes.projects.user.repository;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.sql.DBConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatabaseUserRepository} 测试（Derby）
+ */
+public class DatabaseUserRepositoryTest {
+
+    private DBConnectionManager dbConnectionManager;
+
+    private DatabaseUserRepository userRepository;
+
+    @Before
+    public void init() throws SQLException {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/user-repository-test");
+        dataSource.setCreateDatabase("create");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+            statement.execute(DBConnectionManager.CREATE_USERS_NAME_INDEX_DDL_SQL);
+        }
+        dbConnectionManager = new DBConnectionManager();
+        dbConnectionManager.setDataSource(dataSource);
+        dbConnectionManager.setValidationQuery("VALUES 1");
+        dbConnectionManager.init();
+        userRepository = new DatabaseUserRepository(dbConnectionManager);
+    }
+
+    @After
+    public void destroy() {
+        dbConnectionManager.destroy();
+    }
+
+    @Test
+    public void testCrud() {
+        User user = newUser(1);
+        assertTrue(userRepository.save(user));
+        assertNotNull(user.getId());
+        assertEquals(user, userRepository.getById(user.getId()));
+        assertEquals(user, userRepository.getByNameAndPassword(user.getName(), user.getPassword()));
+
+        user.setEmail("updated@gmail.com");
+        assertTrue(userRepository.update(user));
+        assertEquals("updated@gmail.com", userRepository.getById(user.getId()).getEmail());
+
+        assertTrue(userRepository.deleteById(user.getId()));
+        assertNull(userRepository.getById(user.getId()));
+        assertFalse(userRepository.deleteById(user.getId()));
+    }
+
+    @Test
+    public void testBatch() {
+        userRepository.setBatchSize(3);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            users.add(newUser(i));
+        }
+        assertEquals(10, userRepository.saveAll(users));
+        assertEquals(10, userRepository.getAll().size());
+
+        List<User> savedUsers = new ArrayList<>(userRepository.getAll());
+        savedUsers.forEach(user -> user.setPhoneNumber("updated"));
+        assertEquals(10, userRepository.updateAll(savedUsers));
+
+        try (Stream<User> stream = userRepository.streamAll(4)) {
+            assertEquals(10, stream.filter(user -> "updated".equals(user.getPhoneNumber()))
+                    .collect(Collectors.toList()).size());
+        }
+        // 所有连接都已归还
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+    }
+
+    @Test
+    public void testUpdateEach() {
+        userRepository.setBatchSize(2);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        List<User> users = new ArrayList<>(userRepository.getAll());
+        users.forEach(user -> user.setPhoneNumber("updated"));
+        // 不存在的用户更新 0 行
+        users.get(1).setId(-1L);
+        assertArrayEquals(new boolean[]{true, false, true}, userRepository.updateEach(users));
+        assertEquals(2, userRepository.updateAll(users));
+    }
+
+    @Test
+    public void testStreamAll() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        try (Stream<User> stream = userRepository.streamAll(3)) {
+            // 流关闭之前占用连接
+            assertEquals(1, dbConnectionManager.getPooledDataSource().getActiveConnections());
+            Iterator<User> iterator = stream.iterator();
+            assertEquals("user-0", iterator.next().getName());
+            assertEquals("user-1", iterator.next().getName());
+        }
+        // 未读取完的流关闭时同样归还连接
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+
+        try (Stream<User> stream = userRepository.streamAll(3)) {
+            assertEquals(10, stream.map(User::getId).distinct().count());
+        }
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+        // 连接归还后仍可正常使用
+        assertEquals(10, userRepository.getAll().size());
+    }
+
+    /**
+     * 异常时记录日志并返回失败的结果，与其他方法一致
+     */
+    @Test
+    public void testQueryFailure() throws SQLException {
+        assertTrue(userRepository.save(newUser(1)));
+        try (Connection connection = dbConnectionManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+        }
+        assertFalse(userRepository.save(newUser(2)));
+        Page<User> page = userRepository.findPage(null, 10);
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.hasNext());
+        try (Stream<User> stream = userRepository.streamAll(10)) {
+            assertEquals(0, stream.count());
+        }
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+    }
+
+    @Test
+    public void testFindPage() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        for (UserSort sort : UserSort.values()) {
+            List<User> expected = new ArrayList<>(userRepository.getAll());
+            expected.sort(sort.getComparator());
+            List<User> actual = new ArrayList<>();
+            UserCursor cursor = null;
+            int pages = 0;
+            do {
+                Page<User> page = userRepository.findPage(cursor, 3, sort);
+                actual.addAll(page.getItems());
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            assertEquals(expected, actual);
+            assertEquals(4, pages);
+        }
+        assertEquals(10, userRepository.findPage(null, 20).getItems().size());
+        assertFalse(userRepository.findPage(null, 10).hasNext());
+    }
+
+    /**
+     * 游标携带排序列的值，游标用户被删除后仍可继续翻页
+     */
+    @Test
+    public void testFindPageAfterCursorDeleted() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        for (UserSort sort : UserSort.values()) {
+            List<User> expected = new ArrayList<>(userRepository.getAll());
+            expected.sort(sort.getComparator());
+            Page<User> page = userRepository.findPage(null, 3, sort);
+            assertEquals(expected.subList(0, 3), page.getItems());
+            assertTrue(userRepository.deleteById(page.getNextCursor().getId()));
+            page = userRepository.findPage(page.getNextCursor(), 3, sort);
+            assertEquals(expected.subList(3, 6), page.getItems());
+            assertTrue(page.hasNext());
+            // 恢复删除的用户
+            User deleted = expected.get(2);
+            deleted.setId(null);
+            assertTrue(userRepository.save(deleted));
+        }
+    }
+}
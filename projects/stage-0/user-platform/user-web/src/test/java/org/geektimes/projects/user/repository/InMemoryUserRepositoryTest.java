@@ -0,0 +1,199 @@
+package org.geektimes.projects.user.repository;
+
+import org.geektimes.projects.user.domain.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.junit.Assert.*;
+
+/**
+ * {@link InMemoryUserRepository} 测试
+ */
+public class InMemoryUserRepositoryTest {
+
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository();
+
+    @Test
+    public void testIndexes() {
+        User user = newUser(1);
+        assertTrue(userRepository.save(user));
+        assertNotNull(user.getId());
+        assertEquals(user, userRepository.getByNameAndPassword("user-1", "password"));
+        assertNull(userRepository.getByNameAndPassword("user-1", "wrong"));
+        assertNull(userRepository.getByNameAndPassword("nobody", "password"));
+        assertEquals(user, userRepository.getByEmail("user-1@gmail.com"));
+        assertEquals(user, userRepository.getByPhoneNumber("1"));
+
+        // 唯一键冲突
+        User duplicate = newUser(2);
+        duplicate.setEmail(user.getEmail());
+        assertFalse(userRepository.save(duplicate));
+        assertNull(userRepository.getByNameAndPassword("user-2", "password"));
+
+        // 更新唯一键，旧索引失效
+        user.setName("renamed");
+        assertTrue(userRepository.update(user));
+        assertNull(userRepository.getByNameAndPassword("user-1", "password"));
+        assertEquals(user, userRepository.getByNameAndPassword("renamed", "password"));
+
+        // 修改返回的对象不影响索引
+        userRepository.getById(user.getId()).setName("changed");
+        assertNotNull(userRepository.getByNameAndPassword("renamed", "password"));
+
+        assertTrue(userRepository.deleteById(user.getId()));
+        assertNull(userRepository.getByNameAndPassword("renamed", "password"));
+        assertNull(userRepository.getByEmail("user-1@gmail.com"));
+        assertFalse(userRepository.update(user));
+        assertTrue(userRepository.save(duplicate));
+    }
+
+    @Test
+    public void testIdGeneration() {
+        User user = newUser(1);
+        assertTrue(userRepository.save(user));
+        assertEquals(Long.valueOf(1), user.getId());
+
+        // 唯一键冲突时不修改参数，也不消耗 ID
+        User duplicate = newUser(1);
+        assertFalse(userRepository.save(duplicate));
+        assertNull(duplicate.getId());
+
+        // 指定的 ID 已经存在
+        User existing = newUser(2);
+        existing.setId(1L);
+        assertFalse(userRepository.save(existing));
+
+        // 生成器跳过指定的 ID
+        User explicit = newUser(3);
+        explicit.setId(10L);
+        assertTrue(userRepository.save(explicit));
+        User generated = newUser(4);
+        assertTrue(userRepository.save(generated));
+        assertEquals(Long.valueOf(11), generated.getId());
+        assertEquals(3, userRepository.getAll().size());
+    }
+
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        int threads = 8;
+        int users = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger saved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < users; i++) {
+                        if (userRepository.save(newUser(i))) {
+                            saved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(users, saved.get());
+        assertEquals(users, userRepository.getAll().size());
+        for (int i = 0; i < users; i++) {
+            assertNotNull(userRepository.getByNameAndPassword("user-" + i, "password"));
+        }
+    }
+
+    @Test
+    public void testStreamAll() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        try (Stream<User> stream = userRepository.streamAll(2)) {
+            List<User> users = stream.collect(Collectors.toList());
+            assertEquals(5, users.size());
+            // 返回副本，修改不影响仓储中的用户
+            users.forEach(user -> user.setName("changed"));
+        }
+        assertNotNull(userRepository.getByNameAndPassword("user-0", "password"));
+        try (Stream<User> stream = userRepository.streamAll(2)) {
+            assertEquals(0, stream.filter(user -> "changed".equals(user.getName())).count());
+        }
+    }
+
+    @Test
+    public void testFindPage() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        for (UserSort sort : UserSort.values()) {
+            List<User> expected = new ArrayList<>(userRepository.getAll());
+            expected.sort(sort.getComparator());
+            List<User> actual = new ArrayList<>();
+            UserCursor cursor = null;
+            int pages = 0;
+            do {
+                Page<User> page = userRepository.findPage(cursor, 3, sort);
+                actual.addAll(page.getItems());
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            assertEquals(expected, actual);
+            assertEquals(4, pages);
+        }
+        assertEquals(10, userRepository.findPage(null, 20).getItems().size());
+        assertFalse(userRepository.findPage(null, 10).hasNext());
+    }
+
+    /**
+     * 游标携带排序列的值，游标用户被删除后仍可继续翻页
+     */
+    @Test
+    public void testFindPageAfterCursorDeleted() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        for (UserSort sort : UserSort.values()) {
+            List<User> expected = new ArrayList<>(userRepository.getAll());
+            expected.sort(sort.getComparator());
+            Page<User> page = userRepository.findPage(null, 3, sort);
+            assertEquals(expected.subList(0, 3), page.getItems());
+            assertTrue(userRepository.deleteById(page.getNextCursor().getId()));
+            page = userRepository.findPage(page.getNextCursor(), 3, sort);
+            assertEquals(expected.subList(3, 6), page.getItems());
+            assertTrue(page.hasNext());
+            // 恢复删除的用户
+            User deleted = expected.get(2);
+            deleted.setId(null);
+            assertTrue(userRepository.save(deleted));
+        }
+    }
+
+    @Test
+    public void testFindPageWithNullName() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(userRepository.save(newUser(i)));
+        }
+        User unnamed = newUser(3);
+        unnamed.setName(null);
+        assertTrue(userRepository.save(unnamed));
+        // 空的 name 升序时排在最后，降序时排在最前
+        Page<User> page = userRepository.findPage(null, 3, UserSort.NAME_ASC);
+        assertEquals("user-2", page.getItems().get(2).getName());
+        assertNull(userRepository.findPage(page.getNextCursor(), 3, UserSort.NAME_ASC).getItems().get(0).getName());
+        page = userRepository.findPage(null, 1, UserSort.NAME_DESC);
+        assertNull(page.getItems().get(0).getName());
+        assertEquals("user-2", userRepository.findPage(page.getNextCursor(), 1, UserSort.NAME_DESC)
+                .getItems().get(0).getName());
+    }
+}
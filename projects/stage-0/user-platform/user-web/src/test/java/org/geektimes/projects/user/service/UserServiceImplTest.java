@@ -0,0 +1,73 @@
+package org.geektimes.projects.user.service;
+
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
+import org.geektimes.projects.user.repository.Page;
+import org.geektimes.projects.user.repository.UserSort;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityTransaction;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.junit.Assert.*;
+
+/**
+ * {@link UserServiceImpl} 分页查询测试（Hibernate + Derby）
+ */
+public class UserServiceImplTest {
+
+    private DelegatingEntityManager entityManager;
+
+    private UserServiceImpl userService;
+
+    @Before
+    public void init() throws ReflectiveOperationException {
+        entityManager = new DelegatingEntityManager();
+        entityManager.setPersistenceUnitName("emf");
+        entityManager.setPropertiesLocation("META-INF/jpa-test.properties");
+        entityManager.init();
+        userService = new UserServiceImpl();
+        // 模拟 @Resource 注入
+        Field field = UserServiceImpl.class.getDeclaredField("entityManager");
+        field.setAccessible(true);
+        field.set(userService, entityManager);
+    }
+
+    @After
+    public void destroy() {
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        entityManager.destroy();
+    }
+
+    @Test
+    public void testQueryUsers() {
+        List<User> users = new ArrayList<>();
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 10; i++) {
+            User user = newUser(i);
+            entityManager.persist(user);
+            users.add(user);
+        }
+        transaction.commit();
+
+        for (UserSort sort : UserSort.values()) {
+            List<User> expected = new ArrayList<>(users);
+            expected.sort(sort.getComparator());
+            List<User> actual = new ArrayList<>();
+            Page<User> page = userService.queryUsers(null, 4, sort);
+            actual.addAll(page.getItems());
+            while (page.hasNext()) {
+                page = userService.queryUsers(page.getNextCursor(), 4, sort);
+                actual.addAll(page.getItems());
+            }
+            assertEquals(expected, actual);
+        }
+        assertEquals(4, userService.queryUsers(null, 4).getItems().size());
+    }
+}
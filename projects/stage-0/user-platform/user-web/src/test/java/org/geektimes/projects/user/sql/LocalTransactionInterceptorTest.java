@@ -0,0 +1,274 @@
+package org.geektimes.projects.user.sql;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.context.ComponentInterceptor;
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.orm.jpa.DelegatingEntityManager;
+import org.geektimes.projects.user.repository.DatabaseUserRepository;
+import org.geektimes.projects.user.service.UserService;
+import org.geektimes.projects.user.service.UserServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.geektimes.projects.user.sql.LocalTransactional.PROPAGATION_NESTED;
+import static org.geektimes.projects.user.sql.LocalTransactional.PROPAGATION_REQUIRES_NEW;
+import static org.junit.Assert.*;
+
+/**
+ * {@link LocalTransactionInterceptor} 测试，通过 {@link ComponentInterceptor#newProxy} 创建的代理调用组件方法
+ * （Derby JDBC 与 Hibernate + Derby）
+ */
+public class LocalTransactionInterceptorTest {
+
+    private DBConnectionManager dbConnectionManager;
+
+    private DelegatingEntityManager entityManager;
+
+    private DatabaseUserRepository userRepository;
+
+    @Before
+    public void init() throws SQLException {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/local-transaction-interceptor-test");
+        dataSource.setCreateDatabase("create");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+        }
+        dbConnectionManager = new DBConnectionManager();
+        dbConnectionManager.setDataSource(dataSource);
+        dbConnectionManager.init();
+        userRepository = new DatabaseUserRepository(dbConnectionManager);
+
+        entityManager = new DelegatingEntityManager();
+        entityManager.setPersistenceUnitName("emf");
+        entityManager.setPropertiesLocation("META-INF/jpa-test.properties");
+        entityManager.setEntityCacheSize(0);
+        entityManager.setQueryCacheSize(0);
+        entityManager.init();
+    }
+
+    @After
+    public void destroy() {
+        DelegatingEntityManager.closeCurrentEntityManagers();
+        entityManager.destroy();
+        dbConnectionManager.destroy();
+    }
+
+    @Test
+    public void testUserServiceRegister() throws ReflectiveOperationException {
+        UserServiceImpl target = new UserServiceImpl();
+        // 模拟 @Resource 注入
+        Field field = UserServiceImpl.class.getDeclaredField("entityManager");
+        field.setAccessible(true);
+        field.set(target, entityManager);
+        UserService userService = ComponentInterceptor.newProxy(target, UserService.class, newInterceptor(entityManager));
+        assertTrue(Proxy.isProxyClass(userService.getClass()));
+
+        assertTrue(userService.register(newUser("user")));
+        assertFalse(entityManager.getTransaction().isActive());
+        assertEquals(1L, jpaUserCount());
+    }
+
+    @Test
+    public void testCommitAndRollback() {
+        Operations operations = newOperations(entityManager);
+        operations.save("committed", false);
+        try {
+            operations.save("rolled-back", true);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("rolled-back", e.getMessage());
+        }
+        assertFalse(entityManager.getTransaction().isActive());
+        assertEquals(Collections.singletonList("committed"), jdbcUserNames());
+        assertEquals(1L, jpaUserCount());
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+    }
+
+    @Test
+    public void testNestedThroughProxy() {
+        Operations operations = newOperations(null);
+        operations.saveWithNested("outer", "nested");
+        assertEquals(Collections.singletonList("outer"), jdbcUserNames());
+    }
+
+    /**
+     * JPA 不支持 Savepoint 与挂起事务，{@link javax.persistence.EntityTransaction} 已开始时
+     * NESTED 与 REQUIRES_NEW 方法直接失败，外层事务不受影响
+     */
+    @Test
+    public void testNestedAndRequiresNewWithEntityTransaction() {
+        Operations operations = newOperations(entityManager);
+        operations.run(() -> {
+            operations.save("outer", false);
+            try {
+                operations.saveNested("nested", false);
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("savepoints"));
+            }
+            try {
+                operations.saveNew("new");
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("suspended"));
+            }
+        });
+        assertFalse(entityManager.getTransaction().isActive());
+        assertEquals(Collections.singletonList("outer"), jdbcUserNames());
+        assertEquals(1L, jpaUserCount());
+    }
+
+    @Test
+    public void testJpaOnlyTransactionBorrowsNoConnection() {
+        PooledDataSource pooledDataSource = dbConnectionManager.getPooledDataSource();
+        long borrowCount = pooledDataSource.getBorrowCount();
+        newOperations(entityManager).persist("user");
+        assertEquals(borrowCount, pooledDataSource.getBorrowCount());
+        assertEquals(1L, jpaUserCount());
+    }
+
+    @Test
+    public void testRollbackFailureIsSuppressed() {
+        IllegalStateException rollbackFailure = new IllegalStateException("rollback");
+        LocalTransactionManager transactionManager = new LocalTransactionManager(dbConnectionManager.getPooledDataSource()) {
+            @Override
+            public void rollback(TransactionStatus status) {
+                super.rollback(status);
+                throw rollbackFailure;
+            }
+        };
+        Operations operations = newOperations(new LocalTransactionInterceptor(transactionManager),
+                new OperationsImpl(userRepository, null));
+        try {
+            operations.save("user", true);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("user", e.getMessage());
+            assertEquals(Collections.singletonList(rollbackFailure), Arrays.asList(e.getSuppressed()));
+        }
+    }
+
+    private LocalTransactionInterceptor newInterceptor(EntityManager entityManager) {
+        return new LocalTransactionInterceptor(dbConnectionManager.getTransactionManager(), entityManager);
+    }
+
+    private Operations newOperations(EntityManager entityManager) {
+        OperationsImpl target = new OperationsImpl(userRepository, entityManager);
+        target.self = newOperations(newInterceptor(entityManager), target);
+        return target.self;
+    }
+
+    private static Operations newOperations(LocalTransactionInterceptor interceptor, OperationsImpl target) {
+        return ComponentInterceptor.newProxy(target, Operations.class, interceptor);
+    }
+
+    private List<String> jdbcUserNames() {
+        return userRepository.getAll().stream().map(User::getName).collect(Collectors.toList());
+    }
+
+    private long jpaUserCount() {
+        return entityManager.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+    }
+
+    public interface Operations {
+
+        void save(String name, boolean fail);
+
+        void saveWithNested(String name, String nestedName);
+
+        void saveNested(String name, boolean fail);
+
+        void saveNew(String name);
+
+        void persist(String name);
+
+        void run(Runnable action);
+    }
+
+    /**
+     * 通过 JDBC 与 JPA（可选）保存用户
+     */
+    public static class OperationsImpl implements Operations {
+
+        private final DatabaseUserRepository userRepository;
+
+        private final EntityManager entityManager;
+
+        /**
+         * 自身的代理，内部调用需要经过代理才会被拦截
+         */
+        private Operations self;
+
+        public OperationsImpl(DatabaseUserRepository userRepository, EntityManager entityManager) {
+            this.userRepository = userRepository;
+            this.entityManager = entityManager;
+        }
+
+        @Override
+        @LocalTransactional
+        public void save(String name, boolean fail) {
+            assertTrue(userRepository.save(newUser(name)));
+            if (entityManager != null) {
+                entityManager.persist(newUser(name));
+            }
+            if (fail) {
+                throw new IllegalStateException(name);
+            }
+        }
+
+        @Override
+        @LocalTransactional
+        public void saveWithNested(String name, String nestedName) {
+            save(name, false);
+            try {
+                self.saveNested(nestedName, true);
+            } catch (IllegalStateException ignored) {
+                // 嵌套事务已回滚
+            }
+        }
+
+        @Override
+        @LocalTransactional(propagation = PROPAGATION_NESTED)
+        public void saveNested(String name, boolean fail) {
+            save(name, fail);
+        }
+
+        @Override
+        @LocalTransactional(propagation = PROPAGATION_REQUIRES_NEW)
+        public void saveNew(String name) {
+            save(name, false);
+        }
+
+        @Override
+        @LocalTransactional
+        public void persist(String name) {
+            entityManager.persist(newUser(name));
+        }
+
+        @Override
+        @LocalTransactional
+        public void run(Runnable action) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.geektimes.projects.user.sql;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.projects.user.domain.User;
+import org.geektimes.projects.user.repository.DatabaseUserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.geektimes.projects.user.domain.TestUsers.newUser;
+import static org.geektimes.projects.user.sql.LocalTransactional.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link LocalTransactionManager} 测试（Derby）
+ */
+public class LocalTransactionManagerTest {
+
+    private DBConnectionManager dbConnectionManager;
+
+    private LocalTransactionManager transactionManager;
+
+    private DatabaseUserRepository userRepository;
+
+    @Before
+    public void init() throws SQLException {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/local-transaction-test");
+        dataSource.setCreateDatabase("create");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+        }
+        dbConnectionManager = new DBConnectionManager();
+        dbConnectionManager.setDataSource(dataSource);
+        dbConnectionManager.init();
+        transactionManager = dbConnectionManager.getTransactionManager();
+        userRepository = new DatabaseUserRepository(dbConnectionManager);
+    }
+
+    @After
+    public void destroy() {
+        dbConnectionManager.destroy();
+    }
+
+    @Test
+    public void testRequired() {
+        long borrowCount = dbConnectionManager.getPooledDataSource().getBorrowCount();
+        LocalTransactionManager.TransactionStatus outer = transactionManager.begin(definition("required"));
+        assertTrue(outer.isNewTransaction());
+        assertTrue(userRepository.save(newUser("outer")));
+
+        LocalTransactionManager.TransactionStatus inner = transactionManager.begin(definition("required"));
+        assertFalse(inner.isNewTransaction());
+        assertTrue(userRepository.save(newUser("inner")));
+        // 事务中 Repository 提交与关闭连接不影响物理事务
+        assertEquals(2, userRepository.getAll().size());
+        transactionManager.rollback(inner);
+        assertTrue(outer.isRollbackOnly());
+
+        try {
+            transactionManager.commit(outer);
+            fail();
+        } catch (IllegalStateException expected) {
+            // 已被标记为仅回滚
+        }
+        // 共享一个物理连接
+        assertEquals(borrowCount + 1, dbConnectionManager.getPooledDataSource().getBorrowCount());
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+        assertTrue(userRepository.getAll().isEmpty());
+    }
+
+    @Test
+    public void testRequiresNew() {
+        LocalTransactionManager.TransactionStatus outer = transactionManager.begin(definition("required"));
+        assertTrue(userRepository.save(newUser("outer")));
+
+        LocalTransactionManager.TransactionStatus inner = transactionManager.begin(definition("requiresNew"));
+        assertTrue(inner.isNewTransaction());
+        assertTrue(userRepository.save(newUser("inner")));
+        transactionManager.commit(inner);
+
+        transactionManager.rollback(outer);
+        assertEquals(Collections.singletonList("inner"), userNames());
+    }
+
+    @Test
+    public void testNested() {
+        LocalTransactionManager.TransactionStatus outer = transactionManager.begin(definition("required"));
+        assertTrue(userRepository.save(newUser("outer")));
+
+        LocalTransactionManager.TransactionStatus nested = transactionManager.begin(definition("nested"));
+        assertTrue(nested.isNested());
+        assertTrue(userRepository.save(newUser("nested")));
+        transactionManager.rollback(nested);
+        assertFalse(outer.isRollbackOnly());
+
+        transactionManager.commit(outer);
+        assertEquals(Collections.singletonList("outer"), userNames());
+    }
+
+    @Test
+    public void testConnectionBoundLazily() {
+        long borrowCount = dbConnectionManager.getPooledDataSource().getBorrowCount();
+        LocalTransactionManager.TransactionStatus status = transactionManager.begin(definition("required"));
+        transactionManager.commit(status);
+        // 没有访问 JDBC 的事务不借出连接
+        assertEquals(borrowCount, dbConnectionManager.getPooledDataSource().getBorrowCount());
+    }
+
+    @Test
+    public void testNestedBeforeConnectionBound() {
+        LocalTransactionManager.TransactionStatus outer = transactionManager.begin(definition("required"));
+        LocalTransactionManager.TransactionStatus nested = transactionManager.begin(definition("nested"));
+        assertTrue(nested.isNested());
+        // 连接在嵌套事务中绑定，回滚嵌套事务即回滚之前的全部操作
+        assertTrue(userRepository.save(newUser("nested")));
+        transactionManager.rollback(nested);
+        assertFalse(outer.isRollbackOnly());
+
+        assertTrue(userRepository.save(newUser("outer")));
+        transactionManager.commit(outer);
+        assertEquals(Collections.singletonList("outer"), userNames());
+        assertEquals(0, dbConnectionManager.getPooledDataSource().getActiveConnections());
+    }
+
+    @Test
+    public void testNestedRollbackAfterRequiredRollback() {
+        LocalTransactionManager.TransactionStatus outer = transactionManager.begin(definition("required"));
+        assertTrue(userRepository.save(newUser("outer")));
+
+        LocalTransactionManager.TransactionStatus inner = transactionManager.begin(definition("required"));
+        transactionManager.rollback(inner);
+        assertTrue(outer.isRollbackOnly());
+
+        // 嵌套事务回滚不能清除之前加入的事务设置的仅回滚标记
+        LocalTransactionManager.TransactionStatus nested = transactionManager.begin(definition("nested"));
+        assertTrue(userRepository.save(newUser("nested")));
+        transactionManager.rollback(nested);
+        assertTrue(outer.isRollbackOnly());
+
+        try {
+            transactionManager.commit(outer);
+            fail();
+        } catch (IllegalStateException expected) {
+            // 已被标记为仅回滚
+        }
+        assertTrue(userRepository.getAll().isEmpty());
+    }
+
+    private List<String> userNames() {
+        return userRepository.getAll().stream().map(User::getName).collect(Collectors.toList());
+    }
+
+    private static LocalTransactional definition(String methodName) {
+        try {
+            return LocalTransactionManagerTest.class.getDeclaredMethod(methodName)
+                    .getAnnotation(LocalTransactional.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @LocalTransactional
+    private static void required() {
+    }
+
+    @LocalTransactional(propagation = PROPAGATION_REQUIRES_NEW)
+    private static void requiresNew() {
+    }
+
+    @LocalTransactional(propagation = PROPAGATION_NESTED)
+    private static void nested() {
+    }
+}
@@ -0,0 +1,309 @@
+package org.geektimes.projects.user.sql;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PooledDataSource} 测试
+ */
+public class PooledDataSourceTest {
+
+    private PooledDataSource dataSource;
+
+    @Before
+    public void init() {
+        EmbeddedDataSource targetDataSource = new EmbeddedDataSource();
+        targetDataSource.setDatabaseName("target/derby/pooled-data-source-test");
+        targetDataSource.setCreateDatabase("create");
+        dataSource = new PooledDataSource(targetDataSource, 2);
+        dataSource.setMaxWait(50);
+    }
+
+    @After
+    public void destroy() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testBorrowAndReturn() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        assertEquals(1, dataSource.getActiveConnections());
+        connection.close();
+        assertTrue(connection.isClosed());
+        // 重复关闭不会重复归还
+        connection.close();
+        assertEquals(0, dataSource.getActiveConnections());
+        assertEquals(1, dataSource.getIdleConnections());
+
+        // 复用空闲的物理连接
+        try (Connection reused = dataSource.getConnection();
+             Statement statement = reused.createStatement()) {
+            statement.execute("VALUES 1");
+        }
+        assertEquals(1, dataSource.getTotalConnections());
+        assertEquals(2, dataSource.getBorrowCount());
+    }
+
+    @Test(expected = SQLException.class)
+    public void testClosedConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.createStatement();
+    }
+
+    @Test
+    public void testMaxWait() throws SQLException {
+        try (Connection first = dataSource.getConnection();
+             Connection second = dataSource.getConnection()) {
+            dataSource.getConnection();
+            fail();
+        } catch (SQLTransientConnectionException e) {
+            assertEquals(1, dataSource.getTimeoutCount());
+        }
+        assertEquals(2, dataSource.getIdleConnections());
+    }
+
+    /**
+     * 许可不足时等待，连接归还后唤醒等待线程
+     */
+    @Test
+    public void testWaitForReturn() throws Exception {
+        dataSource.setMaxWait(10000);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Connection first = dataSource.getConnection()) {
+            Connection second = dataSource.getConnection();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(() -> {
+                    dataSource.getConnection().close();
+                    return null;
+                }));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (dataSource.getPendingThreads() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(2, dataSource.getPendingThreads());
+            second.close();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, dataSource.getPendingThreads());
+        assertEquals(0, dataSource.getTimeoutCount());
+        assertEquals(4, dataSource.getBorrowCount());
+    }
+
+    @Test
+    public void testStatementCache() throws SQLException {
+        dataSource.setStatementCacheSize(1);
+        try (Connection connection = dataSource.getConnection()) {
+            for (int i = 0; i < 3; i++) {
+                try (PreparedStatement statement = connection.prepareStatement("VALUES CAST(? AS INT)")) {
+                    ParameterBinders.bind(statement, i);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        assertTrue(resultSet.next());
+                        assertEquals(i, resultSet.getInt(1));
+                    }
+                }
+            }
+            assertEquals(2, dataSource.getStatementCacheHitCount());
+            // 相同 SQL 的语句正在使用时不命中缓存
+            try (PreparedStatement first = connection.prepareStatement("VALUES 1");
+                 PreparedStatement second = connection.prepareStatement("VALUES 1")) {
+                assertNotSame(first, second);
+            }
+            assertEquals(2, dataSource.getStatementCacheHitCount());
+        }
+    }
+
+    /**
+     * 所有语句的 {@link Statement#getConnection()} 返回借出的连接，关闭语句不影响连接
+     */
+    @Test
+    public void testStatementConnection() throws SQLException {
+        dataSource.setStatementCacheSize(1);
+        try (Connection connection = dataSource.getConnection()) {
+            List<Statement> statements = Arrays.asList(connection.createStatement(),
+                    connection.prepareStatement("VALUES 1"),
+                    connection.prepareStatement("VALUES 1", Statement.RETURN_GENERATED_KEYS),
+                    connection.prepareCall("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)"));
+            for (Statement statement : statements) {
+                assertSame(connection, statement.getConnection());
+                statement.close();
+                assertTrue(statement.isClosed());
+                try {
+                    statement.getConnection();
+                    fail();
+                } catch (SQLException expected) {
+                    // 语句已关闭
+                }
+            }
+            assertFalse(connection.isClosed());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("VALUES 1");
+            }
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    /**
+     * 缓存的语句复用参数元信息，绑定 <code>null</code> 参数时不再重复获取
+     */
+    @Test
+    public void testStatementCacheParameterMetaData() throws SQLException {
+        dataSource.setStatementCacheSize(1);
+        String sql = "VALUES CAST(? AS INT)";
+        try (Connection connection = dataSource.getConnection()) {
+            ParameterMetaData parameterMetaData;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                parameterMetaData = statement.getParameterMetaData();
+                ParameterBinders.bind(statement, (Object) null);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                    assertNull(resultSet.getObject(1));
+                }
+            }
+            try (PreparedStatement reused = connection.prepareStatement(sql)) {
+                assertSame(parameterMetaData, reused.getParameterMetaData());
+            }
+        }
+    }
+
+    @Test
+    public void testStatementCacheReset() throws SQLException {
+        dataSource.setStatementCacheSize(1);
+        String sql = "SELECT * FROM (VALUES 1, 2, 3) AS T(N)";
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            int defaultFetchSize = statement.getFetchSize();
+            // Derby 要求 fetchSize 不大于 maxRows
+            statement.setMaxRows(2);
+            statement.setFetchSize(2);
+            ResultSet resultSet = statement.executeQuery();
+            assertTrue(resultSet.next());
+            statement.close();
+            try {
+                resultSet.getInt(1);
+                fail();
+            } catch (SQLException e) {
+                // 结果集随语句放回缓存时关闭
+            }
+
+            try (PreparedStatement reused = connection.prepareStatement(sql)) {
+                assertEquals(1, dataSource.getStatementCacheHitCount());
+                assertEquals(0, reused.getMaxRows());
+                assertEquals(defaultFetchSize, reused.getFetchSize());
+                int count = 0;
+                try (ResultSet rows = reused.executeQuery()) {
+                    while (rows.next()) {
+                        count++;
+                    }
+                }
+                assertEquals(3, count);
+            }
+        }
+    }
+
+    @Test
+    public void testMinIdle() throws Exception {
+        dataSource.setMinIdle(1);
+        // 后台线程补充空闲连接
+        awaitIdleConnections(1);
+        assertEquals(1, dataSource.getTotalConnections());
+
+        dataSource.setMinIdle(3);
+        try (Connection connection = dataSource.getConnection()) {
+            dataSource.fillPool();
+            // 不超过最大连接数（后台线程可能同时在补充）
+            awaitIdleConnections(1);
+            assertEquals(2, dataSource.getTotalConnections());
+        }
+
+        // 空闲超时的连接被回收后补足
+        dataSource.setMinIdle(1);
+        dataSource.setIdleTimeout(1);
+        Thread.sleep(10);
+        dataSource.housekeep();
+        assertEquals(1, dataSource.getIdleConnections());
+        assertEquals(1, dataSource.getTotalConnections());
+    }
+
+    private void awaitIdleConnections(int idleConnections) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dataSource.getIdleConnections() < idleConnections && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(idleConnections, dataSource.getIdleConnections());
+    }
+
+    @Test
+    public void testIdleEvictionAndLeakDetection() throws Exception {
+        dataSource.setIdleTimeout(1);
+        dataSource.setLeakDetectionThreshold(1);
+        dataSource.getConnection().close();
+        Connection leaked = dataSource.getConnection();
+        dataSource.getConnection().close();
+        Thread.sleep(10);
+        dataSource.housekeep();
+        assertEquals(0, dataSource.getIdleConnections());
+        assertEquals(1, dataSource.getTotalConnections());
+        assertEquals(1, dataSource.getLeakCount());
+        leaked.close();
+    }
+
+    @Test
+    public void testLeakDetectionStackTrace() throws Exception {
+        dataSource.setLeakDetectionThreshold(1);
+        dataSource.setLeakDetectionStackTrace(true);
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(PooledDataSource.class.getName());
+        logger.addHandler(handler);
+        try (Connection leaked = dataSource.getConnection()) {
+            Thread.sleep(10);
+            dataSource.housekeep();
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).getMessage().contains(Thread.currentThread().getName()));
+        // 借出时的调用栈
+        assertTrue(Arrays.stream(records.get(0).getThrown().getStackTrace())
+                .anyMatch(element -> getClass().getName().equals(element.getClassName())));
+    }
+}
@@ -0,0 +1,101 @@
+package org.geektimes.projects.user.sql;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.benchmark.BenchmarkRunner;
+import org.geektimes.projects.user.domain.User;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link RowMappers} 与 Introspector + {@link Method#invoke(Object, Object...)}（原 DatabaseUserRepository#getAll 实现）
+ * 在 10 万行结果集上的性能对比
+ *
+ * @see BenchmarkRunner
+ */
+public class RowMapperBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final int ROWS = 100_000;
+
+    private static final String QUERY_SQL = "SELECT id,name,password,email,phoneNumber FROM users";
+
+    public static void main(String[] args) throws Throwable {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/row-mapper-benchmark");
+        dataSource.setCreateDatabase("create");
+        try (Connection connection = dataSource.getConnection()) {
+            prepareUsers(connection);
+            BenchmarkRunner.run("RowMapper", WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, () -> {
+                long rowMapperCost = BenchmarkRunner.time(() -> queryByRowMapper(connection));
+                long reflectionCost = BenchmarkRunner.time(() -> queryByReflection(connection));
+                return String.format("RowMapper %.2f ms , Reflection %.2f ms", rowMapperCost / 1e6, reflectionCost / 1e6);
+            });
+        }
+    }
+
+    private static void prepareUsers(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO users(name,password,email,phoneNumber) VALUES (?,?,?,?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                ParameterBinders.bind(statement, "user-" + i, "******", "user-" + i + "@gmail.com", String.valueOf(i));
+                statement.addBatch();
+                if (i % 1000 == 999) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private static List<User> queryByRowMapper(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(QUERY_SQL)) {
+            RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
+            List<User> users = new ArrayList<>(ROWS);
+            while (resultSet.next()) {
+                users.add(rowMapper.mapRow(resultSet));
+            }
+            return users;
+        }
+    }
+
+    private static List<User> queryByReflection(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(QUERY_SQL)) {
+            BeanInfo userBeanInfo = Introspector.getBeanInfo(User.class, Object.class);
+            List<User> users = new ArrayList<>(ROWS);
+            while (resultSet.next()) {
+                User user = new User();
+                for (PropertyDescriptor propertyDescriptor : userBeanInfo.getPropertyDescriptors()) {
+                    Class<?> fieldType = propertyDescriptor.getPropertyType();
+                    String methodName = Long.class.equals(fieldType) ? "getLong" : "getString";
+                    Method resultSetMethod = ResultSet.class.getMethod(methodName, String.class);
+                    Object resultValue = resultSetMethod.invoke(resultSet, propertyDescriptor.getName());
+                    propertyDescriptor.getWriteMethod().invoke(user, resultValue);
+                }
+                users.add(user);
+            }
+            return users;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.geektimes.projects.user.sql;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.geektimes.projects.user.domain.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RowMappers} 测试
+ */
+public class RowMappersTest {
+
+    private Connection connection;
+
+    @Before
+    public void init() throws SQLException {
+        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("target/derby/row-mappers-test");
+        dataSource.setCreateDatabase("create");
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DBConnectionManager.DROP_USERS_TABLE_DDL_SQL);
+            } catch (SQLException ignored) {
+                // 表不存在
+            }
+            statement.execute(DBConnectionManager.CREATE_USERS_TABLE_DDL_SQL);
+            statement.executeUpdate(DBConnectionManager.INSERT_USER_DML_SQL);
+        }
+    }
+
+    @After
+    public void destroy() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testMapRow() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT id,name,password,email,phoneNumber FROM users ORDER BY id")) {
+            RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
+            assertTrue(resultSet.next());
+            User user = rowMapper.mapRow(resultSet);
+            assertEquals(Long.valueOf(1), user.getId());
+            assertEquals("A", user.getName());
+            assertEquals("******", user.getPassword());
+            assertEquals("a@gmail.com", user.getEmail());
+            assertEquals("1", user.getPhoneNumber());
+            // 相同列布局复用同一个 RowMapper
+            assertSame(rowMapper, RowMappers.getRowMapper(User.class, resultSet.getMetaData()));
+        }
+    }
+
+    @Test
+    public void testMapPartialColumns() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT email, 0 AS extra, name FROM users WHERE name='B'")) {
+            RowMapper<User> rowMapper = RowMappers.getRowMapper(User.class, resultSet.getMetaData());
+            assertTrue(resultSet.next());
+            User user = rowMapper.mapRow(resultSet);
+            assertNull(user.getId());
+            assertEquals("B", user.getName());
+            assertEquals("b@gmail.com", user.getEmail());
+            assertNull(user.getPassword());
+        }
+    }
+}